@@ -0,0 +1,138 @@
+package de.eldecker.dhbw.spring.glossar.backup;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_CONTENT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import tools.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.eldecker.dhbw.spring.glossar.model.BackupErgebnis;
+
+
+/**
+ * REST-Controller, mit dem ein angemeldeter Nutzer ein Backup der Datenbank (siehe
+ * {@link OnlineBackup}) sofort starten oder ein vorhandenes Backup prüfen kann.
+ * <br><br>
+ *
+ * Das Wiederherstellen eines Backups ist bewusst nicht über die REST-API möglich, sondern nur
+ * beim Programmstart (siehe {@link BackupWiederherstellung}).
+ */
+@RestController
+@RequestMapping( "/api/v1/backup" )
+public class BackupController {
+
+    private static final Logger LOG = LoggerFactory.getLogger( BackupController.class );
+
+    /** Bean für das Backup. */
+    private final OnlineBackup _onlineBackup;
+
+    /** Für Serialisierung des Ergebnisses als JSON. */
+    private final ObjectMapper _objectMapper;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public BackupController( OnlineBackup onlineBackup,
+                             ObjectMapper objectMapper ) {
+
+        _onlineBackup = onlineBackup;
+        _objectMapper = objectMapper;
+    }
+
+
+    /**
+     * Backup starten; der Request kehrt erst nach Ende des Backups zurück.
+     *
+     * @param inkrementell Wenn {@code true}, dann wird nur ein inkrementelles Backup mit den
+     *                     Änderungen seit dem letzten Backup geschrieben (URL-Parameter
+     *                     {@code inkrementell}).
+     *
+     * @return HTTP-Status-Code 200 mit {@link BackupErgebnis} als JSON; 503 (Service Unavailable)
+     *         wenn kein Backup-Verzeichnis konfiguriert ist, 409 (Conflict) wenn schon ein Backup
+     *         läuft, 500 bei Fehler beim Lesen der Datenbank oder Schreiben der Datei.
+     */
+    @PostMapping
+    public ResponseEntity<String> backupStarten( @RequestParam( name = "inkrementell", defaultValue = "false" ) boolean inkrementell ) {
+
+        if ( !_onlineBackup.istKonfiguriert() ) {
+
+            return new ResponseEntity<>( "Kein Backup-Verzeichnis konfiguriert (de.eldecker.glossar.backup.verzeichnis).",
+                                         SERVICE_UNAVAILABLE );
+        }
+
+        final BackupErgebnis ergebnis;
+        try {
+
+            ergebnis = _onlineBackup.sichern( inkrementell );
+        }
+        catch ( IOException | SQLException ex ) {
+
+            LOG.error( "Fehler beim Backup.", ex );
+            return new ResponseEntity<>( "Fehler beim Backup: " + ex.getMessage(), INTERNAL_SERVER_ERROR );
+        }
+
+        if ( ergebnis == null ) {
+
+            return new ResponseEntity<>( "Es läuft schon ein Backup.", CONFLICT );
+        }
+
+        return ResponseEntity.ok()
+                             .contentType( APPLICATION_JSON )
+                             .body( _objectMapper.writeValueAsString( ergebnis ) );
+    }
+
+
+    /**
+     * Backup aus dem Backup-Verzeichnis prüfen: bei vollständigem Backup Prüfsumme und
+     * Probe-Einspielen in eine In-Memory-Datenbank, bei inkrementellem Backup Prüfsummen
+     * der ganzen Kette bis zum vollständigen Backup.
+     *
+     * @param datei Name der Backup-Datei ohne Verzeichnis (URL-Parameter {@code datei})
+     *
+     * @return HTTP-Status-Code 200 mit {@link BackupErgebnis} als JSON wenn Backup in Ordnung;
+     *         404 (Not Found) wenn es die Backup-Datei nicht gibt, 422 (Unprocessable Content)
+     *         mit Grund wenn das Backup nicht in Ordnung ist.
+     */
+    @PostMapping( "/pruefen" )
+    public ResponseEntity<String> backupPruefen( @RequestParam( "datei" ) String datei ) {
+
+        final Optional<BackupErgebnis> ergebnisOptional;
+        try {
+
+            ergebnisOptional = _onlineBackup.pruefen( datei );
+        }
+        catch ( IOException | SQLException ex ) {
+
+            LOG.warn( "Backup \"{}\" ist nicht in Ordnung: {}", datei, ex.getMessage() );
+            return new ResponseEntity<>( "Backup ist nicht in Ordnung: " + ex.getMessage(), UNPROCESSABLE_CONTENT );
+        }
+
+        if ( ergebnisOptional.isEmpty() ) {
+
+            return new ResponseEntity<>( "Backup-Datei nicht gefunden: " + datei, NOT_FOUND );
+        }
+
+        return ResponseEntity.ok()
+                             .contentType( APPLICATION_JSON )
+                             .body( _objectMapper.writeValueAsString( ergebnisOptional.get() ) );
+    }
+
+}
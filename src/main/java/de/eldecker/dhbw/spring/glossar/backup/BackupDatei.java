@@ -0,0 +1,452 @@
+package de.eldecker.dhbw.spring.glossar.backup;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+import de.eldecker.dhbw.spring.glossar.helferlein.GedrosselterOutputStream;
+import de.eldecker.dhbw.spring.glossar.model.BackupErgebnis;
+
+
+/**
+ * Schreiben, Prüfen und Einspielen einer Backup-Datei der H2-Datenbank; die Klasse hat nur
+ * statische Methoden, weil sie auch beim Wiederherstellen vor dem Start von JPA verwendet
+ * wird (siehe {@link BackupWiederherstellung}).
+ * <br><br>
+ *
+ * Eine Backup-Datei enthält die SQL-Befehle, die der H2-Befehl {@code SCRIPT} liefert
+ * (Schema und alle Zeilen), mit GZIP komprimiert; sie kann also auch mit H2-Bordmitteln
+ * ({@code RUNSCRIPT FROM '...' COMPRESSION GZIP}) eingespielt werden. Zu jeder Backup-Datei
+ * gibt es eine Prüfdatei mit der Endung {@code .pruefung}:
+ * <pre>
+ * format=1
+ * sha256=&lt;Prüfsumme der Backup-Datei&gt;
+ * bytes=&lt;Größe der Backup-Datei&gt;
+ * typ=voll
+ * sequenz=&lt;Sequenznummer des Änderungsfeeds, falls bekannt&gt;
+ * zeilen.&lt;Tabelle&gt;=&lt;Anzahl Zeilen&gt;
+ * ...
+ * </pre>
+ *
+ * Inkrementelle Backups (siehe {@link BackupInkrement}) haben eine Prüfdatei mit dem
+ * gleichen Aufbau.
+ */
+public final class BackupDatei {
+
+    /** Version des Formats der Prüfdatei. */
+    private static final String FORMAT_VERSION = "format=1";
+
+    /** Endung der Prüfdatei, die an den Namen der Backup-Datei angehängt wird. */
+    public static final String ENDUNG_PRUEFUNG = ".pruefung";
+
+    /** Präfix für die Zeilenanzahlen in der Prüfdatei. */
+    static final String PRAEFIX_ZEILEN = "zeilen.";
+
+    /** Schlüssel in der Prüfdatei für die Art des Backups. */
+    static final String SCHLUESSEL_TYP = "typ";
+
+    /** Wert für {@link #SCHLUESSEL_TYP}: vollständiges Backup. */
+    static final String TYP_VOLL = "voll";
+
+    /** Schlüssel in der Prüfdatei für die Sequenznummer des Änderungsfeeds, bis zu der das Backup reicht. */
+    static final String SCHLUESSEL_SEQUENZ = "sequenz";
+
+
+    /**
+     * Kein Konstruktor, nur statische Methoden.
+     */
+    private BackupDatei() {}
+
+
+    /**
+     * Aktion, die in einer Transaktion mit konsistentem Stand der Datenbank ausgeführt wird,
+     * siehe {@link BackupDatei#imSnapshot(Connection, SnapshotAktion)}.
+     */
+    @FunctionalInterface
+    interface SnapshotAktion<T> {
+
+        /**
+         * Aktion ausführen.
+         *
+         * @param statement Statement in der Transaktion
+         *
+         * @return Ergebnis der Aktion
+         */
+        T ausfuehren( Statement statement ) throws IOException, SQLException;
+    }
+
+
+    /**
+     * Aktion in einer Transaktion mit Isolationslevel {@code SNAPSHOT} ausführen: alle Abfragen
+     * sehen einen konsistenten Stand der Datenbank; weil H2 (MVStore) dafür keine Sperren setzt,
+     * werden andere lesende und schreibende Transaktionen nicht blockiert.
+     *
+     * @param connection Verbindung zur Datenbank; wird danach wieder auf Autocommit und
+     *                   Isolationslevel {@code READ COMMITTED} zurückgesetzt
+     *
+     * @param aktion Auszuführende Aktion
+     *
+     * @return Ergebnis der Aktion
+     */
+    static <T> T imSnapshot( Connection connection, SnapshotAktion<T> aktion ) throws IOException, SQLException {
+
+        final boolean autoCommit = connection.getAutoCommit();
+        try ( Statement statement = connection.createStatement() ) {
+
+            connection.setAutoCommit( false );
+            statement.execute( "SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL SNAPSHOT" );
+            try {
+
+                return aktion.ausfuehren( statement );
+            }
+            finally {
+
+                connection.commit();
+                statement.execute( "SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL READ COMMITTED" );
+                connection.setAutoCommit( autoCommit );
+            }
+        }
+    }
+
+
+    /**
+     * Vollständiges Backup schreiben; die Datei wird zuerst unter einem temporären Namen
+     * geschrieben.
+     *
+     * @param connection Verbindung zur Datenbank, siehe {@link #imSnapshot(Connection, SnapshotAktion)}
+     *
+     * @param datei Zieldatei; das Verzeichnis muss existieren
+     *
+     * @param bytesProSekunde Max Anzahl Bytes pro Sekunde beim Schreiben; 0 für unbegrenzt
+     *
+     * @param sequenz Sequenznummer des Änderungsfeeds, bis zu der alle Änderungen vor dem Backup
+     *                committet waren (Horizont); nur dann kann auf dem Backup ein inkrementelles
+     *                Backup (siehe {@link BackupInkrement}) aufbauen. Wert {@code -1} wenn unbekannt.
+     *
+     * @return Ergebnis mit Prüfsumme und Zeilenanzahlen
+     *
+     * @throws IOException Fehler beim Schreiben der Datei
+     *
+     * @throws SQLException Fehler beim Lesen der Datenbank
+     */
+    public static BackupErgebnis schreiben( Connection connection, Path datei, long bytesProSekunde, long sequenz )
+            throws IOException, SQLException {
+
+        final long startMillis = System.currentTimeMillis();
+
+        final Path temp = datei.resolveSibling( datei.getFileName() + ".tmp" );
+
+        final MessageDigest     digest = sha256();
+        final Map<String, Long> zeilenMap;
+        try {
+
+            zeilenMap = imSnapshot( connection, statement -> {
+
+                final Map<String, Long> zeilenImSnapshot = zeilenZaehlen( connection );
+
+                try ( OutputStream datenStrom = Files.newOutputStream( temp );
+                      Writer       writer     = new BufferedWriter(
+                                                    new OutputStreamWriter(
+                                                      new GZIPOutputStream(
+                                                        new DigestOutputStream(
+                                                          new GedrosselterOutputStream( datenStrom, bytesProSekunde ),
+                                                          digest ),
+                                                        64 * 1024 ),
+                                                      UTF_8 ) );
+                      ResultSet    resultSet  = statement.executeQuery( "SCRIPT" ) ) {
+
+                    while ( resultSet.next() ) {
+
+                        writer.write( resultSet.getString( 1 ) ); // jede Zeile ist ein Befehl mit ";"
+                        writer.write( '\n' );
+                    }
+                }
+
+                return zeilenImSnapshot;
+            });
+        }
+        catch ( IOException | SQLException | RuntimeException ex ) {
+
+            Files.deleteIfExists( temp );
+            throw ex;
+        }
+
+        Files.move( temp, datei, REPLACE_EXISTING, ATOMIC_MOVE );
+
+        final String sha256 = HexFormat.of().formatHex( digest.digest() );
+        final long   bytes  = Files.size( datei );
+
+        final Map<String, String> angabenMap = new TreeMap<>();
+        angabenMap.put( SCHLUESSEL_TYP, TYP_VOLL );
+        if ( sequenz >= 0 ) {
+
+            angabenMap.put( SCHLUESSEL_SEQUENZ, Long.toString( sequenz ) );
+        }
+        pruefdateiSchreiben( datei, sha256, bytes, zeilenMap, angabenMap );
+
+        return new BackupErgebnis( datei.getFileName().toString(), bytes, sha256, zeilenMap,
+                                   System.currentTimeMillis() - startMillis );
+    }
+
+
+    /**
+     * Backup prüfen: Prüfsumme der Datei muss mit der Prüfdatei übereinstimmen, und nach dem
+     * Einspielen in eine leere In-Memory-Datenbank muss jede Tabelle die Anzahl Zeilen aus der
+     * Prüfdatei haben. Die In-Memory-Datenbank wird danach verworfen; die Prüfung braucht
+     * also Hauptspeicher für den ganzen Inhalt des Backups.
+     *
+     * @param datei Zu prüfende Backup-Datei
+     *
+     * @return Ergebnis mit Prüfsumme und Zeilenanzahlen
+     *
+     * @throws IOException Backup ist nicht in Ordnung (mit Grund als Meldung) oder kann nicht
+     *                     gelesen werden
+     *
+     * @throws SQLException Fehler beim Einspielen in die In-Memory-Datenbank
+     */
+    public static BackupErgebnis pruefen( Path datei ) throws IOException, SQLException {
+
+        final long startMillis = System.currentTimeMillis();
+
+        final Map<String, String> pruefMap = pruefdateiLesen( datei );
+        final String sha256 = pruefsummePruefen( datei, pruefMap );
+
+        final String url = "jdbc:h2:mem:backup-pruefung-" + System.nanoTime();
+        try ( Connection connection = DriverManager.getConnection( url, "sa", "" ) ) {
+
+            skriptAusfuehren( connection, datei );
+            zeilenPruefen( connection, pruefMap );
+
+            return new BackupErgebnis( datei.getFileName().toString(), Files.size( datei ), sha256,
+                                       zeilenZaehlen( connection ), System.currentTimeMillis() - startMillis );
+        }
+    }
+
+
+    /**
+     * Backup in die Datenbank einspielen: alle Tabellen usw. werden gelöscht und aus dem Backup
+     * neu angelegt, danach wird die Anzahl Zeilen jeder Tabelle gegen die Prüfdatei geprüft.
+     * Darf nur aufgerufen werden, solange kein anderer Thread auf die Datenbank zugreift.
+     *
+     * @param connection Verbindung zur Datenbank
+     *
+     * @param datei Einzuspielende Backup-Datei; sollte vorher mit {@link #pruefen(Path)}
+     *              geprüft worden sein
+     *
+     * @throws IOException Prüfsumme oder Anzahl Zeilen nach dem Einspielen falsch
+     *
+     * @throws SQLException Fehler beim Einspielen
+     */
+    public static void einspielen( Connection connection, Path datei ) throws IOException, SQLException {
+
+        final Map<String, String> pruefMap = pruefdateiLesen( datei );
+        pruefsummePruefen( datei, pruefMap );
+
+        try ( Statement statement = connection.createStatement() ) {
+
+            statement.execute( "DROP ALL OBJECTS" );
+        }
+        skriptAusfuehren( connection, datei );
+        zeilenPruefen( connection, pruefMap );
+    }
+
+
+    /**
+     * Backup-Datei mit H2-Befehl {@code RUNSCRIPT} ausführen.
+     */
+    private static void skriptAusfuehren( Connection connection, Path datei ) throws SQLException {
+
+        final String pfad = datei.toAbsolutePath().toString().replace( "'", "''" );
+        try ( Statement statement = connection.createStatement() ) {
+
+            statement.execute( "RUNSCRIPT FROM '" + pfad + "' COMPRESSION GZIP CHARSET 'UTF-8'" );
+        }
+    }
+
+
+    /**
+     * Anzahl Zeilen aller Tabellen im Schema {@code PUBLIC} zählen.
+     *
+     * @return Map von Tabellenname auf Anzahl Zeilen, sortiert nach Tabellenname
+     */
+    static Map<String, Long> zeilenZaehlen( Connection connection ) throws SQLException {
+
+        final List<String> tabellenListe = new ArrayList<>();
+        final Map<String, Long> zeilenMap = new TreeMap<>();
+
+        try ( Statement statement = connection.createStatement() ) {
+
+            try ( ResultSet resultSet = statement.executeQuery(
+                    "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES " +
+                    "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE'" ) ) {
+
+                while ( resultSet.next() ) {
+
+                    tabellenListe.add( resultSet.getString( 1 ) );
+                }
+            }
+
+            for ( String tabelle : tabellenListe ) {
+
+                final String sql = "SELECT COUNT(*) FROM \"PUBLIC\".\"" + tabelle.replace( "\"", "\"\"" ) + "\"";
+                try ( ResultSet resultSet = statement.executeQuery( sql ) ) {
+
+                    resultSet.next();
+                    zeilenMap.put( tabelle, resultSet.getLong( 1 ) );
+                }
+            }
+        }
+
+        return zeilenMap;
+    }
+
+
+    /**
+     * Anzahl Zeilen der Tabellen mit Prüfdatei vergleichen.
+     *
+     * @throws IOException Anzahl Zeilen oder Tabellen stimmt nicht überein
+     */
+    private static void zeilenPruefen( Connection connection, Map<String, String> pruefMap )
+            throws IOException, SQLException {
+
+        final Map<String, Long> zeilenSoll = new TreeMap<>();
+        pruefMap.forEach( ( schluessel, wert ) -> {
+
+            if ( schluessel.startsWith( PRAEFIX_ZEILEN ) ) {
+
+                zeilenSoll.put( schluessel.substring( PRAEFIX_ZEILEN.length() ), Long.parseLong( wert ) );
+            }
+        });
+
+        final Map<String, Long> zeilenIst = zeilenZaehlen( connection );
+        if ( !zeilenIst.equals( zeilenSoll ) ) {
+
+            throw new IOException( "Anzahl Zeilen nach Einspielen des Backups falsch: erwartet " +
+                                   zeilenSoll + ", gefunden " + zeilenIst );
+        }
+    }
+
+
+    /**
+     * SHA-256-Prüfsumme der Backup-Datei berechnen und mit Prüfdatei vergleichen.
+     *
+     * @return Prüfsumme als Hex-String
+     *
+     * @throws IOException Prüfsumme falsch
+     */
+    static String pruefsummePruefen( Path datei, Map<String, String> pruefMap ) throws IOException {
+
+        final MessageDigest digest = sha256();
+        try ( InputStream inputStream = new DigestInputStream( Files.newInputStream( datei ), digest ) ) {
+
+            inputStream.transferTo( OutputStream.nullOutputStream() );
+        }
+
+        final String sha256 = HexFormat.of().formatHex( digest.digest() );
+        if ( !sha256.equals( pruefMap.get( "sha256" ) ) ) {
+
+            throw new IOException( "Prüfsumme der Backup-Datei \"" + datei.getFileName() + "\" ist falsch." );
+        }
+
+        return sha256;
+    }
+
+
+    /**
+     * Prüfdatei neben die Backup-Datei schreiben.
+     *
+     * @param angabenMap Weitere Schlüssel-Wert-Paare, z.B. Art des Backups und Sequenznummer
+     */
+    static void pruefdateiSchreiben( Path datei, String sha256, long bytes, Map<String, Long> zeilenMap,
+                                     Map<String, String> angabenMap ) throws IOException {
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append( FORMAT_VERSION ).append( '\n' );
+        sb.append( "sha256=" ).append( sha256 ).append( '\n' );
+        sb.append( "bytes=" ).append( bytes ).append( '\n' );
+        angabenMap.forEach( ( schluessel, wert ) -> sb.append( schluessel ).append( '=' ).append( wert ).append( '\n' ) );
+        zeilenMap.forEach( ( tabelle, anzahl ) -> sb.append( PRAEFIX_ZEILEN ).append( tabelle )
+                                                    .append( '=' ).append( anzahl ).append( '\n' ) );
+
+        final Path pruefdatei = datei.resolveSibling( datei.getFileName() + ENDUNG_PRUEFUNG );
+        final Path temp       = datei.resolveSibling( datei.getFileName() + ENDUNG_PRUEFUNG + ".tmp" );
+        Files.writeString( temp, sb, UTF_8 );
+        Files.move( temp, pruefdatei, REPLACE_EXISTING, ATOMIC_MOVE );
+    }
+
+
+    /**
+     * Prüfdatei zur Backup-Datei lesen.
+     *
+     * @return Map mit Schlüssel-Wert-Paaren der Prüfdatei (ohne Formatversion)
+     *
+     * @throws IOException Prüfdatei fehlt oder hat falsches Format
+     */
+    static Map<String, String> pruefdateiLesen( Path datei ) throws IOException {
+
+        final Path pruefdatei = datei.resolveSibling( datei.getFileName() + ENDUNG_PRUEFUNG );
+        if ( !Files.exists( pruefdatei ) ) {
+
+            throw new IOException( "Prüfdatei \"" + pruefdatei.getFileName() + "\" nicht gefunden." );
+        }
+
+        final List<String> zeilenListe = Files.readAllLines( pruefdatei, UTF_8 );
+        if ( zeilenListe.isEmpty() || !zeilenListe.getFirst().equals( FORMAT_VERSION ) ) {
+
+            throw new IOException( "Prüfdatei \"" + pruefdatei.getFileName() + "\" hat falsches Format." );
+        }
+
+        final Map<String, String> pruefMap = new TreeMap<>();
+        for ( String zeile : zeilenListe.subList( 1, zeilenListe.size() ) ) {
+
+            final int pos = zeile.indexOf( '=' );
+            if ( pos > 0 ) {
+
+                pruefMap.put( zeile.substring( 0, pos ), zeile.substring( pos + 1 ) );
+            }
+        }
+
+        return pruefMap;
+    }
+
+
+    /**
+     * Neues Objekt für SHA-256 (ist in jeder Java-Laufzeitumgebung vorhanden).
+     */
+    static MessageDigest sha256() {
+
+        try {
+
+            return MessageDigest.getInstance( "SHA-256" );
+        }
+        catch ( NoSuchAlgorithmException ex ) {
+
+            throw new IllegalStateException( ex );
+        }
+    }
+
+}
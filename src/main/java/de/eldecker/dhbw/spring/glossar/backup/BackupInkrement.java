@@ -0,0 +1,825 @@
+package de.eldecker.dhbw.spring.glossar.backup;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.time.ZoneOffset.UTC;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import de.eldecker.dhbw.spring.glossar.helferlein.GedrosselterOutputStream;
+import de.eldecker.dhbw.spring.glossar.model.BackupErgebnis;
+
+
+/**
+ * Schreiben, Prüfen und Einspielen von inkrementellen Backups; die Klasse hat wie
+ * {@link BackupDatei} nur statische Methoden.
+ * <br><br>
+ *
+ * Ein inkrementelles Backup (Segment) enthält nur die Änderungen seit dem vorherigen Backup
+ * (der <i>Basis</i>, vollständig oder selbst inkrementell); dafür wird die Sequenznummer des
+ * Änderungsfeeds verwendet, also der Primärschlüssel der Tabelle {@code REVISIONEN}:
+ * <ul>
+ * <li>{@code GLOSSAR_EINTRAEGE}: alle Einträge, für die es seit der Basis eine neue Revision gibt</li>
+ * <li>{@code REVISIONEN}: alle Revisionen seit der Basis</li>
+ * <li>{@code AUTOREN}: alle Zeilen, weil es für Änderungen an Autoren (Anmeldung, Sperre) keine
+ *     Sequenznummer gibt; die Tabelle hat aber nur wenige Zeilen</li>
+ * <li>{@code AUFRUFE}: alle Zeilen, weil die Aufrufzähler ohne neue Revision erhöht werden;
+ *     eine Zeile besteht nur aus zwei Zahlen</li>
+ * <li>{@code WOERTERBUECHER}: alle Zeilen, ohne sie könnten komprimierte Erklärungen nicht
+ *     entpackt werden; es gibt nur wenige Wörterbücher mit je höchstens 32 KB</li>
+ * </ul>
+ *
+ * Aufbau der Datei (GZIP-komprimiert, Zahlen <i>Big Endian</i>):
+ * <pre>
+ * int  Magic-Number 0x474C5349 ("GLSI")
+ * int  Formatversion
+ * long Sequenznummer der Basis
+ * long Sequenznummer (Horizont) vor dem Schreiben des Segments
+ * int  Anzahl Tabellen
+ * pro Tabelle: Name, Anzahl Spalten, Spaltennamen, dann pro Zeile {@code true} und die Werte
+ *              (Typ-Byte und Wert), am Ende {@code false}
+ * </pre>
+ *
+ * Die Prüfdatei (siehe {@link BackupDatei}) enthält zusätzlich den Namen der Basis-Datei, die
+ * Sequenznummern und die Anzahl Zeilen jeder Tabelle in der Datenbank zum Zeitpunkt des Backups,
+ * gegen die nach dem Wiederherstellen geprüft wird.
+ */
+public final class BackupInkrement {
+
+    /** Magic-Number am Anfang der (entpackten) Datei: "GLSI" in ASCII. */
+    private static final int MAGIC = 0x474C5349;
+
+    /**
+     * Aktuelle Formatversion; muss bei jeder Änderung des Aufbaus erhöht werden
+     * (Version 2: zusätzlich Tabellen {@code AUFRUFE} und {@code WOERTERBUECHER}).
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /** Wert für Art des Backups in der Prüfdatei. */
+    static final String TYP_INKREMENTELL = "inkrementell";
+
+    /** Schlüssel in der Prüfdatei für den Dateinamen der Basis. */
+    static final String SCHLUESSEL_BASIS = "basis";
+
+    /** Schlüssel in der Prüfdatei für die Sequenznummer der Basis. */
+    static final String SCHLUESSEL_SEQUENZ_VON = "sequenz.von";
+
+    /** Präfix in der Prüfdatei für die Anzahl Zeilen der Tabellen in der Datenbank. */
+    static final String PRAEFIX_GESAMT = "gesamt.";
+
+    /** Tabellen im Segment, in der Reihenfolge für das Einspielen (Fremdschlüssel auf Autoren). */
+    static final List<String> TABELLEN_LISTE = List.of( "AUTOREN", "GLOSSAR_EINTRAEGE", "REVISIONEN", "AUFRUFE",
+                                                               "WOERTERBUECHER" );
+
+    /** Name der Spalte mit dem Primärschlüssel, wenn er von der Datenbank vergeben wird (Identity). */
+    private static final String SPALTE_ID = "ID";
+
+    /**
+     * Spalte mit dem Primärschlüssel pro Tabelle; nur bei {@link #SPALTE_ID} gibt es einen
+     * Zähler, der nach dem Einspielen neu gesetzt werden muss.
+     */
+    private static final Map<String, String> SCHLUESSEL_SPALTE_MAP = Map.of( "AUTOREN"          , SPALTE_ID,
+                                                                             "GLOSSAR_EINTRAEGE", SPALTE_ID,
+                                                                             "REVISIONEN"       , SPALTE_ID,
+                                                                             "AUFRUFE"          , "EINTRAG_ID",
+                                                                             "WOERTERBUECHER"   , "ADLER" );
+
+    /** Anzahl Zeilen pro JDBC-Batch beim Einspielen. */
+    private static final int BATCH_GROESSE = 1000;
+
+    /** Typ-Bytes für die Werte in der Datei. */
+    private static final byte TYP_NULL = 0, TYP_LONG = 1, TYP_INT = 2, TYP_BOOLEAN = 3, TYP_STRING = 4, TYP_ZEITPUNKT = 5,
+                              TYP_BYTES = 6;
+
+
+    /**
+     * Inhalt einer Tabelle in einem Segment.
+     *
+     * @param name Name der Tabelle
+     *
+     * @param spaltenListe Namen der Spalten
+     *
+     * @param zeilenListe Zeilen, Werte in der Reihenfolge von {@code spaltenListe}
+     */
+    record Tabelle( String name, List<String> spaltenListe, List<Object[]> zeilenListe ) {}
+
+    /**
+     * Gelesenes Segment.
+     *
+     * @param datei Datei des Segments
+     *
+     * @param tabellenMap Map von Tabellenname auf Inhalt
+     *
+     * @param gesamtMap Anzahl Zeilen jeder Tabelle in der Datenbank zum Zeitpunkt des Backups
+     */
+    record Segment( Path datei, Map<String, Tabelle> tabellenMap, Map<String, Long> gesamtMap ) {}
+
+
+    /**
+     * Kein Konstruktor, nur statische Methoden.
+     */
+    private BackupInkrement() {}
+
+
+    /**
+     * Inkrementelles Backup schreiben; alle Abfragen laufen in einer Transaktion mit
+     * konsistentem Stand, siehe {@link BackupDatei#imSnapshot(Connection, BackupDatei.SnapshotAktion)}.
+     * <br><br>
+     *
+     * Es werden alle Zeilen mit Sequenznummer größer als {@code sequenzVon} geschrieben, die in
+     * der Transaktion sichtbar sind, also evtl. auch einige mit Sequenznummer größer als
+     * {@code sequenzBis}; diese werden im nächsten Segment noch einmal geschrieben, was beim
+     * Einspielen aber keinen Unterschied macht.
+     *
+     * @param connection Verbindung zur Datenbank
+     *
+     * @param datei Zieldatei; das Verzeichnis muss existieren
+     *
+     * @param basis Datei des vorherigen Backups, in dessen Verzeichnis {@code datei} liegen muss
+     *
+     * @param sequenzVon Sequenznummer der Basis
+     *
+     * @param sequenzBis Horizont des Änderungsfeeds vor Aufruf der Methode; das nächste
+     *                   inkrementelle Backup baut auf dieser Sequenznummer auf
+     *
+     * @param bytesProSekunde Max Anzahl Bytes pro Sekunde beim Schreiben; 0 für unbegrenzt
+     *
+     * @return Ergebnis mit Prüfsumme und Anzahl Zeilen im Segment
+     *
+     * @throws IOException Fehler beim Schreiben der Datei
+     *
+     * @throws SQLException Fehler beim Lesen der Datenbank
+     */
+    public static BackupErgebnis schreiben( Connection connection, Path datei, Path basis,
+                                            long sequenzVon, long sequenzBis, long bytesProSekunde )
+            throws IOException, SQLException {
+
+        final long startMillis = System.currentTimeMillis();
+
+        final Path temp = datei.resolveSibling( datei.getFileName() + ".tmp" );
+
+        final MessageDigest     digest    = BackupDatei.sha256();
+        final Map<String, Long> zeilenMap = new TreeMap<>();
+        final Map<String, Long> gesamtMap;
+        try {
+
+            gesamtMap = BackupDatei.imSnapshot( connection, statement -> {
+
+                final Map<String, Long> gesamtImSnapshot = BackupDatei.zeilenZaehlen( connection );
+
+                try ( OutputStream     datenStrom = Files.newOutputStream( temp );
+                      DataOutputStream out        = new DataOutputStream(
+                                                      new BufferedOutputStream(
+                                                        new GZIPOutputStream(
+                                                          new DigestOutputStream(
+                                                            new GedrosselterOutputStream( datenStrom, bytesProSekunde ),
+                                                            digest ),
+                                                          64 * 1024 ) ) ) ) {
+
+                    out.writeInt( MAGIC );
+                    out.writeInt( FORMAT_VERSION );
+                    out.writeLong( sequenzVon );
+                    out.writeLong( sequenzBis );
+                    out.writeInt( TABELLEN_LISTE.size() );
+
+                    zeilenMap.put( "AUTOREN",
+                                   tabelleSchreiben( out, connection, "AUTOREN",
+                                                     "SELECT * FROM \"PUBLIC\".\"AUTOREN\" ORDER BY \"ID\"", -1 ) );
+                    zeilenMap.put( "GLOSSAR_EINTRAEGE",
+                                   tabelleSchreiben( out, connection, "GLOSSAR_EINTRAEGE",
+                                                     "SELECT * FROM \"PUBLIC\".\"GLOSSAR_EINTRAEGE\" WHERE \"ID\" IN " +
+                                                     "(SELECT \"EINTRAG_ID\" FROM \"PUBLIC\".\"REVISIONEN\" WHERE \"ID\" > ?) " +
+                                                     "ORDER BY \"ID\"", sequenzVon ) );
+                    zeilenMap.put( "REVISIONEN",
+                                   tabelleSchreiben( out, connection, "REVISIONEN",
+                                                     "SELECT * FROM \"PUBLIC\".\"REVISIONEN\" WHERE \"ID\" > ? ORDER BY \"ID\"",
+                                                     sequenzVon ) );
+                    zeilenMap.put( "AUFRUFE",
+                                   tabelleSchreiben( out, connection, "AUFRUFE",
+                                                     "SELECT * FROM \"PUBLIC\".\"AUFRUFE\" ORDER BY \"EINTRAG_ID\"", -1 ) );
+                    zeilenMap.put( "WOERTERBUECHER",
+                                   tabelleSchreiben( out, connection, "WOERTERBUECHER",
+                                                     "SELECT * FROM \"PUBLIC\".\"WOERTERBUECHER\" ORDER BY \"ADLER\"", -1 ) );
+                }
+
+                return gesamtImSnapshot;
+            });
+        }
+        catch ( IOException | SQLException | RuntimeException ex ) {
+
+            Files.deleteIfExists( temp );
+            throw ex;
+        }
+
+        Files.move( temp, datei, REPLACE_EXISTING, ATOMIC_MOVE );
+
+        final String sha256 = HexFormat.of().formatHex( digest.digest() );
+        final long   bytes  = Files.size( datei );
+
+        final Map<String, String> angabenMap = new TreeMap<>();
+        angabenMap.put( BackupDatei.SCHLUESSEL_TYP    , TYP_INKREMENTELL                    );
+        angabenMap.put( SCHLUESSEL_BASIS              , basis.getFileName().toString()      );
+        angabenMap.put( SCHLUESSEL_SEQUENZ_VON        , Long.toString( sequenzVon )         );
+        angabenMap.put( BackupDatei.SCHLUESSEL_SEQUENZ, Long.toString( sequenzBis )         );
+        gesamtMap.forEach( ( tabelle, anzahl ) -> angabenMap.put( PRAEFIX_GESAMT + tabelle, Long.toString( anzahl ) ) );
+
+        BackupDatei.pruefdateiSchreiben( datei, sha256, bytes, zeilenMap, angabenMap );
+
+        return new BackupErgebnis( datei.getFileName().toString(), bytes, sha256, zeilenMap,
+                                   System.currentTimeMillis() - startMillis );
+    }
+
+
+    /**
+     * Ergebnis einer Abfrage als Tabelle in Segment schreiben.
+     *
+     * @param parameter Wert für den einzigen Parameter der Abfrage; {@code -1} wenn die
+     *                  Abfrage keinen Parameter hat
+     *
+     * @return Anzahl geschriebener Zeilen
+     */
+    private static long tabelleSchreiben( DataOutputStream out, Connection connection, String tabelle,
+                                          String sql, long parameter ) throws IOException, SQLException {
+
+        try ( PreparedStatement statement = connection.prepareStatement( sql ) ) {
+
+            if ( parameter >= 0 ) {
+
+                statement.setLong( 1, parameter );
+            }
+
+            try ( ResultSet resultSet = statement.executeQuery() ) {
+
+                final ResultSetMetaData metaDaten    = resultSet.getMetaData();
+                final int               anzahlSpalten = metaDaten.getColumnCount();
+
+                out.writeUTF( tabelle );
+                out.writeInt( anzahlSpalten );
+                for ( int i = 1; i <= anzahlSpalten; i++ ) {
+
+                    out.writeUTF( metaDaten.getColumnName( i ) );
+                }
+
+                long anzahlZeilen = 0;
+                while ( resultSet.next() ) {
+
+                    out.writeBoolean( true );
+                    for ( int i = 1; i <= anzahlSpalten; i++ ) {
+
+                        wertSchreiben( out, resultSet, i, metaDaten.getColumnType( i ) );
+                    }
+                    anzahlZeilen++;
+                }
+                out.writeBoolean( false );
+
+                return anzahlZeilen;
+            }
+        }
+    }
+
+
+    /**
+     * Einen Wert mit Typ-Byte schreiben.
+     *
+     * @param sqlTyp Typ der Spalte, siehe {@link Types}
+     *
+     * @throws SQLException Datentyp der Spalte wird nicht unterstützt
+     */
+    private static void wertSchreiben( DataOutputStream out, ResultSet resultSet, int spalte, int sqlTyp )
+            throws IOException, SQLException {
+
+        if ( resultSet.getObject( spalte ) == null ) {
+
+            out.writeByte( TYP_NULL );
+            return;
+        }
+
+        switch ( sqlTyp ) {
+
+            case Types.BIGINT -> {
+                out.writeByte( TYP_LONG );
+                out.writeLong( resultSet.getLong( spalte ) );
+            }
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> {
+                out.writeByte( TYP_INT );
+                out.writeInt( resultSet.getInt( spalte ) );
+            }
+            case Types.BOOLEAN, Types.BIT -> {
+                out.writeByte( TYP_BOOLEAN );
+                out.writeBoolean( resultSet.getBoolean( spalte ) );
+            }
+            case Types.VARCHAR, Types.CHAR, Types.LONGVARCHAR, Types.CLOB -> {
+                final byte[] utf8 = resultSet.getString( spalte ).getBytes( UTF_8 );
+                out.writeByte( TYP_STRING );
+                out.writeInt( utf8.length );
+                out.write( utf8 );
+            }
+            case Types.VARBINARY, Types.BINARY, Types.LONGVARBINARY, Types.BLOB -> {
+                final byte[] bytes = resultSet.getBytes( spalte );
+                out.writeByte( TYP_BYTES );
+                out.writeInt( bytes.length );
+                out.write( bytes );
+            }
+            case Types.TIMESTAMP -> {
+                final LocalDateTime zeitpunkt = resultSet.getObject( spalte, LocalDateTime.class );
+                out.writeByte( TYP_ZEITPUNKT );
+                out.writeLong( zeitpunkt.toEpochSecond( UTC ) );
+                out.writeInt( zeitpunkt.getNano() );
+            }
+            default -> throw new SQLException( "Datentyp " + sqlTyp + " von Spalte " +
+                                               resultSet.getMetaData().getColumnName( spalte ) +
+                                               " wird für inkrementelles Backup nicht unterstützt." );
+        }
+    }
+
+
+    /**
+     * Kette von Backups bis zu einem (inkrementellen oder vollständigen) Backup ermitteln,
+     * über den Namen der Basis in den Prüfdateien. Es wird geprüft, dass die Sequenznummern
+     * lückenlos aneinander anschließen.
+     *
+     * @param letztes Letztes Backup der Kette, d.h. Stand, der wiederhergestellt werden soll
+     *
+     * @return Liste mit vollständigem Backup als erstem Element, dann die inkrementellen
+     *         Backups in der Reihenfolge, in der sie eingespielt werden müssen
+     *
+     * @throws IOException Kette unvollständig oder Prüfdatei fehlt bzw. ist fehlerhaft
+     */
+    public static List<Path> kette( Path letztes ) throws IOException {
+
+        final LinkedList<Path> ketteListe = new LinkedList<>();
+
+        Path   aktuell          = letztes;
+        String erwarteteSequenz = null;
+        while ( true ) {
+
+            final Map<String, String> pruefMap = BackupDatei.pruefdateiLesen( aktuell );
+            if ( erwarteteSequenz != null && !erwarteteSequenz.equals( pruefMap.get( BackupDatei.SCHLUESSEL_SEQUENZ ) ) ) {
+
+                throw new IOException( "Backup \"" + aktuell.getFileName() + "\" passt nicht als Basis zu \"" +
+                                       ketteListe.getFirst().getFileName() + "\" (Sequenznummer)." );
+            }
+            ketteListe.addFirst( aktuell );
+
+            final String typ = pruefMap.get( BackupDatei.SCHLUESSEL_TYP );
+            if ( BackupDatei.TYP_VOLL.equals( typ ) ) {
+
+                return ketteListe;
+            }
+            if ( !TYP_INKREMENTELL.equals( typ ) ) {
+
+                throw new IOException( "Backup \"" + aktuell.getFileName() + "\" hat unbekannten Typ: " + typ );
+            }
+
+            erwarteteSequenz = pruefMap.get( SCHLUESSEL_SEQUENZ_VON );
+            aktuell          = aktuell.resolveSibling( pruefMap.get( SCHLUESSEL_BASIS ) );
+            if ( !Files.isRegularFile( aktuell ) ) {
+
+                throw new IOException( "Basis \"" + aktuell.getFileName() + "\" von Backup \"" +
+                                       ketteListe.getFirst().getFileName() + "\" nicht gefunden." );
+            }
+        }
+    }
+
+
+    /**
+     * Inkrementelles Backup prüfen: Kette bis zum vollständigen Backup und Prüfsummen aller
+     * Backups in der Kette; außerdem muss sich das Segment vollständig lesen lassen. Das
+     * vollständige Backup kann mit {@link BackupDatei#pruefen(Path)} gründlicher geprüft werden.
+     *
+     * @param datei Zu prüfendes inkrementelles Backup
+     *
+     * @return Ergebnis mit Anzahl Zeilen im Segment
+     *
+     * @throws IOException Backup ist nicht in Ordnung (Grund als Meldung)
+     */
+    public static BackupErgebnis pruefen( Path datei ) throws IOException {
+
+        final long startMillis = System.currentTimeMillis();
+
+        final List<Path> ketteListe = kette( datei );
+        for ( Path vorgaenger : ketteListe.subList( 0, ketteListe.size() - 1 ) ) {
+
+            BackupDatei.pruefsummePruefen( vorgaenger, BackupDatei.pruefdateiLesen( vorgaenger ) );
+        }
+
+        final Segment segment = lesen( datei );
+
+        final Map<String, Long> zeilenMap = new TreeMap<>();
+        segment.tabellenMap().forEach( ( name, tabelle ) -> zeilenMap.put( name, (long) tabelle.zeilenListe().size() ) );
+
+        final Map<String, String> pruefMap = BackupDatei.pruefdateiLesen( datei );
+
+        return new BackupErgebnis( datei.getFileName().toString(), Files.size( datei ), pruefMap.get( "sha256" ),
+                                   zeilenMap, System.currentTimeMillis() - startMillis );
+    }
+
+
+    /**
+     * Segment lesen, nachdem die Prüfsumme geprüft wurde.
+     *
+     * @param datei Datei mit inkrementellem Backup
+     *
+     * @return Gelesenes Segment
+     *
+     * @throws IOException Prüfsumme falsch, Datei fehlerhaft oder kein inkrementelles Backup
+     */
+    static Segment lesen( Path datei ) throws IOException {
+
+        final Map<String, String> pruefMap = BackupDatei.pruefdateiLesen( datei );
+        if ( !TYP_INKREMENTELL.equals( pruefMap.get( BackupDatei.SCHLUESSEL_TYP ) ) ) {
+
+            throw new IOException( "Backup \"" + datei.getFileName() + "\" ist kein inkrementelles Backup." );
+        }
+        BackupDatei.pruefsummePruefen( datei, pruefMap );
+
+        final Map<String, Long> gesamtMap = new TreeMap<>();
+        pruefMap.forEach( ( schluessel, wert ) -> {
+
+            if ( schluessel.startsWith( PRAEFIX_GESAMT ) ) {
+
+                gesamtMap.put( schluessel.substring( PRAEFIX_GESAMT.length() ), Long.parseLong( wert ) );
+            }
+        });
+
+        try ( DataInputStream in = new DataInputStream(
+                                     new BufferedInputStream(
+                                       new GZIPInputStream( Files.newInputStream( datei ), 64 * 1024 ) ) ) ) {
+
+            if ( in.readInt() != MAGIC ) {
+
+                throw new IOException( "Datei \"" + datei.getFileName() + "\" ist kein inkrementelles Backup (Magic-Number falsch)." );
+            }
+            final int version = in.readInt();
+            if ( version != FORMAT_VERSION ) {
+
+                throw new IOException( "Inkrementelles Backup hat Formatversion " + version + ", erwartet: " + FORMAT_VERSION );
+            }
+            in.readLong(); // Sequenznummern stehen auch in der Prüfdatei
+            in.readLong();
+
+            final Map<String, Tabelle> tabellenMap = new HashMap<>();
+
+            final int anzahlTabellen = in.readInt();
+            for ( int t = 0; t < anzahlTabellen; t++ ) {
+
+                final String       name          = in.readUTF();
+                final int          anzahlSpalten = in.readInt();
+                final List<String> spaltenListe  = new ArrayList<>( anzahlSpalten );
+                for ( int i = 0; i < anzahlSpalten; i++ ) {
+
+                    spaltenListe.add( in.readUTF() );
+                }
+
+                final List<Object[]> zeilenListe = new ArrayList<>();
+                while ( in.readBoolean() ) {
+
+                    final Object[] zeile = new Object[ anzahlSpalten ];
+                    for ( int i = 0; i < anzahlSpalten; i++ ) {
+
+                        zeile[ i ] = wertLesen( in );
+                    }
+                    zeilenListe.add( zeile );
+                }
+
+                tabellenMap.put( name, new Tabelle( name, spaltenListe, zeilenListe ) );
+            }
+
+            return new Segment( datei, tabellenMap, gesamtMap );
+        }
+    }
+
+
+    /**
+     * Einen Wert mit Typ-Byte lesen.
+     *
+     * @throws IOException Unbekanntes Typ-Byte
+     */
+    private static Object wertLesen( DataInputStream in ) throws IOException {
+
+        final byte typ = in.readByte();
+        return switch ( typ ) {
+
+            case TYP_NULL      -> null;
+            case TYP_LONG      -> in.readLong();
+            case TYP_INT       -> in.readInt();
+            case TYP_BOOLEAN   -> in.readBoolean();
+            case TYP_STRING    -> {
+                final byte[] utf8 = new byte[ in.readInt() ];
+                in.readFully( utf8 );
+                yield new String( utf8, UTF_8 );
+            }
+            case TYP_BYTES     -> {
+                final byte[] bytes = new byte[ in.readInt() ];
+                in.readFully( bytes );
+                yield bytes;
+            }
+            case TYP_ZEITPUNKT -> LocalDateTime.ofEpochSecond( in.readLong(), in.readInt(), UTC );
+            default            -> throw new IOException( "Unbekannter Typ " + typ + " in inkrementellem Backup." );
+        };
+    }
+
+
+    /**
+     * Mehrere Segmente parallel lesen (Prüfsumme, Entpacken, Dekodieren).
+     *
+     * @param dateiListe Dateien der inkrementellen Backups
+     *
+     * @param anzahlThreads Anzahl Threads
+     *
+     * @return Segmente in der Reihenfolge von {@code dateiListe}
+     *
+     * @throws IOException Eines der Segmente ist nicht in Ordnung
+     */
+    static List<Segment> lesen( List<Path> dateiListe, int anzahlThreads ) throws IOException {
+
+        try ( ExecutorService threadPool = Executors.newFixedThreadPool( anzahlThreads ) ) {
+
+            final List<CompletableFuture<Segment>> futureListe = new ArrayList<>( dateiListe.size() );
+            for ( Path datei : dateiListe ) {
+
+                futureListe.add( CompletableFuture.supplyAsync( () -> {
+
+                    try {
+
+                        return lesen( datei );
+                    }
+                    catch ( IOException ex ) {
+
+                        throw new CompletionException( ex );
+                    }
+                }, threadPool ) );
+            }
+
+            final List<Segment> segmentListe = new ArrayList<>( dateiListe.size() );
+            for ( CompletableFuture<Segment> future : futureListe ) {
+
+                segmentListe.add( future.join() );
+            }
+            return segmentListe;
+        }
+        catch ( CompletionException ex ) {
+
+            throw ex.getCause() instanceof IOException ioException
+                  ? ioException
+                  : new IOException( "Fehler beim Lesen der inkrementellen Backups: " + ex.getCause(), ex.getCause() );
+        }
+    }
+
+
+    /**
+     * Segmente in die Datenbank einspielen, nachdem das vollständige Backup der Kette mit
+     * {@link BackupDatei#einspielen(Connection, Path)} eingespielt wurde.
+     * <br><br>
+     *
+     * Die Segmente werden zuerst zusammengefasst: Von jeder Zeile wird nur die neueste Version
+     * eingespielt, also höchstens einmal pro Zeile geschrieben, egal in wie vielen Segmenten sie
+     * vorkommt. Zuerst werden die Autoren eingespielt (Fremdschlüssel), dann die übrigen
+     * Tabellen parallel in Blöcken mit disjunkten Primärschlüsseln, jeder Block mit eigener
+     * Verbindung und Transaktion. Danach wird der Zähler der Primärschlüssel neu gesetzt und
+     * die Anzahl Zeilen gegen das letzte Segment geprüft.
+     *
+     * @param dataSource DataSource für die Verbindungen
+     *
+     * @param segmentListe Segmente in der Reihenfolge der Kette
+     *
+     * @param anzahlThreads Anzahl Threads bzw. Verbindungen
+     *
+     * @return Anzahl eingespielter Zeilen pro Tabelle
+     *
+     * @throws IOException Schema der Segmente passt nicht zusammen, oder Anzahl Zeilen nach
+     *                     dem Einspielen falsch
+     *
+     * @throws SQLException Fehler beim Schreiben in die Datenbank
+     */
+    static Map<String, Long> einspielen( DataSource dataSource, List<Segment> segmentListe, int anzahlThreads )
+            throws IOException, SQLException {
+
+        final Map<String, Long> eingespieltMap = new TreeMap<>();
+        if ( segmentListe.isEmpty() ) {
+
+            return eingespieltMap;
+        }
+
+        final Map<String, Tabelle> zusammengefasstMap = new HashMap<>();
+        for ( String name : TABELLEN_LISTE ) {
+
+            zusammengefasstMap.put( name, zusammenfassen( name, segmentListe ) );
+        }
+
+        final Tabelle autoren = zusammengefasstMap.get( TABELLEN_LISTE.getFirst() );
+        zeilenEinspielen( dataSource, autoren, autoren.zeilenListe() );
+
+        final List<Runnable> blockListe = new ArrayList<>();
+        for ( String name : TABELLEN_LISTE.subList( 1, TABELLEN_LISTE.size() ) ) {
+
+            final Tabelle tabelle      = zusammengefasstMap.get( name );
+            final int     anzahl       = tabelle.zeilenListe().size();
+            final int     blockGroesse = Math.max( BATCH_GROESSE, ( anzahl + anzahlThreads - 1 ) / anzahlThreads );
+            for ( int start = 0; start < anzahl; start += blockGroesse ) {
+
+                final List<Object[]> block = tabelle.zeilenListe().subList( start, Math.min( anzahl, start + blockGroesse ) );
+                blockListe.add( () -> {
+
+                    try {
+
+                        zeilenEinspielen( dataSource, tabelle, block );
+                    }
+                    catch ( SQLException ex ) {
+
+                        throw new CompletionException( ex );
+                    }
+                });
+            }
+        }
+
+        try ( ExecutorService threadPool = Executors.newFixedThreadPool( anzahlThreads ) ) {
+
+            final List<CompletableFuture<Void>> futureListe = new ArrayList<>();
+            for ( Runnable block : blockListe ) {
+
+                futureListe.add( CompletableFuture.runAsync( block, threadPool ) );
+            }
+            CompletableFuture.allOf( futureListe.toArray( CompletableFuture[]::new ) ).join();
+        }
+        catch ( CompletionException ex ) {
+
+            throw ex.getCause() instanceof SQLException sqlException
+                  ? sqlException
+                  : new SQLException( "Fehler beim Einspielen der inkrementellen Backups: " + ex.getCause(), ex.getCause() );
+        }
+
+        zusammengefasstMap.forEach( ( name, tabelle ) -> eingespieltMap.put( name, (long) tabelle.zeilenListe().size() ) );
+
+        try ( Connection connection = dataSource.getConnection() ) {
+
+            zaehlerNeuSetzen( connection );
+
+            final Map<String, Long> zeilenSoll = new TreeMap<>( segmentListe.getLast().gesamtMap() );
+            final Map<String, Long> zeilenIst  = new TreeMap<>( BackupDatei.zeilenZaehlen( connection ) );
+            zeilenSoll.keySet().retainAll( TABELLEN_LISTE );
+            zeilenIst.keySet().retainAll( TABELLEN_LISTE );
+            if ( !zeilenIst.equals( zeilenSoll ) ) {
+
+                throw new IOException( "Anzahl Zeilen nach Einspielen der inkrementellen Backups falsch: erwartet " +
+                                       zeilenSoll + ", gefunden " + zeilenIst );
+            }
+        }
+
+        return eingespieltMap;
+    }
+
+
+    /**
+     * Zeilen einer Tabelle aus allen Segmenten zusammenfassen; bei mehreren Versionen einer
+     * Zeile (gleicher Primärschlüssel) gewinnt die aus dem späteren Segment.
+     *
+     * @throws IOException Segmente haben unterschiedliche Spalten für die Tabelle, oder die
+     *                     Spalte mit dem Primärschlüssel fehlt
+     */
+    private static Tabelle zusammenfassen( String name, List<Segment> segmentListe ) throws IOException {
+
+        List<String> spaltenListe = null;
+        final Map<Object, Object[]> zeilenMap = new TreeMap<>();
+
+        for ( Segment segment : segmentListe ) {
+
+            final Tabelle tabelle = segment.tabellenMap().get( name );
+            if ( tabelle == null ) {
+
+                throw new IOException( "Tabelle " + name + " fehlt in \"" + segment.datei().getFileName() + "\"." );
+            }
+            if ( spaltenListe == null ) {
+
+                spaltenListe = tabelle.spaltenListe();
+            }
+            else if ( !spaltenListe.equals( tabelle.spaltenListe() ) ) {
+
+                throw new IOException( "Spalten von Tabelle " + name + " in \"" + segment.datei().getFileName() +
+                                       "\" weichen vom vorherigen Segment ab; neues vollständiges Backup nötig." );
+            }
+
+            final int indexSchluessel = spaltenListe.indexOf( SCHLUESSEL_SPALTE_MAP.get( name ) );
+            if ( indexSchluessel < 0 ) {
+
+                throw new IOException( "Spalte " + SCHLUESSEL_SPALTE_MAP.get( name ) + " von Tabelle " + name +
+                                       " fehlt in \"" + segment.datei().getFileName() + "\"." );
+            }
+            for ( Object[] zeile : tabelle.zeilenListe() ) {
+
+                zeilenMap.put( zeile[ indexSchluessel ], zeile );
+            }
+        }
+
+        return new Tabelle( name, spaltenListe, new ArrayList<>( zeilenMap.values() ) );
+    }
+
+
+    /**
+     * Zeilen mit {@code MERGE} (Einfügen oder Überschreiben über Primärschlüssel) in einer
+     * eigenen Transaktion einspielen.
+     */
+    private static void zeilenEinspielen( DataSource dataSource, Tabelle tabelle, List<Object[]> zeilenListe )
+            throws SQLException {
+
+        final String spalten   = String.join( ", ", tabelle.spaltenListe().stream().map( s -> "\"" + s + "\"" ).toList() );
+        final String parameter = String.join( ", ", tabelle.spaltenListe().stream().map( s -> "?" ).toList() );
+        final String sql       = "MERGE INTO \"PUBLIC\".\"" + tabelle.name() + "\" (" + spalten + ") KEY (\"" +
+                                 SCHLUESSEL_SPALTE_MAP.get( tabelle.name() ) + "\") VALUES (" + parameter + ")";
+
+        try ( Connection connection = dataSource.getConnection() ) {
+
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit( false );
+            try ( PreparedStatement statement = connection.prepareStatement( sql ) ) {
+
+                int anzahlImBatch = 0;
+                for ( Object[] zeile : zeilenListe ) {
+
+                    for ( int i = 0; i < zeile.length; i++ ) {
+
+                        statement.setObject( i + 1, zeile[ i ] );
+                    }
+                    statement.addBatch();
+                    if ( ++anzahlImBatch == BATCH_GROESSE ) {
+
+                        statement.executeBatch();
+                        anzahlImBatch = 0;
+                    }
+                }
+                statement.executeBatch();
+                connection.commit();
+            }
+            catch ( SQLException ex ) {
+
+                connection.rollback();
+                throw ex;
+            }
+            finally {
+
+                connection.setAutoCommit( autoCommit );
+            }
+        }
+    }
+
+
+    /**
+     * Zähler für Primärschlüssel (Identity) der Tabellen auf größten Wert + 1 setzen, weil
+     * beim {@code MERGE} die Primärschlüssel explizit angegeben werden.
+     */
+    private static void zaehlerNeuSetzen( Connection connection ) throws SQLException {
+
+        try ( Statement statement = connection.createStatement() ) {
+
+            for ( String tabelle : TABELLEN_LISTE ) {
+
+                if ( !SPALTE_ID.equals( SCHLUESSEL_SPALTE_MAP.get( tabelle ) ) ) {
+
+                    continue; // Primärschlüssel wird nicht von der Datenbank vergeben
+                }
+
+                final long maxId;
+                try ( ResultSet resultSet = statement.executeQuery( "SELECT COALESCE(MAX(\"ID\"), 0) FROM \"PUBLIC\".\"" + tabelle + "\"" ) ) {
+
+                    resultSet.next();
+                    maxId = resultSet.getLong( 1 );
+                }
+                statement.execute( "ALTER TABLE \"PUBLIC\".\"" + tabelle + "\" ALTER COLUMN \"ID\" RESTART WITH " + ( maxId + 1 ) );
+            }
+        }
+    }
+
+}
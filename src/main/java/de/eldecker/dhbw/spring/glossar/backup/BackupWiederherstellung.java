@@ -0,0 +1,162 @@
+package de.eldecker.dhbw.spring.glossar.backup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.glossar.model.BackupErgebnis;
+
+
+/**
+ * Stellt beim Programmstart ein Backup (siehe {@link OnlineBackup}) wieder her, wenn die
+ * Konfiguration {@code de.eldecker.glossar.backup.wiederherstellen} gesetzt ist, z.B.:
+ * <pre>
+ * java -jar glossar.jar --de.eldecker.glossar.backup.wiederherstellen=./backup/glossar-20260101-030000-000.sql.gz
+ * </pre>
+ *
+ * Ist die Datei ein inkrementelles Backup (siehe {@link BackupInkrement}), dann wird der Stand
+ * dieses Backups aus dem vollständigen Backup am Anfang der Kette und allen inkrementellen
+ * Backups bis zu dieser Datei wiederhergestellt.
+ * <br><br>
+ *
+ * Das Wiederherstellen erfolgt, sobald die DataSource-Bean erzeugt ist, also bevor JPA oder
+ * andere Beans auf die Datenbank zugreifen. Ablauf:
+ * <ol>
+ * <li>vollständiges Backup prüfen (Prüfsumme, Probe-Einspielen in In-Memory-Datenbank), siehe {@link BackupDatei#pruefen(Path)}</li>
+ * <li>inkrementelle Backups parallel lesen und prüfen (Prüfsumme)</li>
+ * <li>aktuellen Stand der Datenbank als Backup {@code vor-wiederherstellung-...sql.gz} neben das Backup schreiben</li>
+ * <li>vollständiges Backup einspielen, dann inkrementelle Backups parallel einspielen und jeweils Anzahl Zeilen prüfen</li>
+ * <li>Snapshot-Datei des Begriffsindex löschen, weil sie zum alten Stand der Datenbank gehört</li>
+ * </ol>
+ * Schlägt einer der Schritte fehl, dann wird die Anwendung nicht gestartet.
+ * <br><br>
+ *
+ * Die Konfiguration sollte nur beim Aufruf übergeben und nicht in {@code application.properties}
+ * eingetragen werden, weil das Backup sonst bei jedem Start erneut eingespielt wird.
+ */
+@Component
+public class BackupWiederherstellung implements BeanPostProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger( BackupWiederherstellung.class );
+
+    /** Zeitstempel im Namen der Sicherung vor dem Wiederherstellen. */
+    private static final DateTimeFormatter ZEITSTEMPEL = DateTimeFormatter.ofPattern( "yyyyMMdd-HHmmss-SSS" );
+
+    /** Einzuspielende Backup-Datei; leerer String, wenn nichts wiederhergestellt werden soll. */
+    private final String _backupDatei;
+
+    /** Snapshot-Datei des Begriffsindex, wird nach dem Wiederherstellen gelöscht. */
+    private final String _indexSnapshotDatei;
+
+    /** Anzahl Threads zum Lesen und Einspielen der inkrementellen Backups. */
+    private final int _anzahlThreads;
+
+    /** Wird gesetzt, sobald das Backup eingespielt ist, damit das nur für eine DataSource passiert. */
+    private boolean _erledigt = false;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}
+     * bzw. Kommandozeile.
+     */
+    @Autowired
+    public BackupWiederherstellung( @Value( "${de.eldecker.glossar.backup.wiederherstellen:}"                     ) String backupDatei,
+                                    @Value( "${de.eldecker.glossar.backup.wiederherstellen.threads:4}"           ) int    anzahlThreads,
+                                    @Value( "${de.eldecker.glossar.index.snapshot.datei:./db/begriffe.snapshot}" ) String indexSnapshotDatei ) {
+
+        _backupDatei        = backupDatei.trim();
+        _anzahlThreads      = Math.max( 1, anzahlThreads );
+        _indexSnapshotDatei = indexSnapshotDatei;
+    }
+
+
+    /**
+     * Backup in die Datenbank der DataSource-Bean einspielen, wenn konfiguriert; alle Beans
+     * werden unverändert zurückgegeben.
+     *
+     * @throws BeanInitializationException Wiederherstellen fehlgeschlagen
+     */
+    @Override
+    public Object postProcessAfterInitialization( Object bean, String beanName ) {
+
+        if ( bean instanceof DataSource dataSource && !_backupDatei.isEmpty() && !_erledigt ) {
+
+            _erledigt = true;
+            try {
+
+                wiederherstellen( dataSource );
+            }
+            catch ( IOException | SQLException ex ) {
+
+                throw new BeanInitializationException( "Wiederherstellen von Backup \"" + _backupDatei +
+                                                       "\" fehlgeschlagen: " + ex.getMessage(), ex );
+            }
+        }
+
+        return bean;
+    }
+
+
+    /**
+     * Backup prüfen, aktuellen Stand sichern, Backup einspielen.
+     */
+    private void wiederherstellen( DataSource dataSource ) throws IOException, SQLException {
+
+        final Path datei = Paths.get( _backupDatei );
+        if ( !Files.isRegularFile( datei ) ) {
+
+            throw new IOException( "Backup-Datei nicht gefunden." );
+        }
+
+        LOG.warn( "Backup \"{}\" wird wiederhergestellt.", datei );
+
+        final List<Path> ketteListe = BackupInkrement.kette( datei );
+        final Path       vollBackup = ketteListe.getFirst();
+
+        final BackupErgebnis pruefung = BackupDatei.pruefen( vollBackup );
+        LOG.info( "Vollständiges Backup \"{}\" geprüft: {}", vollBackup.getFileName(), pruefung.zeilen() );
+
+        final List<BackupInkrement.Segment> segmentListe =
+                BackupInkrement.lesen( ketteListe.subList( 1, ketteListe.size() ), _anzahlThreads );
+        LOG.info( "{} inkrementelle Backups gelesen und geprüft.", segmentListe.size() );
+
+        final Path sicherung = datei.toAbsolutePath().normalize().resolveSibling(
+                                   "vor-wiederherstellung-" + LocalDateTime.now().format( ZEITSTEMPEL ) + ".sql.gz" );
+        try ( Connection connection = dataSource.getConnection() ) {
+
+            BackupDatei.schreiben( connection, sicherung, 0, -1 );
+            LOG.info( "Bisheriger Stand der Datenbank gesichert in \"{}\".", sicherung );
+
+            BackupDatei.einspielen( connection, vollBackup );
+        }
+
+        final Map<String, Long> eingespieltMap = BackupInkrement.einspielen( dataSource, segmentListe, _anzahlThreads );
+        if ( !segmentListe.isEmpty() ) {
+
+            LOG.info( "Inkrementelle Backups eingespielt, Zeilen: {}", eingespieltMap );
+        }
+
+        Files.deleteIfExists( Paths.get( _indexSnapshotDatei ) );
+
+        LOG.warn( "Backup \"{}\" wiederhergestellt. Die Konfiguration de.eldecker.glossar.backup.wiederherstellen " +
+                  "darf beim nächsten Start nicht mehr gesetzt sein.", datei );
+    }
+
+}
@@ -0,0 +1,375 @@
+package de.eldecker.dhbw.spring.glossar.backup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.glossar.db.Aenderungsfeed;
+import de.eldecker.dhbw.spring.glossar.model.BackupErgebnis;
+
+
+/**
+ * Backup der H2-Datenbank im laufenden Betrieb, periodisch und über REST-Endpunkt (siehe
+ * {@link BackupController}); Format der Backup-Dateien siehe {@link BackupDatei}.
+ * <br><br>
+ *
+ * Zwischen den vollständigen Backups können (häufiger) inkrementelle Backups geschrieben werden,
+ * die nur die Änderungen seit dem letzten Backup enthalten, siehe {@link BackupInkrement}. Jedes
+ * inkrementelle Backup baut auf dem neuesten Backup im Verzeichnis auf; zum Wiederherstellen
+ * wird die ganze Kette bis zum vollständigen Backup benötigt.
+ * <br><br>
+ *
+ * Das Backup liest einen konsistenten Stand der Datenbank, ohne andere Transaktionen zu
+ * blockieren; die komprimierte Datei wird mit einer maximalen Rate geschrieben, damit das
+ * Backup nicht die Festplatte für die Requests blockiert. Es werden nur die neuesten
+ * Backups aufbewahrt, ältere werden nach jedem Backup gelöscht.
+ * <br><br>
+ *
+ * Metrik (über {@code /actuator/metrics}): {@code glossar.backup.alter}, Anzahl Sekunden
+ * seit dem letzten erfolgreichen Backup (bzw. seit Programmstart, wenn es noch keins gab).
+ */
+@Component
+public class OnlineBackup implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( OnlineBackup.class );
+
+    /** Präfix der Namen von Backup-Dateien. */
+    private static final String PRAEFIX = "glossar-";
+
+    /** Endung der Namen von vollständigen Backup-Dateien. */
+    private static final String ENDUNG = ".sql.gz";
+
+    /** Endung der Namen von inkrementellen Backup-Dateien. */
+    private static final String ENDUNG_INKREMENT = ".inkr.gz";
+
+    /** Zeitstempel im Dateinamen; damit ist die alphabetische Reihenfolge auch die zeitliche. */
+    private static final DateTimeFormatter ZEITSTEMPEL = DateTimeFormatter.ofPattern( "yyyyMMdd-HHmmss-SSS" );
+
+    /** Regulärer Ausdruck für Namen von vollständigen Backup-Dateien, die von dieser Klasse geschrieben wurden. */
+    private static final Pattern REGEXP_DATEINAME = Pattern.compile( "glossar-\\d{8}-\\d{6}-\\d{3}\\.sql\\.gz" );
+
+    /** Regulärer Ausdruck für Namen von vollständigen und inkrementellen Backup-Dateien. */
+    private static final Pattern REGEXP_DATEINAME_ALLE = Pattern.compile( "glossar-\\d{8}-\\d{6}-\\d{3}\\.(sql|inkr)\\.gz" );
+
+    /** Länge von Präfix und Zeitstempel im Dateinamen. */
+    private static final int LAENGE_PRAEFIX_ZEITSTEMPEL = PRAEFIX.length() + 19;
+
+    /** DataSource für die Verbindung, über die das Backup gelesen wird. */
+    private final DataSource _dataSource;
+
+    /** Änderungsfeed, dessen Sequenznummer die Basis für inkrementelle Backups ist. */
+    private final Aenderungsfeed _aenderungsfeed;
+
+    /** Backup-Verzeichnis; leerer String wenn Backup nicht konfiguriert. */
+    private final String _verzeichnis;
+
+    /** Max Anzahl Bytes pro Sekunde beim Schreiben der Backup-Datei, 0 für unbegrenzt. */
+    private final long _bytesProSekunde;
+
+    /** Anzahl Backups, die aufbewahrt werden. */
+    private final int _aufbewahren;
+
+    /** Verhindert, dass zwei Backups gleichzeitig laufen (periodisch und über REST-Endpunkt). */
+    private final ReentrantLock _sperre = new ReentrantLock();
+
+    /** Zeitpunkt des letzten erfolgreichen Backups (bzw. Programmstart) in Millisekunden. */
+    private volatile long _letztesBackupMillis = System.currentTimeMillis();
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}.
+     */
+    @Autowired
+    public OnlineBackup( DataSource dataSource,
+                         Aenderungsfeed aenderungsfeed,
+                         @Value( "${de.eldecker.glossar.backup.verzeichnis:}"                  ) String verzeichnis,
+                         @Value( "${de.eldecker.glossar.backup.bytes.pro.sekunde:4194304}"     ) long   bytesProSekunde,
+                         @Value( "${de.eldecker.glossar.backup.aufbewahren:7}"                 ) int    aufbewahren ) {
+
+        _dataSource      = dataSource;
+        _aenderungsfeed  = aenderungsfeed;
+        _verzeichnis     = verzeichnis.trim();
+        _bytesProSekunde = Math.max( 0, bytesProSekunde );
+        _aufbewahren     = Math.max( 1, aufbewahren );
+    }
+
+
+    /**
+     * Abfrage, ob ein Backup-Verzeichnis konfiguriert ist.
+     *
+     * @return {@code true} gdw. Backup möglich ist
+     */
+    public boolean istKonfiguriert() {
+
+        return !_verzeichnis.isEmpty();
+    }
+
+
+    /**
+     * Diese Methode wird periodisch aufgerufen und schreibt ein vollständiges Backup, wenn ein
+     * Backup-Verzeichnis konfiguriert ist.
+     */
+    @Scheduled( fixedDelayString   = "${de.eldecker.glossar.backup.intervall.ms:86400000}",
+                initialDelayString = "${de.eldecker.glossar.backup.intervall.ms:86400000}" )
+    public void periodischSichern() {
+
+        periodischSichern( false );
+    }
+
+
+    /**
+     * Diese Methode wird periodisch aufgerufen und schreibt ein inkrementelles Backup, wenn ein
+     * Backup-Verzeichnis konfiguriert ist.
+     */
+    @Scheduled( fixedDelayString   = "${de.eldecker.glossar.backup.inkrementell.intervall.ms:3600000}",
+                initialDelayString = "${de.eldecker.glossar.backup.inkrementell.intervall.ms:3600000}" )
+    public void periodischInkrementellSichern() {
+
+        periodischSichern( true );
+    }
+
+
+    /**
+     * Backup für periodischen Aufruf, Fehler werden nur geloggt.
+     */
+    private void periodischSichern( boolean inkrementell ) {
+
+        if ( !istKonfiguriert() ) {
+
+            return;
+        }
+
+        try {
+
+            sichern( inkrementell );
+        }
+        catch ( IOException | SQLException | RuntimeException ex ) {
+
+            LOG.error( "Fehler beim periodischen Backup nach \"{}\".", _verzeichnis, ex );
+        }
+    }
+
+
+    /**
+     * Backup in das konfigurierte Verzeichnis schreiben und danach alte Backups löschen.
+     *
+     * @param inkrementell Wenn {@code true}, dann wird nur ein inkrementelles Backup auf Basis
+     *                     des neuesten Backups im Verzeichnis geschrieben; gibt es noch kein
+     *                     Backup, auf dem aufgebaut werden kann, dann wird ein vollständiges
+     *                     Backup geschrieben.
+     *
+     * @return Ergebnis; ist {@code null}, wenn gerade schon ein Backup läuft.
+     *
+     * @throws IOException Fehler beim Schreiben der Datei
+     *
+     * @throws SQLException Fehler beim Lesen der Datenbank
+     *
+     * @throws IllegalStateException Kein Backup-Verzeichnis konfiguriert
+     */
+    public BackupErgebnis sichern( boolean inkrementell ) throws IOException, SQLException {
+
+        if ( !istKonfiguriert() ) {
+
+            throw new IllegalStateException( "Kein Backup-Verzeichnis konfiguriert." );
+        }
+
+        if ( !_sperre.tryLock() ) {
+
+            LOG.warn( "Backup wird nicht gestartet, weil schon ein Backup läuft." );
+            return null;
+        }
+
+        try {
+
+            final Path verzeichnis = Paths.get( _verzeichnis );
+            Files.createDirectories( verzeichnis );
+
+            final Optional<Path> basisOptional = inkrementell ? basisSuchen( verzeichnis ) : Optional.empty();
+            final String         zeitstempel   = LocalDateTime.now().format( ZEITSTEMPEL );
+
+            // Horizont vor Beginn der Transaktion des Backups: alle Änderungen bis dahin sind im Backup
+            final long sequenz = _aenderungsfeed.getHorizont();
+
+            final Path           datei;
+            final BackupErgebnis ergebnis;
+            try ( Connection connection = _dataSource.getConnection() ) {
+
+                if ( basisOptional.isPresent() ) {
+
+                    final Path basis      = basisOptional.get();
+                    final long sequenzVon = Long.parseLong( BackupDatei.pruefdateiLesen( basis )
+                                                                       .get( BackupDatei.SCHLUESSEL_SEQUENZ ) );
+
+                    datei    = verzeichnis.resolve( PRAEFIX + zeitstempel + ENDUNG_INKREMENT );
+                    ergebnis = BackupInkrement.schreiben( connection, datei, basis, sequenzVon, sequenz, _bytesProSekunde );
+                }
+                else {
+
+                    datei    = verzeichnis.resolve( PRAEFIX + zeitstempel + ENDUNG );
+                    ergebnis = BackupDatei.schreiben( connection, datei, _bytesProSekunde, sequenz );
+                }
+            }
+
+            _letztesBackupMillis = System.currentTimeMillis();
+
+            LOG.info( "Backup \"{}\" geschrieben: {} Bytes, {} ms, Zeilen: {}",
+                      datei, ergebnis.bytes(), ergebnis.dauerMillis(), ergebnis.zeilen() );
+
+            alteBackupsLoeschen( verzeichnis );
+
+            return ergebnis;
+        }
+        finally {
+
+            _sperre.unlock();
+        }
+    }
+
+
+    /**
+     * Neuestes Backup (vollständig oder inkrementell) im Verzeichnis suchen, auf dem ein
+     * inkrementelles Backup aufbauen kann.
+     *
+     * @return Backup-Datei, leer wenn es kein Backup mit Sequenznummer gibt
+     */
+    private Optional<Path> basisSuchen( Path verzeichnis ) throws IOException {
+
+        final List<Path> backupListe = backupsAuflisten( verzeichnis, REGEXP_DATEINAME_ALLE );
+        if ( backupListe.isEmpty() ) {
+
+            return Optional.empty();
+        }
+
+        final Path neuestes = backupListe.getLast();
+        if ( !Files.exists( neuestes.resolveSibling( neuestes.getFileName() + BackupDatei.ENDUNG_PRUEFUNG ) ) ||
+             !BackupDatei.pruefdateiLesen( neuestes ).containsKey( BackupDatei.SCHLUESSEL_SEQUENZ ) ) {
+
+            LOG.warn( "Backup \"{}\" kann nicht Basis eines inkrementellen Backups sein.", neuestes );
+            return Optional.empty();
+        }
+
+        return Optional.of( neuestes );
+    }
+
+
+    /**
+     * Backup aus dem konfigurierten Verzeichnis prüfen, siehe {@link BackupDatei#pruefen(Path)}
+     * und {@link BackupInkrement#pruefen(Path)}.
+     *
+     * @param dateiname Name der Backup-Datei ohne Verzeichnis
+     *
+     * @return Ergebnis der Prüfung, leer wenn es im Backup-Verzeichnis keine Backup-Datei mit
+     *         diesem Namen gibt
+     *
+     * @throws IOException Backup ist nicht in Ordnung (Grund als Meldung)
+     *
+     * @throws SQLException Fehler beim Einspielen in die In-Memory-Datenbank
+     */
+    public Optional<BackupErgebnis> pruefen( String dateiname ) throws IOException, SQLException {
+
+        if ( !istKonfiguriert() || !REGEXP_DATEINAME_ALLE.matcher( dateiname ).matches() ) {
+
+            return Optional.empty();
+        }
+
+        final Path datei = Paths.get( _verzeichnis ).resolve( dateiname );
+        if ( !Files.isRegularFile( datei ) ) {
+
+            return Optional.empty();
+        }
+
+        final BackupErgebnis ergebnis = dateiname.endsWith( ENDUNG_INKREMENT )
+                                        ? BackupInkrement.pruefen( datei )
+                                        : BackupDatei.pruefen( datei );
+        LOG.info( "Backup \"{}\" erfolgreich geprüft: {}", datei, ergebnis.zeilen() );
+
+        return Optional.of( ergebnis );
+    }
+
+
+    /**
+     * Nur die neuesten {@link #_aufbewahren} vollständigen Backups (mit Prüfdatei) behalten;
+     * inkrementelle Backups, die älter als das älteste verbleibende vollständige Backup sind,
+     * werden auch gelöscht.
+     */
+    private void alteBackupsLoeschen( Path verzeichnis ) throws IOException {
+
+        final List<Path> vollListe = backupsAuflisten( verzeichnis, REGEXP_DATEINAME );
+        if ( vollListe.size() <= _aufbewahren ) {
+
+            return;
+        }
+
+        final String aeltesterBehalten = vollListe.get( vollListe.size() - _aufbewahren ).getFileName()
+                                                  .toString().substring( 0, LAENGE_PRAEFIX_ZEITSTEMPEL );
+
+        for ( Path datei : backupsAuflisten( verzeichnis, REGEXP_DATEINAME_ALLE ) ) {
+
+            if ( datei.getFileName().toString().substring( 0, LAENGE_PRAEFIX_ZEITSTEMPEL ).compareTo( aeltesterBehalten ) < 0 ) {
+
+                Files.deleteIfExists( datei );
+                Files.deleteIfExists( datei.resolveSibling( datei.getFileName() + BackupDatei.ENDUNG_PRUEFUNG ) );
+                LOG.info( "Altes Backup \"{}\" gelöscht.", datei );
+            }
+        }
+    }
+
+
+    /**
+     * Backup-Dateien im Verzeichnis auflisten.
+     *
+     * @param regexp Regulärer Ausdruck für die Dateinamen
+     *
+     * @return Dateien, zeitlich aufsteigend sortiert
+     */
+    private static List<Path> backupsAuflisten( Path verzeichnis, Pattern regexp ) throws IOException {
+
+        try ( Stream<Path> dateien = Files.list( verzeichnis ) ) {
+
+            return dateien.filter( datei -> regexp.matcher( datei.getFileName().toString() ).matches() )
+                          .sorted( ( a, b ) -> a.getFileName().toString().substring( 0, LAENGE_PRAEFIX_ZEITSTEMPEL )
+                                                .compareTo( b.getFileName().toString().substring( 0, LAENGE_PRAEFIX_ZEITSTEMPEL ) ) )
+                          .toList();
+        }
+    }
+
+
+    /**
+     * Metrik bei Micrometer registrieren.
+     *
+     * @param registry Registry, bei der die Metrik registriert wird
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        Gauge.builder( "glossar.backup.alter", this,
+                       backup -> ( System.currentTimeMillis() - backup._letztesBackupMillis ) / 1000.0 )
+             .description( "Sekunden seit dem letzten erfolgreichen Backup der Datenbank" )
+             .baseUnit( "seconds" )
+             .register( registry );
+    }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Dieses Paket enthält Klassen für das Backup der H2-Datenbank im laufenden Betrieb
+ * und für das Wiederherstellen eines Backups beim Programmstart.
+ */
+package de.eldecker.dhbw.spring.glossar.backup;
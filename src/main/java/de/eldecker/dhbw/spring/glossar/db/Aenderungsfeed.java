@@ -0,0 +1,324 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import de.eldecker.dhbw.spring.glossar.model.Aenderung;
+import de.eldecker.dhbw.spring.glossar.model.Aenderungsseite;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+
+/**
+ * Repository-Bean für den Änderungsfeed: Clients können damit abfragen, welche Glossareinträge
+ * seit ihrer letzten Synchronisation angelegt oder geändert wurden, statt das ganze Glossar
+ * neu zu laden.
+ * <br><br>
+ *
+ * Als monoton steigende Sequenznummer dient der Primärschlüssel der Tabelle mit den Revisionen
+ * (siehe {@link Historie}), weil für jedes Anlegen und jede Änderung in {@link Datenbank} eine
+ * Revision angehängt wird; über den Index des Primärschlüssels kann die Datenbank direkt bei
+ * der gesuchten Sequenznummer einsteigen.
+ * <br><br>
+ *
+ * Die Sequenznummern werden beim INSERT vergeben, die Transaktionen werden aber nicht
+ * unbedingt in dieser Reihenfolge committet. Damit ein Client keine Änderung überspringt,
+ * werden nur Änderungen bis zum <i>Horizont</i> geliefert: Das ist die größte Sequenznummer,
+ * unterhalb der keine Transaktion mehr offen ist, die eine Revision angehängt hat.
+ * <br><br>
+ *
+ * Wer einen eigenen Stand nachführt (Indizes, Stream für Abonnenten), liest die neuen
+ * Änderungen mit {@link #folgen(long, int, Consumer)}.
+ */
+@Repository
+public class Aenderungsfeed {
+
+    private final static Logger LOG = LoggerFactory.getLogger( Aenderungsfeed.class );
+
+    /** Zentrales Objekt von JPA für Datenbankzugriffe. */
+    private final EntityManager _em;
+
+    /** Größte bisher vergebene Sequenznummer (auch von noch offenen Transaktionen). */
+    private final AtomicLong _hoechsteSequenz = new AtomicLong( 0 );
+
+    /**
+     * Offene Transaktionen, die eine Revision anhängen: Der Wert ist die höchste vergebene
+     * Sequenznummer zum Zeitpunkt der Registrierung, alle Sequenznummern der Transaktion
+     * sind also größer.
+     */
+    private final Map<Object, Long> _offeneTransaktionen = new ConcurrentHashMap<>();
+
+    /** Callbacks, die nach dem Ende jeder registrierten Transaktion aufgerufen werden. */
+    private final List<Runnable> _beobachterListe = new CopyOnWriteArrayList<>();
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public Aenderungsfeed( EntityManager em ) {
+
+        _em = em;
+    }
+
+
+    /**
+     * Höchste Sequenznummer beim Programmstart von der Datenbank lesen.
+     */
+    @PostConstruct
+    public void initialisieren() {
+
+        final TypedQuery<Long> query = _em.createQuery( "SELECT MAX(r._id) FROM RevisionEntity r", Long.class );
+        final Long maxId = query.getSingleResult();
+
+        _hoechsteSequenz.set( maxId == null ? 0 : maxId );
+
+        LOG.info( "Änderungsfeed initialisiert, höchste Sequenznummer: {}", _hoechsteSequenz.get() );
+    }
+
+
+    /**
+     * Muss in der aktuellen Transaktion vor dem Anhängen einer Revision aufgerufen werden.
+     * Die Transaktion wird nur einmal registriert, auch wenn mehrere Revisionen angehängt
+     * werden (z.B. Batch).
+     */
+    void vorEinfuegen() {
+
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() ||
+              TransactionSynchronizationManager.hasResource( this ) ) {
+
+            return;
+        }
+
+        final Object schluessel = new Object();
+        _offeneTransaktionen.put( schluessel, _hoechsteSequenz.get() );
+
+        TransactionSynchronizationManager.bindResource( this, schluessel );
+        TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization() {
+
+            /**
+             * Vor allen anderen Callbacks ausführen, damit der Horizont schon weitergerückt ist,
+             * wenn z.B. die Glossarversion (siehe {@link GlossarVersion}) erhöht wird.
+             */
+            @Override
+            public int getOrder() {
+
+                return HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCommit() {
+
+                transaktionBeendet( schluessel );
+            }
+
+            @Override
+            public void afterCompletion( int status ) {
+
+                TransactionSynchronizationManager.unbindResourceIfPossible( Aenderungsfeed.this );
+                transaktionBeendet( schluessel ); // nach Rollback wurde afterCommit() nicht aufgerufen
+            }
+        });
+    }
+
+
+    /**
+     * Transaktion aus den offenen Transaktionen entfernen und Beobachter benachrichtigen;
+     * darf mehrfach für dieselbe Transaktion aufgerufen werden.
+     *
+     * @param schluessel Schlüssel der Transaktion in {@link #_offeneTransaktionen}
+     */
+    private void transaktionBeendet( Object schluessel ) {
+
+        if ( _offeneTransaktionen.remove( schluessel ) != null ) {
+
+            _beobachterListe.forEach( Runnable::run );
+        }
+    }
+
+
+    /**
+     * Muss nach dem Anhängen einer Revision mit deren ID aufgerufen werden.
+     *
+     * @param sequenz ID (Primärschlüssel) der neuen Revision
+     */
+    void nachEinfuegen( long sequenz ) {
+
+        _hoechsteSequenz.accumulateAndGet( sequenz, Math::max );
+    }
+
+
+    /**
+     * Liefert den Horizont, d.h. die größte Sequenznummer, bis zu der alle Änderungen
+     * committet (oder zurückgerollt) sind.
+     *
+     * @return Sequenznummer, bis zu der Änderungen ohne Lücken gelesen werden können
+     */
+    public long getHorizont() {
+
+        long horizont = _hoechsteSequenz.get();
+        for ( long untergrenze : _offeneTransaktionen.values() ) {
+
+            horizont = Math.min( horizont, untergrenze );
+        }
+
+        return horizont;
+    }
+
+
+    /**
+     * Callback registrieren, der nach dem Ende jeder Transaktion mit neuen Revisionen aufgerufen
+     * wird; der Callback muss schnell zurückkehren.
+     *
+     * @param beobachter Callback, z.B. zum Aufwecken eines Threads
+     */
+    public void beobachterHinzufuegen( Runnable beobachter ) {
+
+        _beobachterListe.add( beobachter );
+    }
+
+
+    /**
+     * Eine Seite von Änderungen lesen, aufsteigend nach Sequenznummer sortiert.
+     *
+     * @param seit Es werden nur Änderungen mit größerer Sequenznummer geliefert;
+     *             {@code 0} für alle Änderungen.
+     *
+     * @param bis Es werden nur Änderungen bis einschließlich dieser Sequenznummer geliefert,
+     *            sollte der Horizont (siehe {@link #getHorizont()}) sein.
+     *
+     * @param anzahl Maximale Anzahl der Änderungen
+     *
+     * @return Liste der Änderungen, ggf. leer
+     */
+    public List<Aenderung> getAenderungen( long seit, long bis, int anzahl ) {
+
+        final String jpqlStr =
+                """
+                SELECT NEW de.eldecker.dhbw.spring.glossar.model.Aenderung(
+                           r._id, r._eintragId, r._nummer, r._begriff, r._zeitpunkt, a._nutzername )
+                       FROM RevisionEntity r LEFT JOIN r._autor a
+                       WHERE r._id > :seit AND r._id <= :bis
+                       ORDER BY r._id ASC
+                """;
+
+        final TypedQuery<Aenderung> query = _em.createQuery( jpqlStr, Aenderung.class );
+        query.setParameter( "seit", seit );
+        query.setParameter( "bis" , bis  );
+        query.setMaxResults( anzahl );
+
+        return query.getResultList();
+    }
+
+
+
+    /**
+     * Eine Seite von Änderungen nach {@code seit} bis höchstens zum aktuellen Horizont lesen.
+     * Der Aufruf ist billig, wenn es keine neuen Änderungen gibt (kein Datenbankzugriff).
+     *
+     * @param seit Es werden nur Änderungen mit größerer Sequenznummer geliefert;
+     *             {@code 0} für alle Änderungen.
+     *
+     * @param anzahl Maximale Anzahl der Änderungen
+     *
+     * @return Seite mit den Änderungen und dem Stand für die nächste Abfrage: bei voller Seite
+     *         die Sequenznummer der letzten Änderung, sonst der Horizont (aber nie kleiner als
+     *         {@code seit})
+     */
+    public Aenderungsseite getSeite( long seit, int anzahl ) {
+
+        final long horizont = getHorizont();
+        if ( seit >= horizont ) {
+
+            return new Aenderungsseite( List.of(), seit, false );
+        }
+
+        final List<Aenderung> aenderungListe = getAenderungen( seit, horizont, anzahl );
+
+        final boolean weitere = aenderungListe.size() == anzahl;
+        final long    token   = weitere ? aenderungListe.getLast().sequenz() : horizont;
+
+        return new Aenderungsseite( aenderungListe, token, weitere );
+    }
+
+
+    /**
+     * Allen Änderungen nach {@code stand} folgen: Seite für Seite lesen und an
+     * {@code verarbeiter} übergeben, bis eine Seite nicht mehr voll ist (Horizont erreicht).
+     * Eine Seite kann auch leer sein, wenn der Horizont über zurückgerollte Sequenznummern
+     * hinweg weitergerückt ist; übergeben wird sie trotzdem, damit der Verarbeiter seinen
+     * Stand nachführen kann.
+     *
+     * @param stand Stand des Aufrufers, also {@code token} der zuletzt verarbeiteten Seite
+     *              bzw. der Horizont beim Laden
+     *
+     * @param seiteMax Maximale Anzahl Änderungen pro Seite
+     *
+     * @param verarbeiter Wird im aufrufenden Thread für jede Seite aufgerufen; eine Exception
+     *                    wird an den Aufrufer weitergegeben, der dann seinen alten Stand behält
+     *                    und die Seiten später noch einmal verarbeitet
+     *
+     * @return Neuer Stand des Aufrufers, gleich {@code stand} wenn es nichts Neues gab (dann
+     *         wurde {@code verarbeiter} nicht aufgerufen)
+     */
+    public long folgen( long stand, int seiteMax, Consumer<Aenderungsseite> verarbeiter ) {
+
+        return folgenSolange( stand, seiteMax, seite -> {
+
+            verarbeiter.accept( seite );
+            return true;
+        } );
+    }
+
+
+    /**
+     * Wie {@link #folgen(long, int, Consumer)}, aber der Verarbeiter kann nach jeder Seite
+     * das Lesen weiterer Seiten abbrechen, z.B. wenn er keine Änderungen mehr aufnehmen kann.
+     *
+     * @param stand Stand des Aufrufers
+     *
+     * @param seiteMax Maximale Anzahl Änderungen pro Seite
+     *
+     * @param verarbeiter Wird für jede Seite aufgerufen und liefert {@code true}, wenn weitere
+     *                    Seiten gelesen werden sollen
+     *
+     * @return Stand nach der letzten übergebenen Seite, gleich {@code stand} wenn es nichts
+     *         Neues gab
+     */
+    public long folgenSolange( long stand, int seiteMax, Predicate<Aenderungsseite> verarbeiter ) {
+
+        Aenderungsseite seite;
+        do {
+
+            seite = getSeite( stand, seiteMax );
+            if ( seite.token() == stand ) {
+
+                break;
+            }
+            final boolean weiterLesen = verarbeiter.test( seite );
+            stand = seite.token();
+            if ( !weiterLesen ) {
+
+                break;
+            }
+        }
+        while ( seite.weitere() );
+
+        return stand;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,371 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.glossar.db.entities.AufrufEntity;
+
+
+/**
+ * Repository-Bean für die Anzahl der Aufrufe der Seiten der Glossareinträge und die Liste
+ * der am häufigsten aufgerufenen Einträge.
+ * <br><br>
+ *
+ * Ein Aufruf erhöht nur einen Zähler im Hauptspeicher ({@link LongAdder} pro Eintrag, damit
+ * sich gleichzeitige Aufrufe desselben Eintrags nicht gegenseitig blockieren). Periodisch
+ * werden die seit dem letzten Abgleich hinzugekommenen Aufrufe in die Tabelle {@code AUFRUFE}
+ * geschrieben (siehe {@link AufrufEntity}): pro Block von Einträgen eine Abfrage für die
+ * vorhandenen Zeilen und dann gebündelte {@code UPDATE}s bzw. {@code INSERT}s in einer
+ * Transaktion. Schlägt ein Abgleich fehl, dann werden die Aufrufe beim nächsten Abgleich
+ * geschrieben; beim Herunterfahren wird ein letztes Mal abgeglichen.
+ * <br><br>
+ *
+ * Die meistaufgerufenen Einträge werden laufend gepflegt, ohne die Tabelle zu sortieren:
+ * Beim Start werden die ersten n Zeilen über den Index auf der Anzahl gelesen, danach wird
+ * bei jedem Abgleich nur für die geänderten Einträge geprüft, ob sie in die Liste kommen.
+ * Weil die Anzahlen nie kleiner werden, bleibt die Liste so exakt (Stand des letzten
+ * Abgleichs).
+ * <br><br>
+ *
+ * Wie die {@link Historie} liegen die Aufrufe bei beiden Engines (siehe {@link Datenbank})
+ * in der relationalen Datenbank.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.aufrufe}: Anzahl gezählter Aufrufe seit Programmstart</li>
+ * <li>{@code glossar.aufrufe.abgleich.zeilen}: Anzahl beim Abgleich geschriebener Zeilen</li>
+ * <li>{@code glossar.aufrufe.eintraege}: Anzahl Einträge mit Zähler im Hauptspeicher</li>
+ * </ul>
+ */
+@Repository
+public class Aufrufzaehler implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( Aufrufzaehler.class );
+
+    /** Anzahl Einträge, die in einer Transaktion abgeglichen werden. */
+    private static final int BLOCKGROESSE = 500;
+
+    /**
+     * Eintrag mit Anzahl Aufrufe in der Liste der meistaufgerufenen Einträge.
+     *
+     * @param id ID des Eintrags
+     *
+     * @param anzahl Anzahl Aufrufe
+     */
+    public record Platz( long id, long anzahl ) {}
+
+    /** Reihenfolge in {@link #_topSet}: aufsteigend nach Anzahl, bei gleicher Anzahl neuere Einträge (höhere ID) zuerst. */
+    private static final Comparator<Platz> REIHENFOLGE = Comparator.comparingLong( Platz::anzahl )
+                                                                   .thenComparing( Platz::id, Comparator.reverseOrder() );
+
+    /** Zähler für einen Eintrag. */
+    private static final class Zaehler {
+
+        /** Alle Aufrufe seit Programmstart. */
+        private final LongAdder _aufrufe = new LongAdder();
+
+        /** Stand von {@link #_aufrufe} beim letzten erfolgreichen Abgleich; nur vom Abgleich gelesen und geschrieben. */
+        private long _abgeglichen = 0;
+    }
+
+    /** Zentrales Objekt von JPA für Datenbankzugriffe. */
+    private final EntityManager _em;
+
+    /** Für Ausführung eines Blocks in einer eigenen Transaktion. */
+    private final TransactionTemplate _transactionTemplate;
+
+    /** Anzahl der meistaufgerufenen Einträge, die gepflegt werden. */
+    private final int _topAnzahl;
+
+    /** Zähler nach ID des Eintrags. */
+    private final Map<Long, Zaehler> _zaehlerMap = new ConcurrentHashMap<>();
+
+    /** Meistaufgerufene Einträge, der erste hat die wenigsten Aufrufe; nur beim Abgleich geändert. */
+    private final TreeSet<Platz> _topSet = new TreeSet<>( REIHENFOLGE );
+
+    /** Einträge aus {@link #_topSet} nach ID. */
+    private final Map<Long, Platz> _topMap = new HashMap<>();
+
+    /** Kopie von {@link #_topSet} für die Anzeige, absteigend nach Anzahl; wird nur ersetzt, nie geändert. */
+    private volatile List<Platz> _topListe = List.of();
+
+    /** Anzahl gezählter Aufrufe seit Programmstart, für Metrik. */
+    private final LongAdder _anzahlAufrufe = new LongAdder();
+
+    /** Anzahl beim Abgleich geschriebener Zeilen, für Metrik. */
+    private final LongAdder _anzahlZeilen = new LongAdder();
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public Aufrufzaehler( EntityManager em,
+                          PlatformTransactionManager transactionManager,
+                          @Value( "${de.eldecker.glossar.aufrufe.beliebt.anzahl:50}" ) int topAnzahl ) {
+
+        _em                  = em;
+        _transactionTemplate = new TransactionTemplate( transactionManager );
+        _topAnzahl           = Math.max( 1, topAnzahl );
+    }
+
+
+    /**
+     * Meistaufgerufene Einträge beim Start über den Index auf der Anzahl lesen.
+     */
+    @PostConstruct
+    private synchronized void laden() {
+
+        final TypedQuery<AufrufEntity> query =
+                _em.createQuery( "SELECT a FROM AufrufEntity a ORDER BY a._anzahl DESC, a._eintragId", AufrufEntity.class );
+        query.setMaxResults( _topAnzahl );
+
+        for ( AufrufEntity aufruf : query.getResultList() ) {
+
+            platzPruefen( aufruf.getEintragId(), aufruf.getAnzahl() );
+        }
+        _topListe = topListeKopieren();
+
+        LOG.info( "{} meistaufgerufene Einträge geladen.", _topListe.size() );
+    }
+
+
+    /**
+     * Einen Aufruf der Seite eines Eintrags zählen; greift nicht auf die Datenbank zu.
+     *
+     * @param id ID des Eintrags, muss existieren
+     */
+    public void zaehlen( long id ) {
+
+        Zaehler zaehler = _zaehlerMap.get( id );
+        if ( zaehler == null ) {
+
+            zaehler = _zaehlerMap.computeIfAbsent( id, k -> new Zaehler() );
+        }
+        zaehler._aufrufe.increment();
+        _anzahlAufrufe.increment();
+    }
+
+
+    /**
+     * Meistaufgerufene Einträge.
+     *
+     * @return Liste mit höchstens {@code de.eldecker.glossar.aufrufe.beliebt.anzahl} Einträgen,
+     *         absteigend sortiert nach Anzahl Aufrufe (Stand des letzten Abgleichs)
+     */
+    public List<Platz> getMeistaufgerufene() {
+
+        return _topListe;
+    }
+
+
+    /**
+     * Seit dem letzten Abgleich hinzugekommene Aufrufe in die Datenbank schreiben; wird
+     * periodisch im Hintergrund aufgerufen.
+     */
+    @Scheduled( fixedDelayString   = "${de.eldecker.glossar.aufrufe.abgleich.intervall.ms:10000}",
+                initialDelayString = "${de.eldecker.glossar.aufrufe.abgleich.intervall.ms:10000}" )
+    public void abgleichen() {
+
+        abgleichenIntern();
+    }
+
+
+    /**
+     * Letzten Abgleich beim Herunterfahren, damit keine Aufrufe verloren gehen.
+     */
+    @PreDestroy
+    private void beenden() {
+
+        abgleichenIntern();
+    }
+
+
+    /**
+     * Alle Zähler mit neuen Aufrufen blockweise abgleichen; danach wird die Liste der
+     * meistaufgerufenen Einträge aktualisiert.
+     */
+    private synchronized void abgleichenIntern() {
+
+        final long startZeit = System.nanoTime();
+
+        final Map<Long, Long> deltaMap = new HashMap<>();
+        final Map<Long, Long> standMap = new HashMap<>();
+        for ( Map.Entry<Long, Zaehler> eintrag : _zaehlerMap.entrySet() ) {
+
+            final Zaehler zaehler = eintrag.getValue();
+            final long    stand   = zaehler._aufrufe.sum();
+            if ( stand > zaehler._abgeglichen ) {
+
+                deltaMap.put( eintrag.getKey(), stand - zaehler._abgeglichen );
+                standMap.put( eintrag.getKey(), stand );
+            }
+        }
+        if ( deltaMap.isEmpty() ) {
+
+            return;
+        }
+
+        final List<Long> idListe = new ArrayList<>( deltaMap.keySet() );
+        int anzahlGeschrieben = 0;
+
+        for ( int start = 0; start < idListe.size(); start += BLOCKGROESSE ) {
+
+            final List<Long> blockListe = idListe.subList( start, Math.min( start + BLOCKGROESSE, idListe.size() ) );
+            try {
+
+                final Map<Long, Long> anzahlMap =
+                        _transactionTemplate.execute( status -> abgleichenBlock( blockListe, deltaMap ) );
+
+                for ( Map.Entry<Long, Long> eintrag : anzahlMap.entrySet() ) {
+
+                    _zaehlerMap.get( eintrag.getKey() )._abgeglichen = standMap.get( eintrag.getKey() );
+                    platzPruefen( eintrag.getKey(), eintrag.getValue() );
+                }
+                anzahlGeschrieben += blockListe.size();
+            }
+            catch ( RuntimeException ex ) {
+
+                LOG.error( "Abgleich der Aufrufe für {} Einträge gescheitert, wird beim nächsten Abgleich wiederholt.",
+                           blockListe.size(), ex );
+            }
+        }
+
+        _topListe = topListeKopieren();
+        _anzahlZeilen.add( anzahlGeschrieben );
+
+        LOG.debug( "Aufrufe für {} Einträge abgeglichen ({} ms).",
+                   anzahlGeschrieben, ( System.nanoTime() - startZeit ) / 1_000_000 );
+    }
+
+
+    /**
+     * Aufrufe für einen Block von Einträgen in die Datenbank schreiben; muss in einer
+     * Transaktion aufgerufen werden.
+     *
+     * @param idListe IDs der Einträge im Block
+     *
+     * @param deltaMap Neue Aufrufe nach ID
+     *
+     * @return Neue Anzahl Aufrufe nach ID, für alle Einträge aus {@code idListe}
+     */
+    private Map<Long, Long> abgleichenBlock( List<Long> idListe, Map<Long, Long> deltaMap ) {
+
+        _em.unwrap( Session.class ).setJdbcBatchSize( BLOCKGROESSE );
+
+        final TypedQuery<AufrufEntity> query =
+                _em.createQuery( "SELECT a FROM AufrufEntity a WHERE a._eintragId IN :idListe", AufrufEntity.class );
+        query.setParameter( "idListe", idListe );
+
+        final Map<Long, Long> anzahlMap = new HashMap<>( idListe.size() * 2 );
+        for ( AufrufEntity aufruf : query.getResultList() ) {
+
+            aufruf.erhoehen( deltaMap.get( aufruf.getEintragId() ) ); // UPDATE beim Commit
+            anzahlMap.put( aufruf.getEintragId(), aufruf.getAnzahl() );
+        }
+
+        for ( Long id : idListe ) {
+
+            if ( !anzahlMap.containsKey( id ) ) {
+
+                final long delta = deltaMap.get( id );
+                _em.persist( new AufrufEntity( id, delta ) );
+                anzahlMap.put( id, delta );
+            }
+        }
+
+        return anzahlMap;
+    }
+
+
+    /**
+     * Neue Anzahl Aufrufe eines Eintrags in {@link #_topSet} übernehmen, falls der Eintrag
+     * schon enthalten ist oder jetzt mehr Aufrufe als der letzte Eintrag hat.
+     *
+     * @param id ID des Eintrags
+     *
+     * @param anzahl Neue Anzahl Aufrufe
+     */
+    private void platzPruefen( long id, long anzahl ) {
+
+        final Platz neu = new Platz( id, anzahl );
+
+        final Platz alt = _topMap.remove( id );
+        if ( alt != null ) {
+
+            _topSet.remove( alt );
+
+        } else if ( _topSet.size() >= _topAnzahl ) {
+
+            if ( REIHENFOLGE.compare( neu, _topSet.first() ) <= 0 ) {
+
+                return;
+            }
+            _topMap.remove( _topSet.pollFirst().id() );
+        }
+
+        _topSet.add( neu );
+        _topMap.put( id, neu );
+    }
+
+
+    /**
+     * Kopie von {@link #_topSet} für die Anzeige erzeugen.
+     *
+     * @return Unveränderliche Liste, absteigend nach Anzahl Aufrufe
+     */
+    private List<Platz> topListeKopieren() {
+
+        return List.copyOf( _topSet.descendingSet() );
+    }
+
+
+    /**
+     * Metriken registrieren.
+     *
+     * @param registry Registry für Metriken
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        FunctionCounter.builder( "glossar.aufrufe", _anzahlAufrufe, LongAdder::sum )
+                       .description( "Anzahl gezählter Aufrufe von Einträgen seit Programmstart" )
+                       .register( registry );
+
+        FunctionCounter.builder( "glossar.aufrufe.abgleich.zeilen", _anzahlZeilen, LongAdder::sum )
+                       .description( "Anzahl beim Abgleich der Aufrufe geschriebener Zeilen" )
+                       .register( registry );
+
+        Gauge.builder( "glossar.aufrufe.eintraege", _zaehlerMap, Map::size )
+             .description( "Anzahl Einträge mit Aufrufzähler im Hauptspeicher" )
+             .register( registry );
+    }
+
+}
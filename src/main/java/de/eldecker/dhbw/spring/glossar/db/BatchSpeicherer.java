@@ -0,0 +1,383 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.lang.String.format;
+import static java.time.LocalDateTime.now;
+import static java.util.Locale.ROOT;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.OK;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.model.BatchErgebnis;
+import de.eldecker.dhbw.spring.glossar.model.Payload;
+
+
+/**
+ * Bean zum Speichern vieler Glossareinträge (Neuanlage und Änderung) in einem Aufruf.
+ * <br><br>
+ *
+ * Die Einträge werden in Blöcken (<i>Chunks</i>) mit konfigurierbarer Größe verarbeitet,
+ * jeder Block in einer eigenen Transaktion. Pro Block gibt es nur zwei Abfragen für die
+ * Prüfungen: eine für alle zu ändernden Einträge (anhand ID) und eine für alle neuen
+ * Begriffe, die schon vorhanden sind.
+ */
+@Component
+public class BatchSpeicherer {
+
+    private static final Logger LOG = LoggerFactory.getLogger( BatchSpeicherer.class );
+
+    /**
+     * Konfiguration aus {@code application.properties}: Anzahl der Einträge, die in einer
+     * Transaktion gespeichert werden.
+     */
+    @Value( "${de.eldecker.glossar.batch.chunkgroesse:500}" )
+    private int _konfigurationChunkGroesse;
+
+    /** Repository-Bean für Zugriff auf Datenbank. */
+    private final Datenbank _datenbank;
+
+    /** Für Ausführung eines Blocks in einer eigenen Transaktion. */
+    private final TransactionTemplate _transactionTemplate;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public BatchSpeicherer( Datenbank datenbank,
+                            PlatformTransactionManager transactionManager ) {
+
+        _datenbank           = datenbank;
+        _transactionTemplate = new TransactionTemplate( transactionManager );
+    }
+
+
+    /**
+     * Da Konfigurationen erst nach der Ausführung des Konstruktors verfügbar sind,
+     * wird der konfigurierte Wert in dieser mit {@code PostConstruct} annotierten
+     * Methode geloggt.
+     */
+    @PostConstruct
+    private void loggeKonfiguration() {
+
+        LOG.info( "Anzahl Einträge pro Transaktion beim Batch-Speichern: {}", _konfigurationChunkGroesse );
+    }
+
+
+    /**
+     * Alle Einträge aus {@code payloadListe} speichern. Für Elemente mit ID wird der
+     * bestehende Eintrag geändert, für Elemente ohne ID wird ein neuer Eintrag angelegt.
+     * Es gelten dieselben Regeln wie beim Speichern eines einzelnen Eintrags.
+     * <br><br>
+     *
+     * Wenn die Transaktion für einen Block scheitert, dann werden alle Elemente dieses
+     * Blocks mit HTTP-Status-Code 500 gemeldet; die anderen Blöcke sind davon nicht betroffen.
+     *
+     * @param payloadListe Zu speichernde Einträge
+     *
+     * @param autor Nutzer, der die Einträge anlegt bzw. ändert; wird nur einmal für den
+     *              ganzen Batch von der Datenbank geholt.
+     *
+     * @return Liste mit einem Ergebnis pro Element aus {@code payloadListe}, in derselben
+     *         Reihenfolge
+     */
+    public List<BatchErgebnis> speichern( List<Payload> payloadListe, AutorEntity autor ) {
+
+        final List<BatchErgebnis> ergebnisListe = new ArrayList<>( payloadListe.size() );
+
+        for ( int start = 0; start < payloadListe.size(); start += _konfigurationChunkGroesse ) {
+
+            final int ende = Math.min( start + _konfigurationChunkGroesse, payloadListe.size() );
+            final int startIndex = start;
+
+            try {
+
+                final List<BatchErgebnis> ergebnisseChunk =
+                        _transactionTemplate.execute( status -> speichernChunk( payloadListe.subList( startIndex, ende ),
+                                                                                startIndex,
+                                                                                Collections.nCopies( ende - startIndex, autor ) ) );
+                ergebnisListe.addAll( ergebnisseChunk );
+            }
+            catch ( RuntimeException ex ) {
+
+                LOG.error( "Transaktion für Einträge {} bis {} aus Batch gescheitert.", start, ende - 1, ex );
+
+                for ( int i = start; i < ende; i++ ) {
+
+                    ergebnisListe.add( new BatchErgebnis( i, INTERNAL_SERVER_ERROR.value(), null,
+                                                          "Transaktion gescheitert, Eintrag nicht gespeichert." ) );
+                }
+            }
+        }
+
+        LOG.info( "Batch mit {} Einträgen von Autor \"{}\" verarbeitet.", payloadListe.size(), autor.getNutzername() );
+
+        return ergebnisListe;
+    }
+
+
+    /**
+     * Einträge von (ggf.) verschiedenen Autoren in einer gemeinsamen Transaktion speichern,
+     * siehe {@link GruppenCommit}.
+     * <br><br>
+     *
+     * Wenn die gemeinsame Transaktion scheitert, dann wird jeder Eintrag noch einmal in einer
+     * eigenen Transaktion gespeichert, damit ein einzelner fehlerhafter Eintrag nicht alle
+     * anderen Einträge der Gruppe mitreißt.
+     *
+     * @param payloadListe Zu speichernde Einträge
+     *
+     * @param nutzernameListe Nutzername des Autors für jedes Element aus {@code payloadListe}
+     *                        (gleiche Reihenfolge); die Autoren werden erst in der Transaktion
+     *                        von der Datenbank gelesen.
+     *
+     * @return Liste mit einem Ergebnis pro Element aus {@code payloadListe}, in derselben
+     *         Reihenfolge
+     */
+    public List<BatchErgebnis> speichernGruppe( List<Payload> payloadListe, List<String> nutzernameListe ) {
+
+        try {
+
+            return _transactionTemplate.execute( status -> speichernChunk( payloadListe, 0,
+                                                                           autorenLesen( nutzernameListe ) ) );
+        }
+        catch ( RuntimeException ex ) {
+
+            LOG.warn( "Gemeinsame Transaktion für Gruppe mit {} Einträgen gescheitert, Einträge werden einzeln gespeichert.",
+                      payloadListe.size(), ex );
+        }
+
+        final List<BatchErgebnis> ergebnisListe = new ArrayList<>( payloadListe.size() );
+        for ( int i = 0; i < payloadListe.size(); i++ ) {
+
+            final int index = i;
+            try {
+
+                ergebnisListe.addAll( _transactionTemplate.execute( status -> speichernChunk( payloadListe.subList( index, index + 1 ),
+                                                                                               index,
+                                                                                               autorenLesen( nutzernameListe.subList( index, index + 1 ) ) ) ) );
+            }
+            catch ( RuntimeException ex ) {
+
+                LOG.error( "Transaktion für Eintrag {} aus Gruppe gescheitert.", index, ex );
+
+                ergebnisListe.add( new BatchErgebnis( index, INTERNAL_SERVER_ERROR.value(), null,
+                                                      "Transaktion gescheitert, Eintrag nicht gespeichert." ) );
+            }
+        }
+
+        return ergebnisListe;
+    }
+
+
+    /**
+     * Autoren anhand Nutzername von der Datenbank lesen, jeden Nutzernamen nur einmal.
+     *
+     * @param nutzernameListe Nutzernamen, dürfen mehrfach vorkommen
+     *
+     * @return Liste mit Autor für jedes Element von {@code nutzernameListe} (gleiche Reihenfolge);
+     *         {@code null} für unbekannte Nutzernamen
+     */
+    private List<AutorEntity> autorenLesen( List<String> nutzernameListe ) {
+
+        final Map<String, AutorEntity> autorMap   = new HashMap<>();
+        final List<AutorEntity>        autorListe = new ArrayList<>( nutzernameListe.size() );
+        for ( String nutzername : nutzernameListe ) {
+
+            final AutorEntity autor =
+                    autorMap.computeIfAbsent( nutzername, name -> _datenbank.getAutorByName( name ).orElse( null ) );
+            autorListe.add( autor );
+        }
+
+        return autorListe;
+    }
+
+
+    /**
+     * Einen Block von Einträgen speichern; muss in einer Transaktion aufgerufen werden.
+     *
+     * @param chunk Zu speichernde Einträge
+     *
+     * @param startIndex Index des ersten Elements von {@code chunk} im gesamten Batch
+     *
+     * @param autorListe Nutzer, der den jeweiligen Eintrag aus {@code chunk} anlegt bzw. ändert
+     *                   (gleiche Reihenfolge); {@code null} für unbekannten Nutzer
+     *
+     * @return Ergebnisse für die Elemente von {@code chunk}
+     */
+    private List<BatchErgebnis> speichernChunk( List<Payload> chunk, int startIndex, List<AutorEntity> autorListe ) {
+
+        final Set<Long>   idListe          = new HashSet<>();
+        final Set<String> begriffeNeuKlein = new HashSet<>();
+        for ( Payload payload : chunk ) {
+
+            if ( payload == null ) {
+
+                continue;
+            }
+
+            final Optional<Long> idOptional = payload.holeID();
+            if ( idOptional.isPresent() ) {
+
+                idListe.add( idOptional.get() );
+
+            } else if ( payload.begriff() != null ) {
+
+                begriffeNeuKlein.add( payload.begriff().toLowerCase( ROOT ) );
+            }
+        }
+
+        final Map<Long, GlossarEntity> eintraegeAlt      = _datenbank.getEintraegeByIds( idListe );
+        final Set<String>              begriffeVorhanden = _datenbank.getVorhandeneBegriffe( begriffeNeuKlein );
+
+        final LocalDateTime jetzt = now();
+
+        // IDs der in diesem Block schon geänderten Einträge: die Version der Entity wird erst
+        // beim Flush erhöht, eine zweite Änderung mit derselben Version muss trotzdem scheitern
+        final Set<Long> geaendertSet = new HashSet<>();
+
+        final List<BatchErgebnis> ergebnisListe = new ArrayList<>( chunk.size() );
+        for ( int i = 0; i < chunk.size(); i++ ) {
+
+            final Payload     payload = chunk.get( i );
+            final AutorEntity autor   = autorListe.get( i );
+            final int         index   = startIndex + i;
+
+            if ( payload == null || payload.begriff() == null ) {
+
+                ergebnisListe.add( new BatchErgebnis( index, BAD_REQUEST.value(), null, "Begriff fehlt." ) );
+                continue;
+            }
+
+            if ( autor == null ) {
+
+                ergebnisListe.add( new BatchErgebnis( index, INTERNAL_SERVER_ERROR.value(), null,
+                                                      "Interner Fehler: Aktueller Nutzer nicht in Datenbank gefunden." ) );
+                continue;
+            }
+
+            final Optional<Long> idOptional = payload.holeID();
+            if ( idOptional.isPresent() ) {
+
+                ergebnisListe.add( aendern( index, payload, idOptional.get(), eintraegeAlt, geaendertSet, jetzt, autor ) );
+
+            } else {
+
+                // Begriff wird in Menge aufgenommen, damit Duplikate innerhalb des Batches erkannt werden
+                final boolean istNeu = begriffeVorhanden.add( payload.begriff().toLowerCase( ROOT ) );
+                if ( istNeu ) {
+
+                    final GlossarEntity eintragNeu = new GlossarEntity( payload.begriff(),
+                                                                        payload.erklaerung(),
+                                                                        jetzt,
+                                                                        autor );
+                    final long idNeu = _datenbank.neuerGlossarEintrag( eintragNeu );
+
+                    ergebnisListe.add( new BatchErgebnis( index, CREATED.value(), idNeu,
+                                                          format( "Neuer Glossareintrag mit ID=%d gespeichert: \"%s\"",
+                                                                  idNeu, payload.begriff() ) ) );
+
+                } else {
+
+                    ergebnisListe.add( new BatchErgebnis( index, CONFLICT.value(), null, "Eintrag mit Begriff bereits vorhanden." ) );
+                }
+            }
+        }
+
+        return ergebnisListe;
+    }
+
+
+    /**
+     * Einen bestehenden Eintrag ändern.
+     *
+     * @param index Index des Elements im Batch
+     *
+     * @param payload Neue Werte für den Eintrag
+     *
+     * @param id ID des zu ändernden Eintrags
+     *
+     * @param eintraegeAlt Vorab geladene Einträge des Blocks
+     *
+     * @param geaendertSet IDs der im Block schon geänderten Einträge; {@code id} wird bei
+     *                     erfolgreicher Änderung hinzugefügt
+     *
+     * @param jetzt Zeitpunkt der Änderung
+     *
+     * @param autor Nutzer, der den Eintrag ändert
+     *
+     * @return Ergebnis für das Element; 409 (Conflict) wenn die Version nicht passt oder der
+     *         Eintrag mit Version schon einmal im selben Block geändert wurde, denn die
+     *         mitgeschickte Version bezieht sich dann auf den Stand vor dieser Änderung
+     */
+    private BatchErgebnis aendern( int index,
+                                   Payload payload,
+                                   long id,
+                                   Map<Long, GlossarEntity> eintraegeAlt,
+                                   Set<Long> geaendertSet,
+                                   LocalDateTime jetzt,
+                                   AutorEntity autor ) {
+
+        if ( payload.begriff().isBlank() ) {
+
+            return new BatchErgebnis( index, BAD_REQUEST.value(), id,
+                                      "Begriff darf für Änderung von Glossareintrag nicht leer sein." );
+        }
+
+        final GlossarEntity eintrag = eintraegeAlt.get( id );
+        if ( eintrag == null ) {
+
+            return new BatchErgebnis( index, BAD_REQUEST.value(), id,
+                                      format( "Kein Glossareintrag mit ID=%d zum Ändern gefunden.", id ) );
+        }
+
+        if ( payload.version() != null && payload.version() != eintrag.getVersion() ) {
+
+            return new BatchErgebnis( index, CONFLICT.value(), id,
+                                      format( "Glossareintrag mit ID=%d wurde inzwischen geändert, aktuelle Version ist %d.",
+                                              id, eintrag.getVersion() ) );
+        }
+
+        if ( payload.version() != null && geaendertSet.contains( id ) ) {
+
+            return new BatchErgebnis( index, CONFLICT.value(), id,
+                                      format( "Glossareintrag mit ID=%d wurde inzwischen geändert (im selben Block).", id ) );
+        }
+
+        eintrag.setBegriff(    payload.begriff()    );
+        eintrag.setErklaerung( payload.erklaerung() );
+        eintrag.setZeitpunktAenderung( jetzt );
+        eintrag.setAutorAenderung( autor );
+
+        _datenbank.updateGlossarEintrag( eintrag );
+        geaendertSet.add( id );
+
+        return new BatchErgebnis( index, OK.value(), id,
+                                  format( "Glossareintrag mit ID=%d geändert: \"%s\"", id, payload.begriff() ) );
+    }
+
+}
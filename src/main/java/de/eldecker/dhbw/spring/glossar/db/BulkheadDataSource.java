@@ -0,0 +1,147 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+
+/**
+ * Hülle um die eigentliche {@link DataSource} (Connection-Pool): vor dem Holen einer
+ * Verbindung wird eine Berechtigung von {@link DatenbankBulkhead} belegt, beim Schließen
+ * der Verbindung wird sie wieder freigegeben.
+ */
+class BulkheadDataSource extends DelegatingDataSource {
+
+    /** Bulkhead, das die Berechtigungen verwaltet. */
+    private final DatenbankBulkhead _bulkhead;
+
+
+    /**
+     * Konstruktor.
+     *
+     * @param dataSource Eigentliche DataSource
+     *
+     * @param bulkhead Bulkhead für Begrenzung der gleichzeitigen Verbindungen
+     */
+    BulkheadDataSource( DataSource dataSource, DatenbankBulkhead bulkhead ) {
+
+        super( dataSource );
+        _bulkhead = bulkhead;
+    }
+
+
+    /**
+     * Verbindung nach Belegen einer Berechtigung holen.
+     *
+     * @return Verbindung, die beim Schließen die Berechtigung freigibt
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        _bulkhead.belegen();
+        try {
+
+            return umhuellen( obtainTargetDataSource().getConnection() );
+        }
+        catch ( SQLException | RuntimeException ex ) {
+
+            _bulkhead.freigeben();
+            throw ex;
+        }
+    }
+
+
+    /**
+     * Verbindung für bestimmten Nutzer nach Belegen einer Berechtigung holen.
+     *
+     * @return Verbindung, die beim Schließen die Berechtigung freigibt
+     */
+    @Override
+    public Connection getConnection( String username, String password ) throws SQLException {
+
+        _bulkhead.belegen();
+        try {
+
+            return umhuellen( obtainTargetDataSource().getConnection( username, password ) );
+        }
+        catch ( SQLException | RuntimeException ex ) {
+
+            _bulkhead.freigeben();
+            throw ex;
+        }
+    }
+
+
+    /**
+     * Proxy um {@code verbindung} erzeugen, der beim ersten Aufruf von {@code close()}
+     * die Berechtigung freigibt; alle anderen Aufrufe werden durchgereicht.
+     *
+     * @param verbindung Verbindung aus dem Connection-Pool
+     *
+     * @return Proxy für Verbindung
+     */
+    private Connection umhuellen( Connection verbindung ) {
+
+        final AtomicBoolean istGeschlossen = new AtomicBoolean( false );
+
+        final InvocationHandler handler = ( proxy, methode, argumente ) -> {
+
+            switch ( methode.getName() ) {
+
+                case "getTargetConnection":
+                    return verbindung;
+
+                case "close":
+                    if ( istGeschlossen.compareAndSet( false, true ) ) {
+
+                        try {
+
+                            verbindung.close();
+                        }
+                        finally {
+
+                            _bulkhead.freigeben();
+                        }
+                    }
+                    return null;
+
+                case "isClosed":
+                    return istGeschlossen.get() || verbindung.isClosed();
+
+                default:
+                    return aufrufen( verbindung, methode, argumente );
+            }
+        };
+
+        return (Connection) Proxy.newProxyInstance( ConnectionProxy.class.getClassLoader(),
+                                                    new Class<?>[] { ConnectionProxy.class },
+                                                    handler );
+    }
+
+
+    /**
+     * Methode auf der eigentlichen Verbindung aufrufen und dabei die ursprüngliche
+     * Exception weiterwerfen.
+     */
+    private static Object aufrufen( Connection verbindung, Method methode, Object[] argumente ) throws Throwable {
+
+        try {
+
+            return methode.invoke( verbindung, argumente );
+        }
+        catch ( InvocationTargetException ex ) {
+
+            throw ex.getTargetException();
+        }
+    }
+
+}
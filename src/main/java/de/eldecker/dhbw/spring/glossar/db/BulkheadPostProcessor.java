@@ -0,0 +1,52 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Ersetzt die von Spring Boot erzeugte {@link DataSource} durch eine {@link BulkheadDataSource},
+ * damit alle Datenbankzugriffe (JPA/Hibernate und damit {@link Datenbank}) durch das
+ * {@link DatenbankBulkhead} begrenzt werden.
+ */
+@Component
+public class BulkheadPostProcessor implements BeanPostProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger( BulkheadPostProcessor.class );
+
+    /** Wird erst beim Umhüllen der DataSource geholt, weil BeanPostProcessoren sehr früh erzeugt werden. */
+    private final ObjectProvider<DatenbankBulkhead> _bulkheadProvider;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public BulkheadPostProcessor( ObjectProvider<DatenbankBulkhead> bulkheadProvider ) {
+
+        _bulkheadProvider = bulkheadProvider;
+    }
+
+
+    /**
+     * DataSource-Bean umhüllen, alle anderen Beans werden unverändert zurückgegeben.
+     */
+    @Override
+    public Object postProcessAfterInitialization( Object bean, String beanName ) {
+
+        if ( bean instanceof DataSource dataSource && !( bean instanceof BulkheadDataSource ) ) {
+
+            LOG.info( "DataSource-Bean \"{}\" wird mit Bulkhead umhüllt.", beanName );
+            return new BulkheadDataSource( dataSource, _bulkheadProvider.getObject() );
+        }
+
+        return bean;
+    }
+
+}
@@ -1,342 +1,288 @@
 package de.eldecker.dhbw.spring.glossar.db;
 
-import static java.time.LocalDateTime.now;
-import static java.time.temporal.ChronoUnit.MINUTES;
-
 import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
 import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
 import de.eldecker.dhbw.spring.glossar.model.AutorArtikelAnzahl;
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Repository;
-
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException;
-import jakarta.persistence.Query;
-import jakarta.persistence.TypedQuery;
-import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Order;
-import jakarta.persistence.criteria.Predicate;
-import jakarta.persistence.criteria.Root;
+import java.util.Set;
 
 
 /**
- * Repository-Bean, die alle Methoden für Zugriff auf Datenbank enthält.
+ * Schnittstelle für den Zugriff auf die Glossareinträge und Autoren, unabhängig von der
+ * Speicher-Engine. Die Engine wird mit der Konfiguration {@code de.eldecker.glossar.datenbank.engine}
+ * ausgewählt:
+ * <ul>
+ * <li>{@code jpa} (Default): {@link JpaDatenbank}, alles in der relationalen Datenbank</li>
+ * <li>{@code speicher}: {@link SpeicherDatenbank}, Glossareinträge im Hauptspeicher mit
+ *     Persistenz über ein Log, Autoren weiterhin in der relationalen Datenbank</li>
+ * </ul>
+ *
+ * Bei beiden Engines wird bei jedem Anlegen/Ändern eines Eintrags eine Revision in der
+ * {@link Historie} angehängt und nach dem Commit die {@link GlossarVersion} erhöht.
  * <br><br>
  *
- * Achtung: Alle Methodenaufrufe für schreibende Zugriff müssen in
- * einer Transaktion stattfinden, v.a. in einer mit {@code Transactional}
- * annotierten Methode.
+ * Achtung: Alle Methodenaufrufe für schreibende Zugriff müssen in einer Transaktion stattfinden,
+ * v.a. in einer mit {@code Transactional} annotierten Methode.
  */
-@Repository
-public class Datenbank {
-
-    private final static Logger LOG = LoggerFactory.getLogger( Datenbank.class );
-
-    /** Zentrales Objekt von JPA für Datenbankzugriffe. */
-    private EntityManager _em;
-
+public interface Datenbank {
 
     /**
-     * Konstruktor für <i>Dependency Injection</i>.
-     */
-    @Autowired
-    public Datenbank( EntityManager em ) {
-
-        _em = em;
-    }
-
-
-    /**
-     * Liefert die Anzahl der Glossareinträge in der Datenbank.
+     * Liefert die Anzahl der Glossareinträge.
      *
      * @return Anzahl der Glossareinträge.
      */
-    public int getAnzahlGlossareintraege() {
-
-        final Query query = _em.createQuery( "SELECT COUNT(g) FROM GlossarEntity g" ); // Query mit JPQL
-
-        final Long ergebnisLong = (long) query.getSingleResult();
-
-        final int ergebnisInt = ergebnisLong.intValue();
-
-        return ergebnisInt;
-    }
+    int getAnzahlGlossareintraege();
 
 
     /**
      * Glossareintrag anhand ID auslesen (mit allen Attributen).
-     * <br><br>
-     *
-     * Intern wird die Methode {@code find()} der JPA-Entity-Manager-Klasse
-     * verwendet, was aber nur funktioniert, wenn man den Primärschlüssel
-     * kennt.
      *
      * @param id Primärschlüssel/ID von Glossareintrag
      *
-     * @return Optional enthält Eintrag wenn gefunden; enthält auch bereits
-     *         die referenzierten Autoren (eager loading).
+     * @return Optional enthält Eintrag wenn gefunden, mit den referenzierten Autoren.
      */
-    public Optional<GlossarEntity> getEintragById( Long id ) {
-
-        try {
+    Optional<GlossarEntity> getEintragById( Long id );
 
-            final GlossarEntity ergebnis = _em.find( GlossarEntity.class, id );
-            return Optional.ofNullable( ergebnis );
-        }
-        catch ( IllegalArgumentException ex ) {
 
-            LOG.error( "Fehler bei Lesen von Glossareintrag anhand ID.", ex );
-            return Optional.empty();
-        }
-    }
+    /**
+     * Nur den Zeitpunkt der letzten Änderung eines Glossareintrags auslesen, z.B. für die
+     * Prüfung von bedingten HTTP-Requests.
+     *
+     * @param id Primärschlüssel/ID von Glossareintrag
+     *
+     * @return Optional enthält Zeitpunkt der letzten Änderung; ist leer, wenn es
+     *         keinen Eintrag mit {@code id} gibt.
+     */
+    Optional<LocalDateTime> getZeitpunktAenderung( long id );
 
 
     /**
      * Glossareintrag anhand Begriff suchen.
-     * <br><br>
-     *
-     * Intern verwendet die Methode eine JPQL-Query, die als Annotation
-     * in der Entity-Klasse {@link GlossarEntity} definiert ist.
      *
      * @param begriff Begriff nach dem (case-insensitive) gesucht wird
      *
      * @return Optional enthält Eintrag (mit allen Attributen gefüllt) wenn gefunden
      */
-    public Optional<GlossarEntity> getEintragByBegriff( String begriff ) {
+    Optional<GlossarEntity> getEintragByBegriff( String begriff );
 
-        final TypedQuery<GlossarEntity> query = _em.createNamedQuery( "GlossarEntity.findByBegriff",
-                                                                      GlossarEntity.class );
-        query.setParameter( "begriff", begriff );
 
-        try {
+    /**
+     * Mehrere Glossareinträge anhand ihrer IDs auslesen.
+     *
+     * @param idListe IDs der gesuchten Einträge
+     *
+     * @return Map von ID auf Eintrag (mit allen Attributen); für nicht gefundene IDs
+     *         ist kein Eintrag enthalten.
+     */
+    Map<Long, GlossarEntity> getEintraegeByIds( Collection<Long> idListe );
 
-            final GlossarEntity result = query.getSingleResult();
-            return Optional.ofNullable( result );
-        }
-        catch( NoResultException ex ) {
 
-            return Optional.empty();
-        }
-    }
+    /**
+     * Prüft, welche der übergebenen Begriffe schon im Glossar vorhanden sind; der Vergleich
+     * ist case-insensitive.
+     *
+     * @param begriffListeKlein Zu prüfende Begriffe, müssen schon in Kleinbuchstaben
+     *                          umgewandelt sein
+     *
+     * @return Menge der schon vorhandenen Begriffe (in Kleinbuchstaben)
+     */
+    Set<String> getVorhandeneBegriffe( Collection<String> begriffListeKlein );
 
 
     /**
-     * Fügt einen neuen Glossareintrag in die Datenbank ein.
+     * Fügt einen neuen Glossareintrag ein; die ID wird danach auch in {@code eintrag} gesetzt.
      *
      * @param eintrag Neuer Glossareintrag
      *
      * @return ID des neuen Eintrags
      */
-    public long neuerGlossarEintrag( GlossarEntity eintrag ) {
-
-        _em.persist( eintrag );
-        LOG.info( "Neuer Glossareintrag mit ID={} in Datenbank gespeichert: {}",
-                  eintrag.getId(),
-                  eintrag.getBegriff() );
-
-        return eintrag.getId();
-    }
+    long neuerGlossarEintrag( GlossarEntity eintrag );
 
 
     /**
-     * Glossareintrag auf DB aktualisieren.
+     * Glossareintrag aktualisieren. Die Version in {@code eintrag} muss noch die Version
+     * sein, die gelesen wurde (<i>Optimistic Locking</i>).
      *
      * @param eintrag Zu aktualisierender Eintrag, die ID muss gefüllt sein.
      *
      * @return Neuer Zustand des Objekts
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException Eintrag wurde
+     *         inzwischen von jemand anderem geändert (nur {@link SpeicherDatenbank}; bei
+     *         {@link JpaDatenbank} wird dieser Fehler erst beim Commit erkannt)
      */
-    public GlossarEntity updateGlossarEintrag( GlossarEntity eintrag ) {
-
-        final GlossarEntity ergebnis = _em.merge( eintrag );
-
-        LOG.info( "Glossareintrag für Begriff \"{}\" aktualisiert.", eintrag.getBegriff() );
-
-        return ergebnis;
-    }
+    GlossarEntity updateGlossarEintrag( GlossarEntity eintrag );
 
 
     /**
-     * Liste aller Glossarbegriffe, aber nur ID und Begriff (nicht aber Erklärung und weitere Attribute)
-     * sind gefüllt.
-     * <br><br>
+     * Glossareintrag ändern, ohne ihn vorher zu lesen. Wenn {@code version} gesetzt ist, dann
+     * wird der Eintrag nur geändert, wenn er noch diese Version hat (<i>Optimistic Locking</i>).
+     * Die Version wird dabei um eins erhöht.
+     *
+     * @param id ID des zu ändernden Eintrags
+     *
+     * @param version Erwartete Version des Eintrags; {@code null} für Änderung ohne Prüfung
+     *
+     * @param begriff Neuer Begriff
+     *
+     * @param erklaerung Neue Erklärung
+     *
+     * @param zeitpunkt Zeitpunkt der Änderung
      *
-     * Für diese Methode wird ein spezieller Konstruktor der Entity-Klasse {@link GlossarEntity} verwendet,
-     * der nur die ID und den Begriff füllt.
+     * @param autor Autor der Änderung
      *
-     * @return Liste aller Glossarbegriffe, alphabetisch sortiert; nur die Attribute ID und Begriff (Lemma)
-     *         sind gefüllt.
+     * @return {@code true} wenn der Eintrag geändert wurde; {@code false} wenn es keinen Eintrag
+     *         mit {@code id} gibt oder die Version nicht gepasst hat.
      */
-    public List<GlossarEntity> getGlossarBegriffe() {
+    boolean aendereGlossarEintrag( long id,
+                                   Long version,
+                                   String begriff,
+                                   String erklaerung,
+                                   LocalDateTime zeitpunkt,
+                                   AutorEntity autor );
 
-        final String jpqlStr =
-                """
-                SELECT new de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity( g._id, g._begriff )
-                       FROM GlossarEntity g
-                       ORDER BY LOWER( g._begriff ) ASC
-                """;
 
-        final TypedQuery<GlossarEntity> query = _em.createQuery( jpqlStr, GlossarEntity.class );
+    /**
+     * Liste aller Glossarbegriffe mit ID, ohne dass dafür Entity-Objekte erzeugt werden.
+     *
+     * @return Kompakte Liste aller Glossarbegriffe, alphabetisch sortiert ohne Berücksichtigung
+     *         von Groß-/Kleinschreibung (bei gleichen Begriffen nach ID).
+     */
+    Begriffsliste getGlossarBegriffe();
 
-        return query.getResultList();
-    }
+
+    /**
+     * Eine Seite von Glossareinträgen lesen, wobei nur die Werte für {@code felder} geliefert
+     * werden (Projektion). Es werden die Einträge mit einer ID größer {@code nachId} in
+     * aufsteigender Reihenfolge der ID geliefert (<i>Keyset Pagination</i>).
+     *
+     * @param felder Auszulesende Felder
+     *
+     * @param nachId Es werden nur Einträge mit einer größeren ID geliefert; für die erste
+     *               Seite muss {@code 0} übergeben werden.
+     *
+     * @param anzahl Maximale Anzahl der Einträge
+     *
+     * @return Liste mit einem Array pro Eintrag; das erste Element ist immer die ID,
+     *         danach folgen die Werte für {@code felder} in derselben Reihenfolge
+     *         (die ID also ggf. noch einmal).
+     */
+    List<Object[]> getEintraegeProjektion( List<EintragFeld> felder, long nachId, int anzahl );
 
 
     /**
-     * Fügt neuen Autor (Nutzer) in die Datenbank ein.
+     * Alle Glossareinträge seitenweise mit {@link #getEintraegeProjektion(List, long, int)}
+     * lesen, z.B. um Indizes aufzubauen; jede Seite wird erst beim Durchlaufen gelesen.
      *
-     * @param autor Neuer Autor/Nutzer
+     * @param felder Auszulesende Felder
+     *
+     * @param seiteMax Maximale Anzahl Einträge pro Seite
+     *
+     * @return Seiten aufsteigend nach ID, keine davon leer; kann mehrfach durchlaufen werden,
+     *         dabei wird jeweils neu gelesen
      */
-    public void neuerAutor( AutorEntity autor ) {
+    default Iterable<List<Object[]>> getEintraegeProjektionSeiten( List<EintragFeld> felder, int seiteMax ) {
 
-        _em.persist( autor );
-        LOG.info( "Neuer Autor (Nutzer) in Datenbank gespeichert: {}", autor.getNutzername() );
+        return () -> new ProjektionIterator( this, felder, seiteMax );
     }
 
 
     /**
-     * Autor/Nutzer anhand {@code nutzername} holen.
-     * <br><br>
+     * Einen Glossareintrag anhand der ID lesen, wobei nur die Werte für {@code felder}
+     * geliefert werden.
      *
-     * Intern wird die Methode {@code getSingleResult()} verwendet,
-     * weil wir davon ausgehen, dass der Nutzername eindeutig ist.
-     * Wenn es aber doch mehrere Nutzer mit gleichem Nutzernamen gibt,
-     * dann wird eine {@link NoResultException} (ungeprüfte Exception)
-     * geworfen.
+     * @param felder Auszulesende Felder
      *
-     * @param nutzername Nutzername nach dem gesucht wird (case-sensitive!)
+     * @param id Primärschlüssel/ID von Glossareintrag
      *
-     * @return Optional ist leer, wenn Nutzer nicht gefunden; sonst ist der Nutzer
-     *         mit allen Feldern enthalten.
+     * @return Optional enthält Array mit ID und den Werten für {@code felder}, siehe
+     *         {@link #getEintraegeProjektion(List, long, int)}; ist leer, wenn es keinen
+     *         Eintrag mit {@code id} gibt.
      */
-    public Optional<AutorEntity> getAutorByName(final String nutzername) {
-
-        final String jpqlStr = "SELECT a FROM AutorEntity a WHERE a._nutzername = :nutzername";
+    Optional<Object[]> getEintragProjektionById( List<EintragFeld> felder, long id );
 
-        final TypedQuery<AutorEntity> query = _em.createQuery( jpqlStr, AutorEntity.class );
 
-        query.setParameter( "nutzername", nutzername );
+    /**
+     * Glossareinträge anhand Begriff (case-insensitive) suchen, wobei nur die Werte für
+     * {@code felder} geliefert werden.
+     *
+     * @param felder Auszulesende Felder
+     *
+     * @param begriff Gesuchter Begriff
+     *
+     * @return Liste mit einem Array pro gefundenem Eintrag, sortiert nach ID, siehe
+     *         {@link #getEintraegeProjektion(List, long, int)}
+     */
+    List<Object[]> getEintraegeProjektionByBegriff( List<EintragFeld> felder, String begriff );
 
-        try {
 
-            final AutorEntity result = query.getSingleResult();
-            return Optional.of( result );
+    /**
+     * Fügt neuen Autor (Nutzer) ein.
+     *
+     * @param autor Neuer Autor/Nutzer
+     */
+    void neuerAutor( AutorEntity autor );
 
-        } catch ( NoResultException e ) {
 
-            LOG.warn( "Kein Nutzer mit Nutzername \"{}\" gefunden.", nutzername );
-            return Optional.empty();
-        }
-    }
+    /**
+     * Autor/Nutzer anhand {@code nutzername} holen.
+     *
+     * @param nutzername Nutzername nach dem gesucht wird (case-sensitive!)
+     *
+     * @return Optional ist leer, wenn Nutzer nicht gefunden; sonst ist der Nutzer
+     *         mit allen Feldern enthalten.
+     */
+    Optional<AutorEntity> getAutorByName( String nutzername );
 
 
     /**
-     * Objekt mit Autor/Nutzer auf DB aktualisieren.
+     * Objekt mit Autor/Nutzer aktualisieren.
      *
      * @param autorNutzer Nutzer mit mind. einem neuen Attributwert (außer der ID),
      *                    ID muss gefüllt sein.
      *
      * @return Neuer Zustand des Objekts
      */
-    public AutorEntity updateAutor( AutorEntity autorNutzer ) {
-
-        final AutorEntity ergebnis = _em.merge( autorNutzer );
-
-        LOG.info( "Autor mit Nutzername \"{}\" aktualisiert.",
-                  ergebnis.getNutzername() );
-
-        return ergebnis;
-    }
+    AutorEntity updateAutor( AutorEntity autorNutzer );
 
 
     /**
      * Anzahl der von jedem Autor angelegten Artikel zählen.
      *
-     * @return Liste enthält für jeden Autor ein Objekt mit der Anzahl der Artikel, die er ganz neu angelegt hat;
-     *         es sind nur Autoren enthalten, die mindestens einen Artikel angelegt haben.
-     *         Die Liste ist nach Anzahl der Artikel absteigend sortiert; wenn mehrere Autoren dieselbe Anzahl
-     *         an Artikeln angelegt haben, dann sind diese Autoren in alphabetischer Reihenfolge
+     * @return Liste mit Anzahl der neu angelegten Artikel für jeden Autor, der mindestens einen
+     *         Artikel angelegt hat; absteigend sortiert nach Anzahl, bei gleicher Anzahl
+     *         alphabetisch nach Nutzername.
      */
-    public List<AutorArtikelAnzahl> getGlossarCountPerAuthor() {
-
-        final TypedQuery<AutorArtikelAnzahl> query =
-                    _em.createNamedQuery( "AutorEntity.GlossarCountPerAuthor",
-                                          AutorArtikelAnzahl.class );
-
-        final List<AutorArtikelAnzahl> results = query.getResultList();
-
-        return results;
-    }
+    List<AutorArtikelAnzahl> getGlossarCountPerAuthor();
 
 
     /**
-     * Methode gibt alle Glossareinträge zurück, die von {@code autorName}
-     * neu angelegt wurden (Änderungen zählen nicht). 
-     * 
+     * Alle Glossareinträge, die von {@code autorName} neu angelegt wurden (Änderungen zählen nicht).
+     *
      * @param autorName Name des Autor
-     * 
-     * @return Liste der Glossareinträge von {@code autorName}, alphabetisch sortiert 
-     *         nach Begriff; Liste ist leer, wenn {@code autorName} nicht existiert
-     *         oder keine Artikel neu angelegt hat.
-     *         Nur die Attribute ID und Begriff sind gefüllt!
+     *
+     * @return Liste der Glossareinträge von {@code autorName}, alphabetisch sortiert
+     *         nach Begriff; nur die Attribute ID und Begriff sind gefüllt!
      */
-    public List<GlossarEntity> getGlossarEintraegeFuerAutor(String autorName) {
-
-        final TypedQuery<GlossarEntity> query = 
-                    _em.createNamedQuery( "GlossarEntity.getGlossarEintraegeFuerAutor", 
-                                          GlossarEntity.class );
-        
-        query.setParameter( "autorName", autorName );
-        
-        return query.getResultList();
-    }
+    List<GlossarEntity> getGlossarEintraegeFuerAutor( String autorName );
+
 
-    
     /**
-     * Gibt Autoren zurück, für die {@code ist_active=true} gilt, deren
-     * letzte Anmeldung aber schon mehr als {@code anzahlMinuten}
-     * zurückliegt. Diese Autoren sollen aus Sicherheitsgründen
-     * deaktiviert werden.
-     * <br><br>
+     * Gibt aktive Autoren zurück, deren letzte Anmeldung schon mehr als {@code anzahlMinuten}
+     * zurückliegt.
      *
-     * Die Methode verwendet intern die <i>Criteria API</i> anstelle
-     * von JPQL.
+     * @param anzahlMinuten Anzahl der Minuten, die der Autor inaktiv gewesen sein muss
      *
-     * @param anzahlMinuten Anzahl der Minuten, die der Autor inaktiv
-     *                      gewesen sein muss
-     *
-     * @return Liste der inaktiven Autoren; kann leer sein, ist aber nicht
-     *         {@code null}
+     * @return Liste der inaktiven Autoren, sortiert nach letzter Anmeldung; kann leer sein,
+     *         ist aber nicht {@code null}
      */
-    public List<AutorEntity> getInaktiveAutoren( int anzahlMinuten ) {
-
-        final LocalDateTime zeitSchwellwert = now().minus( anzahlMinuten, MINUTES );
-
-        final CriteriaBuilder            cBuilder = _em.getCriteriaBuilder();
-        final CriteriaQuery<AutorEntity> cQuery   = cBuilder.createQuery( AutorEntity.class );
-
-        final Root<AutorEntity> rootAutor = cQuery.from( AutorEntity.class );
-
-        final Predicate predikatIstAktiv        = cBuilder.isTrue(   rootAutor.get( "_istAktiv"        ) );
-        final Predicate predikatLetzteAnmeldung = cBuilder.lessThan( rootAutor.get( "_letzteAnmeldung" ),
-                                                                     zeitSchwellwert );
-
-        final Predicate predikatKombiniert = cBuilder.and( predikatIstAktiv, predikatLetzteAnmeldung );
-
-        final Order orderLetzteAnmeldung = cBuilder.asc( rootAutor.get("_letzteAnmeldung") );
-
-        cQuery.select( rootAutor ).where( predikatKombiniert ).orderBy( orderLetzteAnmeldung );
-
-        final TypedQuery<AutorEntity> query = _em.createQuery( cQuery );
-
-        return query.getResultList();
-    }
+    List<AutorEntity> getInaktiveAutoren( int anzahlMinuten );
 
 }
@@ -0,0 +1,186 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Bulkhead für alle Datenbankzugriffe, insbesondere die von {@link Datenbank}: es dürfen
+ * höchstens so viele Threads gleichzeitig eine Datenbankverbindung halten, wie der
+ * Connection-Pool groß ist. Alle anderen Threads warten in der Reihenfolge ihrer Ankunft
+ * (faire Semaphore), aber höchstens die konfigurierte Wartezeit.
+ * <br><br>
+ *
+ * Das ist vor allem wichtig, wenn die HTTP-Requests auf virtuellen Threads ausgeführt werden
+ * ({@code spring.threads.virtual.enabled=true}), denn dann gibt es keinen Thread-Pool mehr, der
+ * die Anzahl gleichzeitiger Requests begrenzt.
+ * <br><br>
+ *
+ * Eine Berechtigung (<i>Permit</i>) wird beim Holen einer Verbindung belegt und beim Schließen
+ * (Zurückgeben an den Pool) wieder freigegeben, siehe {@link BulkheadDataSource}. Eine Begrenzung
+ * pro Methodenaufruf von {@link Datenbank} wäre nicht sicher: Transaktionen halten ihre
+ * Verbindung über mehrere Methodenaufrufe hinweg, so dass Threads mit Verbindung auf eine
+ * Berechtigung und Threads mit Berechtigung auf eine Verbindung warten könnten.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.db.bulkhead.frei}: Anzahl freier Berechtigungen</li>
+ * <li>{@code glossar.db.bulkhead.wartend}: Anzahl wartender Threads</li>
+ * <li>{@code glossar.db.bulkhead.wartezeit}: Wartezeit bis Berechtigung erhalten</li>
+ * <li>{@code glossar.db.bulkhead.abgelehnt}: Anzahl Zugriffe, die wegen Zeitüberschreitung
+ *     abgebrochen wurden</li>
+ * </ul>
+ * Die Metriken für den Connection-Pool selbst ({@code hikaricp.connections...}) werden von
+ * Spring Boot bereitgestellt.
+ */
+@Component
+public class DatenbankBulkhead implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( DatenbankBulkhead.class );
+
+    /** Max Anzahl gleichzeitig gehaltener Datenbankverbindungen (= Größe Connection-Pool). */
+    private final int _anzahlMax;
+
+    /** Max Wartezeit in Millisekunden auf eine Berechtigung. */
+    private final long _wartezeitMaxMillis;
+
+    /** Faire Semaphore, damit wartende Threads in Reihenfolge ihrer Ankunft bedient werden. */
+    private final Semaphore _semaphore;
+
+    /** Timer für Wartezeit; {@code null} bis Metriken registriert sind. */
+    private volatile Timer _wartezeitTimer = null;
+
+    /** Zähler für abgelehnte Zugriffe; {@code null} bis Metriken registriert sind. */
+    private volatile Counter _abgelehntZaehler = null;
+
+
+    /**
+     * Konstruktor, Werte aus {@code application.properties}.
+     *
+     * @param anzahlMax Größe Connection-Pool
+     *
+     * @param wartezeitMaxMillis Max Wartezeit auf eine Berechtigung
+     */
+    @Autowired
+    public DatenbankBulkhead( @Value( "${spring.datasource.hikari.maximum-pool-size:10}"  ) int  anzahlMax,
+                              @Value( "${de.eldecker.glossar.db.bulkhead.wartezeit.ms:5000}" ) long wartezeitMaxMillis ) {
+
+        _anzahlMax          = anzahlMax;
+        _wartezeitMaxMillis = wartezeitMaxMillis;
+        _semaphore          = new Semaphore( anzahlMax, true );
+    }
+
+
+    /**
+     * Konfiguration loggen.
+     */
+    @PostConstruct
+    private void loggeKonfiguration() {
+
+        LOG.info( "Bulkhead für Datenbank: max. {} gleichzeitige Verbindungen, max. Wartezeit {} ms.",
+                  _anzahlMax, _wartezeitMaxMillis );
+    }
+
+
+    /**
+     * Metriken registrieren; wird von Spring Boot aufgerufen.
+     *
+     * @param registry Registry für Metriken
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        Gauge.builder( "glossar.db.bulkhead.frei", _semaphore, Semaphore::availablePermits )
+             .description( "Anzahl freier Berechtigungen für Datenbankverbindungen" )
+             .register( registry );
+
+        Gauge.builder( "glossar.db.bulkhead.wartend", _semaphore, Semaphore::getQueueLength )
+             .description( "Anzahl Threads, die auf eine Datenbankverbindung warten" )
+             .register( registry );
+
+        _wartezeitTimer = Timer.builder( "glossar.db.bulkhead.wartezeit" )
+                               .description( "Wartezeit auf Berechtigung für Datenbankverbindung" )
+                               .publishPercentiles( 0.5, 0.99 )
+                               .register( registry );
+
+        _abgelehntZaehler = Counter.builder( "glossar.db.bulkhead.abgelehnt" )
+                                   .description( "Anzahl Datenbankzugriffe, die wegen Zeitüberschreitung abgebrochen wurden" )
+                                   .register( registry );
+    }
+
+
+    /**
+     * Berechtigung für eine Datenbankverbindung belegen; wartet höchstens die konfigurierte
+     * Zeit. Nach erfolgreichem Aufruf muss genau einmal {@link #freigeben()} aufgerufen werden.
+     *
+     * @throws SQLTransientConnectionException Keine Berechtigung innerhalb der max. Wartezeit
+     *                                         erhalten
+     *
+     * @throws SQLException Thread wurde beim Warten unterbrochen
+     */
+    void belegen() throws SQLException {
+
+        final long startNanos = System.nanoTime();
+
+        boolean erhalten = false;
+        try {
+
+            erhalten = _semaphore.tryAcquire( _wartezeitMaxMillis, MILLISECONDS );
+        }
+        catch ( InterruptedException ex ) {
+
+            Thread.currentThread().interrupt();
+            throw new SQLException( "Warten auf Datenbankverbindung unterbrochen.", ex );
+        }
+
+        final Timer timer = _wartezeitTimer;
+        if ( timer != null ) {
+
+            timer.record( System.nanoTime() - startNanos, NANOSECONDS );
+        }
+
+        if ( !erhalten ) {
+
+            final Counter zaehler = _abgelehntZaehler;
+            if ( zaehler != null ) {
+
+                zaehler.increment();
+            }
+
+            LOG.warn( "Keine Datenbankverbindung innerhalb von {} ms frei geworden, {} Threads warten.",
+                      _wartezeitMaxMillis, _semaphore.getQueueLength() );
+
+            throw new SQLTransientConnectionException( "Datenbank überlastet, keine Verbindung innerhalb von "
+                                                       + _wartezeitMaxMillis + " ms frei geworden." );
+        }
+    }
+
+
+    /**
+     * Berechtigung wieder freigeben.
+     */
+    void freigeben() {
+
+        _semaphore.release();
+    }
+
+}
@@ -0,0 +1,194 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.time.LocalDateTime.now;
+
+import java.util.List;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.persistence.EntityManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.glossar.db.entities.WoerterbuchEntity;
+import de.eldecker.dhbw.spring.glossar.helferlein.TextKompression;
+
+
+/**
+ * Konfiguration der Kompression für lange Erklärungen in der Tabelle {@code GLOSSAR_EINTRAEGE}.
+ * <br><br>
+ *
+ * Erklärungen ab einer konfigurierbaren Länge werden nicht in der Spalte {@code erklaerung},
+ * sondern komprimiert in der Spalte {@code erklaerung_komprimiert} gespeichert (siehe
+ * {@link de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity}); entpackt wird erst,
+ * wenn die Erklärung gelesen wird, also z.B. nicht für die Liste der Begriffe.
+ * <br><br>
+ *
+ * Die Wörterbücher liegen in der Tabelle {@code WOERTERBUECHER} (siehe {@link WoerterbuchEntity})
+ * und sind damit in jedem Backup enthalten. Neue Erklärungen werden mit dem neuesten Wörterbuch
+ * komprimiert; beim Entpacken wird das Wörterbuch anhand der Adler-32-Prüfsumme im Header der
+ * Daten gesucht und bei Bedarf aus der Datenbank nachgeladen. Mit {@link #woerterbuchSchreiben(Iterable)}
+ * kann jederzeit ein neues Wörterbuch aus den vorhandenen Erklärungen erzeugt werden, ältere
+ * werden dabei nicht gelöscht.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.kompression.komprimiert}: Anzahl komprimiert gespeicherter Erklärungen</li>
+ * <li>{@code glossar.kompression.entpackt}: Anzahl entpackter Erklärungen</li>
+ * </ul>
+ */
+@Component
+public class ErklaerungKompression implements MeterBinder, SmartInitializingSingleton {
+
+    private static final Logger LOG = LoggerFactory.getLogger( ErklaerungKompression.class );
+
+    /** Maximale Größe des Wörterbuchs, mehr kann Deflate nicht nutzen. */
+    private static final int WOERTERBUCH_BYTES_MAX = 32 * 1024;
+
+    /**
+     * Wird erst beim ersten Zugriff geholt, weil diese Bean schon beim Aufbau der
+     * {@code EntityManagerFactory} für {@code ErklaerungKompressionListener} erzeugt wird.
+     */
+    private final ObjectProvider<EntityManager> _emProvider;
+
+    /** Für das Speichern eines neuen Wörterbuchs in eigener Transaktion, ebenfalls erst bei Bedarf. */
+    private final ObjectProvider<PlatformTransactionManager> _transactionManagerProvider;
+
+    /** Codec mit Schwelle und Wörterbüchern. */
+    private final TextKompression _textKompression;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Schwelle aus {@code application.properties}.
+     */
+    @Autowired
+    public ErklaerungKompression( @Value( "${de.eldecker.glossar.kompression.schwelle.bytes:2048}" ) int schwelleBytes,
+                                  ObjectProvider<EntityManager> emProvider,
+                                  ObjectProvider<PlatformTransactionManager> transactionManagerProvider ) {
+
+        _emProvider                 = emProvider;
+        _transactionManagerProvider = transactionManagerProvider;
+        _textKompression            = new TextKompression( schwelleBytes, null, this::woerterbuchLaden );
+    }
+
+
+    /**
+     * Neuestes Wörterbuch beim Programmstart aus der Datenbank lesen und für neue Erklärungen
+     * verwenden; wird erst nach dem Erzeugen aller Beans aufgerufen, wenn es die Tabelle sicher
+     * gibt. Erklärungen, die vorher geschrieben werden (z.B. beim Einspielen eines Backups),
+     * werden ohne Wörterbuch komprimiert.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+
+        final List<WoerterbuchEntity> neuestesListe =
+                _emProvider.getObject().createQuery( "SELECT w FROM WoerterbuchEntity w ORDER BY w._zeitpunkt DESC", WoerterbuchEntity.class )
+                   .setMaxResults( 1 )
+                   .getResultList();
+
+        if ( !neuestesListe.isEmpty() ) {
+
+            _textKompression.setWoerterbuch( neuestesListe.getFirst().getDaten() );
+        }
+
+        LOG.info( "Erklärungen ab {} Bytes werden komprimiert gespeichert, {}.", _textKompression.getSchwelleBytes(),
+                  neuestesListe.isEmpty() ? "ohne Wörterbuch"
+                                          : "mit Wörterbuch (" + _textKompression.getWoerterbuchGroesse() + " Bytes)" );
+    }
+
+
+    /**
+     * Codec für die Erklärungen.
+     *
+     * @return Codec mit konfigurierter Schwelle und Wörterbüchern aus der Datenbank
+     */
+    public TextKompression getTextKompression() {
+
+        return _textKompression;
+    }
+
+
+    /**
+     * Wörterbuch aus den übergebenen Erklärungen erzeugen, in der Datenbank speichern und
+     * sofort für neue Erklärungen verwenden.
+     *
+     * @param erklaerungen Alle (oder repräsentative) Erklärungen des Glossars
+     *
+     * @return Größe des Wörterbuchs in Bytes
+     *
+     * @throws IllegalStateException Erklärungen enthalten keine geeigneten Wörter, oder es
+     *                               gibt dasselbe Wörterbuch schon
+     */
+    public int woerterbuchSchreiben( Iterable<String> erklaerungen ) {
+
+        final byte[] woerterbuch = TextKompression.woerterbuchTrainieren( erklaerungen, WOERTERBUCH_BYTES_MAX );
+        if ( woerterbuch.length == 0 ) {
+
+            throw new IllegalStateException( "Erklärungen enthalten keine Wörter, die mehrfach vorkommen." );
+        }
+
+        final int           adler = TextKompression.adler32( woerterbuch );
+        final EntityManager em    = _emProvider.getObject();
+        new TransactionTemplate( _transactionManagerProvider.getObject() ).executeWithoutResult( status -> {
+
+            if ( em.find( WoerterbuchEntity.class, adler ) != null ) {
+
+                throw new IllegalStateException( "Wörterbuch mit Adler-32 " + Integer.toHexString( adler ) +
+                                                 " gibt es schon." );
+            }
+            em.persist( new WoerterbuchEntity( adler, woerterbuch, now() ) );
+        } );
+
+        _textKompression.setWoerterbuch( woerterbuch );
+
+        LOG.info( "Wörterbuch mit {} Bytes (Adler-32 {}) gespeichert, wird ab sofort verwendet.",
+                  woerterbuch.length, Integer.toHexString( adler ) );
+
+        return woerterbuch.length;
+    }
+
+
+    /**
+     * Wörterbuch zum Entpacken aus der Datenbank laden.
+     *
+     * @param adler Adler-32-Prüfsumme des Wörterbuchs
+     *
+     * @return Wörterbuch, oder {@code null} wenn es nicht in der Datenbank steht
+     */
+    private byte[] woerterbuchLaden( int adler ) {
+
+        final WoerterbuchEntity woerterbuch = _emProvider.getObject().find( WoerterbuchEntity.class, adler );
+
+        return woerterbuch == null ? null : woerterbuch.getDaten();
+    }
+
+
+    /**
+     * Metriken bei Micrometer registrieren.
+     *
+     * @param registry Registry, bei der die Metriken registriert werden
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        FunctionCounter.builder( "glossar.kompression.komprimiert", _textKompression, TextKompression::getAnzahlKomprimiert )
+                       .description( "Anzahl komprimiert gespeicherter Erklärungen" )
+                       .register( registry );
+
+        FunctionCounter.builder( "glossar.kompression.entpackt", _textKompression, TextKompression::getAnzahlEntpackt )
+                       .description( "Anzahl entpackter Erklärungen" )
+                       .register( registry );
+    }
+
+}
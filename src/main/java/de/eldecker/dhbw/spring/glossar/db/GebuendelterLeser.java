@@ -0,0 +1,159 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.util.Locale.ROOT;
+
+import java.util.List;
+import java.util.Optional;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.helferlein.SingleFlight;
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
+
+
+/**
+ * Lesende Zugriffe auf {@link Datenbank}, bei denen gleichzeitige Anfragen für denselben
+ * Schlüssel zu einem einzigen Datenbankzugriff zusammengefasst werden (siehe {@link SingleFlight}).
+ * Das hilft z.B., wenn ein Glossareintrag irgendwo verlinkt wurde und dann sehr viele Requests
+ * gleichzeitig denselben Eintrag abrufen.
+ * <br><br>
+ *
+ * Achtung: Die gelieferten Objekte werden ggf. von mehreren Threads gleichzeitig verwendet;
+ * sie dürfen deshalb nur gelesen und nicht verändert werden. Für Zugriffe, bei denen das
+ * gelesene Objekt anschließend geändert wird (z.B. in einer Transaktion), muss deshalb
+ * direkt {@link Datenbank} verwendet werden.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}), jeweils mit Tag {@code typ} ("eintrag",
+ * "begriff" oder "autor"):
+ * <ul>
+ * <li>{@code glossar.singleflight.ladevorgaenge}: Anzahl tatsächlicher Datenbankzugriffe</li>
+ * <li>{@code glossar.singleflight.zusammengefasst}: Anzahl Anfragen, die auf einen schon
+ *     laufenden Datenbankzugriff gewartet haben</li>
+ * </ul>
+ */
+@Component
+public class GebuendelterLeser implements MeterBinder {
+
+    /**
+     * Schlüssel für Suche nach Begriff: der Begriff wird kleingeschrieben, weil die Suche
+     * case-insensitive ist.
+     *
+     * @param begriffKlein Gesuchter Begriff in Kleinbuchstaben
+     *
+     * @param felder Auszulesende Felder
+     */
+    private record BegriffSchluessel( String begriffKlein, List<EintragFeld> felder ) {}
+
+    /** Repository-Bean für Zugriff auf Datenbank. */
+    private final Datenbank _datenbank;
+
+    /** Zusammenfassung der Ladevorgänge für Glossareinträge anhand ID. */
+    private final SingleFlight<Long, Optional<GlossarEntity>> _eintragSingleFlight = new SingleFlight<>();
+
+    /** Zusammenfassung der Ladevorgänge für Suche nach Begriff. */
+    private final SingleFlight<BegriffSchluessel, List<Object[]>> _begriffSingleFlight = new SingleFlight<>();
+
+    /** Zusammenfassung der Ladevorgänge für Autoren anhand Nutzername. */
+    private final SingleFlight<String, Optional<AutorEntity>> _autorSingleFlight = new SingleFlight<>();
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public GebuendelterLeser( Datenbank datenbank ) {
+
+        _datenbank = datenbank;
+    }
+
+
+    /**
+     * Glossareintrag anhand ID auslesen, siehe {@link Datenbank#getEintragById(Long)}.
+     *
+     * @param id Primärschlüssel/ID von Glossareintrag
+     *
+     * @return Optional enthält Eintrag wenn gefunden (nur lesend verwenden!)
+     */
+    public Optional<GlossarEntity> getEintragById( long id ) {
+
+        return _eintragSingleFlight.laden( id, () -> _datenbank.getEintragById( id ) );
+    }
+
+
+    /**
+     * Glossareintrag anhand Begriff (case-insensitive) mit ausgewählten Feldern auslesen,
+     * siehe {@link Datenbank#getEintraegeProjektionByBegriff(List, String)}.
+     *
+     * @param felder Auszulesende Felder
+     *
+     * @param begriff Gesuchter Begriff
+     *
+     * @return Liste mit höchstens einer Zeile (nur lesend verwenden!)
+     */
+    public List<Object[]> getEintraegeProjektionByBegriff( List<EintragFeld> felder, String begriff ) {
+
+        final BegriffSchluessel schluessel = new BegriffSchluessel( begriff.toLowerCase( ROOT ), felder );
+
+        return _begriffSingleFlight.laden( schluessel,
+                                           () -> _datenbank.getEintraegeProjektionByBegriff( felder, begriff ) );
+    }
+
+
+    /**
+     * Autor anhand Nutzername auslesen, siehe {@link Datenbank#getAutorByName(String)}.
+     *
+     * @param nutzername Nutzername (case-sensitive!)
+     *
+     * @return Optional enthält Autor wenn gefunden (nur lesend verwenden!)
+     */
+    public Optional<AutorEntity> getAutorByName( String nutzername ) {
+
+        return _autorSingleFlight.laden( nutzername, () -> _datenbank.getAutorByName( nutzername ) );
+    }
+
+
+    /**
+     * Metriken registrieren; wird von Spring Boot aufgerufen.
+     *
+     * @param registry Registry für Metriken
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        registriereMetriken( registry, "eintrag", _eintragSingleFlight );
+        registriereMetriken( registry, "begriff", _begriffSingleFlight );
+        registriereMetriken( registry, "autor"  , _autorSingleFlight   );
+    }
+
+
+    /**
+     * Zähler für ein {@link SingleFlight}-Objekt registrieren.
+     *
+     * @param registry Registry für Metriken
+     *
+     * @param typ Wert für Tag {@code typ}
+     *
+     * @param singleFlight Objekt mit den Zählerständen
+     */
+    private static void registriereMetriken( MeterRegistry registry, String typ, SingleFlight<?, ?> singleFlight ) {
+
+        FunctionCounter.builder( "glossar.singleflight.ladevorgaenge", singleFlight, SingleFlight::getAnzahlLadevorgaenge )
+                       .description( "Anzahl tatsächlich ausgeführter Datenbankzugriffe" )
+                       .tag( "typ", typ )
+                       .register( registry );
+
+        FunctionCounter.builder( "glossar.singleflight.zusammengefasst", singleFlight, SingleFlight::getAnzahlZusammengefasst )
+                       .description( "Anzahl Anfragen, die auf einen schon laufenden Datenbankzugriff gewartet haben" )
+                       .tag( "typ", typ )
+                       .register( registry );
+    }
+
+}
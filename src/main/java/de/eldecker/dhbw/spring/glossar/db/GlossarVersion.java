@@ -0,0 +1,98 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+
+/**
+ * Bean mit einer glossarweiten, monoton steigenden Versionsnummer.
+ * <br><br>
+ *
+ * Die Versionsnummer wird erhöht, sobald ein Glossareintrag neu angelegt oder geändert
+ * wurde, und zwar erst nach dem erfolgreichen Commit der Transaktion, in der die Änderung
+ * stattgefunden hat. Ein Leser, der die Versionsnummer vor einer Abfrage ausliest, kann
+ * also sicher sein, dass das Abfrageergebnis mindestens dem Stand dieser Version entspricht.
+ * <br><br>
+ *
+ * Der Startwert ist der Zeitpunkt des Programmstarts in Millisekunden, damit Versionsnummern
+ * auch über einen Neustart der Anwendung hinweg nicht wiederverwendet werden.
+ */
+@Component
+public class GlossarVersion {
+
+    private static final Logger LOG = LoggerFactory.getLogger( GlossarVersion.class );
+
+    /** Aktuelle Versionsnummer des Glossars. */
+    private final AtomicLong _version = new AtomicLong( currentTimeMillis() );
+
+
+    /**
+     * Liefert die aktuelle Versionsnummer; der Aufruf ist sehr billig (kein Datenbankzugriff).
+     *
+     * @return Aktuelle Versionsnummer des Glossars
+     */
+    public long getVersion() {
+
+        return _version.get();
+    }
+
+
+    /**
+     * Versionsnummer erhöhen, nachdem die aktuelle Transaktion erfolgreich committet wurde.
+     * Wenn die Transaktion zurückgerollt wird, dann wird die Versionsnummer nicht erhöht.
+     * Wenn gar keine Transaktion aktiv ist, dann wird die Versionsnummer sofort erhöht.
+     * <br><br>
+     *
+     * Auch bei vielen Aufrufen in derselben Transaktion (z.B. beim Speichern eines Batches)
+     * wird nur ein Callback registriert, die Version wird also nur einmal erhöht.
+     */
+    public void erhoehenNachCommit() {
+
+        if ( TransactionSynchronizationManager.isSynchronizationActive() ) {
+
+            if ( TransactionSynchronizationManager.hasResource( this ) ) {
+
+                return; // für diese Transaktion schon registriert
+            }
+            TransactionSynchronizationManager.bindResource( this, Boolean.TRUE );
+
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+
+                    erhoehen();
+                }
+
+                @Override
+                public void afterCompletion( int status ) {
+
+                    TransactionSynchronizationManager.unbindResourceIfPossible( GlossarVersion.this );
+                }
+            });
+
+        } else {
+
+            erhoehen();
+        }
+    }
+
+
+    /**
+     * Versionsnummer sofort um eins erhöhen.
+     */
+    private void erhoehen() {
+
+        final long versionNeu = _version.incrementAndGet();
+
+        LOG.debug( "Glossarversion erhöht auf {}.", versionNeu );
+    }
+
+}
@@ -0,0 +1,359 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.glossar.model.BatchErgebnis;
+import de.eldecker.dhbw.spring.glossar.model.Payload;
+
+
+/**
+ * Optionale Schreib-Pipeline mit <i>Group Commit</i> für das Speichern einzelner Einträge:
+ * Die Speicheraufträge werden in eine Warteschlange gestellt und von einem eigenen Thread
+ * zu Gruppen zusammengefasst, die jeweils in einer einzigen Transaktion (also mit einem
+ * einzigen Commit) gespeichert werden. Jeder Aufrufer bekommt sein eigenes Ergebnis
+ * (z.B. 409 bei schon vorhandenem Begriff), und zwar erst nach dem Commit der Gruppe.
+ * <br><br>
+ *
+ * Eine Gruppe wird geschrieben, sobald sie die max. Anzahl Einträge erreicht hat oder seit
+ * Ankunft ihres ersten Auftrags die max. Wartezeit vergangen ist. Mit diesen beiden Werten
+ * kann zwischen Durchsatz (große Gruppen, wenige Commits) und Latenz (kurze Wartezeit)
+ * abgewogen werden.
+ * <br><br>
+ *
+ * Die Pipeline ist standardmäßig deaktiviert, siehe {@code de.eldecker.glossar.gruppencommit.aktiv}
+ * in {@code application.properties}.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.gruppencommit.warteschlange}: Anzahl wartender Aufträge</li>
+ * <li>{@code glossar.gruppencommit.gruppengroesse}: Anzahl Einträge pro Commit</li>
+ * </ul>
+ */
+@Component
+public class GruppenCommit implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( GruppenCommit.class );
+
+    /**
+     * So lange wartet der Schreib-Thread höchstens auf einen neuen Auftrag, bevor er prüft,
+     * ob die Anwendung beendet wird.
+     */
+    private static final long PRUEFEN_BEENDET_MS = 100;
+
+    /** So lange wird beim Herunterfahren höchstens auf das Ende der laufenden Gruppe gewartet. */
+    private static final long BEENDEN_WARTEZEIT_MS = 30_000;
+
+    /**
+     * Ein Speicherauftrag in der Warteschlange.
+     *
+     * @param payload Zu speichernder Eintrag
+     *
+     * @param nutzername Name des Nutzers, der den Eintrag anlegt bzw. ändert
+     *
+     * @param ergebnis Wird nach dem Commit der Gruppe mit dem Ergebnis für den Eintrag erfüllt
+     */
+    private record Auftrag( Payload payload,
+                            String nutzername,
+                            CompletableFuture<BatchErgebnis> ergebnis ) {}
+
+    /** Konfiguration aus {@code application.properties}: Pipeline aktiv? */
+    private final boolean _istAktiv;
+
+    /** Max Anzahl Einträge pro Gruppe. */
+    private final int _anzahlMax;
+
+    /** Max Wartezeit in Nanosekunden seit Ankunft des ersten Auftrags einer Gruppe. */
+    private final long _wartezeitMaxNanos;
+
+    /** Warteschlange mit Speicheraufträgen, begrenzte Kapazität. */
+    private final BlockingQueue<Auftrag> _warteschlange;
+
+    /** Bean zum Speichern einer Gruppe in einer Transaktion. */
+    private final BatchSpeicherer _batchSpeicherer;
+
+    /** Thread, der die Gruppen schreibt; {@code null} wenn Pipeline nicht aktiv. */
+    private Thread _schreibThread = null;
+
+    /** Wird beim Herunterfahren gesetzt; danach werden keine Aufträge mehr angenommen. */
+    private volatile boolean _beendet = false;
+
+    /** Histogramm für Gruppengröße; {@code null} bis Metriken registriert sind. */
+    private volatile DistributionSummary _gruppengroesseSummary = null;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}.
+     */
+    @Autowired
+    public GruppenCommit( BatchSpeicherer batchSpeicherer,
+                          @Value( "${de.eldecker.glossar.gruppencommit.aktiv:false}"           ) boolean istAktiv,
+                          @Value( "${de.eldecker.glossar.gruppencommit.max.anzahl:100}"        ) int     anzahlMax,
+                          @Value( "${de.eldecker.glossar.gruppencommit.max.wartezeit.ms:5}"    ) long    wartezeitMaxMillis,
+                          @Value( "${de.eldecker.glossar.gruppencommit.warteschlange:10000}"  ) int     warteschlangeMax ) {
+
+        _batchSpeicherer   = batchSpeicherer;
+        _istAktiv          = istAktiv;
+        _anzahlMax         = anzahlMax;
+        _wartezeitMaxNanos = wartezeitMaxMillis * 1_000_000L;
+        _warteschlange     = new LinkedBlockingQueue<>( warteschlangeMax );
+    }
+
+
+    /**
+     * Thread für das Schreiben der Gruppen starten, wenn Pipeline aktiv ist.
+     */
+    @PostConstruct
+    void starten() {
+
+        if ( !_istAktiv ) {
+
+            LOG.info( "Group Commit für Speichern von Einträgen ist nicht aktiv." );
+            return;
+        }
+
+        _schreibThread = new Thread( this::schreibSchleife, "gruppen-commit" );
+        _schreibThread.setDaemon( true );
+        _schreibThread.start();
+
+        LOG.info( "Group Commit aktiv: max. {} Einträge bzw. max. {} ms pro Gruppe.",
+                  _anzahlMax, NANOSECONDS.toMillis( _wartezeitMaxNanos ) );
+    }
+
+
+    /**
+     * Thread beim Herunterfahren beenden: Die gerade geschriebene Gruppe wird noch fertig
+     * gespeichert; Aufträge, die danach noch in der Warteschlange stehen oder erst jetzt
+     * eingereiht werden, werden mit HTTP-Status-Code 503 beantwortet.
+     */
+    @PreDestroy
+    void beenden() {
+
+        _beendet = true;
+
+        if ( _schreibThread == null ) {
+
+            return;
+        }
+
+        try {
+
+            _schreibThread.join( BEENDEN_WARTEZEIT_MS );
+        }
+        catch ( InterruptedException ex ) {
+
+            Thread.currentThread().interrupt();
+        }
+        if ( _schreibThread.isAlive() ) {
+
+            LOG.warn( "Thread für Group Commit nach {} ms noch nicht beendet.", BEENDEN_WARTEZEIT_MS );
+            _schreibThread.interrupt();
+        }
+
+        final List<Auftrag> restListe = new ArrayList<>();
+        _warteschlange.drainTo( restListe );
+        for ( Auftrag auftrag : restListe ) {
+
+            ablehnenBeendet( auftrag.ergebnis() );
+        }
+    }
+
+
+    /**
+     * Abfrage, ob die Pipeline aktiv ist.
+     *
+     * @return {@code true} gdw. Einträge über {@link #einreihen(Payload, String)}
+     *         gespeichert werden sollen.
+     */
+    public boolean istAktiv() {
+
+        return _istAktiv;
+    }
+
+
+    /**
+     * Speicherauftrag in die Warteschlange stellen.
+     * <br><br>
+     *
+     * Der Aufrufer sollte beim Warten auf das Ergebnis keine Datenbankverbindung halten
+     * (also z.B. nicht selbst den Autor von der Datenbank lesen), weil sonst bei vielen
+     * gleichzeitigen Aufrufern für die Gruppe selbst keine Verbindung mehr frei ist. Deshalb
+     * wird nur der Nutzername übergeben, der Autor wird in der Transaktion der Gruppe gelesen.
+     *
+     * @param payload Zu speichernder Eintrag
+     *
+     * @param nutzername Name des Nutzers, der den Eintrag anlegt bzw. ändert
+     *
+     * @return Future, das nach dem Commit der Gruppe mit dem Ergebnis erfüllt wird; wenn die
+     *         Warteschlange voll ist oder die Anwendung beendet wird, dann ist es sofort mit
+     *         Status-Code 503 erfüllt.
+     */
+    public CompletableFuture<BatchErgebnis> einreihen( Payload payload, String nutzername ) {
+
+        final CompletableFuture<BatchErgebnis> ergebnis = new CompletableFuture<>();
+
+        if ( _beendet ) {
+
+            ablehnenBeendet( ergebnis );
+            return ergebnis;
+        }
+
+        final Auftrag auftrag = new Auftrag( payload, nutzername, ergebnis );
+        if ( !_warteschlange.offer( auftrag ) ) {
+
+            LOG.warn( "Warteschlange für Group Commit ist voll, Eintrag wird nicht gespeichert." );
+            ergebnis.complete( new BatchErgebnis( 0, SERVICE_UNAVAILABLE.value(), null,
+                                                  "Server ist ausgelastet, Eintrag nicht gespeichert." ) );
+
+        } else if ( _beendet && _warteschlange.remove( auftrag ) ) {
+
+            // gleichzeitig mit beenden() eingereiht, wäre sonst evtl. nach dem Leeren der Warteschlange liegen geblieben
+            ablehnenBeendet( ergebnis );
+        }
+
+        return ergebnis;
+    }
+
+
+    /**
+     * Auftrag wegen Herunterfahren mit HTTP-Status-Code 503 beantworten.
+     *
+     * @param ergebnis Future des Auftrags
+     */
+    private static void ablehnenBeendet( CompletableFuture<BatchErgebnis> ergebnis ) {
+
+        ergebnis.complete( new BatchErgebnis( 0, SERVICE_UNAVAILABLE.value(), null,
+                                              "Anwendung wird beendet, Eintrag nicht gespeichert." ) );
+    }
+
+
+    /**
+     * Schleife des Schreib-Threads: Gruppe zusammenstellen, speichern, Ergebnisse verteilen.
+     * <br><br>
+     *
+     * Der Thread wird zum Beenden nicht unterbrochen (ein Interrupt während der Transaktion
+     * könnte den Datenbankzugriff abbrechen), sondern prüft regelmäßig {@link #_beendet}.
+     */
+    private void schreibSchleife() {
+
+        while ( !_beendet && !Thread.currentThread().isInterrupted() ) {
+
+            final List<Auftrag> gruppe = new ArrayList<>( _anzahlMax );
+            try {
+
+                final Auftrag erster = _warteschlange.poll( PRUEFEN_BEENDET_MS, MILLISECONDS );
+                if ( erster == null ) {
+
+                    continue;
+                }
+                gruppe.add( erster );
+
+                final long deadline = System.nanoTime() + _wartezeitMaxNanos;
+                while ( gruppe.size() < _anzahlMax ) {
+
+                    final long restNanos = deadline - System.nanoTime();
+                    final Auftrag auftrag = restNanos > 0 ? _warteschlange.poll( restNanos, NANOSECONDS )
+                                                          : _warteschlange.poll();
+                    if ( auftrag == null ) {
+
+                        break;
+                    }
+                    gruppe.add( auftrag );
+                }
+            }
+            catch ( InterruptedException ex ) {
+
+                Thread.currentThread().interrupt();
+            }
+
+            if ( !gruppe.isEmpty() ) {
+
+                gruppeSpeichern( gruppe );
+            }
+        }
+
+        LOG.info( "Thread für Group Commit beendet." );
+    }
+
+
+    /**
+     * Eine Gruppe in einer Transaktion speichern und jedem Aufrufer sein Ergebnis übergeben.
+     *
+     * @param gruppe Aufträge der Gruppe
+     */
+    private void gruppeSpeichern( List<Auftrag> gruppe ) {
+
+        final List<Payload> payloadListe    = new ArrayList<>( gruppe.size() );
+        final List<String>  nutzernameListe = new ArrayList<>( gruppe.size() );
+        for ( Auftrag auftrag : gruppe ) {
+
+            payloadListe.add(    auftrag.payload()    );
+            nutzernameListe.add( auftrag.nutzername() );
+        }
+
+        try {
+
+            final List<BatchErgebnis> ergebnisListe = _batchSpeicherer.speichernGruppe( payloadListe, nutzernameListe );
+            for ( int i = 0; i < gruppe.size(); i++ ) {
+
+                gruppe.get( i ).ergebnis().complete( ergebnisListe.get( i ) );
+            }
+        }
+        catch ( RuntimeException ex ) {
+
+            LOG.error( "Speichern von Gruppe mit {} Einträgen gescheitert.", gruppe.size(), ex );
+            for ( Auftrag auftrag : gruppe ) {
+
+                auftrag.ergebnis().completeExceptionally( ex );
+            }
+        }
+
+        final DistributionSummary summary = _gruppengroesseSummary;
+        if ( summary != null ) {
+
+            summary.record( gruppe.size() );
+        }
+    }
+
+
+    /**
+     * Metriken registrieren; wird von Spring Boot aufgerufen.
+     *
+     * @param registry Registry für Metriken
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        Gauge.builder( "glossar.gruppencommit.warteschlange", _warteschlange, BlockingQueue::size )
+             .description( "Anzahl Speicheraufträge in der Warteschlange für Group Commit" )
+             .register( registry );
+
+        _gruppengroesseSummary = DistributionSummary.builder( "glossar.gruppencommit.gruppengroesse" )
+                                                    .description( "Anzahl Einträge pro Commit" )
+                                                    .register( registry );
+    }
+
+}
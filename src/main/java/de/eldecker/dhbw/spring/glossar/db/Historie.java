@@ -0,0 +1,206 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.db.entities.RevisionEntity;
+import de.eldecker.dhbw.spring.glossar.helferlein.TextDelta;
+import de.eldecker.dhbw.spring.glossar.model.Revision;
+import de.eldecker.dhbw.spring.glossar.model.RevisionInfo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+
+/**
+ * Repository-Bean für die Historie der Glossareinträge: Bei jedem Anlegen und jeder
+ * Änderung eines Eintrags wird eine neue Revision angehängt (siehe {@link RevisionEntity}),
+ * bestehende Revisionen werden nie geändert.
+ * <br><br>
+ *
+ * Jede n-te Revision eines Eintrags ist ein vollständiger Snapshot der Erklärung, dazwischen
+ * wird nur ein Delta zur vorherigen Revision gespeichert (siehe {@link TextDelta}). Wenn das
+ * Delta nicht kürzer als die Erklärung ist, dann wird stattdessen auch ein Snapshot gespeichert.
+ * Zur Rekonstruktion einer Revision werden so höchstens n Zeilen gelesen, egal wie viele
+ * Revisionen es für den Eintrag insgesamt gibt.
+ * <br><br>
+ *
+ * Für Einträge, die schon vor Einführung der Historie angelegt wurden, beginnt die Historie
+ * mit der ersten Änderung.
+ * <br><br>
+ *
+ * Die Methode {@link #anhaengen(long, String, String, LocalDateTime, AutorEntity)} muss in
+ * derselben Transaktion wie die eigentliche Änderung des Eintrags aufgerufen werden.
+ */
+@Repository
+public class Historie {
+
+    private final static Logger LOG = LoggerFactory.getLogger( Historie.class );
+
+    /** Zentrales Objekt von JPA für Datenbankzugriffe. */
+    private final EntityManager _em;
+
+    /** Abstand zwischen zwei vollständigen Snapshots (Anzahl Revisionen). */
+    private final int _snapshotIntervall;
+
+    /** Änderungsfeed, für den die ID jeder Revision als Sequenznummer dient. */
+    private final Aenderungsfeed _aenderungsfeed;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public Historie( EntityManager em,
+                     Aenderungsfeed aenderungsfeed,
+                     @Value( "${de.eldecker.glossar.historie.snapshot.intervall:10}" ) int snapshotIntervall ) {
+
+        _em                = em;
+        _aenderungsfeed    = aenderungsfeed;
+        _snapshotIntervall = Math.max( 1, snapshotIntervall );
+    }
+
+
+    /**
+     * Neue Revision für einen Glossareintrag anhängen.
+     * <br><br>
+     *
+     * Muss nach der Änderung des Eintrags in derselben Transaktion aufgerufen werden:
+     * Die Zeilensperre auf dem geänderten Eintrag sorgt dann dafür, dass zwei gleichzeitige
+     * Änderungen desselben Eintrags nicht dieselbe Revisionsnummer bekommen.
+     *
+     * @param eintragId ID des angelegten oder geänderten Eintrags
+     *
+     * @param begriff Neuer Begriff
+     *
+     * @param erklaerung Neue Erklärung
+     *
+     * @param zeitpunkt Zeitpunkt der Änderung
+     *
+     * @param autor Autor der Änderung
+     */
+    public void anhaengen( long eintragId,
+                           String begriff,
+                           String erklaerung,
+                           LocalDateTime zeitpunkt,
+                           AutorEntity autor ) {
+
+        final String text = erklaerung == null ? "" : erklaerung;
+
+        final TypedQuery<Integer> query =
+                _em.createQuery( "SELECT MAX(r._nummer) FROM RevisionEntity r WHERE r._eintragId = :id",
+                                 Integer.class );
+        query.setParameter( "id", eintragId );
+        final Integer letzteNummer = query.getSingleResult();
+
+        final int nummer = letzteNummer == null ? 1 : letzteNummer + 1;
+
+        boolean istSnapshot = true;
+        String  inhalt      = text;
+
+        if ( ( nummer - 1 ) % _snapshotIntervall != 0 ) {
+
+            final Optional<Revision> vorherigeOptional = getRevision( eintragId, nummer - 1 );
+            if ( vorherigeOptional.isPresent() ) {
+
+                final String delta = TextDelta.erzeugen( vorherigeOptional.get().erklaerung(), text );
+                if ( delta.length() < text.length() ) {
+
+                    istSnapshot = false;
+                    inhalt      = delta;
+                }
+            }
+        }
+
+        final RevisionEntity revision =
+                new RevisionEntity( eintragId, nummer, begriff, istSnapshot, inhalt, zeitpunkt, autor );
+
+        _aenderungsfeed.vorEinfuegen();
+        _em.persist( revision );
+        _aenderungsfeed.nachEinfuegen( revision.getId() );
+
+        LOG.debug( "Revision {} für Glossareintrag mit ID={} angehängt ({}, {} Zeichen).",
+                   nummer, eintragId, istSnapshot ? "Snapshot" : "Delta", inhalt.length() );
+    }
+
+
+    /**
+     * Liste aller Revisionen eines Glossareintrags ohne Erklärungen, neueste zuerst.
+     *
+     * @param eintragId ID des Glossareintrags
+     *
+     * @return Liste der Revisionen, ist leer wenn es keine Historie für den Eintrag gibt
+     */
+    public List<RevisionInfo> getRevisionen( long eintragId ) {
+
+        final String jpqlStr =
+                """
+                SELECT NEW de.eldecker.dhbw.spring.glossar.model.RevisionInfo(
+                           r._nummer, r._begriff, r._zeitpunkt, a._nutzername, r._istSnapshot, LENGTH( r._inhalt ) )
+                       FROM RevisionEntity r LEFT JOIN r._autor a
+                       WHERE r._eintragId = :id
+                       ORDER BY r._nummer DESC
+                """;
+
+        final TypedQuery<RevisionInfo> query = _em.createQuery( jpqlStr, RevisionInfo.class );
+        query.setParameter( "id", eintragId );
+
+        return query.getResultList();
+    }
+
+
+    /**
+     * Eine Revision eines Glossareintrags rekonstruieren. Dazu werden der letzte Snapshot
+     * bis einschließlich {@code nummer} und die darauf folgenden Deltas mit einer einzigen
+     * Abfrage gelesen und nacheinander angewendet.
+     *
+     * @param eintragId ID des Glossareintrags
+     *
+     * @param nummer Nummer der Revision
+     *
+     * @return Optional enthält rekonstruierte Revision; ist leer, wenn es die Revision nicht gibt
+     */
+    public Optional<Revision> getRevision( long eintragId, int nummer ) {
+
+        final String jpqlStr =
+                """
+                SELECT r FROM RevisionEntity r
+                       WHERE r._eintragId = :id AND r._nummer <= :nummer
+                         AND r._nummer >= ( SELECT MAX(s._nummer) FROM RevisionEntity s
+                                                   WHERE s._eintragId = :id AND s._nummer <= :nummer
+                                                     AND s._istSnapshot = true )
+                       ORDER BY r._nummer ASC
+                """;
+
+        final TypedQuery<RevisionEntity> query = _em.createQuery( jpqlStr, RevisionEntity.class );
+        query.setParameter( "id"    , eintragId );
+        query.setParameter( "nummer", nummer    );
+
+        final List<RevisionEntity> kette = query.getResultList();
+        if ( kette.isEmpty() || kette.getLast().getNummer() != nummer ) {
+
+            return Optional.empty();
+        }
+
+        String erklaerung = "";
+        for ( RevisionEntity revision : kette ) {
+
+            erklaerung = revision.istSnapshot() ? revision.getInhalt()
+                                                : TextDelta.anwenden( erklaerung, revision.getInhalt() );
+        }
+
+        final RevisionEntity ziel  = kette.getLast();
+        final String         autor = ziel.getAutor() == null ? "" : ziel.getAutor().getNutzername();
+
+        return Optional.of( new Revision( nummer, ziel.getBegriff(), erklaerung, ziel.getZeitpunkt(), autor ) );
+    }
+
+}
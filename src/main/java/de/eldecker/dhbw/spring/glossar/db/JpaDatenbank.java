@@ -0,0 +1,739 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.time.LocalDateTime.now;
+import static java.time.temporal.ChronoUnit.MINUTES;
+
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.helferlein.TextKompression;
+import de.eldecker.dhbw.spring.glossar.model.AutorArtikelAnzahl;
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.NoResultException;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+
+/**
+ * Implementierung von {@link Datenbank} mit JPA auf der relationalen Datenbank (H2); diese
+ * Repository-Bean gibt es immer, weil die Autoren auch bei anderen Speicher-Engines (siehe
+ * {@link SpeicherDatenbank}) in der relationalen Datenbank bleiben.
+ * <br><br>
+ *
+ * Achtung: Alle Methodenaufrufe für schreibende Zugriff müssen in
+ * einer Transaktion stattfinden, v.a. in einer mit {@code Transactional}
+ * annotierten Methode.
+ */
+@Repository
+public class JpaDatenbank implements Datenbank {
+
+    private final static Logger LOG = LoggerFactory.getLogger( JpaDatenbank.class );
+
+    /** Zentrales Objekt von JPA für Datenbankzugriffe. */
+    private EntityManager _em;
+
+    /** Glossarweite Versionsnummer, wird nach jedem Anlegen/Ändern eines Eintrags erhöht. */
+    private GlossarVersion _glossarVersion;
+
+    /** Historie der Glossareinträge, bei jedem Anlegen/Ändern wird eine Revision angehängt. */
+    private Historie _historie;
+
+    /** Codec für lange Erklärungen, für UPDATE-Statements und Projektionen ohne Entity. */
+    private TextKompression _textKompression;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public JpaDatenbank( EntityManager em,
+                         GlossarVersion glossarVersion,
+                         Historie historie,
+                         ErklaerungKompression erklaerungKompression ) {
+
+        _em              = em;
+        _glossarVersion  = glossarVersion;
+        _historie        = historie;
+        _textKompression = erklaerungKompression.getTextKompression();
+    }
+
+
+    /**
+     * Liefert die Anzahl der Glossareinträge in der Datenbank.
+     *
+     * @return Anzahl der Glossareinträge.
+     */
+    @Override
+    public int getAnzahlGlossareintraege() {
+
+        final Query query = _em.createQuery( "SELECT COUNT(g) FROM GlossarEntity g" ); // Query mit JPQL
+
+        final Long ergebnisLong = (long) query.getSingleResult();
+
+        final int ergebnisInt = ergebnisLong.intValue();
+
+        return ergebnisInt;
+    }
+
+
+    /**
+     * Glossareintrag anhand ID auslesen (mit allen Attributen).
+     * <br><br>
+     *
+     * Intern wird die Methode {@code find()} der JPA-Entity-Manager-Klasse
+     * verwendet, was aber nur funktioniert, wenn man den Primärschlüssel
+     * kennt.
+     *
+     * @param id Primärschlüssel/ID von Glossareintrag
+     *
+     * @return Optional enthält Eintrag wenn gefunden; enthält auch bereits
+     *         die referenzierten Autoren (eager loading).
+     */
+    @Override
+    public Optional<GlossarEntity> getEintragById( Long id ) {
+
+        try {
+
+            final GlossarEntity ergebnis = _em.find( GlossarEntity.class, id );
+            return Optional.ofNullable( ergebnis );
+        }
+        catch ( IllegalArgumentException ex ) {
+
+            LOG.error( "Fehler bei Lesen von Glossareintrag anhand ID.", ex );
+            return Optional.empty();
+        }
+    }
+
+
+    /**
+     * Nur den Zeitpunkt der letzten Änderung eines Glossareintrags auslesen, ohne die
+     * Entity (mit Erklärung und Autoren) zu laden. Diese Abfrage wird für die Prüfung
+     * von bedingten HTTP-Requests ({@code If-None-Match}) verwendet.
+     *
+     * @param id Primärschlüssel/ID von Glossareintrag
+     *
+     * @return Optional enthält Zeitpunkt der letzten Änderung; ist leer, wenn es
+     *         keinen Eintrag mit {@code id} gibt.
+     */
+    @Override
+    public Optional<LocalDateTime> getZeitpunktAenderung( long id ) {
+
+        final String jpqlStr = "SELECT g._zeitpunktAenderung FROM GlossarEntity g WHERE g._id = :id";
+
+        final TypedQuery<LocalDateTime> query = _em.createQuery( jpqlStr, LocalDateTime.class );
+        query.setParameter( "id", id );
+
+        final List<LocalDateTime> ergebnisListe = query.getResultList();
+        if ( ergebnisListe.isEmpty() ) {
+
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable( ergebnisListe.get( 0 ) );
+    }
+
+
+    /**
+     * Glossareintrag anhand Begriff suchen.
+     * <br><br>
+     *
+     * Intern verwendet die Methode eine JPQL-Query, die als Annotation
+     * in der Entity-Klasse {@link GlossarEntity} definiert ist.
+     *
+     * @param begriff Begriff nach dem (case-insensitive) gesucht wird
+     *
+     * @return Optional enthält Eintrag (mit allen Attributen gefüllt) wenn gefunden
+     */
+    @Override
+    public Optional<GlossarEntity> getEintragByBegriff( String begriff ) {
+
+        final TypedQuery<GlossarEntity> query = _em.createNamedQuery( "GlossarEntity.findByBegriff",
+                                                                      GlossarEntity.class );
+        query.setParameter( "begriff", begriff );
+
+        try {
+
+            final GlossarEntity result = query.getSingleResult();
+            return Optional.ofNullable( result );
+        }
+        catch( NoResultException ex ) {
+
+            return Optional.empty();
+        }
+    }
+
+
+    /**
+     * Mehrere Glossareinträge anhand ihrer IDs mit einer einzigen Abfrage auslesen.
+     *
+     * @param idListe IDs der gesuchten Einträge
+     *
+     * @return Map von ID auf Eintrag (mit allen Attributen); für nicht gefundene IDs
+     *         ist kein Eintrag enthalten.
+     */
+    @Override
+    public Map<Long, GlossarEntity> getEintraegeByIds( Collection<Long> idListe ) {
+
+        final Map<Long, GlossarEntity> ergebnisMap = new HashMap<>();
+        if ( idListe.isEmpty() ) {
+
+            return ergebnisMap;
+        }
+
+        final String jpqlStr = "SELECT g FROM GlossarEntity g WHERE g._id IN :idListe";
+
+        final TypedQuery<GlossarEntity> query = _em.createQuery( jpqlStr, GlossarEntity.class );
+        query.setParameter( "idListe", idListe );
+
+        query.getResultList().forEach( eintrag -> ergebnisMap.put( eintrag.getId(), eintrag ) );
+
+        return ergebnisMap;
+    }
+
+
+    /**
+     * Prüft mit einer einzigen Abfrage, welche der übergebenen Begriffe schon im Glossar
+     * vorhanden sind; der Vergleich ist case-insensitive.
+     *
+     * @param begriffListeKlein Zu prüfende Begriffe, müssen schon in Kleinbuchstaben
+     *                          umgewandelt sein
+     *
+     * @return Menge der schon vorhandenen Begriffe (in Kleinbuchstaben)
+     */
+    @Override
+    public Set<String> getVorhandeneBegriffe( Collection<String> begriffListeKlein ) {
+
+        if ( begriffListeKlein.isEmpty() ) {
+
+            return new HashSet<>();
+        }
+
+        final String jpqlStr = "SELECT LOWER(g._begriff) FROM GlossarEntity g WHERE LOWER(g._begriff) IN :begriffListe";
+
+        final TypedQuery<String> query = _em.createQuery( jpqlStr, String.class );
+        query.setParameter( "begriffListe", begriffListeKlein );
+
+        return new HashSet<>( query.getResultList() );
+    }
+
+
+    /**
+     * Fügt einen neuen Glossareintrag in die Datenbank ein und legt die erste Revision
+     * in der {@link Historie} an; nach dem Commit wird die Glossarversion
+     * (siehe {@link GlossarVersion}) erhöht.
+     *
+     * @param eintrag Neuer Glossareintrag
+     *
+     * @return ID des neuen Eintrags
+     */
+    @Override
+    public long neuerGlossarEintrag( GlossarEntity eintrag ) {
+
+        _em.persist( eintrag );
+        LOG.info( "Neuer Glossareintrag mit ID={} in Datenbank gespeichert: {}",
+                  eintrag.getId(),
+                  eintrag.getBegriff() );
+
+        _historie.anhaengen( eintrag.getId(),
+                             eintrag.getBegriff(),
+                             eintrag.getErklaerung(),
+                             eintrag.getZeitpunktErzeugung(),
+                             eintrag.getAutorErzeugung() );
+
+        _glossarVersion.erhoehenNachCommit();
+
+        return eintrag.getId();
+    }
+
+
+    /**
+     * Glossareintrag auf DB aktualisieren und neue Revision in der {@link Historie}
+     * anhängen; nach dem Commit wird die Glossarversion (siehe {@link GlossarVersion}) erhöht.
+     *
+     * @param eintrag Zu aktualisierender Eintrag, die ID muss gefüllt sein.
+     *
+     * @return Neuer Zustand des Objekts
+     */
+    @Override
+    public GlossarEntity updateGlossarEintrag( GlossarEntity eintrag ) {
+
+        final GlossarEntity ergebnis = _em.merge( eintrag );
+
+        LOG.info( "Glossareintrag für Begriff \"{}\" aktualisiert.", eintrag.getBegriff() );
+
+        _historie.anhaengen( ergebnis.getId(),
+                             ergebnis.getBegriff(),
+                             ergebnis.getErklaerung(),
+                             ergebnis.getZeitpunktAenderung(),
+                             ergebnis.getAutorAenderung() );
+
+        _glossarVersion.erhoehenNachCommit();
+
+        return ergebnis;
+    }
+
+
+    /**
+     * Glossareintrag mit einem einzigen UPDATE-Statement ändern, ohne ihn vorher zu lesen.
+     * Wenn {@code version} gesetzt ist, dann enthält die WHERE-Klausel auch die Version, d.h.
+     * der Eintrag wird nur geändert, wenn er seit dem Lesen durch den Client nicht von
+     * jemand anderem geändert wurde (<i>Optimistic Locking</i>). Die Version wird dabei um
+     * eins erhöht und eine neue Revision in der {@link Historie} angehängt. Nach dem Commit
+     * wird die Glossarversion (siehe {@link GlossarVersion}) erhöht.
+     * <br><br>
+     *
+     * Muss in einer Transaktion aufgerufen werden.
+     *
+     * @param id ID des zu ändernden Eintrags
+     *
+     * @param version Erwartete Version des Eintrags; {@code null} für Änderung ohne Prüfung
+     *
+     * @param begriff Neuer Begriff
+     *
+     * @param erklaerung Neue Erklärung
+     *
+     * @param zeitpunkt Zeitpunkt der Änderung
+     *
+     * @param autor Autor der Änderung
+     *
+     * @return {@code true} wenn der Eintrag geändert wurde; {@code false} wenn es keinen Eintrag
+     *         mit {@code id} gibt oder die Version nicht gepasst hat.
+     */
+    @Override
+    public boolean aendereGlossarEintrag( long id,
+                                          Long version,
+                                          String begriff,
+                                          String erklaerung,
+                                          LocalDateTime zeitpunkt,
+                                          AutorEntity autor ) {
+
+        String jpqlStr = "UPDATE GlossarEntity g " +
+                         "SET g._begriff = :begriff, g._erklaerung = :erklaerung, " +
+                         "g._erklaerungKomprimiert = :erklaerungKomprimiert, " +
+                         "g._zeitpunktAenderung = :zeitpunkt, g._autorAenderung = :autor, " +
+                         "g._version = g._version + 1 " +
+                         "WHERE g._id = :id";
+        if ( version != null ) {
+
+            jpqlStr += " AND g._version = :version";
+        }
+
+        // Entity-Listener wird bei UPDATE-Statement nicht aufgerufen, deshalb hier komprimieren
+        final byte[] erklaerungKomprimiert = _textKompression.komprimieren( erklaerung );
+        final String erklaerungSpalte      = erklaerungKomprimiert == null ? erklaerung : null;
+
+        final Query query = _em.createQuery( jpqlStr );
+        query.setParameter( "begriff"              , begriff               );
+        query.setParameter( "erklaerung"           , erklaerungSpalte      );
+        query.setParameter( "erklaerungKomprimiert", erklaerungKomprimiert );
+        query.setParameter( "zeitpunkt"            , zeitpunkt             );
+        query.setParameter( "autor"                , autor                 );
+        query.setParameter( "id"                   , id                    );
+        if ( version != null ) {
+
+            query.setParameter( "version", version );
+        }
+
+        final int anzahl = query.executeUpdate();
+        if ( anzahl == 0 ) {
+
+            LOG.warn( "Glossareintrag mit ID={} und Version={} nicht geändert.", id, version );
+            return false;
+        }
+
+        LOG.info( "Glossareintrag mit ID={} aktualisiert: \"{}\"", id, begriff );
+
+        _historie.anhaengen( id, begriff, erklaerung, zeitpunkt, autor );
+
+        _glossarVersion.erhoehenNachCommit();
+
+        return true;
+    }
+
+
+    /**
+     * Liste aller Glossarbegriffe, aber nur ID und Begriff (nicht aber Erklärung und weitere Attribute).
+     * <br><br>
+     *
+     * Es werden nur die beiden Spalten abgefragt (Projektion) und die Zeilen direkt in eine
+     * kompakte {@link Begriffsliste} übernommen; es wird also kein Entity-Objekt pro Begriff
+     * erzeugt und auch keines im Persistenzkontext verwaltet.
+     *
+     * @return Liste aller Glossarbegriffe, alphabetisch sortiert (bei gleichen Begriffen nach ID,
+     *         damit die Reihenfolge immer gleich ist)
+     */
+    @Override
+    public Begriffsliste getGlossarBegriffe() {
+
+        final String jpqlStr =
+                """
+                SELECT g._id, g._begriff
+                       FROM GlossarEntity g
+                       ORDER BY LOWER( g._begriff ) ASC, g._id ASC
+                """;
+
+        final TypedQuery<Object[]> query = _em.createQuery( jpqlStr, Object[].class );
+
+        final Begriffsliste.Sammler sammler = new Begriffsliste.Sammler();
+        for ( Object[] zeile : query.getResultList() ) {
+
+            sammler.hinzufuegen( (Long) zeile[ 0 ], (String) zeile[ 1 ] );
+        }
+
+        return sammler.erzeugen();
+    }
+
+
+    /**
+     * Eine Seite von Glossareinträgen für die REST-API lesen, wobei nur die Spalten für
+     * {@code felder} abgefragt werden (Projektion); es werden also keine Entity-Objekte erzeugt.
+     * <br><br>
+     *
+     * Für das Blättern wird <i>Keyset Pagination</i> verwendet: Es werden die Einträge mit
+     * einer ID größer {@code nachId} in aufsteigender Reihenfolge der ID geliefert. Im Gegensatz
+     * zu {@code OFFSET} kann die Datenbank dafür direkt im Index des Primärschlüssels einsteigen,
+     * die Kosten hängen also nicht davon ab, wie weit schon geblättert wurde.
+     *
+     * @param felder Auszulesende Felder
+     *
+     * @param nachId Es werden nur Einträge mit einer größeren ID geliefert; für die erste
+     *               Seite muss {@code 0} übergeben werden.
+     *
+     * @param anzahl Maximale Anzahl der Einträge
+     *
+     * @return Liste mit einem Array pro Eintrag; das erste Element ist immer die ID,
+     *         danach folgen die Werte für {@code felder} in derselben Reihenfolge
+     *         (die ID also ggf. noch einmal).
+     */
+    @Override
+    public List<Object[]> getEintraegeProjektion( List<EintragFeld> felder, long nachId, int anzahl ) {
+
+        final TypedQuery<Object[]> query = erzeugeProjektionsQuery( felder, "g._id > :nachId" );
+        query.setParameter( "nachId", nachId );
+        query.setMaxResults( anzahl );
+
+        return query.getResultList().stream().map( zeile -> projektionEntpacken( felder, zeile ) ).toList();
+    }
+
+
+    /**
+     * Einen Glossareintrag anhand der ID für die REST-API lesen, wobei nur die Spalten
+     * für {@code felder} abgefragt werden.
+     *
+     * @param felder Auszulesende Felder
+     *
+     * @param id Primärschlüssel/ID von Glossareintrag
+     *
+     * @return Optional enthält Array mit ID und den Werten für {@code felder}, siehe
+     *         {@link #getEintraegeProjektion(List, long, int)}; ist leer, wenn es keinen
+     *         Eintrag mit {@code id} gibt.
+     */
+    @Override
+    public Optional<Object[]> getEintragProjektionById( List<EintragFeld> felder, long id ) {
+
+        final TypedQuery<Object[]> query = erzeugeProjektionsQuery( felder, "g._id = :id" );
+        query.setParameter( "id", id );
+
+        return query.getResultStream().findFirst().map( zeile -> projektionEntpacken( felder, zeile ) );
+    }
+
+
+    /**
+     * Glossareinträge anhand Begriff (case-insensitive) für die REST-API suchen, wobei nur
+     * die Spalten für {@code felder} abgefragt werden.
+     *
+     * @param felder Auszulesende Felder
+     *
+     * @param begriff Gesuchter Begriff
+     *
+     * @return Liste mit einem Array pro gefundenem Eintrag, siehe
+     *         {@link #getEintraegeProjektion(List, long, int)}; ist leer, wenn es keinen
+     *         Eintrag für {@code begriff} gibt.
+     */
+    @Override
+    public List<Object[]> getEintraegeProjektionByBegriff( List<EintragFeld> felder, String begriff ) {
+
+        final TypedQuery<Object[]> query = erzeugeProjektionsQuery( felder, "LOWER(g._begriff) = LOWER(:begriff)" );
+        query.setParameter( "begriff", begriff );
+
+        return query.getResultList().stream().map( zeile -> projektionEntpacken( felder, zeile ) ).toList();
+    }
+
+
+    /**
+     * Erzeugt JPQL-Query, die nur die ID und die Spalten für {@code felder} ausliest.
+     * Die Tabelle mit den Autoren wird nur dann (per {@code LEFT JOIN}) hinzugenommen,
+     * wenn ein Autor-Feld angefordert wurde.
+     *
+     * @param felder Auszulesende Felder
+     *
+     * @param whereKlausel Bedingung (ohne {@code WHERE}) für die Einträge, Alias für
+     *                     Glossareintrag ist {@code g}
+     *
+     * @return Query, deren Parameter noch gesetzt werden müssen; Sortierung nach ID. Wenn
+     *         die Erklärung abgefragt wird, dann kommt als letzte Spalte noch die komprimierte
+     *         Erklärung hinzu, siehe {@link #projektionEntpacken(List, Object[])}.
+     */
+    private TypedQuery<Object[]> erzeugeProjektionsQuery( List<EintragFeld> felder, String whereKlausel ) {
+
+        final StringBuilder selectSb = new StringBuilder( "SELECT g._id" );
+        final StringBuilder fromSb   = new StringBuilder( " FROM GlossarEntity g" );
+
+        for ( EintragFeld feld : felder ) {
+
+            final String ausdruck = switch ( feld ) {
+
+                case ID                  -> "g._id";
+                case BEGRIFF             -> "g._begriff";
+                case ERKLAERUNG          -> "g._erklaerung";
+                case ZEITPUNKT_ERZEUGUNG -> "g._zeitpunktErzeugung";
+                case ZEITPUNKT_AENDERUNG -> "g._zeitpunktAenderung";
+                case AUTOR_ERZEUGUNG     -> "ae._nutzername";
+                case AUTOR_AENDERUNG     -> "aa._nutzername";
+            };
+            selectSb.append( ", " ).append( ausdruck );
+        }
+
+        if ( felder.contains( EintragFeld.ERKLAERUNG ) ) {
+
+            selectSb.append( ", g._erklaerungKomprimiert" );
+        }
+
+        if ( felder.contains( EintragFeld.AUTOR_ERZEUGUNG ) ) {
+
+            fromSb.append( " LEFT JOIN g._autorErzeugung ae" );
+        }
+        if ( felder.contains( EintragFeld.AUTOR_AENDERUNG ) ) {
+
+            fromSb.append( " LEFT JOIN g._autorAenderung aa" );
+        }
+
+        final String jpqlStr = selectSb + fromSb.toString() + " WHERE " + whereKlausel + " ORDER BY g._id ASC";
+
+        return _em.createQuery( jpqlStr, Object[].class );
+    }
+
+
+    /**
+     * Zeile aus {@link #erzeugeProjektionsQuery(List, String)} nachbearbeiten: wenn die
+     * Erklärung komprimiert gespeichert ist, dann wird sie entpackt und an die Stelle der
+     * (leeren) Spalte {@code erklaerung} geschrieben; die zusätzliche letzte Spalte wird entfernt.
+     *
+     * @param felder Abgefragte Felder
+     *
+     * @param zeile Zeile aus der Projektionsabfrage
+     *
+     * @return Zeile mit ID und den Werten für {@code felder}
+     */
+    private Object[] projektionEntpacken( List<EintragFeld> felder, Object[] zeile ) {
+
+        final int index = felder.indexOf( EintragFeld.ERKLAERUNG );
+        if ( index < 0 ) {
+
+            return zeile;
+        }
+
+        final Object[] ergebnis    = Arrays.copyOf( zeile, zeile.length - 1 );
+        final byte[]   komprimiert = (byte[]) zeile[ zeile.length - 1 ];
+        if ( komprimiert != null ) {
+
+            ergebnis[ index + 1 ] = _textKompression.entpacken( komprimiert );
+        }
+
+        return ergebnis;
+    }
+
+
+    /**
+     * Fügt neuen Autor (Nutzer) in die Datenbank ein.
+     *
+     * @param autor Neuer Autor/Nutzer
+     */
+    @Override
+    public void neuerAutor( AutorEntity autor ) {
+
+        _em.persist( autor );
+        LOG.info( "Neuer Autor (Nutzer) in Datenbank gespeichert: {}", autor.getNutzername() );
+    }
+
+
+    /**
+     * Autor/Nutzer anhand {@code nutzername} holen.
+     * <br><br>
+     *
+     * Intern wird die Methode {@code getSingleResult()} verwendet,
+     * weil wir davon ausgehen, dass der Nutzername eindeutig ist.
+     * Wenn es aber doch mehrere Nutzer mit gleichem Nutzernamen gibt,
+     * dann wird eine {@link NoResultException} (ungeprüfte Exception)
+     * geworfen.
+     *
+     * @param nutzername Nutzername nach dem gesucht wird (case-sensitive!)
+     *
+     * @return Optional ist leer, wenn Nutzer nicht gefunden; sonst ist der Nutzer
+     *         mit allen Feldern enthalten.
+     */
+    @Override
+    public Optional<AutorEntity> getAutorByName(final String nutzername) {
+
+        final String jpqlStr = "SELECT a FROM AutorEntity a WHERE a._nutzername = :nutzername";
+
+        final TypedQuery<AutorEntity> query = _em.createQuery( jpqlStr, AutorEntity.class );
+
+        query.setParameter( "nutzername", nutzername );
+
+        try {
+
+            final AutorEntity result = query.getSingleResult();
+            return Optional.of( result );
+
+        } catch ( NoResultException e ) {
+
+            LOG.warn( "Kein Nutzer mit Nutzername \"{}\" gefunden.", nutzername );
+            return Optional.empty();
+        }
+    }
+
+
+    /**
+     * Autor/Nutzer anhand ID holen; wird nur von {@link SpeicherDatenbank} benötigt, um die
+     * Autoren der Einträge aufzulösen, und ist deshalb nicht Teil von {@link Datenbank}.
+     *
+     * @param id Primärschlüssel/ID des Autors
+     *
+     * @return Optional ist leer, wenn es keinen Autor mit {@code id} gibt
+     */
+    public Optional<AutorEntity> getAutorById( long id ) {
+
+        return Optional.ofNullable( _em.find( AutorEntity.class, id ) );
+    }
+
+
+    /**
+     * Objekt mit Autor/Nutzer auf DB aktualisieren.
+     *
+     * @param autorNutzer Nutzer mit mind. einem neuen Attributwert (außer der ID),
+     *                    ID muss gefüllt sein.
+     *
+     * @return Neuer Zustand des Objekts
+     */
+    @Override
+    public AutorEntity updateAutor( AutorEntity autorNutzer ) {
+
+        final AutorEntity ergebnis = _em.merge( autorNutzer );
+
+        LOG.info( "Autor mit Nutzername \"{}\" aktualisiert.",
+                  ergebnis.getNutzername() );
+
+        return ergebnis;
+    }
+
+
+    /**
+     * Anzahl der von jedem Autor angelegten Artikel zählen.
+     *
+     * @return Liste enthält für jeden Autor ein Objekt mit der Anzahl der Artikel, die er ganz neu angelegt hat;
+     *         es sind nur Autoren enthalten, die mindestens einen Artikel angelegt haben.
+     *         Die Liste ist nach Anzahl der Artikel absteigend sortiert; wenn mehrere Autoren dieselbe Anzahl
+     *         an Artikeln angelegt haben, dann sind diese Autoren in alphabetischer Reihenfolge
+     */
+    @Override
+    public List<AutorArtikelAnzahl> getGlossarCountPerAuthor() {
+
+        final TypedQuery<AutorArtikelAnzahl> query =
+                    _em.createNamedQuery( "AutorEntity.GlossarCountPerAuthor",
+                                          AutorArtikelAnzahl.class );
+
+        final List<AutorArtikelAnzahl> results = query.getResultList();
+
+        return results;
+    }
+
+
+    /**
+     * Methode gibt alle Glossareinträge zurück, die von {@code autorName}
+     * neu angelegt wurden (Änderungen zählen nicht). 
+     * 
+     * @param autorName Name des Autor
+     * 
+     * @return Liste der Glossareinträge von {@code autorName}, alphabetisch sortiert 
+     *         nach Begriff; Liste ist leer, wenn {@code autorName} nicht existiert
+     *         oder keine Artikel neu angelegt hat.
+     *         Nur die Attribute ID und Begriff sind gefüllt!
+     */
+    @Override
+    public List<GlossarEntity> getGlossarEintraegeFuerAutor(String autorName) {
+
+        final TypedQuery<GlossarEntity> query = 
+                    _em.createNamedQuery( "GlossarEntity.getGlossarEintraegeFuerAutor", 
+                                          GlossarEntity.class );
+        
+        query.setParameter( "autorName", autorName );
+        
+        return query.getResultList();
+    }
+
+    
+    /**
+     * Gibt Autoren zurück, für die {@code ist_active=true} gilt, deren
+     * letzte Anmeldung aber schon mehr als {@code anzahlMinuten}
+     * zurückliegt. Diese Autoren sollen aus Sicherheitsgründen
+     * deaktiviert werden.
+     * <br><br>
+     *
+     * Die Methode verwendet intern die <i>Criteria API</i> anstelle
+     * von JPQL.
+     *
+     * @param anzahlMinuten Anzahl der Minuten, die der Autor inaktiv
+     *                      gewesen sein muss
+     *
+     * @return Liste der inaktiven Autoren; kann leer sein, ist aber nicht
+     *         {@code null}
+     */
+    @Override
+    public List<AutorEntity> getInaktiveAutoren( int anzahlMinuten ) {
+
+        final LocalDateTime zeitSchwellwert = now().minus( anzahlMinuten, MINUTES );
+
+        final CriteriaBuilder            cBuilder = _em.getCriteriaBuilder();
+        final CriteriaQuery<AutorEntity> cQuery   = cBuilder.createQuery( AutorEntity.class );
+
+        final Root<AutorEntity> rootAutor = cQuery.from( AutorEntity.class );
+
+        final Predicate predikatIstAktiv        = cBuilder.isTrue(   rootAutor.get( "_istAktiv"        ) );
+        final Predicate predikatLetzteAnmeldung = cBuilder.lessThan( rootAutor.get( "_letzteAnmeldung" ),
+                                                                     zeitSchwellwert );
+
+        final Predicate predikatKombiniert = cBuilder.and( predikatIstAktiv, predikatLetzteAnmeldung );
+
+        final Order orderLetzteAnmeldung = cBuilder.asc( rootAutor.get("_letzteAnmeldung") );
+
+        cQuery.select( rootAutor ).where( predikatKombiniert ).orderBy( orderLetzteAnmeldung );
+
+        final TypedQuery<AutorEntity> query = _em.createQuery( cQuery );
+
+        return query.getResultList();
+    }
+
+}
@@ -0,0 +1,106 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Iterator über alle Glossareinträge in Seiten, gelesen mit
+ * {@link Datenbank#getEintraegeProjektion(List, long, int)} (<i>Keyset Pagination</i>); die
+ * nächste Seite wird erst gelesen, wenn der Aufrufer sie braucht. Nach einer nicht vollen Seite
+ * wird nicht noch einmal abgefragt.
+ * <br><br>
+ *
+ * Objekte werden über {@link Datenbank#getEintraegeProjektionSeiten(List, int)} erzeugt.
+ */
+class ProjektionIterator implements Iterator<List<Object[]>> {
+
+    /** Quelle der Seiten. */
+    private final Datenbank _datenbank;
+
+    /** Auszulesende Felder, die ID ist immer das erste Element einer Zeile. */
+    private final List<EintragFeld> _felder;
+
+    /** Maximale Anzahl Einträge pro Seite. */
+    private final int _seiteMax;
+
+    /** ID des letzten Eintrags der zuletzt gelesenen Seite, {@code 0} am Anfang. */
+    private long _nachId = 0;
+
+    /** Schon gelesene, aber noch nicht abgeholte Seite; {@code null} wenn es keine gibt. */
+    private List<Object[]> _naechsteSeite = null;
+
+    /** {@code true} sobald feststeht, dass keine weitere Seite abgefragt werden muss. */
+    private boolean _ende = false;
+
+
+    /**
+     * Konstruktor.
+     *
+     * @param datenbank Quelle der Seiten
+     *
+     * @param felder Auszulesende Felder
+     *
+     * @param seiteMax Maximale Anzahl Einträge pro Seite
+     */
+    ProjektionIterator( Datenbank datenbank, List<EintragFeld> felder, int seiteMax ) {
+
+        _datenbank = datenbank;
+        _felder    = felder;
+        _seiteMax  = seiteMax;
+    }
+
+
+    /**
+     * Prüft, ob es noch eine Seite gibt; liest sie dazu ggf. schon von der Datenbank.
+     *
+     * @return {@code true} wenn {@link #next()} eine weitere (nicht leere) Seite liefert
+     */
+    @Override
+    public boolean hasNext() {
+
+        if ( _naechsteSeite == null && !_ende ) {
+
+            final List<Object[]> seite = _datenbank.getEintraegeProjektion( _felder, _nachId, _seiteMax );
+            if ( seite.isEmpty() ) {
+
+                _ende = true;
+
+            } else {
+
+                _naechsteSeite = seite;
+                _nachId        = (Long) seite.getLast()[ 0 ];
+                _ende          = seite.size() < _seiteMax;
+            }
+        }
+
+        return _naechsteSeite != null;
+    }
+
+
+    /**
+     * Nächste Seite liefern.
+     *
+     * @return Zeilen wie bei {@link Datenbank#getEintraegeProjektion(List, long, int)},
+     *         aufsteigend nach ID, nie leer
+     *
+     * @throws NoSuchElementException Es gibt keine weitere Seite
+     */
+    @Override
+    public List<Object[]> next() {
+
+        if ( !hasNext() ) {
+
+            throw new NoSuchElementException( "Keine weitere Seite mit Glossareinträgen." );
+        }
+
+        final List<Object[]> seite = _naechsteSeite;
+        _naechsteSeite = null;
+
+        return seite;
+    }
+
+}
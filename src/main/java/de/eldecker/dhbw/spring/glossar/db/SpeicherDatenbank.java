@@ -0,0 +1,1185 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.util.Locale.ROOT;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import de.eldecker.dhbw.spring.glossar.db.SpeicherLog.Eintrag;
+import de.eldecker.dhbw.spring.glossar.db.SpeicherLog.Satz;
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.model.AutorArtikelAnzahl;
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
+
+
+/**
+ * Implementierung von {@link Datenbank}, bei der die Glossareinträge komplett im Hauptspeicher
+ * gehalten werden, also ohne ORM und ohne SQL gelesen werden; wird nur mit der Konfiguration
+ * {@code de.eldecker.glossar.datenbank.engine=speicher} verwendet und ersetzt dann
+ * {@link JpaDatenbank} für alle anderen Beans.
+ * <br><br>
+ *
+ * Datenstrukturen:
+ * <ul>
+ * <li>nach ID sortierte Map mit allen Einträgen, für Zugriff über ID und <i>Keyset Pagination</i>;
+ *     die Erklärung ist dabei nur ein Slice auf die in den Speicher abgebildete Log-Datei
+ *     (Offset-Index), sie wird erst dekodiert, wenn sie gelesen wird</li>
+ * <li>sortierter Index mit Begriff (in Kleinbuchstaben) und ID, für Suche nach Begriff und
+ *     für die alphabetische Liste aller Begriffe</li>
+ * </ul>
+ *
+ * Jede Änderung wird beim Commit der Transaktion an die Log-Datei {@link SpeicherLog}
+ * angehängt; beim Programmstart wird der Inhalt durch Abspielen des Logs wiederhergestellt.
+ * Beim ersten Start (noch keine Log-Datei) werden die vorhandenen Einträge aus der relationalen
+ * Datenbank übernommen. Wenn das Log viel mehr Sätze als Einträge enthält, dann wird es beim
+ * Start und periodisch im Hintergrund kompaktiert.
+ * <br><br>
+ *
+ * Nur die Glossareinträge liegen in dieser Engine; die Autoren und die {@link Historie} bleiben
+ * in der relationalen Datenbank, weil die Revisionen per Fremdschlüssel auf die Autoren verweisen.
+ * Deshalb funktionieren auch der {@link Aenderungsfeed} und alle Beans, die darauf aufbauen,
+ * unverändert. Das Backup der relationalen Datenbank enthält aber nicht die Einträge dieser
+ * Engine, dafür muss die Log-Datei gesichert werden.
+ * <br><br>
+ *
+ * Transaktionen: Änderungen bleiben bis zum Commit privat in der Transaktion (nur sie selbst
+ * sieht sie bei Zugriffen über ID und Begriff, nicht aber in Listen und Seiten) und werden erst
+ * nach dem Commit in Map und Index übernommen; bei einem Rollback werden sie verworfen. Ein
+ * Eintrag, den eine offene Transaktion geändert oder angelegt hat, ist für andere schreibende
+ * Zugriffe bis zu deren Ende gesperrt (wie eine Zeilensperre in der relationalen Datenbank):
+ * diese warten und prüfen die Version danach gegen den committeten Zustand; nach der max.
+ * Wartezeit gibt es eine {@link CannotAcquireLockException}. Schreibende Zugriffe werden über
+ * eine Sperre serialisiert, lesende Zugriffe kommen ohne Sperre aus.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.speicher.eintraege}: Anzahl Einträge</li>
+ * <li>{@code glossar.speicher.log.bytes}: Größe der Log-Datei</li>
+ * <li>{@code glossar.speicher.log.saetze}: Anzahl Sätze in der Log-Datei</li>
+ * </ul>
+ */
+@Repository
+@Primary
+@ConditionalOnProperty( name = "de.eldecker.glossar.datenbank.engine", havingValue = "speicher" )
+public class SpeicherDatenbank implements Datenbank, MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( SpeicherDatenbank.class );
+
+    /** Anzahl Einträge, die beim ersten Start pro Abfrage aus der relationalen Datenbank gelesen werden. */
+    private static final int BLOCKGROESSE_UEBERNAHME = 500;
+
+    /**
+     * Das Log wird beim Start kompaktiert, wenn es mehr als so viele Sätze pro Eintrag enthält;
+     * bei weniger als 1000 Einträgen wird mit 1000 gerechnet.
+     */
+    private static final int KOMPAKTIEREN_FAKTOR = 2;
+
+
+    /**
+     * Schlüssel für den sortierten Index nach Begriff.
+     *
+     * @param begriffKlein Begriff in Kleinbuchstaben
+     *
+     * @param id ID des Eintrags, damit gleiche Begriffe unterschieden werden
+     */
+    private record Schluessel( String begriffKlein, long id ) implements Comparable<Schluessel> {
+
+        @Override
+        public int compareTo( Schluessel other ) {
+
+            final int ergebnis = begriffKlein.compareTo( other.begriffKlein );
+
+            return ergebnis != 0 ? ergebnis : Long.compare( id, other.id );
+        }
+    }
+
+
+    /**
+     * Änderungen einer noch nicht abgeschlossenen Transaktion; nur der Thread der Transaktion
+     * greift darauf zu.
+     */
+    private static final class Transaktion {
+
+        /** Letzter Zustand pro geändertem oder neuem Eintrag, in der Reihenfolge der ersten Änderung. */
+        private final Map<Long, Eintrag> _neuMap = new LinkedHashMap<>();
+
+        /** Wird gesetzt, sobald versucht wurde, die Änderungen an das Log anzuhängen. */
+        private boolean _logGeschrieben = false;
+
+        /** Erklärungen als Slices auf die Log-Datei, in derselben Reihenfolge wie {@link #_neuMap}. */
+        private List<ByteBuffer> _sliceListe = List.of();
+    }
+
+
+    /** Für Autoren und Übernahme der Einträge beim ersten Start. */
+    private final JpaDatenbank _jpaDatenbank;
+
+    /** Glossarweite Versionsnummer, wird nach jedem Anlegen/Ändern eines Eintrags erhöht. */
+    private final GlossarVersion _glossarVersion;
+
+    /** Historie der Glossareinträge, bei jedem Anlegen/Ändern wird eine Revision angehängt. */
+    private final Historie _historie;
+
+    /** Pfad der Log-Datei. */
+    private final Path _logDatei;
+
+    /** Alle Einträge, nach ID sortiert. */
+    private final ConcurrentSkipListMap<Long, Eintrag> _eintragMap = new ConcurrentSkipListMap<>();
+
+    /** Sortierter Index nach Begriff (ohne Groß-/Kleinschreibung) und ID. */
+    private final ConcurrentSkipListSet<Schluessel> _begriffIndex = new ConcurrentSkipListSet<>();
+
+    /** Von Einträgen referenzierte Autoren nach ID, werden bei Bedarf aus der relationalen Datenbank gelesen. */
+    private final Map<Long, AutorEntity> _autorMap = new ConcurrentHashMap<>();
+
+    /** Höchste bisher vergebene ID. */
+    private final AtomicLong _letzteId = new AtomicLong( 0 );
+
+    /** Schreibende Zugriffe auf Einträge und Log werden serialisiert. */
+    private final ReentrantLock _schreibSperre = new ReentrantLock();
+
+    /**
+     * IDs der Einträge, die eine noch nicht abgeschlossene Transaktion geändert oder angelegt
+     * hat, mit dieser Transaktion. Wird nur mit {@link #_schreibSperre} gelesen oder geändert.
+     */
+    private final Map<Long, Transaktion> _gesperrtMap = new HashMap<>();
+
+    /** Wird signalisiert, wenn eine Transaktion ihre Einträge in {@link #_gesperrtMap} freigibt. */
+    private final Condition _freigegeben = _schreibSperre.newCondition();
+
+    /** Max. Wartezeit in Millisekunden auf einen Eintrag, den eine andere Transaktion geändert hat. */
+    private final long _wartezeitSperreMs;
+
+    /** Log-Datei, wird beim Start geöffnet. */
+    private SpeicherLog _log;
+
+    /**
+     * Anzahl Transaktionen mit Änderungen, die noch nicht abgeschlossen sind; solange es solche
+     * gibt, wird nicht kompaktiert, weil deren Sätze schon im Log, aber noch nicht in der Map
+     * stehen können.
+     * Wird nur mit {@link #_schreibSperre} gelesen oder geändert.
+     */
+    private int _offeneTransaktionen = 0;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}.
+     */
+    @Autowired
+    public SpeicherDatenbank( JpaDatenbank jpaDatenbank,
+                              GlossarVersion glossarVersion,
+                              Historie historie,
+                              @Value( "${de.eldecker.glossar.datenbank.speicher.log:./db/glossar-speicher.log}" ) String logDatei,
+                              @Value( "${de.eldecker.glossar.datenbank.speicher.sperre.wartezeit.ms:10000}" ) long wartezeitSperreMs ) {
+
+        _jpaDatenbank      = jpaDatenbank;
+        _glossarVersion    = glossarVersion;
+        _historie          = historie;
+        _logDatei          = Paths.get( logDatei );
+        _wartezeitSperreMs = wartezeitSperreMs;
+    }
+
+
+    /**
+     * Log-Datei beim Programmstart abspielen (bzw. beim ersten Start die Einträge aus der
+     * relationalen Datenbank übernehmen) und ggf. kompaktieren.
+     *
+     * @throws BeanInitializationException Log-Datei kann nicht gelesen oder geschrieben werden
+     */
+    @PostConstruct
+    private void laden() {
+
+        final long startNanos = System.nanoTime();
+        try {
+
+            final Path verzeichnis = _logDatei.toAbsolutePath().getParent();
+            if ( verzeichnis != null ) {
+
+                Files.createDirectories( verzeichnis );
+            }
+
+            final boolean istErsterStart = !Files.exists( _logDatei );
+
+            _log = SpeicherLog.oeffnen( _logDatei, this::abspielen );
+
+            if ( istErsterStart ) {
+
+                uebernehmen();
+
+            } else {
+
+                kompaktierenWennNoetig();
+            }
+        }
+        catch ( IOException ex ) {
+
+            throw new BeanInitializationException( "Log-Datei \"" + _logDatei + "\" für Speicher-Engine kann nicht " +
+                                                   "verwendet werden: " + ex.getMessage(), ex );
+        }
+
+        LOG.info( "Speicher-Engine geladen: {} Einträge, {} Sätze in Log-Datei \"{}\", {} ms.",
+                  _eintragMap.size(), _log.getAnzahlSaetze(), _logDatei,
+                  ( System.nanoTime() - startNanos ) / 1_000_000 );
+    }
+
+
+    /**
+     * Einen Satz aus der Log-Datei beim Start abspielen.
+     */
+    private void abspielen( Satz satz ) {
+
+        _letzteId.accumulateAndGet( satz.id(), Math::max );
+
+        ersetzen( satz.id(), _eintragMap.get( satz.id() ), satz.eintrag() );
+    }
+
+
+    /**
+     * Beim ersten Start alle Einträge blockweise aus der relationalen Datenbank übernehmen
+     * und als Anfangsstand in die Log-Datei schreiben.
+     */
+    private void uebernehmen() throws IOException {
+
+        for ( List<Object[]> blockListe : _jpaDatenbank.getEintraegeProjektionSeiten( List.of(), BLOCKGROESSE_UEBERNAHME ) ) {
+
+            final List<Long> idListe = blockListe.stream().map( zeile -> (Long) zeile[ 0 ] ).toList();
+
+            final Map<Long, GlossarEntity> eintragMap = _jpaDatenbank.getEintraegeByIds( idListe );
+            for ( GlossarEntity entity : eintragMap.values() ) {
+
+                _letzteId.accumulateAndGet( entity.getId(), Math::max );
+                ersetzen( entity.getId(), null, vonEntity( entity.getId(), entity.getVersion(), entity ) );
+            }
+        }
+
+        neuSchreiben();
+
+        LOG.info( "Erster Start der Speicher-Engine: {} Einträge aus relationaler Datenbank übernommen.",
+                  _eintragMap.size() );
+    }
+
+
+    /**
+     * Log-Datei beim Herunterfahren schließen.
+     */
+    @PreDestroy
+    private void beenden() {
+
+        _schreibSperre.lock();
+        try {
+
+            _log.close();
+        }
+        catch ( IOException ex ) {
+
+            LOG.error( "Fehler beim Schließen der Log-Datei \"{}\".", _logDatei, ex );
+        }
+        finally {
+
+            _schreibSperre.unlock();
+        }
+    }
+
+
+    /**
+     * Diese Methode wird periodisch im Hintergrund aufgerufen und kompaktiert die Log-Datei,
+     * wenn sie viel mehr Sätze als Einträge enthält. Lesende Zugriffe laufen währenddessen
+     * weiter (auf der bisherigen Abbildung der Datei), schreibende Zugriffe warten.
+     */
+    @Scheduled( fixedDelayString   = "${de.eldecker.glossar.datenbank.speicher.kompaktieren.intervall.ms:600000}",
+                initialDelayString = "${de.eldecker.glossar.datenbank.speicher.kompaktieren.intervall.ms:600000}" )
+    public void periodischKompaktieren() {
+
+        _schreibSperre.lock();
+        try {
+
+            if ( _offeneTransaktionen > 0 ) {
+
+                LOG.debug( "Log-Datei nicht kompaktiert, weil {} Transaktionen offen sind.", _offeneTransaktionen );
+                return;
+            }
+
+            kompaktierenWennNoetig();
+        }
+        catch ( IOException ex ) {
+
+            LOG.error( "Fehler beim Kompaktieren der Log-Datei \"{}\".", _logDatei, ex );
+        }
+        finally {
+
+            _schreibSperre.unlock();
+        }
+    }
+
+
+    /**
+     * Log-Datei kompaktieren, wenn sie mehr als {@link #KOMPAKTIEREN_FAKTOR} Sätze pro Eintrag
+     * enthält. Muss mit {@link #_schreibSperre} (oder beim Start) aufgerufen werden, und es
+     * darf keine offenen Transaktionen geben.
+     */
+    private void kompaktierenWennNoetig() throws IOException {
+
+        final long anzahlSaetze = _log.getAnzahlSaetze();
+        if ( anzahlSaetze <= KOMPAKTIEREN_FAKTOR * Math.max( _eintragMap.size(), 1000L ) ) {
+
+            return;
+        }
+
+        final long startNanos = System.nanoTime();
+        neuSchreiben();
+
+        LOG.info( "Log-Datei \"{}\" kompaktiert: {} Sätze -> {} Sätze, {} ms.",
+                  _logDatei, anzahlSaetze, _log.getAnzahlSaetze(),
+                  ( System.nanoTime() - startNanos ) / 1_000_000 );
+    }
+
+
+    /**
+     * Log-Datei mit dem aktuellen Zustand aller Einträge neu schreiben und die Erklärungen in
+     * der Map auf die neue Datei umstellen; der Begriffsindex ändert sich dabei nicht.
+     */
+    private void neuSchreiben() throws IOException {
+
+        for ( Eintrag eintrag : _log.neuSchreiben( _eintragMap.values() ) ) {
+
+            _eintragMap.put( eintrag.id(), eintrag );
+        }
+    }
+
+
+    @Override
+    public int getAnzahlGlossareintraege() {
+
+        return _eintragMap.size();
+    }
+
+
+    @Override
+    public Optional<GlossarEntity> getEintragById( Long id ) {
+
+        if ( id == null ) {
+
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable( lesen( id ) ).map( this::zuEntity );
+    }
+
+
+    @Override
+    public Optional<LocalDateTime> getZeitpunktAenderung( long id ) {
+
+        return Optional.ofNullable( lesen( id ) ).map( Eintrag::zeitpunktAenderung );
+    }
+
+
+    @Override
+    public Optional<GlossarEntity> getEintragByBegriff( String begriff ) {
+
+        return eintraegeFuerBegriff( begriff ).stream().findFirst().map( this::zuEntity );
+    }
+
+
+    @Override
+    public Map<Long, GlossarEntity> getEintraegeByIds( Collection<Long> idListe ) {
+
+        final Map<Long, GlossarEntity> ergebnisMap = new HashMap<>();
+        for ( Long id : idListe ) {
+
+            final Eintrag eintrag = lesen( id );
+            if ( eintrag != null ) {
+
+                ergebnisMap.put( id, zuEntity( eintrag ) );
+            }
+        }
+
+        return ergebnisMap;
+    }
+
+
+    @Override
+    public Set<String> getVorhandeneBegriffe( Collection<String> begriffListeKlein ) {
+
+        final Set<String> ergebnisSet = new HashSet<>();
+        for ( String begriffKlein : begriffListeKlein ) {
+
+            if ( !eintraegeFuerBegriff( begriffKlein ).isEmpty() ) {
+
+                ergebnisSet.add( begriffKlein );
+            }
+        }
+
+        return ergebnisSet;
+    }
+
+
+    @Override
+    public long neuerGlossarEintrag( GlossarEntity eintrag ) {
+
+        final long id;
+
+        _schreibSperre.lock();
+        try {
+
+            id = _letzteId.incrementAndGet();
+            schreiben( id, vonEntity( id, 0, eintrag ) );
+        }
+        finally {
+
+            _schreibSperre.unlock();
+        }
+
+        eintrag.setId( id );
+        eintrag.setVersion( 0 );
+
+        LOG.info( "Neuer Glossareintrag mit ID={} in Speicher-Engine gespeichert: {}", id, eintrag.getBegriff() );
+
+        _historie.anhaengen( id,
+                             eintrag.getBegriff(),
+                             eintrag.getErklaerung(),
+                             eintrag.getZeitpunktErzeugung(),
+                             eintrag.getAutorErzeugung() );
+
+        _glossarVersion.erhoehenNachCommit();
+
+        return id;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     *
+     * Im Gegensatz zu {@link JpaDatenbank} wird die Version sofort geprüft; wenn eine andere
+     * Transaktion den Eintrag geändert hat und noch offen ist, dann erst nach deren Ende.
+     * Danach hat {@code eintrag} wie ein verwaltetes Entity-Objekt die neue Version, kann also
+     * in derselben Transaktion noch einmal geändert werden.
+     */
+    @Override
+    public GlossarEntity updateGlossarEintrag( GlossarEntity eintrag ) {
+
+        final long    id  = eintrag.getId();
+        final Eintrag neu;
+
+        _schreibSperre.lock();
+        try {
+
+            final Eintrag alt = zumSchreiben( id );
+            if ( alt == null || alt.version() != eintrag.getVersion() ) {
+
+                throw new ObjectOptimisticLockingFailureException( GlossarEntity.class, id );
+            }
+
+            neu = vonEntity( id, alt.version() + 1, eintrag );
+            schreiben( id, neu );
+        }
+        finally {
+
+            _schreibSperre.unlock();
+        }
+
+        eintrag.setVersion( neu.version() );
+
+        LOG.info( "Glossareintrag für Begriff \"{}\" aktualisiert.", eintrag.getBegriff() );
+
+        _historie.anhaengen( id,
+                             eintrag.getBegriff(),
+                             eintrag.getErklaerung(),
+                             eintrag.getZeitpunktAenderung(),
+                             eintrag.getAutorAenderung() );
+
+        _glossarVersion.erhoehenNachCommit();
+
+        return zuEntity( neu );
+    }
+
+
+    @Override
+    public boolean aendereGlossarEintrag( long id,
+                                          Long version,
+                                          String begriff,
+                                          String erklaerung,
+                                          LocalDateTime zeitpunkt,
+                                          AutorEntity autor ) {
+
+        _schreibSperre.lock();
+        try {
+
+            final Eintrag alt = zumSchreiben( id );
+            if ( alt == null || ( version != null && alt.version() != version ) ) {
+
+                LOG.warn( "Glossareintrag mit ID={} und Version={} nicht geändert.", id, version );
+                return false;
+            }
+
+            autorMerken( autor );
+            final Eintrag neu = new Eintrag( id,
+                                             alt.version() + 1,
+                                             begriff,
+                                             Eintrag.utf8( erklaerung ),
+                                             alt.zeitpunktErzeugung(),
+                                             zeitpunkt,
+                                             alt.autorErzeugungId(),
+                                             autorId( autor ) );
+            schreiben( id, neu );
+        }
+        finally {
+
+            _schreibSperre.unlock();
+        }
+
+        LOG.info( "Glossareintrag mit ID={} aktualisiert: \"{}\"", id, begriff );
+
+        _historie.anhaengen( id, begriff, erklaerung, zeitpunkt, autor );
+
+        _glossarVersion.erhoehenNachCommit();
+
+        return true;
+    }
+
+
+    @Override
+    public Begriffsliste getGlossarBegriffe() {
+
+        final Begriffsliste.Sammler sammler = new Begriffsliste.Sammler();
+        for ( Schluessel schluessel : _begriffIndex ) {
+
+            final Eintrag eintrag = _eintragMap.get( schluessel.id() );
+            if ( eintrag != null && schluessel.equals( schluessel( eintrag ) ) ) {
+
+                sammler.hinzufuegen( eintrag.id(), eintrag.begriff() );
+            }
+        }
+
+        return sammler.erzeugen();
+    }
+
+
+    @Override
+    public List<Object[]> getEintraegeProjektion( List<EintragFeld> felder, long nachId, int anzahl ) {
+
+        final List<Object[]> ergebnisListe = new ArrayList<>( Math.min( anzahl, _eintragMap.size() ) );
+        for ( Eintrag eintrag : _eintragMap.tailMap( nachId, false ).values() ) {
+
+            if ( ergebnisListe.size() >= anzahl ) {
+
+                break;
+            }
+            ergebnisListe.add( projektion( eintrag, felder ) );
+        }
+
+        return ergebnisListe;
+    }
+
+
+    @Override
+    public Optional<Object[]> getEintragProjektionById( List<EintragFeld> felder, long id ) {
+
+        return Optional.ofNullable( lesen( id ) ).map( eintrag -> projektion( eintrag, felder ) );
+    }
+
+
+    @Override
+    public List<Object[]> getEintraegeProjektionByBegriff( List<EintragFeld> felder, String begriff ) {
+
+        return eintraegeFuerBegriff( begriff ).stream()
+                                              .map( eintrag -> projektion( eintrag, felder ) )
+                                              .toList();
+    }
+
+
+    @Override
+    public void neuerAutor( AutorEntity autor ) {
+
+        _jpaDatenbank.neuerAutor( autor );
+    }
+
+
+    @Override
+    public Optional<AutorEntity> getAutorByName( String nutzername ) {
+
+        return _jpaDatenbank.getAutorByName( nutzername );
+    }
+
+
+    @Override
+    public AutorEntity updateAutor( AutorEntity autorNutzer ) {
+
+        final AutorEntity ergebnis = _jpaDatenbank.updateAutor( autorNutzer );
+        _autorMap.computeIfPresent( ergebnis.getId(), ( id, autorAlt ) -> ergebnis );
+
+        return ergebnis;
+    }
+
+
+    @Override
+    public List<AutorArtikelAnzahl> getGlossarCountPerAuthor() {
+
+        final Map<Long, Long> anzahlMap = new HashMap<>();
+        for ( Eintrag eintrag : _eintragMap.values() ) {
+
+            if ( eintrag.autorErzeugungId() != 0 ) {
+
+                anzahlMap.merge( eintrag.autorErzeugungId(), 1L, Long::sum );
+            }
+        }
+
+        final List<AutorArtikelAnzahl> ergebnisListe = new ArrayList<>( anzahlMap.size() );
+        anzahlMap.forEach( ( autorId, anzahl ) -> {
+
+            final AutorEntity autor = autorAufloesen( autorId );
+            if ( autor != null ) {
+
+                ergebnisListe.add( new AutorArtikelAnzahl( autor.getNutzername(), anzahl ) );
+            }
+        });
+        ergebnisListe.sort( Comparator.comparingLong( AutorArtikelAnzahl::anzahl ).reversed()
+                                      .thenComparing( AutorArtikelAnzahl::name ) );
+
+        return ergebnisListe;
+    }
+
+
+    @Override
+    public List<GlossarEntity> getGlossarEintraegeFuerAutor( String autorName ) {
+
+        final List<GlossarEntity> ergebnisListe = new ArrayList<>();
+        for ( Eintrag eintrag : _eintragMap.values() ) {
+
+            final AutorEntity autor = autorAufloesen( eintrag.autorErzeugungId() );
+            if ( autor != null && autor.getNutzername().equals( autorName ) ) {
+
+                ergebnisListe.add( new GlossarEntity( eintrag.id(), eintrag.begriff() ) );
+            }
+        }
+        ergebnisListe.sort( Comparator.comparing( GlossarEntity::getBegriff ).thenComparing( GlossarEntity::getId ) );
+
+        return ergebnisListe;
+    }
+
+
+    @Override
+    public List<AutorEntity> getInaktiveAutoren( int anzahlMinuten ) {
+
+        return _jpaDatenbank.getInaktiveAutoren( anzahlMinuten );
+    }
+
+
+    /**
+     * Alle Einträge mit {@code begriff} (case-insensitive) über den sortierten Index suchen;
+     * in einer Transaktion mit deren eigenen Änderungen.
+     *
+     * @param begriff Gesuchter Begriff
+     *
+     * @return Einträge sortiert nach ID, leer wenn nicht gefunden
+     */
+    private List<Eintrag> eintraegeFuerBegriff( String begriff ) {
+
+        final String begriffKlein = begriff.toLowerCase( ROOT );
+
+        final Transaktion transaktion = transaktionAktuell();
+
+        final List<Eintrag> ergebnisListe = new ArrayList<>( 1 );
+        for ( Schluessel schluessel : _begriffIndex.subSet( new Schluessel( begriffKlein, Long.MIN_VALUE ), true,
+                                                            new Schluessel( begriffKlein, Long.MAX_VALUE ), true ) ) {
+
+            final Eintrag eintrag = _eintragMap.get( schluessel.id() );
+            if ( eintrag != null && schluessel.equals( schluessel( eintrag ) ) &&
+                 ( transaktion == null || !transaktion._neuMap.containsKey( eintrag.id() ) ) ) {
+
+                ergebnisListe.add( eintrag );
+            }
+        }
+
+        if ( transaktion != null ) {
+
+            for ( Eintrag eintrag : transaktion._neuMap.values() ) {
+
+                if ( schluessel( eintrag ).begriffKlein().equals( begriffKlein ) ) {
+
+                    ergebnisListe.add( eintrag );
+                }
+            }
+            ergebnisListe.sort( Comparator.comparingLong( Eintrag::id ) );
+        }
+
+        return ergebnisListe;
+    }
+
+
+    /**
+     * Zustand eines Eintrags für Lesezugriff: in einer Transaktion, die den Eintrag geändert oder
+     * angelegt hat, deren eigener (noch nicht committeter) Zustand, sonst der committete Zustand.
+     *
+     * @param id ID des Eintrags
+     *
+     * @return Zustand, {@code null} wenn es den Eintrag nicht gibt
+     */
+    private Eintrag lesen( long id ) {
+
+        final Transaktion transaktion = transaktionAktuell();
+        if ( transaktion != null ) {
+
+            final Eintrag eintrag = transaktion._neuMap.get( id );
+            if ( eintrag != null ) {
+
+                return eintrag;
+            }
+        }
+
+        return _eintragMap.get( id );
+    }
+
+
+    /**
+     * Zustand eines Eintrags für Schreibzugriff: wenn eine andere Transaktion den Eintrag
+     * geändert hat und noch offen ist, dann wird auf deren Ende gewartet, damit die Version
+     * danach gegen den committeten Zustand geprüft wird. Muss mit {@link #_schreibSperre}
+     * aufgerufen werden, die während des Wartens freigegeben ist.
+     *
+     * @param id ID des Eintrags
+     *
+     * @return Zustand, {@code null} wenn es den Eintrag nicht gibt
+     *
+     * @throws CannotAcquireLockException Andere Transaktion nicht innerhalb der max. Wartezeit
+     *         abgeschlossen
+     */
+    private Eintrag zumSchreiben( long id ) {
+
+        final Transaktion transaktion = transaktionAktuell();
+
+        long restNanos = TimeUnit.MILLISECONDS.toNanos( _wartezeitSperreMs );
+        while ( true ) {
+
+            final Transaktion besitzer = _gesperrtMap.get( id );
+            if ( besitzer == null || besitzer == transaktion ) {
+
+                return lesen( id );
+            }
+
+            if ( restNanos <= 0 ) {
+
+                throw new CannotAcquireLockException( "Glossareintrag mit ID=" + id + " wird von einer " +
+                                                      "anderen Transaktion geändert." );
+            }
+
+            try {
+
+                restNanos = _freigegeben.awaitNanos( restNanos );
+            }
+            catch ( InterruptedException ex ) {
+
+                Thread.currentThread().interrupt();
+                throw new CannotAcquireLockException( "Warten auf Glossareintrag mit ID=" + id + " unterbrochen.", ex );
+            }
+        }
+    }
+
+
+    /**
+     * Änderung ausführen: in einer Transaktion wird sie nur in der Transaktion vorgemerkt und der
+     * Eintrag für andere Transaktionen gesperrt, beim Commit an das Log angehängt und danach in
+     * Map und Index übernommen; ohne Transaktion sofort. Muss mit {@link #_schreibSperre}
+     * aufgerufen werden.
+     *
+     * @param id ID des Eintrags
+     *
+     * @param neu Neuer Zustand
+     *
+     * @throws DataAccessResourceFailureException Fehler beim Schreiben in die Log-Datei
+     *         (nur ohne Transaktion, sonst erst beim Commit)
+     */
+    private void schreiben( long id, Eintrag neu ) {
+
+        if ( TransactionSynchronizationManager.isSynchronizationActive() ) {
+
+            final Transaktion transaktion = transaktionRegistrieren();
+            transaktion._neuMap.put( id, neu );
+            _gesperrtMap.put( id, transaktion );
+            return;
+        }
+
+        try {
+
+            final List<ByteBuffer> sliceListe = _log.anhaengen( List.of( new Satz( id, neu ) ) );
+            ersetzen( id, _eintragMap.get( id ), neu.mitErklaerung( sliceListe.getFirst() ) );
+        }
+        catch ( IOException ex ) {
+
+            throw new DataAccessResourceFailureException( "Fehler beim Schreiben in Log-Datei \"" + _logDatei + "\".", ex );
+        }
+    }
+
+
+    /**
+     * Änderungen der aktuellen Transaktion.
+     *
+     * @return Änderungen; {@code null}, wenn es keine Transaktion gibt oder sie noch nichts
+     *         geändert hat
+     */
+    private Transaktion transaktionAktuell() {
+
+        return (Transaktion) TransactionSynchronizationManager.getResource( this );
+    }
+
+
+    /**
+     * Änderungen der aktuellen Transaktion holen; beim ersten Aufruf in einer Transaktion wird
+     * ein Callback registriert, der die Änderungen vor dem Commit an das Log anhängt, sie nach
+     * dem Commit in Map und Index übernimmt und zum Schluss die Einträge wieder freigibt. Muss
+     * mit {@link #_schreibSperre} aufgerufen werden.
+     *
+     * @return Objekt, in dem die Änderungen der Transaktion vorgemerkt werden
+     */
+    private Transaktion transaktionRegistrieren() {
+
+        final Transaktion vorhanden = transaktionAktuell();
+        if ( vorhanden != null ) {
+
+            return vorhanden;
+        }
+
+        final Transaktion transaktion = new Transaktion();
+        TransactionSynchronizationManager.bindResource( this, transaktion );
+        _offeneTransaktionen++;
+
+        TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization() {
+
+            /**
+             * Vor allen anderen Callbacks, damit z.B. Caches, die nach dem Commit geleert
+             * werden, schon den neuen Zustand lesen.
+             */
+            @Override
+            public int getOrder() {
+
+                return HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void beforeCommit( boolean readOnly ) {
+
+                final List<Satz> satzListe = transaktion._neuMap.entrySet().stream()
+                                                                .map( entry -> new Satz( entry.getKey(), entry.getValue() ) )
+                                                                .toList();
+                _schreibSperre.lock();
+                try {
+
+                    transaktion._logGeschrieben = true;
+                    transaktion._sliceListe     = _log.anhaengen( satzListe );
+                }
+                catch ( IOException ex ) {
+
+                    throw new DataAccessResourceFailureException( "Fehler beim Schreiben in Log-Datei \"" + _logDatei + "\".", ex );
+                }
+                finally {
+
+                    _schreibSperre.unlock();
+                }
+            }
+
+            @Override
+            public void afterCommit() {
+
+                _schreibSperre.lock();
+                try {
+
+                    veroeffentlichen( transaktion );
+                }
+                finally {
+
+                    _schreibSperre.unlock();
+                }
+            }
+
+            @Override
+            public void afterCompletion( int status ) {
+
+                TransactionSynchronizationManager.unbindResourceIfPossible( SpeicherDatenbank.this );
+
+                _schreibSperre.lock();
+                try {
+
+                    _offeneTransaktionen--;
+
+                    if ( status != STATUS_COMMITTED ) {
+
+                        verwerfen( transaktion );
+                    }
+
+                    for ( Long id : transaktion._neuMap.keySet() ) {
+
+                        _gesperrtMap.remove( id, transaktion );
+                    }
+                    _freigegeben.signalAll();
+                }
+                finally {
+
+                    _schreibSperre.unlock();
+                }
+            }
+        });
+
+        return transaktion;
+    }
+
+
+    /**
+     * Nach dem Commit die Änderungen einer Transaktion in Map und Index übernehmen; die
+     * Erklärungen sind dabei Slices auf die Log-Datei, liegen also nicht mehr auf dem Heap.
+     * Die Einträge sind bis zum Ende der Transaktion gesperrt, haben sich also seit der
+     * Änderung nicht geändert. Muss mit {@link #_schreibSperre} aufgerufen werden.
+     *
+     * @param transaktion Änderungen der Transaktion
+     */
+    private void veroeffentlichen( Transaktion transaktion ) {
+
+        int i = 0;
+        for ( Map.Entry<Long, Eintrag> entry : transaktion._neuMap.entrySet() ) {
+
+            final long id = entry.getKey();
+            ersetzen( id, _eintragMap.get( id ), entry.getValue().mitErklaerung( transaktion._sliceListe.get( i++ ) ) );
+        }
+    }
+
+
+    /**
+     * Nach einem Rollback die Änderungen einer Transaktion verwerfen; sie sind nie in Map und
+     * Index gelangt. Nur wenn sie schon an das Log angehängt wurden (Fehler nach
+     * {@code beforeCommit}), werden Sätze mit dem committeten Zustand angehängt. Muss mit
+     * {@link #_schreibSperre} aufgerufen werden.
+     *
+     * @param transaktion Änderungen der Transaktion
+     */
+    private void verwerfen( Transaktion transaktion ) {
+
+        if ( transaktion._logGeschrieben ) {
+
+            final List<Satz> satzListe = transaktion._neuMap.keySet().stream()
+                                                            .map( id -> new Satz( id, _eintragMap.get( id ) ) )
+                                                            .toList();
+            try {
+
+                _log.anhaengen( satzListe );
+            }
+            catch ( IOException ex ) {
+
+                LOG.error( "Fehler beim Schreiben des Rollbacks in Log-Datei \"{}\".", _logDatei, ex );
+            }
+        }
+
+        LOG.info( "{} Änderungen in Speicher-Engine nach Rollback verworfen.", transaktion._neuMap.size() );
+    }
+
+
+    /**
+     * Eintrag in Map und Index ersetzen, ohne Log.
+     *
+     * @param id ID des Eintrags
+     *
+     * @param alt Bisheriger Zustand, {@code null} wenn es den Eintrag noch nicht gibt
+     *
+     * @param neu Neuer Zustand, {@code null} um den Eintrag zu entfernen
+     */
+    private void ersetzen( long id, Eintrag alt, Eintrag neu ) {
+
+        if ( neu != null ) {
+
+            _begriffIndex.add( schluessel( neu ) ); // zuerst neuen Schlüssel, damit der Eintrag nie ganz fehlt
+            _eintragMap.put( id, neu );
+
+        } else {
+
+            _eintragMap.remove( id );
+        }
+
+        if ( alt != null && ( neu == null || !schluessel( alt ).equals( schluessel( neu ) ) ) ) {
+
+            _begriffIndex.remove( schluessel( alt ) );
+        }
+    }
+
+
+    /**
+     * Schlüssel für den Index nach Begriff.
+     */
+    private static Schluessel schluessel( Eintrag eintrag ) {
+
+        final String begriffKlein = eintrag.begriff() == null ? "" : eintrag.begriff().toLowerCase( ROOT );
+
+        return new Schluessel( begriffKlein, eintrag.id() );
+    }
+
+
+    /**
+     * Zustand für Engine aus Entity erzeugen; die Autoren werden für spätere Lesezugriffe gemerkt.
+     */
+    private Eintrag vonEntity( long id, long version, GlossarEntity entity ) {
+
+        autorMerken( entity.getAutorErzeugung() );
+        autorMerken( entity.getAutorAenderung() );
+
+        return new Eintrag( id,
+                            version,
+                            entity.getBegriff(),
+                            Eintrag.utf8( entity.getErklaerung() ),
+                            entity.getZeitpunktErzeugung(),
+                            entity.getZeitpunktAenderung(),
+                            autorId( entity.getAutorErzeugung() ),
+                            autorId( entity.getAutorAenderung() ) );
+    }
+
+
+    /**
+     * Neues Entity-Objekt für Zustand aus Engine erzeugen; der Aufrufer kann das Objekt also
+     * ändern, ohne dass sich der Zustand in der Engine ändert.
+     */
+    private GlossarEntity zuEntity( Eintrag eintrag ) {
+
+        final GlossarEntity entity = new GlossarEntity( eintrag.begriff(),
+                                                        eintrag.erklaerung(),
+                                                        eintrag.zeitpunktErzeugung(),
+                                                        eintrag.zeitpunktAenderung(),
+                                                        autorAufloesen( eintrag.autorErzeugungId() ),
+                                                        autorAufloesen( eintrag.autorAenderungId() ) );
+        entity.setId( eintrag.id() );
+        entity.setVersion( eintrag.version() );
+
+        return entity;
+    }
+
+
+    /**
+     * Projektion mit ID und den Werten für {@code felder}, siehe
+     * {@link Datenbank#getEintraegeProjektion(List, long, int)}.
+     */
+    private Object[] projektion( Eintrag eintrag, List<EintragFeld> felder ) {
+
+        final Object[] zeile = new Object[ felder.size() + 1 ];
+        zeile[ 0 ] = eintrag.id();
+
+        for ( int i = 0; i < felder.size(); i++ ) {
+
+            zeile[ i + 1 ] = switch ( felder.get( i ) ) {
+
+                case ID                  -> eintrag.id();
+                case BEGRIFF             -> eintrag.begriff();
+                case ERKLAERUNG          -> eintrag.erklaerung();
+                case ZEITPUNKT_ERZEUGUNG -> eintrag.zeitpunktErzeugung();
+                case ZEITPUNKT_AENDERUNG -> eintrag.zeitpunktAenderung();
+                case AUTOR_ERZEUGUNG     -> nutzername( eintrag.autorErzeugungId() );
+                case AUTOR_AENDERUNG     -> nutzername( eintrag.autorAenderungId() );
+            };
+        }
+
+        return zeile;
+    }
+
+
+    private static long autorId( AutorEntity autor ) {
+
+        return autor == null || autor.getId() == null ? 0 : autor.getId();
+    }
+
+
+    private void autorMerken( AutorEntity autor ) {
+
+        if ( autor != null && autor.getId() != null ) {
+
+            _autorMap.putIfAbsent( autor.getId(), autor );
+        }
+    }
+
+
+    /**
+     * Autor anhand ID aus dem Cache holen bzw. beim ersten Zugriff aus der relationalen Datenbank lesen.
+     *
+     * @return Autor; {@code null} für ID 0 oder unbekannte ID
+     */
+    private AutorEntity autorAufloesen( long autorId ) {
+
+        if ( autorId == 0 ) {
+
+            return null;
+        }
+
+        return _autorMap.computeIfAbsent( autorId, id -> _jpaDatenbank.getAutorById( id ).orElse( null ) );
+    }
+
+
+    private String nutzername( long autorId ) {
+
+        final AutorEntity autor = autorAufloesen( autorId );
+
+        return autor == null ? null : autor.getNutzername();
+    }
+
+
+    /**
+     * Metriken bei Micrometer registrieren.
+     *
+     * @param registry Registry, bei der die Metriken registriert werden
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        Gauge.builder( "glossar.speicher.eintraege", _eintragMap, Map::size )
+             .description( "Anzahl Glossareinträge in der Speicher-Engine" )
+             .register( registry );
+
+        Gauge.builder( "glossar.speicher.log.bytes", this, speicher -> speicher._log.getGroesse() )
+             .description( "Größe der Log-Datei der Speicher-Engine in Bytes" )
+             .baseUnit( "bytes" )
+             .register( registry );
+
+        Gauge.builder( "glossar.speicher.log.saetze", this, speicher -> speicher._log.getAnzahlSaetze() )
+             .description( "Anzahl Sätze in der Log-Datei der Speicher-Engine" )
+             .register( registry );
+    }
+
+}
@@ -0,0 +1,728 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.time.ZoneOffset.UTC;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Segment-Datei, an die {@link SpeicherDatenbank} jede Änderung der Glossareinträge anhängt
+ * (<i>append-only</i>); beim Programmstart wird der Inhalt der Engine durch Abspielen der
+ * Datei wiederhergestellt.
+ * <br><br>
+ *
+ * Die Datei ist zum Lesen und zum Schreiben komplett in den Speicher abgebildet
+ * (<i>memory-mapped</i>). Für jeden Satz wird die Erklärung als Slice auf diese Abbildung
+ * geliefert (UTF-8-Bytes); die Erklärungen liegen nach dem Schreiben also nicht auf dem Heap,
+ * sondern nur im Page-Cache des Betriebssystems, und werden erst dekodiert, wenn sie gebraucht
+ * werden. Die Datei wird in Schritten vergrößert (Verdopplung), hinter dem letzten Satz
+ * stehen deshalb Null-Bytes.
+ * <br><br>
+ *
+ * Aufbau der Datei (alle Zahlen <i>Big Endian</i>):
+ * <pre>
+ * Kopf (8 Bytes):
+ *   int  Magic-Number 0x474C534C ("GLSL")
+ *   int  Formatversion
+ * pro Satz:
+ *   int  Länge der Nutzdaten in Bytes (0 = Ende der Daten)
+ *   int  CRC32-Prüfsumme der Nutzdaten
+ *   Nutzdaten:
+ *     byte Typ (1 = Eintrag, 2 = Löschen)
+ *     long ID
+ *     nur bei Typ "Eintrag":
+ *       long Version
+ *       String Begriff, String Erklärung
+ *       Zeit Erzeugung, Zeit Änderung
+ *       long ID Autor Erzeugung, long ID Autor Änderung (0 = kein Autor)
+ * String: int Länge in Bytes (-1 = null), dann UTF-8
+ * Zeit:   long Sekunden seit 1.1.1970 UTC ({@link Long#MIN_VALUE} = null), int Nanosekunden
+ * </pre>
+ *
+ * Ein Satz ersetzt immer den ganzen Eintrag, beim Abspielen gilt also der letzte Satz für
+ * eine ID. Ist der letzte Satz unvollständig oder hat eine falsche Prüfsumme (Absturz während
+ * des Schreibens), dann wird die Datei beim Öffnen hinter dem letzten gültigen Satz
+ * abgeschnitten (mit Null-Bytes überschrieben); vorher wird eine Kopie mit der Endung
+ * {@code .defekt} angelegt. Mit {@link #neuSchreiben(Collection)} wird die Datei kompaktiert,
+ * also nur mit dem aktuellen Stand jedes Eintrags neu geschrieben.
+ * <br><br>
+ *
+ * Da ein {@link MappedByteBuffer} höchstens 2 GB groß sein kann, ist das auch die maximale
+ * Größe der Datei. Objekte dieser Klasse sind nicht thread-safe, der Aufrufer muss
+ * synchronisieren; die gelieferten Slices können aber von beliebigen Threads gelesen werden
+ * und bleiben auch nach dem Kompaktieren gültig.
+ */
+final class SpeicherLog implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger( SpeicherLog.class );
+
+    /** Magic-Number am Anfang der Datei: "GLSL" in ASCII. */
+    private static final int MAGIC = 0x474C534C;
+
+    /** Aktuelle Formatversion; muss bei jeder Änderung des Aufbaus erhöht werden. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Länge des Kopfs in Bytes. */
+    private static final int LAENGE_KOPF = 8;
+
+    /** Länge von Längenangabe und Prüfsumme vor den Nutzdaten eines Satzes. */
+    private static final int LAENGE_SATZKOPF = 8;
+
+    /** Anfangsgröße der Abbildung in Bytes. */
+    private static final int KAPAZITAET_ANFANG = 1 << 20;
+
+    /** Typ für Satz mit vollständigem Eintrag. */
+    private static final byte TYP_EINTRAG = 1;
+
+    /** Typ für Satz, mit dem ein Eintrag gelöscht wird. */
+    private static final byte TYP_LOESCHEN = 2;
+
+
+    /**
+     * Zustand eines Glossareintrags, wie er in der Engine und in der Datei gespeichert wird;
+     * die Autoren sind nur über ihre ID referenziert.
+     *
+     * @param id ID des Eintrags
+     *
+     * @param version Versionsnummer für <i>Optimistic Locking</i>
+     *
+     * @param begriff Begriff
+     *
+     * @param erklaerungUtf8 Erklärung als UTF-8-Bytes (Index 0 bis Limit): Slice auf die
+     *                       Abbildung der Datei, oder Puffer auf dem Heap, solange der Satz
+     *                       noch nicht geschrieben ist; {@code null} wenn nicht gesetzt.
+     *                       Darf nur mit absoluten Zugriffen gelesen werden.
+     *
+     * @param zeitpunktErzeugung Zeitpunkt der Erzeugung
+     *
+     * @param zeitpunktAenderung Zeitpunkt der letzten Änderung
+     *
+     * @param autorErzeugungId ID des Autors, der den Eintrag angelegt hat; 0 wenn nicht gesetzt
+     *
+     * @param autorAenderungId ID des Autors der letzten Änderung; 0 wenn nicht gesetzt
+     */
+    record Eintrag( long id,
+                    long version,
+                    String begriff,
+                    ByteBuffer erklaerungUtf8,
+                    LocalDateTime zeitpunktErzeugung,
+                    LocalDateTime zeitpunktAenderung,
+                    long autorErzeugungId,
+                    long autorAenderungId
+                  ) {
+
+        /**
+         * Erklärung als UTF-8-Puffer auf dem Heap, für neue Zustände.
+         *
+         * @param erklaerung Erklärung, darf {@code null} sein
+         *
+         * @return Puffer (nur lesbar) oder {@code null}
+         */
+        static ByteBuffer utf8( String erklaerung ) {
+
+            return erklaerung == null ? null : ByteBuffer.wrap( erklaerung.getBytes( UTF_8 ) ).asReadOnlyBuffer();
+        }
+
+
+        /**
+         * Erklärung dekodieren; erst hier wird ein String erzeugt.
+         *
+         * @return Erklärung oder {@code null}
+         */
+        String erklaerung() {
+
+            if ( erklaerungUtf8 == null ) {
+
+                return null;
+            }
+
+            final byte[] utf8 = new byte[ erklaerungUtf8.limit() ];
+            erklaerungUtf8.get( 0, utf8 );
+
+            return new String( utf8, UTF_8 );
+        }
+
+
+        /**
+         * Gleicher Zustand, aber Erklärung aus anderem Puffer (z.B. Slice auf die Datei).
+         *
+         * @param utf8 Erklärung als UTF-8-Bytes
+         *
+         * @return Neues Objekt
+         */
+        Eintrag mitErklaerung( ByteBuffer utf8 ) {
+
+            return new Eintrag( id, version, begriff, utf8, zeitpunktErzeugung, zeitpunktAenderung,
+                                autorErzeugungId, autorAenderungId );
+        }
+    }
+
+
+    /**
+     * Ein Satz in der Datei.
+     *
+     * @param id ID des Eintrags
+     *
+     * @param eintrag Neuer Zustand des Eintrags; {@code null}, wenn der Eintrag gelöscht wird
+     */
+    record Satz( long id, Eintrag eintrag ) {}
+
+
+    /**
+     * Serialisierte Sätze in einem Puffer.
+     *
+     * @param puffer Puffer, bereit zum Lesen
+     *
+     * @param erklaerungPosition Für jeden Satz die Position der Erklärung (UTF-8) relativ zum
+     *                           Anfang von {@code puffer}; -1 wenn keine Erklärung
+     *
+     * @param erklaerungLaenge Für jeden Satz die Länge der Erklärung in Bytes
+     */
+    private record Serialisiert( ByteBuffer puffer, int[] erklaerungPosition, int[] erklaerungLaenge ) {}
+
+
+    /** Pfad der Datei. */
+    private final Path _datei;
+
+    /** Kanal der Datei, wird zum Abbilden und Vergrößern gebraucht. */
+    private FileChannel _kanal;
+
+    /** Abbildung der Datei, wird beim Vergrößern und Kompaktieren ersetzt. */
+    private MappedByteBuffer _abbildung;
+
+    /** Position hinter dem letzten Satz. */
+    private int _ende;
+
+    /** Anzahl der Sätze in der Datei, für die Entscheidung über das Kompaktieren. */
+    private long _anzahlSaetze;
+
+
+    /**
+     * Konstruktor, nur über {@link #oeffnen(Path, Consumer)}.
+     */
+    private SpeicherLog( Path datei, FileChannel kanal, MappedByteBuffer abbildung, int ende, long anzahlSaetze ) {
+
+        _datei        = datei;
+        _kanal        = kanal;
+        _abbildung    = abbildung;
+        _ende         = ende;
+        _anzahlSaetze = anzahlSaetze;
+    }
+
+
+    /**
+     * Datei öffnen und alle Sätze abspielen; wenn es die Datei noch nicht gibt, dann wird eine
+     * leere Datei angelegt.
+     *
+     * @param datei Pfad der Datei; das Verzeichnis muss existieren
+     *
+     * @param verarbeiter Wird für jeden gültigen Satz in der Reihenfolge der Datei aufgerufen;
+     *                    die Erklärung ist ein Slice auf die Abbildung der Datei
+     *
+     * @return Objekt, mit dem neue Sätze angehängt werden können
+     *
+     * @throws IOException Fehler beim Lesen, oder Datei hat falsches Format oder falsche Version
+     */
+    static SpeicherLog oeffnen( Path datei, Consumer<Satz> verarbeiter ) throws IOException {
+
+        if ( !Files.exists( datei ) ) {
+
+            neueDateiSchreiben( datei, List.of() );
+        }
+
+        final FileChannel kanal = FileChannel.open( datei, READ, WRITE );
+        try {
+
+            final long groesse = kanal.size();
+            if ( groesse < LAENGE_KOPF || groesse > Integer.MAX_VALUE ) {
+
+                throw new IOException( "Log-Datei hat ungültige Länge: " + groesse + " Bytes" );
+            }
+
+            final MappedByteBuffer abbildung = kanal.map( MapMode.READ_WRITE, 0, Math.max( groesse, KAPAZITAET_ANFANG ) );
+            if ( abbildung.getInt( 0 ) != MAGIC ) {
+
+                throw new IOException( "Keine Log-Datei (Magic-Number falsch)." );
+            }
+            final int version = abbildung.getInt( Integer.BYTES );
+            if ( version != FORMAT_VERSION ) {
+
+                throw new IOException( "Log-Datei hat Formatversion " + version + ", erwartet: " + FORMAT_VERSION );
+            }
+
+            long anzahlSaetze = 0;
+            int  position     = LAENGE_KOPF;
+            while ( position + LAENGE_SATZKOPF <= groesse ) {
+
+                final int  laenge     = abbildung.getInt( position );
+                final long pruefsumme = Integer.toUnsignedLong( abbildung.getInt( position + Integer.BYTES ) );
+                if ( laenge <= 0 || laenge > groesse - position - LAENGE_SATZKOPF ) {
+
+                    break;
+                }
+
+                final ByteBuffer daten = abbildung.slice( position + LAENGE_SATZKOPF, laenge );
+
+                final CRC32 crc = new CRC32();
+                crc.update( daten.duplicate() );
+                if ( crc.getValue() != pruefsumme ) {
+
+                    break;
+                }
+
+                verarbeiter.accept( satzLesen( daten ) );
+
+                position += LAENGE_SATZKOPF + laenge;
+                anzahlSaetze++;
+            }
+
+            if ( !nurNullBytes( abbildung, position, (int) groesse ) ) {
+
+                final Path kopie = datei.resolveSibling( datei.getFileName() + ".defekt" );
+                Files.copy( datei, kopie, REPLACE_EXISTING );
+
+                LOG.warn( "Log-Datei \"{}\" hat nach {} Sätzen ungültige Bytes (unvollständig geschrieben?), " +
+                          "die abgeschnitten werden; Kopie der Datei vorher: \"{}\"",
+                          datei, anzahlSaetze, kopie );
+
+                for ( int i = position; i < groesse; i++ ) {
+
+                    abbildung.put( i, (byte) 0 );
+                }
+                abbildung.force();
+            }
+
+            return new SpeicherLog( datei, kanal, abbildung, position, anzahlSaetze );
+        }
+        catch ( IOException ex ) {
+
+            kanal.close();
+            throw ex;
+        }
+        catch ( RuntimeException ex ) { // z.B. unbekannter Satztyp
+
+            kanal.close();
+            throw new IOException( "Log-Datei kann nicht gelesen werden: " + ex.getMessage(), ex );
+        }
+    }
+
+
+    /**
+     * Sätze anhängen und auf den Datenträger schreiben; es wird für alle Sätze nur einmal
+     * synchronisiert.
+     *
+     * @param satzListe Anzuhängende Sätze
+     *
+     * @return Für jeden Satz die Erklärung als Slice auf die Abbildung der Datei, gleiche
+     *         Reihenfolge wie {@code satzListe}; {@code null} für Sätze ohne Erklärung
+     *
+     * @throws IOException Fehler beim Schreiben, oder Datei würde größer als 2 GB
+     */
+    List<ByteBuffer> anhaengen( List<Satz> satzListe ) throws IOException {
+
+        if ( satzListe.isEmpty() ) {
+
+            return List.of();
+        }
+
+        final Serialisiert serialisiert = saetzeSerialisieren( satzListe );
+        final int          laenge       = serialisiert.puffer().remaining();
+        final int          start        = _ende;
+
+        kapazitaetSicherstellen( (long) start + laenge );
+
+        _abbildung.put( start, serialisiert.puffer(), 0, laenge );
+        _abbildung.force( start, laenge );
+
+        _ende         += laenge;
+        _anzahlSaetze += satzListe.size();
+
+        return slices( start, serialisiert );
+    }
+
+
+    /**
+     * Datei kompaktieren: Die Datei wird unter einem temporären Namen nur mit dem aktuellen
+     * Zustand aller Einträge neu geschrieben und dann umbenannt. Slices auf die bisherige Datei
+     * bleiben gültig.
+     *
+     * @param eintraege Aktueller Zustand aller Einträge
+     *
+     * @return Zustand aller Einträge mit Slices auf die neue Datei, gleiche Reihenfolge wie
+     *         {@code eintraege}
+     *
+     * @throws IOException Fehler beim Schreiben; die bisherige Datei bleibt dann unverändert
+     */
+    List<Eintrag> neuSchreiben( Collection<Eintrag> eintraege ) throws IOException {
+
+        final List<Satz> satzListe = eintraege.stream()
+                                              .map( eintrag -> new Satz( eintrag.id(), eintrag ) )
+                                              .toList();
+
+        final Serialisiert serialisiert = neueDateiSchreiben( _datei, satzListe );
+
+        _kanal.close();
+        _kanal        = FileChannel.open( _datei, READ, WRITE );
+        _ende         = (int) _kanal.size();
+        _abbildung    = _kanal.map( MapMode.READ_WRITE, 0, Math.max( _ende, KAPAZITAET_ANFANG ) );
+        _anzahlSaetze = satzListe.size();
+
+        final List<ByteBuffer> sliceListe    = slices( LAENGE_KOPF, serialisiert );
+        final List<Eintrag>    ergebnisListe = new ArrayList<>( satzListe.size() );
+        for ( int i = 0; i < satzListe.size(); i++ ) {
+
+            ergebnisListe.add( satzListe.get( i ).eintrag().mitErklaerung( sliceListe.get( i ) ) );
+        }
+
+        return ergebnisListe;
+    }
+
+
+    /**
+     * Anzahl der Sätze in der Datei.
+     *
+     * @return Anzahl Sätze, auch ältere Zustände von Einträgen zählen mit
+     */
+    long getAnzahlSaetze() {
+
+        return _anzahlSaetze;
+    }
+
+
+    /**
+     * Anzahl der belegten Bytes in der Datei (ohne die Null-Bytes am Ende).
+     *
+     * @return Position hinter dem letzten Satz
+     */
+    long getGroesse() {
+
+        return _ende;
+    }
+
+
+    /**
+     * Kanal der Datei schließen; die Abbildung bleibt gültig, bis sie nicht mehr referenziert wird.
+     */
+    @Override
+    public void close() throws IOException {
+
+        _kanal.close();
+    }
+
+
+    /**
+     * Abbildung vergrößern (Kapazität verdoppeln), wenn sie für {@code benoetigt} Bytes nicht
+     * reicht; dabei wird auch die Datei mit Null-Bytes verlängert.
+     */
+    private void kapazitaetSicherstellen( long benoetigt ) throws IOException {
+
+        if ( benoetigt <= _abbildung.capacity() ) {
+
+            return;
+        }
+        if ( benoetigt > Integer.MAX_VALUE ) {
+
+            throw new IOException( "Log-Datei würde größer als 2 GB, bitte kompaktieren." );
+        }
+
+        final long kapazitaet = Math.min( Integer.MAX_VALUE, Math.max( benoetigt, 2L * _abbildung.capacity() ) );
+        _abbildung = _kanal.map( MapMode.READ_WRITE, 0, kapazitaet );
+    }
+
+
+    /**
+     * Slices auf die Erklärungen von serialisierten Sätzen, die ab {@code start} in der
+     * Abbildung stehen.
+     */
+    private List<ByteBuffer> slices( int start, Serialisiert serialisiert ) {
+
+        final int[] positionArray = serialisiert.erklaerungPosition();
+
+        final List<ByteBuffer> sliceListe = new ArrayList<>( positionArray.length );
+        for ( int i = 0; i < positionArray.length; i++ ) {
+
+            if ( positionArray[ i ] < 0 ) {
+
+                sliceListe.add( null );
+
+            } else {
+
+                sliceListe.add( _abbildung.slice( start + positionArray[ i ], serialisiert.erklaerungLaenge()[ i ] )
+                                          .asReadOnlyBuffer() );
+            }
+        }
+
+        return sliceListe;
+    }
+
+
+    /**
+     * Prüft, ob in {@code puffer} zwischen {@code von} und {@code bis} nur Null-Bytes stehen,
+     * also keine Reste eines unvollständig geschriebenen Satzes.
+     */
+    private static boolean nurNullBytes( ByteBuffer puffer, int von, int bis ) {
+
+        for ( int i = von; i < bis; i++ ) {
+
+            if ( puffer.get( i ) != 0 ) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Datei mit Kopf und {@code satzListe} unter temporärem Namen schreiben und dann umbenennen.
+     *
+     * @return Serialisierte Sätze, Positionen relativ zum Ende des Kopfs
+     */
+    private static Serialisiert neueDateiSchreiben( Path datei, List<Satz> satzListe ) throws IOException {
+
+        final ByteBuffer kopf = ByteBuffer.allocate( LAENGE_KOPF );
+        kopf.putInt( MAGIC );
+        kopf.putInt( FORMAT_VERSION );
+        kopf.flip();
+
+        final Serialisiert serialisiert = saetzeSerialisieren( satzListe );
+        final ByteBuffer   daten        = serialisiert.puffer().duplicate();
+
+        final Path temp = datei.resolveSibling( datei.getFileName() + ".tmp" );
+        try ( FileChannel kanal = FileChannel.open( temp, CREATE, WRITE, TRUNCATE_EXISTING ) ) {
+
+            while ( kopf.hasRemaining() || daten.hasRemaining() ) {
+
+                kanal.write( new ByteBuffer[] { kopf, daten } );
+            }
+            kanal.force( true );
+        }
+        Files.move( temp, datei, REPLACE_EXISTING, ATOMIC_MOVE );
+
+        return serialisiert;
+    }
+
+
+    /**
+     * Sätze mit Längenangabe und Prüfsumme in einen Puffer schreiben und dabei die Positionen
+     * der Erklärungen merken.
+     */
+    private static Serialisiert saetzeSerialisieren( List<Satz> satzListe ) {
+
+        final byte[][] begriffArray = new byte[ satzListe.size() ][];
+        long laengeGesamt = 0;
+        for ( int i = 0; i < satzListe.size(); i++ ) {
+
+            final Eintrag eintrag = satzListe.get( i ).eintrag();
+            if ( eintrag != null && eintrag.begriff() != null ) {
+
+                begriffArray[ i ] = eintrag.begriff().getBytes( UTF_8 );
+            }
+            laengeGesamt += LAENGE_SATZKOPF + laengeNutzdaten( eintrag, begriffArray[ i ] );
+        }
+        if ( laengeGesamt > Integer.MAX_VALUE ) {
+
+            throw new IllegalArgumentException( "Sätze zu groß: " + laengeGesamt + " Bytes" );
+        }
+
+        final ByteBuffer puffer             = ByteBuffer.allocate( (int) laengeGesamt );
+        final int[]      erklaerungPosition = new int[ satzListe.size() ];
+        final int[]      erklaerungLaenge   = new int[ satzListe.size() ];
+        final CRC32      crc                = new CRC32();
+
+        for ( int i = 0; i < satzListe.size(); i++ ) {
+
+            final Satz    satz    = satzListe.get( i );
+            final Eintrag eintrag = satz.eintrag();
+            final int     laenge  = laengeNutzdaten( eintrag, begriffArray[ i ] );
+            final int     start   = puffer.position() + LAENGE_SATZKOPF;
+
+            puffer.position( start );
+            erklaerungPosition[ i ] = -1;
+
+            if ( eintrag == null ) {
+
+                puffer.put( TYP_LOESCHEN );
+                puffer.putLong( satz.id() );
+
+            } else {
+
+                puffer.put( TYP_EINTRAG );
+                puffer.putLong( satz.id() );
+                puffer.putLong( eintrag.version() );
+                stringSchreiben( puffer, begriffArray[ i ] );
+
+                final ByteBuffer erklaerung = eintrag.erklaerungUtf8();
+                if ( erklaerung == null ) {
+
+                    puffer.putInt( -1 );
+
+                } else {
+
+                    puffer.putInt( erklaerung.limit() );
+                    erklaerungPosition[ i ] = puffer.position();
+                    erklaerungLaenge[ i ]   = erklaerung.limit();
+                    puffer.put( puffer.position(), erklaerung, 0, erklaerung.limit() );
+                    puffer.position( puffer.position() + erklaerung.limit() );
+                }
+
+                zeitSchreiben( puffer, eintrag.zeitpunktErzeugung() );
+                zeitSchreiben( puffer, eintrag.zeitpunktAenderung() );
+                puffer.putLong( eintrag.autorErzeugungId() );
+                puffer.putLong( eintrag.autorAenderungId() );
+            }
+
+            crc.reset();
+            crc.update( puffer.slice( start, laenge ) );
+
+            puffer.putInt( start - LAENGE_SATZKOPF, laenge );
+            puffer.putInt( start - Integer.BYTES, (int) crc.getValue() );
+        }
+        puffer.flip();
+
+        return new Serialisiert( puffer, erklaerungPosition, erklaerungLaenge );
+    }
+
+
+    /**
+     * Länge der Nutzdaten eines Satzes.
+     */
+    private static int laengeNutzdaten( Eintrag eintrag, byte[] begriff ) {
+
+        if ( eintrag == null ) {
+
+            return 1 + Long.BYTES;
+        }
+
+        final int laengeBegriff    = begriff == null ? 0 : begriff.length;
+        final int laengeErklaerung = eintrag.erklaerungUtf8() == null ? 0 : eintrag.erklaerungUtf8().limit();
+
+        return 1 + 2 * Long.BYTES +
+               2 * Integer.BYTES + laengeBegriff + laengeErklaerung +
+               2 * ( Long.BYTES + Integer.BYTES ) +
+               2 * Long.BYTES;
+    }
+
+
+    /**
+     * Nutzdaten eines Satzes lesen; die Erklärung wird nicht kopiert, sondern als Slice auf
+     * {@code daten} geliefert.
+     */
+    private static Satz satzLesen( ByteBuffer daten ) {
+
+        final byte typ = daten.get();
+        final long id  = daten.getLong();
+        if ( typ == TYP_LOESCHEN ) {
+
+            return new Satz( id, null );
+        }
+        if ( typ != TYP_EINTRAG ) {
+
+            throw new IllegalStateException( "Unbekannter Satztyp " + typ + " für ID=" + id );
+        }
+
+        final long          version          = daten.getLong();
+        final String        begriff          = stringLesen( daten );
+        final ByteBuffer    erklaerung       = sliceLesen( daten );
+        final LocalDateTime erzeugung        = zeitLesen( daten );
+        final LocalDateTime aenderung        = zeitLesen( daten );
+        final long          autorErzeugungId = daten.getLong();
+        final long          autorAenderungId = daten.getLong();
+
+        return new Satz( id, new Eintrag( id, version, begriff, erklaerung, erzeugung, aenderung,
+                                          autorErzeugungId, autorAenderungId ) );
+    }
+
+
+    private static void stringSchreiben( ByteBuffer puffer, byte[] utf8 ) {
+
+        if ( utf8 == null ) {
+
+            puffer.putInt( -1 );
+
+        } else {
+
+            puffer.putInt( utf8.length );
+            puffer.put( utf8 );
+        }
+    }
+
+
+    private static String stringLesen( ByteBuffer puffer ) {
+
+        final int laenge = puffer.getInt();
+        if ( laenge < 0 ) {
+
+            return null;
+        }
+
+        final byte[] utf8 = new byte[ laenge ];
+        puffer.get( utf8 );
+
+        return new String( utf8, UTF_8 );
+    }
+
+
+    private static ByteBuffer sliceLesen( ByteBuffer puffer ) {
+
+        final int laenge = puffer.getInt();
+        if ( laenge < 0 ) {
+
+            return null;
+        }
+
+        final ByteBuffer slice = puffer.slice( puffer.position(), laenge ).asReadOnlyBuffer();
+        puffer.position( puffer.position() + laenge );
+
+        return slice;
+    }
+
+
+    private static void zeitSchreiben( ByteBuffer puffer, LocalDateTime zeitpunkt ) {
+
+        if ( zeitpunkt == null ) {
+
+            puffer.putLong( Long.MIN_VALUE );
+            puffer.putInt( 0 );
+
+        } else {
+
+            puffer.putLong( zeitpunkt.toEpochSecond( UTC ) );
+            puffer.putInt( zeitpunkt.getNano() );
+        }
+    }
+
+
+    private static LocalDateTime zeitLesen( ByteBuffer puffer ) {
+
+        final long sekunden = puffer.getLong();
+        final int  nanos    = puffer.getInt();
+
+        return sekunden == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond( sekunden, nanos, UTC );
+    }
+
+}
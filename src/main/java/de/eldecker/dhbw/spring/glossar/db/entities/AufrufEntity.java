@@ -0,0 +1,91 @@
+package de.eldecker.dhbw.spring.glossar.db.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+
+/**
+ * Ein Objekt dieser Klasse enthält die Anzahl der Aufrufe der Seite eines Glossareintrags.
+ * Die Zeilen werden nicht bei jedem Aufruf geändert, sondern periodisch für alle seit dem
+ * letzten Abgleich aufgerufenen Einträge zusammen (siehe Klasse {@code Aufrufzaehler}).
+ * <br><br>
+ *
+ * Der Index auf {@link #_anzahl} wird beim Programmstart für die meistaufgerufenen Einträge
+ * benötigt, damit dafür nicht die ganze Tabelle sortiert werden muss.
+ */
+@Entity
+@Table(
+    name = "AUFRUFE",
+    indexes = { @Index( name = "idx_anzahl", columnList = "anzahl" ) }
+)
+public class AufrufEntity {
+
+    /**
+     * ID des Glossareintrags, zugleich Primärschlüssel. Es wird bewusst keine Beziehung
+     * zu {@link GlossarEntity} definiert, damit beim Abgleich keine Einträge geladen werden.
+     */
+    @Id
+    @Column(name = "eintrag_id")
+    private Long _eintragId;
+
+    /** Anzahl Aufrufe der Seite des Eintrags. */
+    @Column(name = "anzahl", nullable = false)
+    private long _anzahl;
+
+
+    /**
+     * Default-Konstruktor, wird von JPA benötigt.
+     */
+    public AufrufEntity() {}
+
+
+    /**
+     * Konstruktor für Eintrag, der zum ersten Mal aufgerufen wurde.
+     *
+     * @param eintragId ID des Glossareintrags
+     *
+     * @param anzahl Anzahl Aufrufe
+     */
+    public AufrufEntity( long eintragId, long anzahl ) {
+
+        _eintragId = eintragId;
+        _anzahl    = anzahl;
+    }
+
+
+    /**
+     * Getter für ID des Glossareintrags.
+     *
+     * @return ID des Eintrags
+     */
+    public Long getEintragId() {
+
+        return _eintragId;
+    }
+
+
+    /**
+     * Getter für Anzahl Aufrufe.
+     *
+     * @return Anzahl Aufrufe
+     */
+    public long getAnzahl() {
+
+        return _anzahl;
+    }
+
+
+    /**
+     * Anzahl Aufrufe erhöhen.
+     *
+     * @param delta Anzahl neuer Aufrufe
+     */
+    public void erhoehen( long delta ) {
+
+        _anzahl += delta;
+    }
+
+}
@@ -0,0 +1,62 @@
+package de.eldecker.dhbw.spring.glossar.db.entities;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import de.eldecker.dhbw.spring.glossar.db.ErklaerungKompression;
+import de.eldecker.dhbw.spring.glossar.helferlein.TextKompression;
+
+
+/**
+ * Entity-Listener für {@link GlossarEntity}, der lange Erklärungen vor dem Schreiben
+ * komprimiert und geladenen Entities den Codec für das Entpacken beim ersten Lesen
+ * der Erklärung mitgibt.
+ * <br><br>
+ *
+ * Das Objekt wird von Hibernate über Spring erzeugt, deshalb funktioniert <i>Dependency
+ * Injection</i> im Konstruktor.
+ */
+public class ErklaerungKompressionListener {
+
+    /** Codec für die Erklärungen. */
+    private final TextKompression _textKompression;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public ErklaerungKompressionListener( ErklaerungKompression erklaerungKompression ) {
+
+        _textKompression = erklaerungKompression.getTextKompression();
+    }
+
+
+    /**
+     * Erklärung komprimieren, wenn sie lang genug ist; wird vor INSERT und UPDATE aufgerufen.
+     *
+     * @param eintrag Zu schreibender Eintrag
+     */
+    @PrePersist
+    @PreUpdate
+    public void vorSchreiben( GlossarEntity eintrag ) {
+
+        eintrag.erklaerungKomprimieren( _textKompression );
+    }
+
+
+    /**
+     * Codec an geladenen Eintrag übergeben; entpackt wird erst beim Lesen der Erklärung.
+     *
+     * @param eintrag Geladener Eintrag
+     */
+    @PostLoad
+    public void nachLaden( GlossarEntity eintrag ) {
+
+        eintrag.setTextKompression( _textKompression );
+    }
+
+}
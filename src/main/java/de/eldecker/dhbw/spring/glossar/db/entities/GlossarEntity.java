@@ -8,6 +8,7 @@ import java.util.Objects;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
@@ -15,12 +16,22 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import de.eldecker.dhbw.spring.glossar.helferlein.TextKompression;
 
 
 /**
  * Ein Objekt dieser Klasse repräsentiert einen Glossareintrag in der zugehörigen DB-Tabelle.
+ * <br><br>
+ *
+ * Lange Erklärungen werden komprimiert gespeichert, siehe {@link ErklaerungKompressionListener}.
  */
 @Entity
+@EntityListeners( ErklaerungKompressionListener.class )
 @Table(
 	name = "GLOSSAR_EINTRAEGE",
     indexes = { @Index( name = "idx_begriff", columnList = "begriff" ) }
@@ -31,8 +42,7 @@ import jakarta.persistence.Table;
 public class GlossarEntity {
 
     /**
-     * Primärschlüssel, muss von uns nicht selbst befüllt werden, deshalb
-     * gibt es auch keinen Setter für dieses Attribut.
+     * Primärschlüssel, wird bei JPA beim Persistieren vergeben.
      */
     @Id
     @GeneratedValue(strategy = IDENTITY)
@@ -51,10 +61,33 @@ public class GlossarEntity {
      * Standardmäßig wird ein String-Typ in der DB mit einer Länge von 255 Zeichen
      * angelegt. Da die Erklärung aber länger sein kann, wird hier die Länge auf
      * 9999 Zeichen erhöht.
+     * <br><br>
+     *
+     * Ist {@code null}, wenn die Erklärung komprimiert in {@link #_erklaerungKomprimiert}
+     * gespeichert ist.
      */
     @Column(name = "erklaerung", length = 9999)
     private String _erklaerung;
 
+    /**
+     * Komprimierte Erklärung (Deflate, UTF-8), nur für lange Erklärungen gefüllt; sonst
+     * {@code null}. Die Länge der Spalte reicht für 9999 Zeichen mit je 4 Bytes in UTF-8.
+     */
+    @Column(name = "erklaerung_komprimiert", length = 40000)
+    private byte[] _erklaerungKomprimiert;
+
+    /** Codec zum Entpacken, wird beim Laden von {@link ErklaerungKompressionListener} gesetzt. */
+    @Transient
+    private TextKompression _textKompression;
+
+    /** Entpackte Erklärung, damit nicht bei jedem Lesen neu entpackt wird. */
+    @Transient
+    private String _erklaerungEntpackt;
+
+    /** Komprimierte Daten, aus denen {@link #_erklaerungEntpackt} entpackt wurde. */
+    @Transient
+    private byte[] _erklaerungEntpacktAus;
+
     /** Zeitpunkt (Datum + Uhrzeit) der Erzeugung des Eintrags. */
     @Column(name = "zeitpunkt_erzeugung")
     private LocalDateTime _zeitpunktErzeugung;
@@ -96,6 +129,20 @@ public class GlossarEntity {
     @JoinColumn( name = "autor_aenderer_fk", referencedColumnName = "id" )
     private AutorEntity _autorAenderung;            
 
+    /**
+     * Versionsnummer für optimistisches Sperren (<i>Optimistic Locking</i>): wird bei jeder
+     * Änderung um eins erhöht. Ein Client schickt bei einer Änderung die Version mit, die er
+     * zuletzt gesehen hat; wenn der Eintrag inzwischen von jemand anderem geändert wurde,
+     * dann passt die Version nicht mehr und die Änderung wird abgelehnt.
+     * <br><br>
+     *
+     * Der Default-Wert ist für Einträge, die schon vor Einführung dieser Spalte angelegt wurden.
+     */
+    @Version
+    @ColumnDefault( "0" )
+    @Column( name = "version", nullable = false )
+    private long _version;
+
     
     /**
      * Default-Konstruktor, wird von JPA benötigt.
@@ -165,9 +212,8 @@ public class GlossarEntity {
 
 
     /**
-     * Getter für ID (Primärschlüssel) der Entity; es gibt keine zugehörige Setter-Methode,
-     * weil die ID von JPA gemanaged wird. Ist für noch nicht persistierte Entities nicht
-     * gesetzt.
+     * Getter für ID (Primärschlüssel) der Entity; ist für noch nicht persistierte Entities
+     * nicht gesetzt.
      *
      * @return ID/Primärschlüsselwert
      */
@@ -177,6 +223,41 @@ public class GlossarEntity {
     }
 
 
+    /**
+     * Setter für ID; darf nur von Speicher-Engines ohne JPA aufgerufen werden (siehe
+     * {@code SpeicherDatenbank}), bei JPA wird die ID beim Persistieren vergeben.
+     *
+     * @param id ID/Primärschlüsselwert
+     */
+    public void setId( Long id ) {
+
+        _id = id;
+    }
+
+
+    /**
+     * Getter für Versionsnummer.
+     *
+     * @return Versionsnummer, 0 für neu angelegte und noch nie geänderte Einträge
+     */
+    public long getVersion() {
+
+        return _version;
+    }
+
+
+    /**
+     * Setter für Versionsnummer; darf nur von Speicher-Engines ohne JPA aufgerufen werden
+     * (siehe {@code SpeicherDatenbank}), bei JPA wird die Version von JPA gemanaged.
+     *
+     * @param version Versionsnummer
+     */
+    public void setVersion( long version ) {
+
+        _version = version;
+    }
+
+
     /**
      * Getter für Begriff, der erklärt werden soll.
      *
@@ -200,24 +281,84 @@ public class GlossarEntity {
 
 
     /**
-     * Getter für Erklärung von {@code begriff}.
+     * Getter für Erklärung von {@code begriff}; eine komprimiert gespeicherte Erklärung wird
+     * beim ersten Aufruf entpackt.
      *
      * @return Erklärung von {@code begriff}
      */
     public String getErklaerung() {
 
-        return _erklaerung;
+        if ( _erklaerungKomprimiert == null ) {
+
+            return _erklaerung;
+        }
+
+        if ( _erklaerungEntpacktAus != _erklaerungKomprimiert ) {
+
+            if ( _textKompression == null ) {
+
+                throw new IllegalStateException( "Kein Codec zum Entpacken der Erklärung von Eintrag mit ID=" + _id + "." );
+            }
+            _erklaerungEntpackt    = _textKompression.entpacken( _erklaerungKomprimiert );
+            _erklaerungEntpacktAus = _erklaerungKomprimiert;
+        }
+
+        return _erklaerungEntpackt;
     }
 
 
     /**
-     * Setter für Erklärung von {@code begriff}.
+     * Setter für Erklärung von {@code begriff}; bei einer geladenen Entity wird eine lange
+     * Erklärung sofort komprimiert, bei einer neuen erst beim Persistieren.
      *
      * @param erklaerung Erklärung von {@code begriff}
      */
     public void setErklaerung( String erklaerung ) {
 
-        _erklaerung = erklaerung;
+        _erklaerung            = erklaerung;
+        _erklaerungKomprimiert = null;
+
+        if ( _textKompression != null ) {
+
+            erklaerungKomprimieren( _textKompression );
+        }
+    }
+
+
+    /**
+     * Erklärung komprimieren, wenn sie noch nicht komprimiert ist und der Codec die
+     * Kompression für lohnend hält.
+     *
+     * @param textKompression Codec
+     */
+    void erklaerungKomprimieren( TextKompression textKompression ) {
+
+        _textKompression = textKompression;
+
+        if ( _erklaerungKomprimiert != null ) {
+
+            return;
+        }
+
+        final byte[] komprimiert = textKompression.komprimieren( _erklaerung );
+        if ( komprimiert != null ) {
+
+            _erklaerungEntpackt    = _erklaerung;
+            _erklaerungEntpacktAus = komprimiert;
+            _erklaerungKomprimiert = komprimiert;
+            _erklaerung            = null;
+        }
+    }
+
+
+    /**
+     * Codec für das Entpacken der Erklärung setzen.
+     *
+     * @param textKompression Codec
+     */
+    void setTextKompression( TextKompression textKompression ) {
+
+        _textKompression = textKompression;
     }
 
 
@@ -321,7 +462,7 @@ public class GlossarEntity {
     @Override
     public String toString() {
 
-        return _begriff + ": " + _erklaerung;
+        return _begriff + ": " + getErklaerung();
     }
 
 
@@ -339,7 +480,7 @@ public class GlossarEntity {
     public int hashCode() {
 
         return Objects.hash( _begriff,
-                             _erklaerung,
+                             getErklaerung(),
                              _zeitpunktErzeugung,
                              _zeitpunktAenderung,
                              _autorErzeugung,
@@ -376,7 +517,7 @@ public class GlossarEntity {
         final GlossarEntity other = (GlossarEntity) obj;
 
         return Objects.equals( _begriff           , other._begriff            ) &&
-               Objects.equals( _erklaerung        , other._erklaerung         ) &&
+               Objects.equals( getErklaerung()    , other.getErklaerung()     ) &&
                Objects.equals( _zeitpunktErzeugung, other._zeitpunktErzeugung ) &&
                Objects.equals( _zeitpunktAenderung, other._zeitpunktAenderung ) &&
                Objects.equals( _autorErzeugung    , other._autorErzeugung     ) &&
@@ -0,0 +1,219 @@
+package de.eldecker.dhbw.spring.glossar.db.entities;
+
+import static jakarta.persistence.FetchType.EAGER;
+import static jakarta.persistence.GenerationType.IDENTITY;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+
+/**
+ * Ein Objekt dieser Klasse repräsentiert eine Revision (Version) eines Glossareintrags
+ * in der Historie. Revisionen werden nur angehängt, aber nie geändert oder gelöscht
+ * (<i>append-only</i>).
+ * <br><br>
+ *
+ * Damit nicht bei jeder Änderung die komplette Erklärung (bis zu 9999 Zeichen) noch einmal
+ * gespeichert wird, enthält nur jede n-te Revision eines Eintrags den vollständigen Text
+ * ({@link #_istSnapshot} ist {@code true}); dazwischen wird nur ein Delta zur jeweils
+ * vorherigen Revision gespeichert (siehe Klasse {@code TextDelta}). Für die Rekonstruktion
+ * einer Revision müssen deshalb höchstens n Zeilen gelesen werden.
+ */
+@Entity
+@Table(
+    name = "REVISIONEN",
+    indexes = { @Index( name = "idx_eintrag_nummer", columnList = "eintrag_id, nummer", unique = true ) }
+)
+public class RevisionEntity {
+
+    /**
+     * Primärschlüssel, muss von uns nicht selbst befüllt werden, deshalb
+     * gibt es auch keinen Setter für dieses Attribut.
+     */
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @Column(name = "id")
+    private Long _id;
+
+    /**
+     * ID des Glossareintrags, zu dem die Revision gehört. Es wird bewusst keine Beziehung
+     * zu {@link GlossarEntity} definiert, weil beim Laden der Historie der Eintrag selbst
+     * nicht benötigt wird.
+     */
+    @Column(name = "eintrag_id", nullable = false)
+    private long _eintragId;
+
+    /** Laufende Nummer der Revision für den Eintrag, beginnt mit 1. */
+    @Column(name = "nummer", nullable = false)
+    private int _nummer;
+
+    /** Begriff in dieser Revision (ist kurz und wird deshalb immer vollständig gespeichert). */
+    @Column(name = "begriff")
+    private String _begriff;
+
+    /**
+     * Wenn {@code true}, dann enthält {@link #_inhalt} die vollständige Erklärung,
+     * sonst ein Delta zur vorherigen Revision.
+     */
+    @Column(name = "ist_snapshot", nullable = false)
+    private boolean _istSnapshot;
+
+    /** Vollständige Erklärung oder Delta, siehe {@link #_istSnapshot}. */
+    @Column(name = "inhalt", length = 9999)
+    private String _inhalt;
+
+    /** Zeitpunkt (Datum + Uhrzeit) der Änderung, mit der diese Revision entstanden ist. */
+    @Column(name = "zeitpunkt")
+    private LocalDateTime _zeitpunkt;
+
+    /** Autor, der diese Revision erzeugt hat. */
+    @ManyToOne( fetch = EAGER )
+    @JoinColumn( name = "autor_fk", referencedColumnName = "id" )
+    private AutorEntity _autor;
+
+
+    /**
+     * Default-Konstruktor, wird von JPA benötigt.
+     */
+    public RevisionEntity() {}
+
+
+    /**
+     * Konstruktor für neue Revision.
+     *
+     * @param eintragId ID des Glossareintrags
+     *
+     * @param nummer Laufende Nummer der Revision
+     *
+     * @param begriff Begriff in dieser Revision
+     *
+     * @param istSnapshot {@code true} wenn {@code inhalt} die vollständige Erklärung ist
+     *
+     * @param inhalt Vollständige Erklärung oder Delta zur vorherigen Revision
+     *
+     * @param zeitpunkt Zeitpunkt der Änderung
+     *
+     * @param autor Autor der Änderung
+     */
+    public RevisionEntity( long eintragId, int nummer, String begriff, boolean istSnapshot,
+                           String inhalt, LocalDateTime zeitpunkt, AutorEntity autor ) {
+
+        _eintragId   = eintragId;
+        _nummer      = nummer;
+        _begriff     = begriff;
+        _istSnapshot = istSnapshot;
+        _inhalt      = inhalt;
+        _zeitpunkt   = zeitpunkt;
+        _autor       = autor;
+    }
+
+
+    /**
+     * Getter für Primärschlüssel/ID.
+     *
+     * @return ID der Revision
+     */
+    public Long getId() {
+
+        return _id;
+    }
+
+
+    /**
+     * Getter für ID des Glossareintrags.
+     *
+     * @return ID des Eintrags, zu dem die Revision gehört
+     */
+    public long getEintragId() {
+
+        return _eintragId;
+    }
+
+
+    /**
+     * Getter für laufende Nummer der Revision.
+     *
+     * @return Nummer, beginnt mit 1
+     */
+    public int getNummer() {
+
+        return _nummer;
+    }
+
+
+    /**
+     * Getter für Begriff.
+     *
+     * @return Begriff in dieser Revision
+     */
+    public String getBegriff() {
+
+        return _begriff;
+    }
+
+
+    /**
+     * Getter für Snapshot-Kennzeichen.
+     *
+     * @return {@code true} wenn {@link #getInhalt()} die vollständige Erklärung liefert
+     */
+    public boolean istSnapshot() {
+
+        return _istSnapshot;
+    }
+
+
+    /**
+     * Getter für Inhalt.
+     *
+     * @return Vollständige Erklärung oder Delta zur vorherigen Revision
+     */
+    public String getInhalt() {
+
+        return _inhalt;
+    }
+
+
+    /**
+     * Getter für Zeitpunkt der Änderung.
+     *
+     * @return Zeitpunkt, mit dem diese Revision entstanden ist
+     */
+    public LocalDateTime getZeitpunkt() {
+
+        return _zeitpunkt;
+    }
+
+
+    /**
+     * Getter für Autor.
+     *
+     * @return Autor, der diese Revision erzeugt hat
+     */
+    public AutorEntity getAutor() {
+
+        return _autor;
+    }
+
+
+    /**
+     * String-Repräsentation des Objekts (ohne Inhalt).
+     *
+     * @return String mit Eintrag-ID, Nummer und Art der Revision
+     */
+    @Override
+    public String toString() {
+
+        return "Revision " + _nummer + " von Eintrag " + _eintragId +
+               ( _istSnapshot ? " (Snapshot)" : " (Delta)" );
+    }
+
+}
@@ -0,0 +1,94 @@
+package de.eldecker.dhbw.spring.glossar.db.entities;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+
+/**
+ * Ein Objekt dieser Klasse enthält ein Wörterbuch (<i>preset dictionary</i>) für die
+ * Kompression der Erklärungen (siehe Klasse {@code ErklaerungKompression}).
+ * <br><br>
+ *
+ * Primärschlüssel ist die Adler-32-Prüfsumme des Wörterbuchs, die auch im Header jeder
+ * damit komprimierten Erklärung steht; beim Entpacken wird das Wörterbuch darüber gefunden.
+ * Weil die Wörterbücher in derselben Datenbank wie die Erklärungen liegen, sind sie in
+ * jedem Backup enthalten. Zeilen werden nur angelegt, aber nie geändert oder gelöscht.
+ */
+@Entity
+@Table( name = "WOERTERBUECHER" )
+public class WoerterbuchEntity {
+
+    /** Adler-32-Prüfsumme von {@link #_daten}, zugleich Primärschlüssel. */
+    @Id
+    @Column(name = "adler")
+    private Integer _adler;
+
+    /** Inhalt des Wörterbuchs, höchstens 32 KB (mehr kann Deflate nicht nutzen). */
+    @Column(name = "daten", length = 32768, nullable = false)
+    private byte[] _daten;
+
+    /** Zeitpunkt, zu dem das Wörterbuch erzeugt wurde; das neueste wird zum Komprimieren verwendet. */
+    @Column(name = "zeitpunkt", nullable = false)
+    private LocalDateTime _zeitpunkt;
+
+
+    /**
+     * Default-Konstruktor, wird von JPA benötigt.
+     */
+    public WoerterbuchEntity() {}
+
+
+    /**
+     * Konstruktor für neues Wörterbuch.
+     *
+     * @param adler Adler-32-Prüfsumme von {@code daten}
+     *
+     * @param daten Inhalt des Wörterbuchs
+     *
+     * @param zeitpunkt Zeitpunkt der Erzeugung
+     */
+    public WoerterbuchEntity( int adler, byte[] daten, LocalDateTime zeitpunkt ) {
+
+        _adler     = adler;
+        _daten     = daten;
+        _zeitpunkt = zeitpunkt;
+    }
+
+
+    /**
+     * Getter für Adler-32-Prüfsumme.
+     *
+     * @return Prüfsumme, zugleich Primärschlüssel
+     */
+    public Integer getAdler() {
+
+        return _adler;
+    }
+
+
+    /**
+     * Getter für Inhalt des Wörterbuchs.
+     *
+     * @return Wörterbuch
+     */
+    public byte[] getDaten() {
+
+        return _daten;
+    }
+
+
+    /**
+     * Getter für Zeitpunkt der Erzeugung.
+     *
+     * @return Datum+Zeit, zu der das Wörterbuch erzeugt wurde
+     */
+    public LocalDateTime getZeitpunkt() {
+
+        return _zeitpunkt;
+    }
+
+}
@@ -1,5 +1,7 @@
 
 /**
- * Dieses Paket enthält die Klassen für den Datenbankzugriff mit JPA.   
+ * Dieses Paket enthält die Klassen für den Datenbankzugriff: die Schnittstelle
+ * {@link de.eldecker.dhbw.spring.glossar.db.Datenbank} mit den Implementierungen für JPA
+ * und für die Speicher-Engine im Hauptspeicher.
  */
-package de.eldecker.dhbw.spring.glossar.db;
\ No newline at end of file
+package de.eldecker.dhbw.spring.glossar.db;
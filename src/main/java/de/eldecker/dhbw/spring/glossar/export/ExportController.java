@@ -0,0 +1,95 @@
+package de.eldecker.dhbw.spring.glossar.export;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import tools.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.eldecker.dhbw.spring.glossar.model.ExportErgebnis;
+
+
+/**
+ * REST-Controller, mit dem ein angemeldeter Nutzer den statischen Export (siehe
+ * {@link StatischerExport}) sofort starten kann, statt auf den nächsten periodischen
+ * Lauf zu warten.
+ */
+@RestController
+@RequestMapping( "/api/v1" )
+public class ExportController {
+
+    private static final Logger LOG = LoggerFactory.getLogger( ExportController.class );
+
+    /** Bean für den Export. */
+    private final StatischerExport _statischerExport;
+
+    /** Für Serialisierung des Ergebnisses als JSON. */
+    private final ObjectMapper _objectMapper;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public ExportController( StatischerExport statischerExport,
+                             ObjectMapper objectMapper ) {
+
+        _statischerExport = statischerExport;
+        _objectMapper     = objectMapper;
+    }
+
+
+    /**
+     * Export starten; der Request kehrt erst nach Ende des Exports zurück.
+     *
+     * @param voll Wenn {@code true}, dann werden alle Einträge neu gerendert, sonst nur
+     *             die seit dem letzten Lauf geänderten (URL-Parameter {@code voll}).
+     *
+     * @return HTTP-Status-Code 200 mit {@link ExportErgebnis} als JSON; 503 (Service Unavailable)
+     *         wenn kein Exportverzeichnis konfiguriert ist, 409 (Conflict) wenn schon ein Export
+     *         läuft, 500 bei Fehler beim Schreiben der Dateien.
+     */
+    @PostMapping( "/export" )
+    public ResponseEntity<String> exportStarten( @RequestParam( name = "voll", defaultValue = "false" ) boolean voll ) {
+
+        if ( !_statischerExport.istKonfiguriert() ) {
+
+            return new ResponseEntity<>( "Kein Exportverzeichnis konfiguriert (de.eldecker.glossar.export.verzeichnis).",
+                                         SERVICE_UNAVAILABLE );
+        }
+
+        final ExportErgebnis ergebnis;
+        try {
+
+            ergebnis = _statischerExport.exportieren( voll );
+        }
+        catch ( IOException | UncheckedIOException ex ) {
+
+            LOG.error( "Fehler beim Export.", ex );
+            return new ResponseEntity<>( "Fehler beim Export: " + ex.getMessage(), INTERNAL_SERVER_ERROR );
+        }
+
+        if ( ergebnis == null ) {
+
+            return new ResponseEntity<>( "Es läuft schon ein Export.", CONFLICT );
+        }
+
+        return ResponseEntity.ok()
+                             .contentType( APPLICATION_JSON )
+                             .body( _objectMapper.writeValueAsString( ergebnis ) );
+    }
+
+}
@@ -0,0 +1,547 @@
+package de.eldecker.dhbw.spring.glossar.export;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
+import de.eldecker.dhbw.spring.glossar.model.ExportErgebnis;
+
+
+/**
+ * Export des ganzen Glossars als statische HTML-Seiten, die von einem einfachen Webserver
+ * ausgeliefert werden können; lesende Zugriffe müssen dann nicht mehr von der Spring-Anwendung
+ * bearbeitet werden.
+ * <br><br>
+ *
+ * Aufbau des Exportverzeichnisses:
+ * <ul>
+ * <li>{@code index.html}, {@code seite-2.html}, ...: Übersicht mit allen Begriffen, auf mehrere Seiten verteilt</li>
+ * <li>{@code eintrag/<id>.html}: eine Seite pro Eintrag</li>
+ * <li>{@code glossar-styles.css}: Stylesheet</li>
+ * <li>{@code .export-stand}: Änderungszeitpunkt jedes exportierten Eintrags, für den nächsten Lauf</li>
+ * </ul>
+ *
+ * Die Einträge werden in Blöcken nach ID gelesen, zuerst nur ID und Änderungszeitpunkt;
+ * vollständig gelesen und gerendert werden nur Einträge, deren Änderungszeitpunkt sich seit dem
+ * letzten Lauf geändert hat. Das Rendern erfolgt parallel auf allen Prozessorkernen.
+ * <br><br>
+ *
+ * Die Seiten enthalten keine Angaben zum Zeitpunkt des Exports und eine Datei wird nur
+ * überschrieben, wenn sich ihr Inhalt geändert hat; bei unverändertem Glossar ist das
+ * Ergebnis also Byte für Byte gleich (auch das Änderungsdatum der Dateien bleibt gleich).
+ * Neue Dateien werden zuerst unter einem temporären Namen geschrieben und dann umbenannt,
+ * ein Webserver liefert also nie halb geschriebene Seiten aus.
+ */
+@Component
+public class StatischerExport {
+
+    private static final Logger LOG = LoggerFactory.getLogger( StatischerExport.class );
+
+    /**
+     * Version des Exportformats, wird in {@link #DATEI_STAND} gespeichert; muss erhöht werden,
+     * wenn die Templates geändert werden, damit beim nächsten Lauf alle Seiten neu gerendert werden.
+     */
+    private static final String FORMAT_VERSION = "format=1";
+
+    /** Name der Datei, in der die Änderungszeitpunkte der exportierten Einträge stehen. */
+    private static final String DATEI_STAND = ".export-stand";
+
+    /** Name des Stylesheets (im Ordner {@code static} und im Exportverzeichnis). */
+    private static final String DATEI_STYLESHEET = "glossar-styles.css";
+
+    /** Unterverzeichnis für die Seiten der Einträge. */
+    private static final String VERZEICHNIS_EINTRAEGE = "eintrag";
+
+    /** Template für eine Eintragsseite. */
+    private static final String TEMPLATE_EINTRAG = "export/eintrag";
+
+    /** Template für eine Seite der Übersicht. */
+    private static final String TEMPLATE_UEBERSICHT = "export/hauptseite";
+
+    /** Feste Locale, damit das Ergebnis nicht von der Umgebung abhängt. */
+    private static final Locale LOCALE = Locale.GERMANY;
+
+    /** Repository-Bean für Zugriff auf Datenbank. */
+    private final Datenbank _datenbank;
+
+    /** Template-Engine (Thymeleaf) zum Rendern der Seiten. */
+    private final ITemplateEngine _templateEngine;
+
+    /** Exportverzeichnis; leerer String wenn Export nicht konfiguriert. */
+    private final String _verzeichnis;
+
+    /** Anzahl Einträge, die pro Block von der Datenbank gelesen werden. */
+    private final int _blockgroesse;
+
+    /** Anzahl Begriffe pro Seite der Übersicht. */
+    private final int _seitengroesse;
+
+    /** Anzahl Threads für das Rendern. */
+    private final int _anzahlThreads;
+
+    /** Verhindert, dass zwei Exporte gleichzeitig laufen (periodisch und über REST-Endpunkt). */
+    private final ReentrantLock _sperre = new ReentrantLock();
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}.
+     */
+    @Autowired
+    public StatischerExport( Datenbank datenbank,
+                             ITemplateEngine templateEngine,
+                             @Value( "${de.eldecker.glossar.export.verzeichnis:}"       ) String verzeichnis,
+                             @Value( "${de.eldecker.glossar.export.blockgroesse:500}"   ) int    blockgroesse,
+                             @Value( "${de.eldecker.glossar.export.seitengroesse:100}"  ) int    seitengroesse,
+                             @Value( "${de.eldecker.glossar.export.threads:0}"          ) int    anzahlThreads ) {
+
+        _datenbank      = datenbank;
+        _templateEngine = templateEngine;
+        _verzeichnis    = verzeichnis.trim();
+        _blockgroesse   = Math.max( 1, blockgroesse  );
+        _seitengroesse  = Math.max( 1, seitengroesse );
+        _anzahlThreads  = anzahlThreads > 0 ? anzahlThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+
+    /**
+     * Abfrage, ob ein Exportverzeichnis konfiguriert ist.
+     *
+     * @return {@code true} gdw. Export möglich ist
+     */
+    public boolean istKonfiguriert() {
+
+        return !_verzeichnis.isEmpty();
+    }
+
+
+    /**
+     * Diese Methode wird periodisch aufgerufen und aktualisiert den Export, wenn ein
+     * Exportverzeichnis konfiguriert ist; es werden nur geänderte Seiten neu geschrieben.
+     */
+    @Scheduled( fixedDelayString = "${de.eldecker.glossar.export.intervall.ms:600000}",
+                initialDelayString = "${de.eldecker.glossar.export.intervall.ms:600000}" )
+    public void periodischExportieren() {
+
+        if ( !istKonfiguriert() ) {
+
+            return;
+        }
+
+        try {
+
+            exportieren( false );
+        }
+        catch ( IOException | RuntimeException ex ) {
+
+            LOG.error( "Fehler beim periodischen Export nach \"{}\".", _verzeichnis, ex );
+        }
+    }
+
+
+    /**
+     * Glossar in das konfigurierte Exportverzeichnis exportieren.
+     *
+     * @param voll Wenn {@code true}, dann werden alle Einträge neu gerendert (Dateien werden
+     *             aber trotzdem nur bei geändertem Inhalt überschrieben); sonst nur Einträge,
+     *             deren Änderungszeitpunkt sich seit dem letzten Lauf geändert hat.
+     *
+     * @return Ergebnis; ist {@code null}, wenn gerade schon ein Export läuft.
+     *
+     * @throws IOException Fehler beim Schreiben der Dateien
+     *
+     * @throws IllegalStateException Kein Exportverzeichnis konfiguriert
+     */
+    public ExportErgebnis exportieren( boolean voll ) throws IOException {
+
+        if ( !istKonfiguriert() ) {
+
+            throw new IllegalStateException( "Kein Exportverzeichnis konfiguriert." );
+        }
+
+        if ( !_sperre.tryLock() ) {
+
+            LOG.warn( "Export wird nicht gestartet, weil schon ein Export läuft." );
+            return null;
+        }
+
+        try {
+
+            return exportierenIntern( voll );
+        }
+        finally {
+
+            _sperre.unlock();
+        }
+    }
+
+
+    /**
+     * Eigentlicher Export, siehe {@link #exportieren(boolean)}.
+     */
+    private ExportErgebnis exportierenIntern( boolean voll ) throws IOException {
+
+        final long startMillis = System.currentTimeMillis();
+
+        final Path wurzel          = Paths.get( _verzeichnis );
+        final Path eintragVerzeich = wurzel.resolve( VERZEICHNIS_EINTRAEGE );
+        Files.createDirectories( eintragVerzeich );
+
+        final Map<Long, String> standAlt = voll ? new HashMap<>() : leseStand( wurzel );
+        final Map<Long, String> standNeu = new TreeMap<>();
+
+        final AtomicInteger anzahlGeschrieben  = new AtomicInteger( 0 );
+        final AtomicInteger anzahlUnveraendert = new AtomicInteger( 0 );
+
+        try ( ExecutorService threadPool = Executors.newFixedThreadPool( _anzahlThreads ) ) {
+
+            final List<EintragFeld> felder = List.of( EintragFeld.ZEITPUNKT_AENDERUNG );
+
+            for ( List<Object[]> blockListe : _datenbank.getEintraegeProjektionSeiten( felder, _blockgroesse ) ) {
+
+                final List<Long> geaendertListe = new ArrayList<>();
+                for ( Object[] zeile : blockListe ) {
+
+                    final long   id        = (Long) zeile[ 0 ];
+                    final String zeitpunkt = zeile[ 1 ] == null ? "" : zeile[ 1 ].toString();
+
+                    standNeu.put( id, zeitpunkt );
+
+                    if ( zeitpunkt.equals( standAlt.get( id ) ) && Files.exists( eintragDatei( eintragVerzeich, id ) ) ) {
+
+                        anzahlUnveraendert.incrementAndGet();
+
+                    } else {
+
+                        geaendertListe.add( id );
+                    }
+                }
+
+                final Map<Long, GlossarEntity> eintragMap = _datenbank.getEintraegeByIds( geaendertListe );
+
+                final List<CompletableFuture<Void>> futureListe = new ArrayList<>();
+                for ( GlossarEntity eintrag : eintragMap.values() ) {
+
+                    futureListe.add( CompletableFuture.runAsync( () -> {
+
+                        final byte[] html = renderEintrag( eintrag );
+                        if ( schreibeWennGeaendert( eintragDatei( eintragVerzeich, eintrag.getId() ), html ) ) {
+
+                            anzahlGeschrieben.incrementAndGet();
+
+                        } else {
+
+                            anzahlUnveraendert.incrementAndGet();
+                        }
+                    }, threadPool ) );
+                }
+                CompletableFuture.allOf( futureListe.toArray( CompletableFuture[]::new ) ).join();
+            }
+        }
+
+        final int anzahlGeloescht = loescheVerwaisteEintraege( eintragVerzeich, standNeu );
+
+        final int[] uebersicht = schreibeUebersicht( wurzel );
+
+        schreibeWennGeaendert( wurzel.resolve( DATEI_STYLESHEET ), leseStylesheet() );
+        schreibeStand( wurzel, standNeu );
+
+        final ExportErgebnis ergebnis = new ExportErgebnis( anzahlGeschrieben.get(),
+                                                            anzahlUnveraendert.get(),
+                                                            anzahlGeloescht,
+                                                            uebersicht[ 0 ],
+                                                            uebersicht[ 1 ],
+                                                            System.currentTimeMillis() - startMillis );
+
+        LOG.info( "Statischer Export nach \"{}\" abgeschlossen: {}", wurzel.toAbsolutePath(), ergebnis );
+
+        return ergebnis;
+    }
+
+
+    /**
+     * Seite für einen Eintrag rendern.
+     *
+     * @param eintrag Eintrag mit allen Attributen
+     *
+     * @return UTF-8-kodiertes HTML
+     */
+    private byte[] renderEintrag( GlossarEntity eintrag ) {
+
+        final LocalDateTime erzeugung = eintrag.getZeitpunktErzeugung();
+        final LocalDateTime aenderung = eintrag.getZeitpunktAenderung();
+
+        final Context kontext = new Context( LOCALE );
+        kontext.setVariable( "begriff"            , eintrag.getBegriff()    );
+        kontext.setVariable( "erklaerung"         , eintrag.getErklaerung() );
+        kontext.setVariable( "zeitpunkt_angelegt" , erzeugung );
+        kontext.setVariable( "zeitpunkt_geaendert", aenderung != null && !aenderung.equals( erzeugung ) ? aenderung : null );
+        kontext.setVariable( "autor_erzeugung"    , eintrag.getAutorErzeugung() == null ? "" : eintrag.getAutorErzeugung().getNutzername() );
+        kontext.setVariable( "autor_aenderung"    , eintrag.getAutorAenderung() == null ? "" : eintrag.getAutorAenderung().getNutzername() );
+
+        return _templateEngine.process( TEMPLATE_EINTRAG, kontext ).getBytes( UTF_8 );
+    }
+
+
+    /**
+     * Alle Seiten der Übersicht rendern und geänderte Seiten schreiben; Seiten, die es wegen
+     * weniger Einträgen nicht mehr gibt, werden gelöscht.
+     *
+     * @param wurzel Exportverzeichnis
+     *
+     * @return Array mit Anzahl geschriebener Seiten und Anzahl Seiten insgesamt
+     *
+     * @throws IOException Fehler beim Schreiben
+     */
+    private int[] schreibeUebersicht( Path wurzel ) throws IOException {
+
+        final Begriffsliste begriffListe = _datenbank.getGlossarBegriffe();
+
+        final int anzahlSeiten = Math.max( 1, ( begriffListe.size() + _seitengroesse - 1 ) / _seitengroesse );
+
+        int anzahlGeschrieben = 0;
+        for ( int seite = 1; seite <= anzahlSeiten; seite++ ) {
+
+            final int von = ( seite - 1 ) * _seitengroesse;
+            final int bis = Math.min( von + _seitengroesse, begriffListe.size() );
+
+            final Context kontext = new Context( LOCALE );
+            kontext.setVariable( "eintraege"      , begriffListe.subList( von, bis ) );
+            kontext.setVariable( "anzahl_gesamt"  , begriffListe.size() );
+            kontext.setVariable( "seite"          , seite );
+            kontext.setVariable( "anzahl_seiten"  , anzahlSeiten );
+            kontext.setVariable( "link_vorherige" , seite > 1            ? uebersichtDateiname( seite - 1 ) : null );
+            kontext.setVariable( "link_naechste"  , seite < anzahlSeiten ? uebersichtDateiname( seite + 1 ) : null );
+
+            final byte[] html = _templateEngine.process( TEMPLATE_UEBERSICHT, kontext ).getBytes( UTF_8 );
+            if ( schreibeWennGeaendert( wurzel.resolve( uebersichtDateiname( seite ) ), html ) ) {
+
+                anzahlGeschrieben++;
+            }
+        }
+
+        int seite = anzahlSeiten + 1;
+        while ( Files.deleteIfExists( wurzel.resolve( uebersichtDateiname( seite ) ) ) ) {
+
+            seite++;
+        }
+
+        return new int[] { anzahlGeschrieben, anzahlSeiten };
+    }
+
+
+    /**
+     * Dateiname für eine Seite der Übersicht.
+     *
+     * @param seite Seitennummer, beginnt mit 1
+     *
+     * @return {@code index.html} für die erste Seite, sonst z.B. {@code seite-2.html}
+     */
+    private static String uebersichtDateiname( int seite ) {
+
+        return seite == 1 ? "index.html" : "seite-" + seite + ".html";
+    }
+
+
+    /**
+     * Pfad der Seite für einen Eintrag.
+     *
+     * @param eintragVerzeich Unterverzeichnis für die Eintragsseiten
+     *
+     * @param id ID des Eintrags
+     *
+     * @return Pfad, z.B. {@code eintrag/42.html}
+     */
+    private static Path eintragDatei( Path eintragVerzeich, long id ) {
+
+        return eintragVerzeich.resolve( id + ".html" );
+    }
+
+
+    /**
+     * Seiten von Einträgen löschen, die es nicht mehr gibt.
+     *
+     * @param eintragVerzeich Unterverzeichnis für die Eintragsseiten
+     *
+     * @param standNeu IDs aller aktuell vorhandenen Einträge (als Schlüssel)
+     *
+     * @return Anzahl gelöschter Dateien
+     *
+     * @throws IOException Fehler beim Lesen des Verzeichnisses oder Löschen
+     */
+    private static int loescheVerwaisteEintraege( Path eintragVerzeich, Map<Long, String> standNeu ) throws IOException {
+
+        final List<Path> verwaistListe = new ArrayList<>();
+        try ( Stream<Path> dateien = Files.list( eintragVerzeich ) ) {
+
+            dateien.forEach( datei -> {
+
+                final String name = datei.getFileName().toString();
+                if ( name.endsWith( ".html" ) ) {
+
+                    try {
+
+                        final long id = Long.parseLong( name.substring( 0, name.length() - 5 ) );
+                        if ( !standNeu.containsKey( id ) ) {
+
+                            verwaistListe.add( datei );
+                        }
+                    }
+                    catch ( NumberFormatException ex ) {
+
+                        // keine vom Export erzeugte Datei
+                    }
+                }
+            });
+        }
+
+        for ( Path datei : verwaistListe ) {
+
+            Files.delete( datei );
+        }
+
+        return verwaistListe.size();
+    }
+
+
+    /**
+     * Datei nur schreiben, wenn sie noch nicht existiert oder einen anderen Inhalt hat.
+     * Die Datei wird zuerst unter einem temporären Namen im selben Verzeichnis geschrieben
+     * und dann umbenannt.
+     *
+     * @param datei Zu schreibende Datei
+     *
+     * @param inhalt Neuer Inhalt
+     *
+     * @return {@code true} wenn die Datei geschrieben wurde, {@code false} wenn sie unverändert ist
+     *
+     * @throws UncheckedIOException Fehler beim Lesen oder Schreiben
+     */
+    private static boolean schreibeWennGeaendert( Path datei, byte[] inhalt ) {
+
+        try {
+
+            if ( Files.exists( datei ) && Arrays.equals( Files.readAllBytes( datei ), inhalt ) ) {
+
+                return false;
+            }
+
+            final Path temp = datei.resolveSibling( "." + datei.getFileName() + ".tmp" );
+            Files.write( temp, inhalt );
+            Files.move( temp, datei, REPLACE_EXISTING, ATOMIC_MOVE );
+
+            return true;
+        }
+        catch ( IOException ex ) {
+
+            throw new UncheckedIOException( "Fehler beim Schreiben von " + datei, ex );
+        }
+    }
+
+
+    /**
+     * Änderungszeitpunkte vom letzten Lauf lesen.
+     *
+     * @param wurzel Exportverzeichnis
+     *
+     * @return Map von ID auf Änderungszeitpunkt als String; leer, wenn es noch keinen Lauf gab
+     *         oder das Exportformat sich geändert hat.
+     *
+     * @throws IOException Fehler beim Lesen
+     */
+    private static Map<Long, String> leseStand( Path wurzel ) throws IOException {
+
+        final Map<Long, String> standMap = new HashMap<>();
+
+        final Path datei = wurzel.resolve( DATEI_STAND );
+        if ( !Files.exists( datei ) ) {
+
+            return standMap;
+        }
+
+        final List<String> zeilenListe = Files.readAllLines( datei, UTF_8 );
+        if ( zeilenListe.isEmpty() || !zeilenListe.getFirst().equals( FORMAT_VERSION ) ) {
+
+            LOG.info( "Exportformat hat sich geändert, alle Einträge werden neu gerendert." );
+            return standMap;
+        }
+
+        for ( String zeile : zeilenListe.subList( 1, zeilenListe.size() ) ) {
+
+            final int trenner = zeile.indexOf( '=' );
+            if ( trenner > 0 ) {
+
+                standMap.put( Long.parseLong( zeile.substring( 0, trenner ) ), zeile.substring( trenner + 1 ) );
+            }
+        }
+
+        return standMap;
+    }
+
+
+    /**
+     * Änderungszeitpunkte für den nächsten Lauf schreiben, aufsteigend nach ID sortiert.
+     *
+     * @param wurzel Exportverzeichnis
+     *
+     * @param standNeu Map von ID auf Änderungszeitpunkt, nach ID sortiert
+     */
+    private static void schreibeStand( Path wurzel, Map<Long, String> standNeu ) {
+
+        final StringBuilder sb = new StringBuilder( FORMAT_VERSION ).append( '\n' );
+        standNeu.forEach( ( id, zeitpunkt ) -> sb.append( id ).append( '=' ).append( zeitpunkt ).append( '\n' ) );
+
+        schreibeWennGeaendert( wurzel.resolve( DATEI_STAND ), sb.toString().getBytes( UTF_8 ) );
+    }
+
+
+    /**
+     * Stylesheet aus dem Ordner {@code static} im Klassenpfad lesen.
+     *
+     * @return Inhalt des Stylesheets
+     *
+     * @throws IOException Fehler beim Lesen
+     */
+    private static byte[] leseStylesheet() throws IOException {
+
+        try ( InputStream in = new ClassPathResource( "static/" + DATEI_STYLESHEET ).getInputStream() ) {
+
+            return in.readAllBytes();
+        }
+    }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Dieses Paket enthält Klassen für den Export des Glossars als statische HTML-Seiten,
+ * die ohne die Spring-Anwendung von einem beliebigen Webserver ausgeliefert werden können.
+ */
+package de.eldecker.dhbw.spring.glossar.export;
\ No newline at end of file
@@ -0,0 +1,67 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import java.util.function.Supplier;
+
+
+/**
+ * Verweis auf einen Text in einem {@link TextSpeicher}; der Text wird erst in {@link #toString()}
+ * aus dem Speicher gelesen und dekodiert, also z.B. erst dann, wenn ein Thymeleaf-Template
+ * ihn mit {@code th:text} ausgibt. Bis dahin liegt auf dem Heap nur das Handle.
+ * <br><br>
+ *
+ * Wurde der Text inzwischen aus dem Speicher verdrängt, dann wird er über {@code ersatz}
+ * (z.B. aus der Datenbank) geholt.
+ */
+public final class AusgelagerterText {
+
+    /** Speicher, in dem der Text liegt. */
+    private final TextSpeicher _textSpeicher;
+
+    /** Handle des Texts in {@link #_textSpeicher}. */
+    private final long _handle;
+
+    /** Liefert den Text, wenn er nicht mehr im Speicher ist. */
+    private final Supplier<String> _ersatz;
+
+
+    /**
+     * Konstruktor.
+     *
+     * @param textSpeicher Speicher, in dem der Text liegt
+     *
+     * @param handle Handle von {@link TextSpeicher#ablegen(long, String)}, darf auch
+     *               {@link TextSpeicher#KEIN_HANDLE} sein
+     *
+     * @param ersatz Liefert den Text, wenn das Handle nicht (mehr) gültig ist
+     */
+    public AusgelagerterText( TextSpeicher textSpeicher, long handle, Supplier<String> ersatz ) {
+
+        _textSpeicher = textSpeicher;
+        _handle       = handle;
+        _ersatz       = ersatz;
+    }
+
+
+    /**
+     * Prüft, ob der Text noch im Speicher ist.
+     *
+     * @return {@code true} gdw. das Handle noch gültig ist
+     */
+    public boolean istImSpeicher() {
+
+        return _textSpeicher.istGueltig( _handle );
+    }
+
+
+    /**
+     * Text aus dem Speicher lesen und dekodieren (bei jedem Aufruf).
+     *
+     * @return Text
+     */
+    @Override
+    public String toString() {
+
+        return _textSpeicher.lesen( _handle ).orElseGet( _ersatz );
+    }
+
+}
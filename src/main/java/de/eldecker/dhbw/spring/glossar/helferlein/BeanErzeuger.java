@@ -4,7 +4,6 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import static tools.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
-import static tools.jackson.databind.SerializationFeature.INDENT_OUTPUT;
 
 import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.json.JsonMapper;
@@ -27,7 +26,8 @@ public class BeanErzeuger {
      * <ul>
      * <li>Kein Fehler, wenn beim Deserialisierung ein Feld im JSON gefunden wird, das nicht in der Zielklasse
      *     definiert ist</li>
-     *  <li>Das erzeugte JSOn wird für bessere Lesbarkeit durch Einrückungen formatiert.</li>
+     * <li>Das erzeugte JSON wird kompakt (ohne Einrückungen) geschrieben; REST-Endpunkte,
+     *     die formatiertes JSON anbieten, verwenden dafür einen eigenen {@code ObjectWriter}.</li>
      * </ul>
      *
      * @return Konfigurierter Object-Mapper
@@ -37,7 +37,6 @@ public class BeanErzeuger {
 
         return JsonMapper.builder()
                          .disable( FAIL_ON_UNKNOWN_PROPERTIES ) 
-                         .enable(  INDENT_OUTPUT              ) 
                          .build();
     }
 }
@@ -0,0 +1,109 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Input-Stream, der nach einer maximalen Anzahl gelesener Bytes mit einer
+ * {@link ZuGrossException} abbricht. Damit kann z.B. die Payload eines HTTP-Requests
+ * direkt aus dem Request-Stream deserialisiert werden, ohne dass ein Client mit einer
+ * beliebig großen Payload den Speicher füllen kann.
+ */
+public class BegrenzterInputStream extends FilterInputStream {
+
+    /**
+     * Wird geworfen, wenn mehr als die erlaubte Anzahl Bytes gelesen werden soll.
+     */
+    public static class ZuGrossException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Konstruktor für Exception.
+         *
+         * @param maxBytes Maximale Anzahl Bytes, die überschritten wurde
+         */
+        public ZuGrossException( long maxBytes ) {
+
+            super( "Maximale Größe von " + maxBytes + " Bytes überschritten." );
+        }
+    }
+
+    /** Maximale Anzahl Bytes, die gelesen werden dürfen. */
+    private final long _maxBytes;
+
+    /** Anzahl der bisher gelesenen Bytes. */
+    private long _anzahlGelesen = 0;
+
+
+    /**
+     * Konstruktor.
+     *
+     * @param in Zu begrenzender Input-Stream
+     *
+     * @param maxBytes Maximale Anzahl Bytes, die gelesen werden dürfen
+     */
+    public BegrenzterInputStream( InputStream in, long maxBytes ) {
+
+        super( in );
+        _maxBytes = maxBytes;
+    }
+
+
+    /**
+     * Ein Byte lesen.
+     *
+     * @return Gelesenes Byte oder -1 am Ende des Streams
+     *
+     * @throws ZuGrossException Maximale Anzahl Bytes überschritten
+     */
+    @Override
+    public int read() throws IOException {
+
+        final int ergebnis = super.read();
+        if ( ergebnis >= 0 ) {
+
+            zaehlen( 1 );
+        }
+        return ergebnis;
+    }
+
+
+    /**
+     * Mehrere Bytes in einen Puffer lesen.
+     *
+     * @return Anzahl gelesener Bytes oder -1 am Ende des Streams
+     *
+     * @throws ZuGrossException Maximale Anzahl Bytes überschritten
+     */
+    @Override
+    public int read( byte[] puffer, int offset, int laenge ) throws IOException {
+
+        final int anzahl = super.read( puffer, offset, laenge );
+        if ( anzahl > 0 ) {
+
+            zaehlen( anzahl );
+        }
+        return anzahl;
+    }
+
+
+    /**
+     * Zähler für gelesene Bytes erhöhen und gegen Maximum prüfen.
+     *
+     * @param anzahl Anzahl zusätzlich gelesener Bytes
+     *
+     * @throws ZuGrossException Maximale Anzahl Bytes überschritten
+     */
+    private void zaehlen( int anzahl ) throws ZuGrossException {
+
+        _anzahlGelesen += anzahl;
+        if ( _anzahlGelesen > _maxBytes ) {
+
+            throw new ZuGrossException( _maxBytes );
+        }
+    }
+
+}
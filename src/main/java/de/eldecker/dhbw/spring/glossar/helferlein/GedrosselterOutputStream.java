@@ -0,0 +1,96 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+
+/**
+ * Output-Stream, der höchstens eine bestimmte Anzahl Bytes pro Sekunde schreibt: Ist das
+ * Schreiben schneller, dann wird der schreibende Thread entsprechend lange schlafen gelegt.
+ * Damit kann z.B. ein Backup im Hintergrund laufen, ohne die Festplatte für die Requests
+ * zu blockieren.
+ */
+public class GedrosselterOutputStream extends FilterOutputStream {
+
+    /** Maximale Anzahl Bytes pro Sekunde; 0 für unbegrenzt. */
+    private final long _bytesProSekunde;
+
+    /** Zeitpunkt, zu dem der Stream erzeugt wurde. */
+    private final long _startNanos = System.nanoTime();
+
+    /** Anzahl der bisher geschriebenen Bytes. */
+    private long _anzahlGeschrieben = 0;
+
+
+    /**
+     * Konstruktor.
+     *
+     * @param out Zu drosselnder Output-Stream
+     *
+     * @param bytesProSekunde Maximale Anzahl Bytes pro Sekunde; Wert kleiner-gleich 0 für unbegrenzt
+     */
+    public GedrosselterOutputStream( OutputStream out, long bytesProSekunde ) {
+
+        super( out );
+        _bytesProSekunde = Math.max( 0, bytesProSekunde );
+    }
+
+
+    /**
+     * Ein Byte schreiben.
+     */
+    @Override
+    public void write( int b ) throws IOException {
+
+        out.write( b );
+        drosseln( 1 );
+    }
+
+
+    /**
+     * Mehrere Bytes aus einem Puffer schreiben (ohne Umweg über {@link #write(int)} wie bei
+     * {@link FilterOutputStream}).
+     */
+    @Override
+    public void write( byte[] puffer, int offset, int laenge ) throws IOException {
+
+        out.write( puffer, offset, laenge );
+        drosseln( laenge );
+    }
+
+
+    /**
+     * Zähler für geschriebene Bytes erhöhen und ggf. so lange schlafen, bis die mittlere
+     * Rate seit Erzeugung des Streams wieder unter dem Maximum liegt.
+     *
+     * @param anzahl Anzahl zusätzlich geschriebener Bytes
+     *
+     * @throws InterruptedIOException Thread wurde beim Schlafen unterbrochen
+     */
+    private void drosseln( int anzahl ) throws InterruptedIOException {
+
+        _anzahlGeschrieben += anzahl;
+        if ( _bytesProSekunde == 0 ) {
+
+            return;
+        }
+
+        final long sollNanos = _anzahlGeschrieben * 1_000_000_000L / _bytesProSekunde;
+        final long istNanos  = System.nanoTime() - _startNanos;
+        if ( sollNanos > istNanos ) {
+
+            try {
+
+                Thread.sleep( ( sollNanos - istNanos ) / 1_000_000, (int) ( ( sollNanos - istNanos ) % 1_000_000 ) );
+            }
+            catch ( InterruptedException ex ) {
+
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Schreiben wurde unterbrochen." );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+
+/**
+ * MinHash-Signaturen für Texte, mit denen die Ähnlichkeit zweier Texte (Jaccard-Index ihrer
+ * Mengen von Wortfolgen) geschätzt werden kann, ohne die Texte selbst zu vergleichen.
+ * <br><br>
+ *
+ * Ein Text wird in Wörter (Folgen von Buchstaben und Ziffern, ohne Groß-/Kleinschreibung)
+ * zerlegt; jede Folge von {@link #SHINGLE_WOERTER} aufeinander folgenden Wörtern ist ein
+ * <i>Shingle</i>. Für jede von {@link #ANZAHL_HASHES} Hash-Funktionen enthält die Signatur
+ * den kleinsten Hash-Wert über alle Shingles; der Anteil gleicher Positionen in zwei
+ * Signaturen ist ein Schätzwert für den Jaccard-Index (Standardabweichung bei 64 Hashes
+ * etwa 0,06).
+ * <br><br>
+ *
+ * Für die Suche nach Kandidaten wird die Signatur in {@link #ANZAHL_BAENDER} Bänder zu je
+ * {@link #ZEILEN_PRO_BAND} Werten zerlegt (<i>Locality-Sensitive Hashing</i>): zwei Texte
+ * sind Kandidaten, wenn sie in mindestens einem Band übereinstimmen. Bei 8 Bändern zu je 8
+ * Werten werden Paare mit Ähnlichkeit 0,9 zu 99% gefunden, Paare mit Ähnlichkeit 0,5 nur
+ * zu 3%.
+ */
+public final class MinHash {
+
+    /** Anzahl Hash-Funktionen, also Länge der Signatur. */
+    public static final int ANZAHL_HASHES = 64;
+
+    /** Anzahl Bänder für Locality-Sensitive Hashing. */
+    public static final int ANZAHL_BAENDER = 8;
+
+    /** Anzahl Werte der Signatur pro Band. */
+    public static final int ZEILEN_PRO_BAND = ANZAHL_HASHES / ANZAHL_BAENDER;
+
+    /** Anzahl Wörter pro Shingle. */
+    private static final int SHINGLE_WOERTER = 3;
+
+    /** Texte mit weniger Shingles bekommen keine Signatur, weil die Schätzung zu ungenau wäre. */
+    private static final int SHINGLES_MIN = 5;
+
+    /** Startwerte der Hash-Funktionen, fest damit Signaturen vergleichbar bleiben. */
+    private static final long[] STARTWERTE = new SplittableRandom( 0x4d696e48617368L ).longs( ANZAHL_HASHES ).toArray();
+
+
+    private MinHash() {}
+
+
+    /**
+     * Signatur für einen Text berechnen.
+     *
+     * @param text Text, darf {@code null} sein
+     *
+     * @return Signatur mit {@link #ANZAHL_HASHES} Werten; {@code null} wenn der Text zu kurz
+     *         für eine sinnvolle Schätzung ist
+     */
+    public static int[] signatur( String text ) {
+
+        if ( text == null ) {
+
+            return null;
+        }
+
+        final int[] signatur = new int[ ANZAHL_HASHES ];
+        Arrays.fill( signatur, Integer.MAX_VALUE );
+
+        final long[] letzteWoerter = new long[ SHINGLE_WOERTER ];
+        int anzahlWoerter  = 0;
+        int anzahlShingles = 0;
+
+        final int laenge = text.length();
+        int i = 0;
+        while ( i < laenge ) {
+
+            while ( i < laenge && !Character.isLetterOrDigit( text.charAt( i ) ) ) {
+
+                i++;
+            }
+            if ( i == laenge ) {
+
+                break;
+            }
+
+            long wortHash = 0xcbf29ce484222325L; // FNV-1a
+            while ( i < laenge && Character.isLetterOrDigit( text.charAt( i ) ) ) {
+
+                wortHash ^= Character.toLowerCase( text.charAt( i ) );
+                wortHash *= 0x100000001b3L;
+                i++;
+            }
+
+            letzteWoerter[ anzahlWoerter % SHINGLE_WOERTER ] = wortHash;
+            anzahlWoerter++;
+            if ( anzahlWoerter < SHINGLE_WOERTER ) {
+
+                continue;
+            }
+
+            long shingle = 0;
+            for ( int w = anzahlWoerter - SHINGLE_WOERTER; w < anzahlWoerter; w++ ) {
+
+                shingle = mischen( shingle * 31 + letzteWoerter[ w % SHINGLE_WOERTER ] );
+            }
+            for ( int h = 0; h < ANZAHL_HASHES; h++ ) {
+
+                final int wert = (int) ( mischen( shingle ^ STARTWERTE[ h ] ) >>> 33 ); // nicht negativ
+                if ( wert < signatur[ h ] ) {
+
+                    signatur[ h ] = wert;
+                }
+            }
+            anzahlShingles++;
+        }
+
+        return anzahlShingles < SHINGLES_MIN ? null : signatur;
+    }
+
+
+    /**
+     * Ähnlichkeit zweier Texte aus ihren Signaturen schätzen.
+     *
+     * @param a Signatur des ersten Texts
+     *
+     * @param b Signatur des zweiten Texts
+     *
+     * @return Geschätzter Jaccard-Index zwischen 0 (nichts gemeinsam) und 1 (gleich)
+     */
+    public static double aehnlichkeit( int[] a, int[] b ) {
+
+        int gleich = 0;
+        for ( int h = 0; h < ANZAHL_HASHES; h++ ) {
+
+            if ( a[ h ] == b[ h ] ) {
+
+                gleich++;
+            }
+        }
+
+        return (double) gleich / ANZAHL_HASHES;
+    }
+
+
+    /**
+     * Hash-Wert eines Bands der Signatur, als Schlüssel für die Suche nach Kandidaten.
+     *
+     * @param signatur Signatur
+     *
+     * @param band Nummer des Bands, 0 bis {@link #ANZAHL_BAENDER}-1
+     *
+     * @return Hash-Wert über die Werte des Bands
+     */
+    public static long bandHash( int[] signatur, int band ) {
+
+        long hash = band;
+        for ( int h = band * ZEILEN_PRO_BAND; h < ( band + 1 ) * ZEILEN_PRO_BAND; h++ ) {
+
+            hash = mischen( hash * 31 + signatur[ h ] );
+        }
+
+        return hash;
+    }
+
+
+    /**
+     * Bits eines 64-Bit-Werts gut verteilen (Finalizer von SplitMix64).
+     */
+    private static long mischen( long x ) {
+
+        x = ( x ^ ( x >>> 30 ) ) * 0xbf58476d1ce4e5b9L;
+        x = ( x ^ ( x >>> 27 ) ) * 0x94d049bb133111ebL;
+
+        return x ^ ( x >>> 31 );
+    }
+
+}
@@ -0,0 +1,134 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+
+/**
+ * Fasst gleichzeitige Ladevorgänge für denselben Schlüssel zusammen (<i>Single Flight</i>):
+ * Der erste Thread, der einen Wert für einen Schlüssel anfordert, führt den Ladevorgang aus;
+ * alle Threads, die denselben Schlüssel anfordern, während dieser Ladevorgang noch läuft,
+ * warten auf dessen Ergebnis, statt selbst zu laden.
+ * <br><br>
+ *
+ * Es handelt sich um keinen Cache: Sobald der Ladevorgang beendet ist, wird er aus der
+ * Tabelle der laufenden Ladevorgänge entfernt, und zwar bevor das Ergebnis an die wartenden
+ * Threads weitergegeben wird. Ein später eintreffender Aufruf löst also immer einen neuen
+ * Ladevorgang aus; das gilt insbesondere auch, wenn der Ladevorgang mit einer Exception
+ * gescheitert ist (die Exception bekommen nur die Threads, die auf genau diesen Ladevorgang
+ * gewartet haben).
+ *
+ * @param <K> Typ des Schlüssels, muss {@code equals()} und {@code hashCode()} sinnvoll
+ *            implementieren
+ *
+ * @param <V> Typ des geladenen Werts
+ */
+public class SingleFlight<K, V> {
+
+    /** Tabelle der laufenden Ladevorgänge. */
+    private final ConcurrentHashMap<K, CompletableFuture<V>> _laufendeLadevorgaenge = new ConcurrentHashMap<>();
+
+    /** Anzahl der tatsächlich ausgeführten Ladevorgänge. */
+    private final AtomicLong _anzahlLadevorgaenge = new AtomicLong( 0 );
+
+    /** Anzahl der Aufrufe, die auf einen schon laufenden Ladevorgang gewartet haben. */
+    private final AtomicLong _anzahlZusammengefasst = new AtomicLong( 0 );
+
+
+    /**
+     * Wert für {@code schluessel} laden oder auf einen schon laufenden Ladevorgang für
+     * denselben Schlüssel warten.
+     *
+     * @param schluessel Schlüssel des zu ladenden Werts
+     *
+     * @param lader Führt den eigentlichen Ladevorgang aus (im Thread des Aufrufers)
+     *
+     * @return Geladener Wert
+     *
+     * @throws RuntimeException Exception aus {@code lader}, entweder aus dem eigenen
+     *                          oder aus dem Ladevorgang, auf den gewartet wurde
+     */
+    public V laden( K schluessel, Supplier<V> lader ) {
+
+        final CompletableFuture<V> ladevorgangNeu     = new CompletableFuture<>();
+        final CompletableFuture<V> ladevorgangLaufend = _laufendeLadevorgaenge.putIfAbsent( schluessel, ladevorgangNeu );
+        if ( ladevorgangLaufend != null ) {
+
+            _anzahlZusammengefasst.incrementAndGet();
+            return warten( ladevorgangLaufend );
+        }
+
+        _anzahlLadevorgaenge.incrementAndGet();
+        try {
+
+            final V ergebnis = lader.get();
+
+            _laufendeLadevorgaenge.remove( schluessel, ladevorgangNeu );
+            ladevorgangNeu.complete( ergebnis );
+
+            return ergebnis;
+        }
+        catch ( RuntimeException | Error ex ) {
+
+            _laufendeLadevorgaenge.remove( schluessel, ladevorgangNeu );
+            ladevorgangNeu.completeExceptionally( ex );
+
+            throw ex;
+        }
+    }
+
+
+    /**
+     * Auf Ergebnis eines laufenden Ladevorgangs warten.
+     *
+     * @param ladevorgang Laufender Ladevorgang eines anderen Threads
+     *
+     * @return Geladener Wert
+     */
+    private V warten( CompletableFuture<V> ladevorgang ) {
+
+        try {
+
+            return ladevorgang.join();
+        }
+        catch ( CompletionException ex ) {
+
+            if ( ex.getCause() instanceof RuntimeException runtimeException ) {
+
+                throw runtimeException;
+            }
+            if ( ex.getCause() instanceof Error error ) {
+
+                throw error;
+            }
+            throw ex;
+        }
+    }
+
+
+    /**
+     * Getter für Anzahl der tatsächlich ausgeführten Ladevorgänge.
+     *
+     * @return Anzahl Ladevorgänge seit Programmstart
+     */
+    public long getAnzahlLadevorgaenge() {
+
+        return _anzahlLadevorgaenge.get();
+    }
+
+
+    /**
+     * Getter für Anzahl der Aufrufe, die keinen eigenen Ladevorgang ausgeführt, sondern
+     * auf einen schon laufenden gewartet haben.
+     *
+     * @return Anzahl zusammengefasster Aufrufe seit Programmstart
+     */
+    public long getAnzahlZusammengefasst() {
+
+        return _anzahlZusammengefasst.get();
+    }
+
+}
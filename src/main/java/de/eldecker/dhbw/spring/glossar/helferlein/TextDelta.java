@@ -0,0 +1,92 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+
+/**
+ * Kompaktes Delta zwischen zwei Texten für die Historie der Glossareinträge.
+ * <br><br>
+ *
+ * Bei einer typischen Änderung einer Erklärung wird nur eine Stelle bearbeitet, der Anfang
+ * und das Ende des Texts bleiben gleich. Das Delta speichert deshalb nur die Länge des
+ * gemeinsamen Präfix, die Länge des gemeinsamen Suffix und den neuen Text dazwischen,
+ * im Format {@code <präfixlänge>:<suffixlänge>:<einfügung>}.
+ * <br><br>
+ *
+ * Beispiel: Aus "Ein Hund bellt." wird "Ein Hund knurrt." mit dem Delta {@code 9:2:knurr}.
+ */
+public class TextDelta {
+
+    /** Trennzeichen zwischen den Bestandteilen des Deltas. */
+    private static final char TRENNER = ':';
+
+
+    /**
+     * Delta erzeugen, mit dem aus {@code alt} der Text {@code neu} erzeugt werden kann.
+     *
+     * @param alt Vorheriger Text, darf nicht {@code null} sein
+     *
+     * @param neu Neuer Text, darf nicht {@code null} sein
+     *
+     * @return Delta, siehe Beschreibung der Klasse
+     */
+    public static String erzeugen( String alt, String neu ) {
+
+        final int maxGemeinsam = Math.min( alt.length(), neu.length() );
+
+        int praefix = 0;
+        while ( praefix < maxGemeinsam && alt.charAt( praefix ) == neu.charAt( praefix ) ) {
+
+            praefix++;
+        }
+        if ( praefix > 0 && Character.isHighSurrogate( neu.charAt( praefix - 1 ) ) ) {
+
+            praefix--; // Surrogat-Paar nicht trennen, sonst ist die Einfügung kein gültiges UTF-16
+        }
+
+        int suffix = 0;
+        while ( suffix < maxGemeinsam - praefix &&
+                alt.charAt( alt.length() - 1 - suffix ) == neu.charAt( neu.length() - 1 - suffix ) ) {
+
+            suffix++;
+        }
+        if ( suffix > 0 && Character.isLowSurrogate( neu.charAt( neu.length() - suffix ) ) ) {
+
+            suffix--;
+        }
+
+        return praefix + "" + TRENNER + suffix + TRENNER + neu.substring( praefix, neu.length() - suffix );
+    }
+
+
+    /**
+     * Delta auf einen Text anwenden.
+     *
+     * @param alt Text, aus dem das Delta erzeugt wurde
+     *
+     * @param delta Delta, das mit {@link #erzeugen(String, String)} erzeugt wurde
+     *
+     * @return Neuer Text
+     *
+     * @throws IllegalArgumentException Delta hat ungültiges Format oder passt nicht zu {@code alt}
+     */
+    public static String anwenden( String alt, String delta ) {
+
+        final int trenner1 = delta.indexOf( TRENNER );
+        final int trenner2 = trenner1 < 0 ? -1 : delta.indexOf( TRENNER, trenner1 + 1 );
+        if ( trenner2 < 0 ) {
+
+            throw new IllegalArgumentException( "Ungültiges Delta: " + delta );
+        }
+
+        final int praefix = Integer.parseInt( delta.substring( 0, trenner1 ) );
+        final int suffix  = Integer.parseInt( delta.substring( trenner1 + 1, trenner2 ) );
+        if ( praefix + suffix > alt.length() ) {
+
+            throw new IllegalArgumentException( "Delta passt nicht zu Text mit Länge " + alt.length() );
+        }
+
+        return alt.substring( 0, praefix ) +
+               delta.substring( trenner2 + 1 ) +
+               alt.substring( alt.length() - suffix );
+    }
+
+}
@@ -0,0 +1,378 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * Kompression von längeren Texten (z.B. Erklärungen) für die Speicherung in der Datenbank.
+ * <br><br>
+ *
+ * Als Codec wird <i>Deflate</i> aus dem JDK mit der schnellsten Stufe verwendet; komprimiert
+ * wird nur, wenn der Text (als UTF-8) mindestens {@code schwelleBytes} lang ist und dabei
+ * mindestens 10% kleiner wird. Kurze Texte lohnen sich nicht, weil Deflate ohne Vorwissen
+ * erst nach einigen hundert Bytes nennenswert spart.
+ * <br><br>
+ *
+ * Optional kann ein Wörterbuch (<i>preset dictionary</i>) verwendet werden, das typische
+ * Wörter und Wortfolgen aus dem Glossar enthält (siehe {@link #woerterbuchTrainieren(Iterable, int)}).
+ * Die Adler-32-Prüfsumme des Wörterbuchs steht im Header jedes damit komprimierten Texts;
+ * beim Entpacken wird das Wörterbuch über diese Prüfsumme gesucht, zuerst unter den schon
+ * bekannten und dann mit dem im Konstruktor übergebenen Lader. Das Wörterbuch für neue Texte
+ * kann deshalb ausgetauscht werden, solange die älteren für den Lader auffindbar bleiben.
+ */
+public final class TextKompression {
+
+    /** Komprimierter Text wird nur verwendet, wenn er höchstens so groß ist (Anteil vom Original). */
+    private static final double ANTEIL_MAX = 0.9;
+
+    /** Minimale Länge eines Worts für das Wörterbuch. */
+    private static final int WORT_LAENGE_MIN = 4;
+
+    /** Wörterbuch für neue Texte, leeres Array wenn ohne Wörterbuch komprimiert wird. */
+    private volatile byte[] _woerterbuch;
+
+    /** Bekannte Wörterbücher für das Entpacken, Schlüssel ist die Adler-32-Prüfsumme. */
+    private final Map<Integer, byte[]> _woerterbuchMap = new ConcurrentHashMap<>();
+
+    /** Lädt ein unbekanntes Wörterbuch anhand der Prüfsumme, {@code null} wenn es keinen Lader gibt. */
+    private final IntFunction<byte[]> _woerterbuchLader;
+
+    /** Texte ab dieser Länge (UTF-8) werden komprimiert. */
+    private final int _schwelleBytes;
+
+    /** Anzahl komprimierter Texte. */
+    private final AtomicLong _anzahlKomprimiert = new AtomicLong( 0 );
+
+    /** Anzahl entpackter Texte. */
+    private final AtomicLong _anzahlEntpackt = new AtomicLong( 0 );
+
+
+    /**
+     * Konstruktor für Codec, der nur das übergebene Wörterbuch kennt.
+     *
+     * @param schwelleBytes Texte ab dieser Länge in Bytes (UTF-8) werden komprimiert
+     *
+     * @param woerterbuch Wörterbuch, {@code null} oder leer für Kompression ohne Wörterbuch
+     */
+    public TextKompression( int schwelleBytes, byte[] woerterbuch ) {
+
+        this( schwelleBytes, woerterbuch, null );
+    }
+
+
+    /**
+     * Konstruktor.
+     *
+     * @param schwelleBytes Texte ab dieser Länge in Bytes (UTF-8) werden komprimiert
+     *
+     * @param woerterbuch Wörterbuch, {@code null} oder leer für Kompression ohne Wörterbuch
+     *
+     * @param woerterbuchLader Liefert zu einer Adler-32-Prüfsumme das Wörterbuch oder
+     *                         {@code null}, wenn es unbekannt ist; wird beim Entpacken nur für
+     *                         noch nicht bekannte Wörterbücher aufgerufen. Darf {@code null} sein.
+     */
+    public TextKompression( int schwelleBytes, byte[] woerterbuch, IntFunction<byte[]> woerterbuchLader ) {
+
+        _schwelleBytes    = schwelleBytes;
+        _woerterbuchLader = woerterbuchLader;
+
+        setWoerterbuch( woerterbuch );
+    }
+
+
+    /**
+     * Wörterbuch für neue Texte setzen; mit dem bisherigen Wörterbuch komprimierte Texte
+     * können weiterhin entpackt werden.
+     *
+     * @param woerterbuch Wörterbuch, {@code null} oder leer für Kompression ohne Wörterbuch
+     */
+    public void setWoerterbuch( byte[] woerterbuch ) {
+
+        final byte[] kopie = woerterbuch == null ? new byte[ 0 ] : woerterbuch.clone();
+        if ( kopie.length > 0 ) {
+
+            _woerterbuchMap.put( adler32( kopie ), kopie );
+        }
+        _woerterbuch = kopie;
+    }
+
+
+    /**
+     * Text komprimieren, wenn er lang genug ist und sich die Kompression lohnt.
+     *
+     * @param text Zu komprimierender Text, darf {@code null} sein
+     *
+     * @return Komprimierter Text, oder {@code null} wenn der Text unverändert gespeichert
+     *         werden soll
+     */
+    public byte[] komprimieren( String text ) {
+
+        if ( text == null ) {
+
+            return null;
+        }
+
+        final byte[] utf8 = text.getBytes( UTF_8 );
+        if ( utf8.length < _schwelleBytes ) {
+
+            return null;
+        }
+
+        final byte[]   woerterbuch = _woerterbuch;
+        final Deflater deflater    = new Deflater( Deflater.BEST_SPEED );
+        try {
+
+            if ( woerterbuch.length > 0 ) {
+
+                deflater.setDictionary( woerterbuch );
+            }
+            deflater.setInput( utf8 );
+            deflater.finish();
+
+            final ByteArrayOutputStream out    = new ByteArrayOutputStream( utf8.length / 2 );
+            final byte[]                puffer = new byte[ 4096 ];
+            while ( !deflater.finished() ) {
+
+                final int anzahl = deflater.deflate( puffer );
+                out.write( puffer, 0, anzahl );
+            }
+
+            if ( out.size() > utf8.length * ANTEIL_MAX ) {
+
+                return null;
+            }
+
+            _anzahlKomprimiert.incrementAndGet();
+            return out.toByteArray();
+        }
+        finally {
+
+            deflater.end();
+        }
+    }
+
+
+    /**
+     * Mit {@link #komprimieren(String)} komprimierten Text entpacken.
+     *
+     * @param komprimiert Komprimierte Daten
+     *
+     * @return Ursprünglicher Text
+     *
+     * @throws IllegalStateException Daten sind beschädigt oder wurden mit einem unbekannten
+     *                               Wörterbuch komprimiert
+     */
+    public String entpacken( byte[] komprimiert ) {
+
+        final Inflater inflater = new Inflater();
+        try {
+
+            inflater.setInput( komprimiert );
+
+            final ByteArrayOutputStream out    = new ByteArrayOutputStream( komprimiert.length * 3 );
+            final byte[]                puffer = new byte[ 4096 ];
+            while ( !inflater.finished() ) {
+
+                final int anzahl = inflater.inflate( puffer );
+                if ( anzahl == 0 && inflater.needsDictionary() ) {
+
+                    final byte[] woerterbuch = woerterbuchSuchen( inflater.getAdler() );
+                    if ( woerterbuch == null ) {
+
+                        throw new IllegalStateException( "Text wurde mit einem unbekannten Wörterbuch komprimiert (Adler-32 " +
+                                                         Integer.toHexString( inflater.getAdler() ) + ")." );
+                    }
+                    inflater.setDictionary( woerterbuch );
+
+                } else if ( anzahl == 0 && inflater.needsInput() ) {
+
+                    throw new IllegalStateException( "Komprimierter Text ist unvollständig." );
+                }
+                out.write( puffer, 0, anzahl );
+            }
+
+            _anzahlEntpackt.incrementAndGet();
+            return out.toString( UTF_8 );
+        }
+        catch ( DataFormatException ex ) {
+
+            throw new IllegalStateException( "Komprimierter Text ist beschädigt.", ex );
+        }
+        finally {
+
+            inflater.end();
+        }
+    }
+
+
+    /**
+     * Wörterbuch anhand der Prüfsumme suchen, zuerst unter den bekannten, dann mit dem Lader;
+     * ein geladenes Wörterbuch wird nur übernommen, wenn die Prüfsumme stimmt.
+     *
+     * @param adler Adler-32-Prüfsumme aus dem Header der komprimierten Daten
+     *
+     * @return Wörterbuch, oder {@code null} wenn es nicht gefunden wurde
+     */
+    private byte[] woerterbuchSuchen( int adler ) {
+
+        final byte[] bekannt = _woerterbuchMap.get( adler );
+        if ( bekannt != null || _woerterbuchLader == null ) {
+
+            return bekannt;
+        }
+
+        final byte[] geladen = _woerterbuchLader.apply( adler );
+        if ( geladen == null || adler32( geladen ) != adler ) {
+
+            return null;
+        }
+        _woerterbuchMap.put( adler, geladen );
+
+        return geladen;
+    }
+
+
+    /**
+     * Adler-32-Prüfsumme berechnen, wie sie Deflate für ein Wörterbuch verwendet.
+     *
+     * @param daten Wörterbuch
+     *
+     * @return Prüfsumme
+     */
+    public static int adler32( byte[] daten ) {
+
+        final Adler32 adler = new Adler32();
+        adler.update( daten );
+
+        return (int) adler.getValue();
+    }
+
+
+    /**
+     * Einfaches Wörterbuch aus einer Menge von Texten erzeugen: Wörter (und Paare von
+     * aufeinander folgenden Wörtern) werden danach bewertet, wie viele Bytes sie insgesamt
+     * ausmachen; die besten werden hintereinander geschrieben. Die wertvollsten stehen am
+     * Ende, weil Deflate nahe Treffer mit kürzeren Distanzen kodiert.
+     *
+     * @param texte Texte, z.B. alle Erklärungen des Glossars
+     *
+     * @param maxBytes Maximale Größe des Wörterbuchs; Deflate nutzt höchstens 32 KB
+     *
+     * @return Wörterbuch, leer wenn {@code texte} keine geeigneten Wörter enthält
+     */
+    public static byte[] woerterbuchTrainieren( Iterable<String> texte, int maxBytes ) {
+
+        final Map<String, Integer> anzahlMap = new HashMap<>();
+        for ( String text : texte ) {
+
+            if ( text == null ) {
+
+                continue;
+            }
+
+            String vorheriges = null;
+            for ( String wort : text.split( "\\s+" ) ) {
+
+                if ( wort.length() >= WORT_LAENGE_MIN ) {
+
+                    anzahlMap.merge( wort, 1, Integer::sum );
+                }
+                if ( vorheriges != null ) {
+
+                    anzahlMap.merge( vorheriges + " " + wort, 1, Integer::sum );
+                }
+                vorheriges = wort;
+            }
+        }
+
+        final List<Map.Entry<String, Integer>> kandidatenListe = new ArrayList<>();
+        for ( Map.Entry<String, Integer> eintrag : anzahlMap.entrySet() ) {
+
+            if ( eintrag.getValue() > 1 ) {
+
+                kandidatenListe.add( eintrag );
+            }
+        }
+        kandidatenListe.sort( ( a, b ) -> Long.compare( (long) b.getValue() * b.getKey().length(),
+                                                        (long) a.getValue() * a.getKey().length() ) );
+
+        final List<byte[]> auswahlListe = new ArrayList<>();
+        int groesse = 0;
+        for ( Map.Entry<String, Integer> eintrag : kandidatenListe ) {
+
+            final byte[] utf8 = ( eintrag.getKey() + " " ).getBytes( UTF_8 );
+            if ( groesse + utf8.length > maxBytes ) {
+
+                continue;
+            }
+            auswahlListe.add( utf8 );
+            groesse += utf8.length;
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream( groesse );
+        for ( int i = auswahlListe.size() - 1; i >= 0; i-- ) {
+
+            out.writeBytes( auswahlListe.get( i ) );
+        }
+
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Schwelle für die Kompression.
+     *
+     * @return Texte ab dieser Länge in Bytes (UTF-8) werden komprimiert
+     */
+    public int getSchwelleBytes() {
+
+        return _schwelleBytes;
+    }
+
+
+    /**
+     * Größe des Wörterbuchs für neue Texte.
+     *
+     * @return Anzahl Bytes, 0 wenn ohne Wörterbuch komprimiert wird
+     */
+    public int getWoerterbuchGroesse() {
+
+        return _woerterbuch.length;
+    }
+
+
+    /**
+     * Anzahl Texte, die seit Programmstart komprimiert wurden.
+     *
+     * @return Anzahl Texte
+     */
+    public long getAnzahlKomprimiert() {
+
+        return _anzahlKomprimiert.get();
+    }
+
+
+    /**
+     * Anzahl Texte, die seit Programmstart entpackt wurden.
+     *
+     * @return Anzahl Texte
+     */
+    public long getAnzahlEntpackt() {
+
+        return _anzahlEntpackt.get();
+    }
+
+}
@@ -0,0 +1,528 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+
+/**
+ * Speicher für Texte außerhalb des Java-Heaps (<i>off-heap</i>): Die Texte werden als
+ * UTF-8-Bytes in Seiten fester Größe abgelegt, die als <i>direct</i> {@link ByteBuffer}
+ * angelegt werden; auf dem Heap liegen nur ein paar Verwaltungsdaten pro Text. Damit können
+ * sehr viele lange Texte zwischengespeichert werden, ohne dass der Garbage Collector sie bei
+ * jedem Lauf durchsuchen muss.
+ * <br><br>
+ *
+ * Aufbau (ähnlich wie ein <i>Slab Allocator</i>):
+ * <ul>
+ * <li>Jede Seite ist in gleich große Plätze für genau eine Größenklasse aufgeteilt
+ *     (Zweierpotenzen ab 64 Bytes bis zur Seitengröße); ein Text belegt immer einen Platz
+ *     der kleinsten passenden Klasse.</li>
+ * <li>Seiten werden erst bei Bedarf angelegt, höchstens so viele, wie in die Kapazität passen.</li>
+ * <li>Ist die Kapazität erreicht, dann wird in der Größenklasse der am längsten nicht mehr
+ *     gelesene Text verdrängt (LRU). Hat die Klasse noch gar keine Seite, dann wird der Klasse
+ *     mit den meisten Seiten eine Seite weggenommen.</li>
+ * </ul>
+ *
+ * Jeder Text hat einen Schlüssel (z.B. ID eines Glossareintrags) und wird über ein
+ * {@code long}-Handle referenziert, das Seite, Platz und eine Generationsnummer enthält.
+ * Wurde der Text inzwischen verdrängt oder ersetzt, dann ist das Handle ungültig und
+ * {@link #lesen(long)} liefert ein leeres Optional; ein Handle kann also gefahrlos auch
+ * nach dem Verdrängen noch verwendet werden.
+ * <br><br>
+ *
+ * Alle Methoden sind thread-safe; sie werden über das Objekt synchronisiert, dabei werden
+ * aber nur Bytes kopiert, das Dekodieren der Texte findet außerhalb der Sperre statt.
+ */
+public class TextSpeicher {
+
+    /** Größe der kleinsten Größenklasse in Bytes. */
+    private static final int KLASSE_MIN = 64;
+
+    /** Wert für "kein Text" bzw. ungültiges Handle. */
+    public static final long KEIN_HANDLE = 0;
+
+
+    /**
+     * Eine Seite mit gleich großen Plätzen für eine Größenklasse; die Arrays haben einen
+     * Eintrag pro Platz.
+     */
+    private static final class Seite {
+
+        /** Puffer außerhalb des Heaps. */
+        final ByteBuffer puffer;
+
+        /** Index der Größenklasse, zu der die Seite gerade gehört. */
+        int klasse;
+
+        /** Länge des Texts auf dem Platz in Bytes; -1 für freien Platz. */
+        int[] laenge;
+
+        /** Generationsnummer des Platzes, wird bei jeder Belegung erhöht. */
+        int[] generation;
+
+        /** Schlüssel des Texts auf dem Platz. */
+        long[] schluessel;
+
+        Seite( int groesse ) {
+
+            puffer = ByteBuffer.allocateDirect( groesse );
+        }
+    }
+
+
+    /**
+     * Verwaltung einer Größenklasse.
+     */
+    private static final class Klasse {
+
+        /** Größe eines Platzes in Bytes. */
+        final int platzGroesse;
+
+        /** Freie Plätze, jeweils als Seite und Platz kodiert (siehe {@link TextSpeicher#platz(int, int)}). */
+        final List<Integer> freiListe = new ArrayList<>();
+
+        /** Belegte Plätze, Schlüssel auf Handle, in LRU-Reihenfolge (zuletzt gelesen am Ende). */
+        final LinkedHashMap<Long, Long> lruMap = new LinkedHashMap<>( 16, 0.75f, true );
+
+        /** Anzahl der Seiten dieser Klasse. */
+        int anzahlSeiten = 0;
+
+        Klasse( int platzGroesse ) {
+
+            this.platzGroesse = platzGroesse;
+        }
+    }
+
+
+    /** Größe einer Seite in Bytes; ist auch die maximale Länge eines Texts. */
+    private final int _seitenGroesse;
+
+    /** Maximale Anzahl Seiten. */
+    private final Seite[] _seiten;
+
+    /** Anzahl bisher angelegter Seiten. */
+    private int _anzahlSeiten = 0;
+
+    /** Größenklassen, aufsteigend. */
+    private final Klasse[] _klassen;
+
+    /** Schlüssel auf Handle, für alle Texte im Speicher. */
+    private final Map<Long, Long> _handleMap = new HashMap<>();
+
+    /** Wird für den Schlüssel jedes verdrängten Texts aufgerufen (in der Sperre!). */
+    private final LongConsumer _beimVerdraengen;
+
+    /** Summe der Längen aller abgelegten Texte in Bytes. */
+    private long _bytesBelegt = 0;
+
+    /** Anzahl der bisher verdrängten Texte. */
+    private long _anzahlVerdraengt = 0;
+
+
+    /**
+     * Konstruktor; es wird noch kein Speicher angelegt.
+     *
+     * @param kapazitaet Maximale Anzahl Bytes außerhalb des Heaps (wird auf ganze Seiten
+     *                   abgerundet, mindestens eine Seite)
+     *
+     * @param seitenGroesse Größe einer Seite in Bytes, muss eine Zweierpotenz zwischen
+     *                      1 KB und 4 MB sein; längere Texte werden nicht abgelegt
+     *
+     * @param beimVerdraengen Wird mit dem Schlüssel jedes verdrängten Texts aufgerufen; wird
+     *                        in der Sperre des Speichers ausgeführt, muss also schnell sein
+     *                        und darf den Speicher nicht aufrufen
+     *
+     * @throws IllegalArgumentException Ungültige Seitengröße
+     */
+    public TextSpeicher( long kapazitaet, int seitenGroesse, LongConsumer beimVerdraengen ) {
+
+        if ( Integer.bitCount( seitenGroesse ) != 1 || seitenGroesse < 1024 || seitenGroesse > ( 4 << 20 ) ) {
+
+            throw new IllegalArgumentException( "Seitengröße muss Zweierpotenz zwischen 1 KB und 4 MB sein: " + seitenGroesse );
+        }
+
+        _seitenGroesse   = seitenGroesse;
+        _seiten          = new Seite[ (int) Math.max( 1, Math.min( 0xFFFF, kapazitaet / seitenGroesse ) ) ];
+        _beimVerdraengen = beimVerdraengen;
+
+        final int anzahlKlassen = Integer.numberOfTrailingZeros( seitenGroesse / KLASSE_MIN ) + 1;
+        _klassen = new Klasse[ anzahlKlassen ];
+        for ( int i = 0; i < anzahlKlassen; i++ ) {
+
+            _klassen[ i ] = new Klasse( KLASSE_MIN << i );
+        }
+    }
+
+
+    /**
+     * Text ablegen; ein schon vorhandener Text mit demselben Schlüssel wird ersetzt (dessen
+     * Handle wird ungültig).
+     *
+     * @param schluessel Schlüssel des Texts
+     *
+     * @param text Abzulegender Text
+     *
+     * @return Handle für {@link #lesen(long)}; {@link #KEIN_HANDLE}, wenn der Text länger als
+     *         eine Seite ist und deshalb nicht abgelegt wurde
+     */
+    public long ablegen( long schluessel, String text ) {
+
+        final byte[] utf8 = text.getBytes( UTF_8 );
+        if ( utf8.length > _seitenGroesse ) {
+
+            entfernen( schluessel );
+            return KEIN_HANDLE;
+        }
+
+        synchronized ( this ) {
+
+            entfernenIntern( schluessel );
+
+            final Klasse klasse = _klassen[ klasseIndex( utf8.length ) ];
+
+            final int platz = platzBelegen( klasse );
+            final int s     = platz >>> 16;
+            final int p     = platz & 0xFFFF;
+
+            final Seite seite = _seiten[ s ];
+            seite.puffer.put( p * klasse.platzGroesse, utf8 );
+            seite.laenge[ p ]     = utf8.length;
+            seite.generation[ p ] = seite.generation[ p ] == Integer.MAX_VALUE ? 1 : seite.generation[ p ] + 1;
+            seite.schluessel[ p ] = schluessel;
+
+            final long handle = ( (long) platz << 32 ) | ( seite.generation[ p ] & 0xFFFFFFFFL );
+
+            klasse.lruMap.put( schluessel, handle );
+            _handleMap.put( schluessel, handle );
+            _bytesBelegt += utf8.length;
+
+            return handle;
+        }
+    }
+
+
+    /**
+     * Text lesen und dekodieren; der Text gilt danach als zuletzt verwendet (LRU).
+     *
+     * @param handle Handle von {@link #ablegen(long, String)}
+     *
+     * @return Text; leer, wenn der Text inzwischen verdrängt oder ersetzt wurde
+     */
+    public Optional<String> lesen( long handle ) {
+
+        final byte[] utf8;
+
+        synchronized ( this ) {
+
+            final Seite seite = seiteFuerHandle( handle );
+            if ( seite == null ) {
+
+                return Optional.empty();
+            }
+
+            final int p = (int) ( handle >>> 32 ) & 0xFFFF;
+
+            _klassen[ seite.klasse ].lruMap.get( seite.schluessel[ p ] ); // für LRU-Reihenfolge
+
+            utf8 = new byte[ seite.laenge[ p ] ];
+            seite.puffer.get( p * _klassen[ seite.klasse ].platzGroesse, utf8 );
+        }
+
+        return Optional.of( new String( utf8, UTF_8 ) );
+    }
+
+
+    /**
+     * Prüft, ob ein Handle noch gültig ist, ohne den Text zu lesen oder die LRU-Reihenfolge
+     * zu ändern.
+     *
+     * @param handle Handle von {@link #ablegen(long, String)}
+     *
+     * @return {@code true} gdw. der Text noch im Speicher ist
+     */
+    public synchronized boolean istGueltig( long handle ) {
+
+        return seiteFuerHandle( handle ) != null;
+    }
+
+
+    /**
+     * Text mit {@code schluessel} entfernen, falls vorhanden.
+     *
+     * @param schluessel Schlüssel des Texts
+     */
+    public synchronized void entfernen( long schluessel ) {
+
+        entfernenIntern( schluessel );
+    }
+
+
+    /**
+     * Anzahl der abgelegten Texte.
+     *
+     * @return Anzahl Texte
+     */
+    public synchronized int getAnzahlTexte() {
+
+        return _handleMap.size();
+    }
+
+
+    /**
+     * Summe der Längen aller abgelegten Texte (UTF-8).
+     *
+     * @return Anzahl belegte Bytes
+     */
+    public synchronized long getBytesBelegt() {
+
+        return _bytesBelegt;
+    }
+
+
+    /**
+     * Größe aller bisher angelegten Seiten, also tatsächlich außerhalb des Heaps reservierter
+     * Speicher (inkl. Verschnitt durch die Größenklassen).
+     *
+     * @return Anzahl reservierte Bytes
+     */
+    public synchronized long getBytesReserviert() {
+
+        return (long) _anzahlSeiten * _seitenGroesse;
+    }
+
+
+    /**
+     * Maximale Größe des Speichers außerhalb des Heaps.
+     *
+     * @return Kapazität in Bytes
+     */
+    public long getKapazitaet() {
+
+        return (long) _seiten.length * _seitenGroesse;
+    }
+
+
+    /**
+     * Anzahl der bisher verdrängten Texte.
+     *
+     * @return Anzahl Texte
+     */
+    public synchronized long getAnzahlVerdraengt() {
+
+        return _anzahlVerdraengt;
+    }
+
+
+    /**
+     * Seite für ein Handle, wenn das Handle noch gültig ist.
+     *
+     * @return Seite oder {@code null}
+     */
+    private Seite seiteFuerHandle( long handle ) {
+
+        final int s          = (int) ( handle >>> 48 );
+        final int p          = (int) ( handle >>> 32 ) & 0xFFFF;
+        final int generation = (int) handle;
+
+        if ( handle == KEIN_HANDLE || s >= _anzahlSeiten ) {
+
+            return null;
+        }
+
+        final Seite seite = _seiten[ s ];
+        if ( p >= seite.laenge.length || seite.laenge[ p ] < 0 || seite.generation[ p ] != generation ) {
+
+            return null;
+        }
+
+        return seite;
+    }
+
+
+    /**
+     * Freien Platz in {@code klasse} holen: aus der Liste der freien Plätze, sonst auf einer
+     * neuen Seite, sonst durch Verdrängen.
+     *
+     * @return Seite und Platz, siehe {@link #platz(int, int)}
+     */
+    private int platzBelegen( Klasse klasse ) {
+
+        if ( klasse.freiListe.isEmpty() ) {
+
+            if ( _anzahlSeiten < _seiten.length ) {
+
+                _seiten[ _anzahlSeiten ] = new Seite( _seitenGroesse );
+                seiteZuweisen( _anzahlSeiten, klasse );
+                _anzahlSeiten++;
+
+            } else if ( !klasse.lruMap.isEmpty() ) {
+
+                final long schluessel = klasse.lruMap.keySet().iterator().next();
+                verdraengen( schluessel );
+
+            } else {
+
+                seiteUmverteilen( klasse );
+            }
+        }
+
+        return klasse.freiListe.removeLast();
+    }
+
+
+    /**
+     * Einer Klasse, die noch keine Seite hat, eine Seite der Klasse mit den meisten Seiten
+     * geben; alle Texte auf dieser Seite werden verdrängt.
+     */
+    private void seiteUmverteilen( Klasse klasse ) {
+
+        Klasse spender = _klassen[ 0 ];
+        for ( Klasse kandidat : _klassen ) {
+
+            if ( kandidat.anzahlSeiten > spender.anzahlSeiten ) {
+
+                spender = kandidat;
+            }
+        }
+
+        int s = _anzahlSeiten - 1;
+        while ( _klassen[ _seiten[ s ].klasse ] != spender ) {
+
+            s--;
+        }
+
+        final Seite seite = _seiten[ s ];
+        for ( int p = 0; p < seite.laenge.length; p++ ) {
+
+            if ( seite.laenge[ p ] >= 0 ) {
+
+                verdraengen( seite.schluessel[ p ] );
+            }
+        }
+
+        final int seiteIndex = s;
+        final Iterator<Integer> iterator = spender.freiListe.iterator();
+        while ( iterator.hasNext() ) {
+
+            if ( iterator.next() >>> 16 == seiteIndex ) {
+
+                iterator.remove();
+            }
+        }
+        spender.anzahlSeiten--;
+
+        seiteZuweisen( s, klasse );
+    }
+
+
+    /**
+     * Seite in Plätze für {@code klasse} aufteilen; alle Plätze werden frei.
+     */
+    private void seiteZuweisen( int s, Klasse klasse ) {
+
+        final Seite seite         = _seiten[ s ];
+        final int   anzahlPlaetze = _seitenGroesse / klasse.platzGroesse;
+
+        final int[] generationAlt = seite.generation;
+
+        seite.klasse     = indexVon( klasse );
+        seite.laenge     = new int[ anzahlPlaetze ];
+        seite.generation = new int[ anzahlPlaetze ];
+        seite.schluessel = new long[ anzahlPlaetze ];
+
+        // Generationen weiterzählen, damit alte Handles auf diese Seite ungültig bleiben
+        int generationStart = 0;
+        if ( generationAlt != null ) {
+
+            for ( int generation : generationAlt ) {
+
+                generationStart = Math.max( generationStart, generation );
+            }
+        }
+
+        for ( int p = anzahlPlaetze - 1; p >= 0; p-- ) {
+
+            seite.laenge[ p ]     = -1;
+            seite.generation[ p ] = generationStart;
+            klasse.freiListe.add( platz( s, p ) );
+        }
+        klasse.anzahlSeiten++;
+    }
+
+
+    /**
+     * Text verdrängen und Aufrufer informieren.
+     */
+    private void verdraengen( long schluessel ) {
+
+        entfernenIntern( schluessel );
+        _anzahlVerdraengt++;
+        _beimVerdraengen.accept( schluessel );
+    }
+
+
+    /**
+     * Text mit {@code schluessel} entfernen und Platz freigeben; muss in der Sperre
+     * aufgerufen werden.
+     */
+    private void entfernenIntern( long schluessel ) {
+
+        final Long handle = _handleMap.remove( schluessel );
+        if ( handle == null ) {
+
+            return;
+        }
+
+        final int platz = (int) ( handle >>> 32 );
+        final int p     = platz & 0xFFFF;
+
+        final Seite  seite  = _seiten[ platz >>> 16 ];
+        final Klasse klasse = _klassen[ seite.klasse ];
+
+        _bytesBelegt -= seite.laenge[ p ];
+
+        seite.laenge[ p ] = -1;
+        klasse.lruMap.remove( schluessel );
+        klasse.freiListe.add( platz );
+    }
+
+
+    /**
+     * Index der kleinsten Größenklasse, in die {@code laenge} Bytes passen.
+     */
+    private int klasseIndex( int laenge ) {
+
+        int index = 0;
+        while ( ( KLASSE_MIN << index ) < laenge ) {
+
+            index++;
+        }
+
+        return index;
+    }
+
+
+    private int indexVon( Klasse klasse ) {
+
+        return Integer.numberOfTrailingZeros( klasse.platzGroesse / KLASSE_MIN );
+    }
+
+
+    /**
+     * Seite und Platz in einem {@code int} kodieren (je 16 Bit).
+     */
+    private static int platz( int seite, int platz ) {
+
+        return ( seite << 16 ) | platz;
+    }
+
+}
@@ -0,0 +1,370 @@
+package de.eldecker.dhbw.spring.glossar.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+
+
+/**
+ * Unveränderlicher Aho-Corasick-Automat über alle Glossarbegriffe, mit dem in einem Text alle
+ * Vorkommen von Begriffen in einem Durchlauf gefunden werden; die Laufzeit hängt nur von der
+ * Länge des Texts ab, nicht von der Anzahl der Begriffe.
+ * <br><br>
+ *
+ * Die Zustände werden in Breitensuche nummeriert und die Übergänge liegen wie bei einer
+ * Adjazenzliste im CSR-Format in drei Arrays: Die Übergänge von Zustand {@code z} stehen
+ * an den Positionen {@code kantenStart[z]} bis {@code kantenStart[z+1]-1}, nach Zeichen
+ * sortiert (binäre Suche). Dadurch braucht der Automat auch für viele Begriffe nur wenige
+ * Arrays statt eines Objekts pro Zustand.
+ * <br><br>
+ *
+ * Groß-/Kleinschreibung wird nicht unterschieden (Zeichen für Zeichen mit
+ * {@link Character#toLowerCase(char)}, damit die Positionen im Text erhalten bleiben), und es
+ * werden nur ganze Wörter gefunden. Gibt es einen Begriff mehrfach, dann gewinnt der Eintrag
+ * mit der kleinsten ID.
+ */
+final class BegriffAutomat {
+
+    /** Kürzere Begriffe werden nicht verlinkt. */
+    private static final int LAENGE_MIN = 2;
+
+    /** Leerer Automat ohne Begriffe. */
+    static final BegriffAutomat LEER = erzeugen( Begriffsliste.LEER );
+
+    /** Erster Übergang jedes Zustands, ein Element mehr als Zustände. */
+    private final int[] _kantenStart;
+
+    /** Zeichen der Übergänge. */
+    private final char[] _kantenZeichen;
+
+    /** Zielzustand der Übergänge. */
+    private final int[] _kantenZiel;
+
+    /** Fehlerübergang (längstes echtes Suffix, das auch Präfix eines Begriffs ist). */
+    private final int[] _fehler;
+
+    /** Nächster Zustand in der Kette der Fehlerübergänge, in dem ein Begriff endet; -1 für keinen. */
+    private final int[] _ausgabe;
+
+    /** ID des Eintrags, dessen Begriff in dem Zustand endet; -1 für keinen. */
+    private final long[] _zielId;
+
+    /** Tiefe des Zustands, also Länge des Präfixes. */
+    private final int[] _tiefe;
+
+
+    private BegriffAutomat( int[] kantenStart, char[] kantenZeichen, int[] kantenZiel,
+                            int[] fehler, int[] ausgabe, long[] zielId, int[] tiefe ) {
+
+        _kantenStart   = kantenStart;
+        _kantenZeichen = kantenZeichen;
+        _kantenZiel    = kantenZiel;
+        _fehler        = fehler;
+        _ausgabe       = ausgabe;
+        _zielId        = zielId;
+        _tiefe         = tiefe;
+    }
+
+
+    /**
+     * Automat aus allen Begriffen erzeugen.
+     * <br><br>
+     *
+     * Die normalisierten Begriffe werden sortiert; dann haben alle Begriffe mit demselben
+     * Präfix einen zusammenhängenden Bereich, und der Trie kann Ebene für Ebene aufgebaut
+     * werden, wobei die Kinder jedes Zustands automatisch hintereinander liegen.
+     *
+     * @param begriffsliste Alle Begriffe mit ID
+     *
+     * @return Neuer Automat
+     */
+    static BegriffAutomat erzeugen( Begriffsliste begriffsliste ) {
+
+        final int anzahlListe = begriffsliste.size();
+
+        final String[]  normalisiertArray = new String[ anzahlListe ];
+        final Integer[] reihenfolge       = new Integer[ anzahlListe ];
+        for ( int i = 0; i < anzahlListe; i++ ) {
+
+            normalisiertArray[ i ] = normalisieren( begriffsliste.getBegriff( i ).strip() );
+            reihenfolge[ i ]       = i;
+        }
+        Arrays.sort( reihenfolge, Comparator.comparing( ( Integer i ) -> normalisiertArray[ i ] )
+                                            .thenComparingLong( begriffsliste::getId ) );
+
+        int anzahl = 0;
+        final String[] begriffArray = new String[ anzahlListe ];
+        final long[]   idArray      = new long[ anzahlListe ];
+        for ( int i : reihenfolge ) {
+
+            if ( normalisiertArray[ i ].length() >= LAENGE_MIN ) {
+
+                begriffArray[ anzahl ] = normalisiertArray[ i ];
+                idArray[ anzahl ]      = begriffsliste.getId( i );
+                anzahl++;
+            }
+        }
+
+        // Trie in Breitensuche: Zustand z steht für die Begriffe im Bereich [von[z], bis[z])
+        int    kapazitaet = Math.max( 16, anzahl * 2 );
+        int[]  von        = new int[ kapazitaet ];
+        int[]  bis        = new int[ kapazitaet ];
+        int[]  tiefe      = new int[ kapazitaet ];
+        long[] zielId     = new long[ kapazitaet ];
+
+        int[]  kantenStart   = new int[ kapazitaet + 1 ];
+        char[] kantenZeichen = new char[ kapazitaet ];
+        int[]  kantenZiel    = new int[ kapazitaet ];
+
+        int anzahlZustaende = 1;
+        int anzahlKanten    = 0;
+        bis[ 0 ] = anzahl;
+
+        for ( int z = 0; z < anzahlZustaende; z++ ) {
+
+            kantenStart[ z ] = anzahlKanten;
+            zielId[ z ]      = -1;
+
+            final int d = tiefe[ z ];
+            int       i = von[ z ];
+
+            if ( i < bis[ z ] && begriffArray[ i ].length() == d ) {
+
+                zielId[ z ] = idArray[ i ]; // kleinste ID, weitere gleiche Begriffe überspringen
+                while ( i < bis[ z ] && begriffArray[ i ].length() == d ) {
+
+                    i++;
+                }
+            }
+
+            while ( i < bis[ z ] ) {
+
+                final char zeichen = begriffArray[ i ].charAt( d );
+                int j = i + 1;
+                while ( j < bis[ z ] && begriffArray[ j ].charAt( d ) == zeichen ) {
+
+                    j++;
+                }
+
+                if ( anzahlZustaende == kapazitaet ) {
+
+                    kapazitaet    = kapazitaet * 2;
+                    von           = Arrays.copyOf( von,           kapazitaet     );
+                    bis           = Arrays.copyOf( bis,           kapazitaet     );
+                    tiefe         = Arrays.copyOf( tiefe,         kapazitaet     );
+                    zielId        = Arrays.copyOf( zielId,        kapazitaet     );
+                    kantenStart   = Arrays.copyOf( kantenStart,   kapazitaet + 1 );
+                    kantenZeichen = Arrays.copyOf( kantenZeichen, kapazitaet     );
+                    kantenZiel    = Arrays.copyOf( kantenZiel,    kapazitaet     );
+                }
+
+                von[ anzahlZustaende ]   = i;
+                bis[ anzahlZustaende ]   = j;
+                tiefe[ anzahlZustaende ] = d + 1;
+
+                kantenZeichen[ anzahlKanten ] = zeichen;
+                kantenZiel[ anzahlKanten ]    = anzahlZustaende;
+                anzahlKanten++;
+                anzahlZustaende++;
+
+                i = j;
+            }
+        }
+        kantenStart[ anzahlZustaende ] = anzahlKanten;
+
+        final BegriffAutomat automat = new BegriffAutomat( Arrays.copyOf( kantenStart, anzahlZustaende + 1 ),
+                                                           Arrays.copyOf( kantenZeichen, anzahlKanten ),
+                                                           Arrays.copyOf( kantenZiel, anzahlKanten ),
+                                                           new int[ anzahlZustaende ],
+                                                           new int[ anzahlZustaende ],
+                                                           Arrays.copyOf( zielId, anzahlZustaende ),
+                                                           Arrays.copyOf( tiefe, anzahlZustaende ) );
+        automat.fehlerBerechnen();
+
+        return automat;
+    }
+
+
+    /**
+     * Fehlerübergänge und Ausgabe-Verweise in Breitensuche berechnen; weil die Zustände in
+     * Breitensuche nummeriert sind, reicht dafür eine Schleife über die Nummern.
+     */
+    private void fehlerBerechnen() {
+
+        _ausgabe[ 0 ] = -1;
+
+        for ( int z = 0; z < _fehler.length; z++ ) {
+
+            for ( int k = _kantenStart[ z ]; k < _kantenStart[ z + 1 ]; k++ ) {
+
+                final int kind = _kantenZiel[ k ];
+
+                int fehler = 0;
+                if ( z != 0 ) {
+
+                    int f = _fehler[ z ];
+                    int t = uebergang( f, _kantenZeichen[ k ] );
+                    while ( t < 0 && f != 0 ) {
+
+                        f = _fehler[ f ];
+                        t = uebergang( f, _kantenZeichen[ k ] );
+                    }
+                    fehler = t < 0 ? 0 : t;
+                }
+
+                _fehler[ kind ]  = fehler;
+                _ausgabe[ kind ] = _zielId[ fehler ] >= 0 ? fehler : _ausgabe[ fehler ];
+            }
+        }
+    }
+
+
+    /**
+     * Übergang von Zustand {@code zustand} mit {@code zeichen} (binäre Suche).
+     *
+     * @return Zielzustand oder -1, wenn es keinen Übergang gibt
+     */
+    private int uebergang( int zustand, char zeichen ) {
+
+        int links  = _kantenStart[ zustand ];
+        int rechts = _kantenStart[ zustand + 1 ] - 1;
+        while ( links <= rechts ) {
+
+            final int  mitte        = ( links + rechts ) >>> 1;
+            final char zeichenMitte = _kantenZeichen[ mitte ];
+            if ( zeichenMitte < zeichen ) {
+
+                links = mitte + 1;
+
+            } else if ( zeichenMitte > zeichen ) {
+
+                rechts = mitte - 1;
+
+            } else {
+
+                return _kantenZiel[ mitte ];
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Alle Vorkommen von Begriffen in {@code text} suchen. Überlappen sich Treffer, dann
+     * gewinnt der am weitesten links beginnende und dann der längste.
+     *
+     * @param text Zu durchsuchender Text
+     *
+     * @param eigeneId ID des Eintrags, zu dem der Text gehört; sein eigener Begriff wird
+     *                 nicht gefunden
+     *
+     * @return Treffer, nach Position sortiert
+     */
+    VerlinkterText.Verweise finden( String text, long eigeneId ) {
+
+        final int laenge = text.length();
+
+        // für jede Endposition der längste passende Begriff, gespeichert an seiner Startposition
+        final int[]  laengeAb = new int[ laenge ];
+        final long[] zielAb   = new long[ laenge ];
+
+        int anzahlTreffer = 0;
+        int zustand       = 0;
+        for ( int i = 0; i < laenge; i++ ) {
+
+            final char zeichen = Character.toLowerCase( text.charAt( i ) );
+
+            int t = uebergang( zustand, zeichen );
+            while ( t < 0 && zustand != 0 ) {
+
+                zustand = _fehler[ zustand ];
+                t       = uebergang( zustand, zeichen );
+            }
+            zustand = t < 0 ? 0 : t;
+
+            final boolean grenzeRechts = i + 1 == laenge || !istWortzeichen( text.charAt( i + 1 ) );
+            if ( !grenzeRechts ) {
+
+                continue;
+            }
+
+            int ausgabe = _zielId[ zustand ] >= 0 ? zustand : _ausgabe[ zustand ];
+            while ( ausgabe >= 0 ) {
+
+                final int start = i + 1 - _tiefe[ ausgabe ];
+                if ( ( start == 0 || !istWortzeichen( text.charAt( start - 1 ) ) ) && _zielId[ ausgabe ] != eigeneId ) {
+
+                    if ( laengeAb[ start ] == 0 ) {
+
+                        anzahlTreffer++;
+                    }
+                    if ( _tiefe[ ausgabe ] > laengeAb[ start ] ) {
+
+                        laengeAb[ start ] = _tiefe[ ausgabe ];
+                        zielAb[ start ]   = _zielId[ ausgabe ];
+                    }
+                    break;
+                }
+                ausgabe = _ausgabe[ ausgabe ];
+            }
+        }
+
+        final int[]  startArray = new int[ anzahlTreffer ];
+        final int[]  endeArray  = new int[ anzahlTreffer ];
+        final long[] zielArray  = new long[ anzahlTreffer ];
+
+        int anzahl = 0;
+        int i      = 0;
+        while ( i < laenge ) {
+
+            if ( laengeAb[ i ] > 0 ) {
+
+                startArray[ anzahl ] = i;
+                endeArray[ anzahl ]  = i + laengeAb[ i ];
+                zielArray[ anzahl ]  = zielAb[ i ];
+                anzahl++;
+                i += laengeAb[ i ];
+
+            } else {
+
+                i++;
+            }
+        }
+
+        return new VerlinkterText.Verweise( Arrays.copyOf( startArray, anzahl ),
+                                            Arrays.copyOf( endeArray, anzahl ),
+                                            Arrays.copyOf( zielArray, anzahl ) );
+    }
+
+
+    /**
+     * Anzahl Zustände, z.B. für Metriken.
+     *
+     * @return Anzahl Zustände inkl. Startzustand
+     */
+    int getAnzahlZustaende() {
+
+        return _fehler.length;
+    }
+
+
+    private static String normalisieren( String begriff ) {
+
+        final char[] zeichenArray = begriff.toCharArray();
+        for ( int i = 0; i < zeichenArray.length; i++ ) {
+
+            zeichenArray[ i ] = Character.toLowerCase( zeichenArray[ i ] );
+        }
+
+        return new String( zeichenArray );
+    }
+
+
+    private static boolean istWortzeichen( char zeichen ) {
+
+        return Character.isLetterOrDigit( zeichen );
+    }
+
+}
@@ -0,0 +1,202 @@
+package de.eldecker.dhbw.spring.glossar.index;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+
+/**
+ * Binäres Snapshot-Format für die Begriffe des Glossars, damit ein Index im Hauptspeicher
+ * beim Programmstart nicht aus der Datenbank aufgebaut werden muss. Die Datei wird beim Laden
+ * in den Speicher gemappt (<i>memory-mapped</i>), also ohne Kopie über Puffer gelesen.
+ * <br><br>
+ *
+ * Aufbau der Datei (alle Zahlen <i>Big Endian</i>):
+ * <pre>
+ * Kopf (32 Bytes):
+ *   int  Magic-Number 0x474C5353 ("GLSS")
+ *   int  Formatversion
+ *   long Sequenznummer (siehe Aenderungsfeed), bis zu der alle Änderungen enthalten sind
+ *   int  Anzahl Einträge
+ *   int  Länge des Datenteils in Bytes
+ *   long CRC32-Prüfsumme des Datenteils
+ * Datenteil, pro Eintrag:
+ *   long ID
+ *   int  Länge des Begriffs in Bytes
+ *   byte Begriff (UTF-8)
+ * </pre>
+ *
+ * Eine Datei mit anderer Magic-Number, anderer Formatversion oder falscher Prüfsumme wird
+ * nicht verwendet. Die Datei wird zuerst unter einem temporären Namen geschrieben und dann
+ * umbenannt, damit nach einem Absturz während des Schreibens noch die alte Datei vorhanden ist.
+ *
+ * @param sequenz Sequenznummer, bis zu der alle Änderungen im Snapshot enthalten sind
+ *
+ * @param idArray IDs der Einträge
+ *
+ * @param begriffArray Begriffe der Einträge, gleiche Reihenfolge wie {@code idArray}
+ */
+public record BegriffSnapshot( long sequenz,
+                               long[] idArray,
+                               String[] begriffArray
+                             ) {
+
+    /** Magic-Number am Anfang der Datei: "GLSS" in ASCII. */
+    private static final int MAGIC = 0x474C5353;
+
+    /** Aktuelle Formatversion; muss bei jeder Änderung des Aufbaus erhöht werden. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Länge des Kopfs in Bytes. */
+    private static final int LAENGE_KOPF = 32;
+
+
+    /**
+     * Snapshot in Datei schreiben.
+     *
+     * @param datei Zieldatei; das Verzeichnis muss existieren
+     *
+     * @param sequenz Sequenznummer, bis zu der alle Änderungen in {@code begriffMap} enthalten sind
+     *
+     * @param begriffMap Map von ID auf Begriff
+     *
+     * @return Größe der Datei in Bytes
+     *
+     * @throws IOException Fehler beim Schreiben
+     */
+    public static long schreiben( Path datei, long sequenz, Map<Long, String> begriffMap ) throws IOException {
+
+        int laengeDaten = 0;
+        final byte[][] utf8Array = new byte[ begriffMap.size() ][];
+        final long[]   idArray   = new long[ begriffMap.size() ];
+
+        int index = 0;
+        for ( Map.Entry<Long, String> eintrag : begriffMap.entrySet() ) {
+
+            idArray[ index ]   = eintrag.getKey();
+            utf8Array[ index ] = eintrag.getValue().getBytes( UTF_8 );
+            laengeDaten       += Long.BYTES + Integer.BYTES + utf8Array[ index ].length;
+            index++;
+        }
+
+        final ByteBuffer daten = ByteBuffer.allocate( laengeDaten );
+        for ( int i = 0; i < idArray.length; i++ ) {
+
+            daten.putLong( idArray[ i ] );
+            daten.putInt( utf8Array[ i ].length );
+            daten.put( utf8Array[ i ] );
+        }
+        daten.flip();
+
+        final CRC32 crc = new CRC32();
+        crc.update( daten.duplicate() );
+
+        final ByteBuffer kopf = ByteBuffer.allocate( LAENGE_KOPF );
+        kopf.putInt( MAGIC );
+        kopf.putInt( FORMAT_VERSION );
+        kopf.putLong( sequenz );
+        kopf.putInt( idArray.length );
+        kopf.putInt( laengeDaten );
+        kopf.putLong( crc.getValue() );
+        kopf.flip();
+
+        final Path temp = datei.resolveSibling( datei.getFileName() + ".tmp" );
+        try ( FileChannel kanal = FileChannel.open( temp, CREATE, WRITE, TRUNCATE_EXISTING ) ) {
+
+            while ( kopf.hasRemaining() || daten.hasRemaining() ) {
+
+                kanal.write( new ByteBuffer[] { kopf, daten } );
+            }
+            kanal.force( true );
+        }
+        Files.move( temp, datei, REPLACE_EXISTING, ATOMIC_MOVE );
+
+        return LAENGE_KOPF + laengeDaten;
+    }
+
+
+    /**
+     * Snapshot aus Datei lesen; die Datei wird dafür in den Speicher gemappt.
+     *
+     * @param datei Zu lesende Datei
+     *
+     * @return Gelesener Snapshot
+     *
+     * @throws IOException Fehler beim Lesen, oder Datei hat falsches Format, falsche
+     *                     Version oder falsche Prüfsumme
+     */
+    public static BegriffSnapshot lesen( Path datei ) throws IOException {
+
+        try ( FileChannel kanal = FileChannel.open( datei, READ ) ) {
+
+            final long groesse = kanal.size();
+            if ( groesse < LAENGE_KOPF ) {
+
+                throw new IOException( "Snapshot-Datei zu kurz: " + groesse + " Bytes" );
+            }
+
+            final MappedByteBuffer puffer = kanal.map( MapMode.READ_ONLY, 0, groesse );
+
+            final int magic = puffer.getInt();
+            if ( magic != MAGIC ) {
+
+                throw new IOException( "Keine Snapshot-Datei (Magic-Number falsch)." );
+            }
+            final int version = puffer.getInt();
+            if ( version != FORMAT_VERSION ) {
+
+                throw new IOException( "Snapshot-Datei hat Formatversion " + version + ", erwartet: " + FORMAT_VERSION );
+            }
+            final long sequenz     = puffer.getLong();
+            final int  anzahl      = puffer.getInt();
+            final int  laengeDaten = puffer.getInt();
+            final long pruefsumme  = puffer.getLong();
+
+            if ( anzahl < 0 || laengeDaten < 0 || LAENGE_KOPF + (long) laengeDaten != groesse ) {
+
+                throw new IOException( "Snapshot-Datei hat ungültige Länge." );
+            }
+
+            final ByteBuffer daten = puffer.slice( LAENGE_KOPF, laengeDaten );
+
+            final CRC32 crc = new CRC32();
+            crc.update( daten.duplicate() );
+            if ( crc.getValue() != pruefsumme ) {
+
+                throw new IOException( "Prüfsumme der Snapshot-Datei ist falsch." );
+            }
+
+            final long[]   idArray      = new long[ anzahl ];
+            final String[] begriffArray = new String[ anzahl ];
+            final byte[]   utf8Puffer   = new byte[ laengeDaten ];
+            for ( int i = 0; i < anzahl; i++ ) {
+
+                idArray[ i ] = daten.getLong();
+                final int laenge = daten.getInt();
+                daten.get( utf8Puffer, 0, laenge );
+                begriffArray[ i ] = new String( utf8Puffer, 0, laenge, UTF_8 );
+            }
+
+            return new BegriffSnapshot( sequenz, idArray, begriffArray );
+        }
+        catch ( RuntimeException ex ) { // z.B. BufferUnderflowException bei kaputtem Datenteil
+
+            throw new IOException( "Snapshot-Datei kann nicht gelesen werden: " + ex.getMessage(), ex );
+        }
+    }
+
+}
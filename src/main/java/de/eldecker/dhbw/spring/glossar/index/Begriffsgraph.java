@@ -0,0 +1,758 @@
+package de.eldecker.dhbw.spring.glossar.index;
+
+import static java.util.Locale.ROOT;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
+
+
+/**
+ * Graph der Glossareinträge für die Abschnitte "Verwandte Begriffe" und "Verweise auf diesen
+ * Begriff" auf der Seite {@code /app/eintrag/{id}}.
+ * <br><br>
+ *
+ * Kanten sind die Querverweise aus {@link Querverweise}: Eintrag A verweist auf B, wenn der
+ * Begriff von B in der Erklärung von A vorkommt. Verwandt sind Einträge, die aufeinander
+ * verweisen, in denselben Erklärungen genannt werden oder in ihren Erklärungen dieselben
+ * Begriffe verwenden; für jeden Eintrag werden die am stärksten verwandten vorberechnet.
+ * Begriffe, die in sehr vielen Erklärungen vorkommen, zählen dabei nicht als gemeinsames
+ * Vokabular (wie Stoppwörter).
+ * <br><br>
+ *
+ * Der Graph liegt im CSR-Format vor (pro Eintrag ein Bereich in einem gemeinsamen
+ * {@code int}-Array mit den Indizes der Nachbarn), ein Nachschlagen kostet also nur eine
+ * binäre Suche nach der ID und ist dann linear im Grad. Er wird im Hintergrund vollständig
+ * aufgebaut: beim Programmstart, wenn ein Begriff hinzukommt oder umbenannt wird, und wenn
+ * sich zu viele Einträge seit dem letzten Aufbau geändert haben; höchstens einmal pro
+ * konfiguriertem Abstand. Dafür werden alle Erklärungen
+ * blockweise gelesen und die Verweise sowie die verwandten Einträge mit einem
+ * {@link ForkJoinPool} auf allen Prozessorkernen berechnet.
+ * <br><br>
+ *
+ * Nach dem Speichern eines Eintrags werden seine neuen Verweise sofort berücksichtigt: sie
+ * liegen bis zum nächsten Aufbau in einer kleinen Map, die beim Nachschlagen der Verweise
+ * auf einen Eintrag zusätzlich durchsucht wird.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.graph.kanten}: Anzahl Verweise im zuletzt aufgebauten Graph</li>
+ * <li>{@code glossar.graph.geaendert}: Anzahl seit dem letzten Aufbau geänderter Einträge</li>
+ * </ul>
+ */
+@Component
+public class Begriffsgraph implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( Begriffsgraph.class );
+
+    /** Anzahl Einträge, die pro Block von der Datenbank gelesen werden. */
+    private static final int SEITE_MAX = 500;
+
+    /** Ab so vielen geänderten Einträgen wird der Graph neu aufgebaut. */
+    private static final int GEAENDERT_MAX = 500;
+
+    /** Begriffe, auf die mehr Einträge verweisen, zählen nicht als gemeinsames Vokabular. */
+    private static final int GRAD_VOKABULAR_MAX = 100;
+
+    /** Gewicht eines direkten Verweises zwischen zwei Einträgen. */
+    private static final int GEWICHT_VERWEIS = 2;
+
+    /** Einträge müssen mindestens diese Punktzahl haben, damit sie als verwandt gelten. */
+    private static final int PUNKTE_MIN = 2;
+
+    /** Anzahl Einträge, die eine Teilaufgabe im {@link ForkJoinPool} mindestens bearbeitet. */
+    private static final int TEILAUFGABE_MIN = 64;
+
+    /**
+     * Adjazenzlisten im CSR-Format: die Nachbarn von Knoten {@code i} stehen in
+     * {@code ziel[start[i]]} bis {@code ziel[start[i+1]-1]}.
+     */
+    private record Csr( int[] start, int[] ziel ) {
+
+        int grad( int knoten ) {
+
+            return start[ knoten + 1 ] - start[ knoten ];
+        }
+    }
+
+    /**
+     * Aufgebauter Graph; Knoten sind die Indizes in {@code idArray}.
+     *
+     * @param begriffeVersion Version der Begriffe, mit der die Verweise berechnet wurden
+     *
+     * @param idArray IDs der Einträge, aufsteigend sortiert
+     *
+     * @param verweise Verweise von jedem Eintrag auf andere, nach Index sortiert
+     *
+     * @param verweisend Umkehrung von {@code verweise}
+     *
+     * @param verwandt Verwandte Einträge, die am stärksten verwandten zuerst
+     */
+    private record Graph( long begriffeVersion, long[] idArray, Csr verweise, Csr verweisend, Csr verwandt ) {
+
+        int index( long id ) {
+
+            return Arrays.binarySearch( idArray, id );
+        }
+    }
+
+    /** Adjazenzlisten ohne Knoten. */
+    private static final Csr CSR_LEER = new Csr( new int[] { 0 }, new int[ 0 ] );
+
+    /** Graph ohne Einträge, bis der erste Aufbau fertig ist. */
+    private static final Graph GRAPH_LEER = new Graph( -1, new long[ 0 ], CSR_LEER, CSR_LEER, CSR_LEER );
+
+    /** Repository-Bean, von der beim Aufbau alle Erklärungen gelesen werden. */
+    private final Datenbank _datenbank;
+
+    /** Bean für die Suche nach Verweisen in den Erklärungen. */
+    private final Querverweise _querverweise;
+
+    /** Bean mit den Begriffen für die Anzeige. */
+    private final Begriffsindex _begriffsindex;
+
+    /** Max Anzahl verwandter Einträge pro Eintrag. */
+    private final int _verwandtMax;
+
+    /** Anzahl Threads für den Aufbau. */
+    private final int _anzahlThreads;
+
+    /** Mindestabstand zwischen zwei Aufbauten in Millisekunden. */
+    private final long _abstandMillis;
+
+    /** Zuletzt aufgebauter Graph, wird als Ganzes ersetzt. */
+    private volatile Graph _graph = GRAPH_LEER;
+
+    /**
+     * Verweise (IDs, aufsteigend sortiert) der seit dem letzten Aufbau gespeicherten Einträge;
+     * haben Vorrang vor den Verweisen im Graph.
+     */
+    private final Map<Long, long[]> _geaendertMap = new ConcurrentHashMap<>();
+
+    /** Wird bei jeder Änderung des Graphen erhöht, siehe {@link #getVersion()}. */
+    private final AtomicLong _version = new AtomicLong( 0 );
+
+    /** Signal für Hintergrund-Thread: Graph muss neu aufgebaut werden. */
+    private final Semaphore _signal = new Semaphore( 0 );
+
+    /** Thread, der den Graph aufbaut. */
+    private Thread _aufbauThread = null;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}.
+     */
+    @Autowired
+    public Begriffsgraph( Datenbank datenbank,
+                          Querverweise querverweise,
+                          Begriffsindex begriffsindex,
+                          @Value( "${de.eldecker.glossar.graph.verwandt.max:8}"          ) int  verwandtMax,
+                          @Value( "${de.eldecker.glossar.graph.threads:0}"               ) int  anzahlThreads,
+                          @Value( "${de.eldecker.glossar.graph.aufbau.abstand.ms:10000}" ) long abstandMillis ) {
+
+        _datenbank     = datenbank;
+        _querverweise  = querverweise;
+        _begriffsindex = begriffsindex;
+        _verwandtMax   = verwandtMax;
+        _anzahlThreads = anzahlThreads > 0 ? anzahlThreads : Runtime.getRuntime().availableProcessors();
+        _abstandMillis = abstandMillis;
+    }
+
+
+    /**
+     * Hintergrund-Thread starten, der den Graph sofort zum ersten Mal aufbaut, und bei
+     * {@link Querverweise} für die Verweise gespeicherter Einträge registrieren.
+     */
+    @PostConstruct
+    private void starten() {
+
+        _querverweise.beobachterHinzufuegen( this::verweiseGeaendert );
+
+        _aufbauThread = new Thread( this::aufbauSchleife, "begriffsgraph" );
+        _aufbauThread.setDaemon( true );
+        _aufbauThread.start();
+
+        _signal.release();
+    }
+
+
+    /**
+     * Hintergrund-Thread beenden.
+     */
+    @PreDestroy
+    private void beenden() {
+
+        _aufbauThread.interrupt();
+    }
+
+
+    /**
+     * Einträge, die auf einen Eintrag verweisen, nach Begriff sortiert.
+     *
+     * @param id ID des Eintrags
+     *
+     * @return Liste mit ID und Begriff der verweisenden Einträge, evtl. leer
+     */
+    public Begriffsliste getVerweisende( long id ) {
+
+        final Graph graph = _graph;
+
+        final List<Long> idListe = new ArrayList<>();
+
+        final int index = graph.index( id );
+        if ( index >= 0 ) {
+
+            final Csr verweisend = graph.verweisend();
+            for ( int k = verweisend.start()[ index ]; k < verweisend.start()[ index + 1 ]; k++ ) {
+
+                final long quelle = graph.idArray()[ verweisend.ziel()[ k ] ];
+                if ( !_geaendertMap.containsKey( quelle ) ) {
+
+                    idListe.add( quelle );
+                }
+            }
+        }
+
+        _geaendertMap.forEach( ( quelle, zielArray ) -> {
+
+            if ( Arrays.binarySearch( zielArray, id ) >= 0 ) {
+
+                idListe.add( quelle );
+            }
+        });
+
+        return begriffslisteErzeugen( idListe, true );
+    }
+
+
+    /**
+     * Verwandte Einträge, die am stärksten verwandten zuerst. Für Einträge, die seit dem
+     * letzten Aufbau neu angelegt wurden, sind das bis zum nächsten Aufbau die Einträge,
+     * auf die sie verweisen.
+     *
+     * @param id ID des Eintrags
+     *
+     * @return Liste mit ID und Begriff der verwandten Einträge, evtl. leer
+     */
+    public Begriffsliste getVerwandte( long id ) {
+
+        final Graph graph = _graph;
+
+        final List<Long> idListe = new ArrayList<>();
+
+        final int index = graph.index( id );
+        if ( index >= 0 ) {
+
+            final Csr verwandt = graph.verwandt();
+            for ( int k = verwandt.start()[ index ]; k < verwandt.start()[ index + 1 ]; k++ ) {
+
+                idListe.add( graph.idArray()[ verwandt.ziel()[ k ] ] );
+            }
+
+        } else {
+
+            final long[] zielArray = _geaendertMap.get( id );
+            if ( zielArray != null ) {
+
+                for ( int i = 0; i < zielArray.length && idListe.size() < _verwandtMax; i++ ) {
+
+                    idListe.add( zielArray[ i ] );
+                }
+            }
+        }
+
+        return begriffslisteErzeugen( idListe, false );
+    }
+
+
+    /**
+     * Version des Graphen, z.B. für den ETag der Seite eines Eintrags: ändert sich, wenn sich
+     * die Verweise eines Eintrags geändert haben oder der Graph neu aufgebaut wurde.
+     *
+     * @return Version, nur innerhalb eines Programmlaufs vergleichbar
+     */
+    public long getVersion() {
+
+        return _version.get();
+    }
+
+
+    /**
+     * Wird von {@link Querverweise} nach dem Speichern eines Eintrags aufgerufen.
+     *
+     * @param id ID des gespeicherten Eintrags
+     *
+     * @param verweise Neue Verweise in der Erklärung des Eintrags
+     */
+    private void verweiseGeaendert( long id, VerlinkterText.Verweise verweise ) {
+
+        final long[] zielArray = Arrays.stream( verweise.zielArray() ).distinct().sorted().toArray();
+
+        final long[] zielArrayAlt = _geaendertMap.put( id, zielArray );
+        if ( !Arrays.equals( zielArray, zielArrayAlt != null ? zielArrayAlt : verweiseImGraph( id ) ) ) {
+
+            _version.incrementAndGet();
+        }
+
+        if ( _geaendertMap.size() > GEAENDERT_MAX || _graph.begriffeVersion() != _querverweise.getVersion() ) {
+
+            _signal.release();
+        }
+    }
+
+
+    /**
+     * Verweise eines Eintrags im zuletzt aufgebauten Graph.
+     *
+     * @param id ID des Eintrags
+     *
+     * @return IDs, auf die der Eintrag verweist, aufsteigend sortiert; {@code null} wenn
+     *         der Eintrag nicht im Graph ist
+     */
+    private long[] verweiseImGraph( long id ) {
+
+        final Graph graph = _graph;
+        final int   index = graph.index( id );
+        if ( index < 0 ) {
+
+            return null;
+        }
+
+        final Csr    verweise  = graph.verweise();
+        final long[] zielArray = new long[ verweise.grad( index ) ];
+        for ( int k = 0; k < zielArray.length; k++ ) {
+
+            zielArray[ k ] = graph.idArray()[ verweise.ziel()[ verweise.start()[ index ] + k ] ];
+        }
+
+        return zielArray;
+    }
+
+
+    /**
+     * IDs mit Begriffen aus dem {@link Begriffsindex} versehen.
+     *
+     * @param idListe IDs der Einträge
+     *
+     * @param sortieren {@code true} wenn nach Begriff sortiert werden soll, sonst bleibt die
+     *                  Reihenfolge erhalten
+     *
+     * @return Liste mit ID und Begriff
+     */
+    private Begriffsliste begriffslisteErzeugen( List<Long> idListe, boolean sortieren ) {
+
+        if ( idListe.isEmpty() ) {
+
+            return Begriffsliste.LEER;
+        }
+
+        final List<Map.Entry<Long, String>> eintragListe = new ArrayList<>( idListe.size() );
+        for ( long id : idListe ) {
+
+            _begriffsindex.getBegriff( id ).ifPresent( begriff -> eintragListe.add( Map.entry( id, begriff ) ) );
+        }
+        if ( sortieren ) {
+
+            eintragListe.sort( Comparator.comparing( ( Map.Entry<Long, String> eintrag ) -> eintrag.getValue().toLowerCase( ROOT ) )
+                                         .thenComparing( Map.Entry::getKey ) );
+        }
+
+        final Begriffsliste.Sammler sammler = new Begriffsliste.Sammler();
+        for ( Map.Entry<Long, String> eintrag : eintragListe ) {
+
+            sammler.hinzufuegen( eintrag.getKey(), eintrag.getValue() );
+        }
+
+        return sammler.erzeugen();
+    }
+
+
+    /**
+     * Schleife des Hintergrund-Threads.
+     */
+    private void aufbauSchleife() {
+
+        long letzterAufbauMillis = 0;
+        while ( !Thread.currentThread().isInterrupted() ) {
+
+            try {
+
+                _signal.acquire();
+
+                // viele Änderungen kurz hintereinander (z.B. Batch) führen nur zu einem Aufbau
+                final long warteMillis = letzterAufbauMillis + _abstandMillis - System.currentTimeMillis();
+                if ( warteMillis > 0 ) {
+
+                    Thread.sleep( warteMillis );
+                }
+                _signal.drainPermits();
+
+                letzterAufbauMillis = System.currentTimeMillis();
+                aufbauen();
+            }
+            catch ( InterruptedException ex ) {
+
+                return;
+            }
+            catch ( RuntimeException ex ) {
+
+                LOG.error( "Fehler beim Aufbau des Begriffsgraphen.", ex );
+            }
+        }
+    }
+
+
+    /**
+     * Graph aus allen Erklärungen neu aufbauen und den alten ersetzen.
+     */
+    private void aufbauen() {
+
+        final long startNanos = System.nanoTime();
+
+        // Änderungen, die danach noch kommen, bleiben in der Map
+        final Map<Long, long[]> geaendertKopie  = new HashMap<>( _geaendertMap );
+        final long              begriffeVersion = _querverweise.getVersion();
+
+        final Graph graph;
+        try ( ForkJoinPool pool = new ForkJoinPool( _anzahlThreads ) ) {
+
+            graph = graphAufbauen( pool, begriffeVersion );
+        }
+
+        _graph = graph;
+        geaendertKopie.forEach( _geaendertMap::remove );
+        _version.incrementAndGet();
+
+        LOG.info( "Begriffsgraph mit {} Einträgen und {} Verweisen aufgebaut ({} ms).",
+                  graph.idArray().length, graph.verweise().ziel().length,
+                  ( System.nanoTime() - startNanos ) / 1_000_000 );
+    }
+
+
+    /**
+     * Erklärungen blockweise lesen, Verweise suchen und daraus den Graph erzeugen.
+     *
+     * @param pool Pool für die parallele Berechnung
+     *
+     * @param begriffeVersion Version der Begriffe vor dem Lesen der Erklärungen
+     *
+     * @return Neuer Graph
+     */
+    private Graph graphAufbauen( ForkJoinPool pool, long begriffeVersion ) {
+
+        final List<EintragFeld> felder = List.of( EintragFeld.ERKLAERUNG );
+
+        final List<long[]>   idBlockListe   = new ArrayList<>();
+        final List<long[][]> zielBlockListe = new ArrayList<>();
+
+        int anzahl = 0;
+        for ( List<Object[]> zeilenListe : _datenbank.getEintraegeProjektionSeiten( felder, SEITE_MAX ) ) {
+
+            final long[]   idBlock   = new long[ zeilenListe.size() ];
+            final long[][] zielBlock = new long[ zeilenListe.size() ][];
+            pool.invoke( new VerweiseSuchen( zeilenListe, idBlock, zielBlock, 0, zeilenListe.size() ) );
+
+            idBlockListe.add( idBlock );
+            zielBlockListe.add( zielBlock );
+            anzahl += idBlock.length;
+        }
+
+        // IDs kommen aufsteigend sortiert von der Datenbank
+        final long[]   idArray   = new long[ anzahl ];
+        final long[][] zielArray = new long[ anzahl ][];
+        int i = 0;
+        for ( int b = 0; b < idBlockListe.size(); b++ ) {
+
+            System.arraycopy( idBlockListe.get( b ),   0, idArray,   i, idBlockListe.get( b ).length );
+            System.arraycopy( zielBlockListe.get( b ), 0, zielArray, i, idBlockListe.get( b ).length );
+            i += idBlockListe.get( b ).length;
+        }
+
+        final int[] verweiseStart = new int[ anzahl + 1 ];
+        final int[] verweiseZiel;
+        {
+            int anzahlKanten = 0;
+            for ( int k = 0; k < anzahl; k++ ) {
+
+                anzahlKanten += zielArray[ k ].length;
+            }
+
+            final int[] ziel = new int[ anzahlKanten ];
+            int position = 0;
+            for ( int k = 0; k < anzahl; k++ ) {
+
+                verweiseStart[ k ] = position;
+                for ( long zielId : zielArray[ k ] ) {
+
+                    final int zielIndex = Arrays.binarySearch( idArray, zielId );
+                    if ( zielIndex >= 0 ) {
+
+                        ziel[ position++ ] = zielIndex; // aufsteigend, weil IDs sortiert
+                    }
+                }
+            }
+            verweiseStart[ anzahl ] = position;
+            verweiseZiel = Arrays.copyOf( ziel, position );
+        }
+
+        final Csr verweise   = new Csr( verweiseStart, verweiseZiel );
+        final Csr verweisend = umkehren( verweise, anzahl );
+
+        final int[][] verwandtArray = new int[ anzahl ][];
+        pool.invoke( new VerwandteBerechnen( verweise, verweisend, verwandtArray, 0, anzahl ) );
+
+        final int[] verwandtStart = new int[ anzahl + 1 ];
+        int anzahlVerwandt = 0;
+        for ( int k = 0; k < anzahl; k++ ) {
+
+            verwandtStart[ k ] = anzahlVerwandt;
+            anzahlVerwandt += verwandtArray[ k ].length;
+        }
+        verwandtStart[ anzahl ] = anzahlVerwandt;
+
+        final int[] verwandtZiel = new int[ anzahlVerwandt ];
+        for ( int k = 0; k < anzahl; k++ ) {
+
+            System.arraycopy( verwandtArray[ k ], 0, verwandtZiel, verwandtStart[ k ], verwandtArray[ k ].length );
+        }
+
+        return new Graph( begriffeVersion, idArray, verweise, verweisend, new Csr( verwandtStart, verwandtZiel ) );
+    }
+
+
+    /**
+     * Umgekehrten Graph erzeugen (zwei Durchläufe: Grad zählen, dann einsortieren).
+     *
+     * @param csr Graph
+     *
+     * @param anzahl Anzahl Knoten
+     *
+     * @return Graph mit umgekehrten Kanten, Nachbarn aufsteigend sortiert
+     */
+    private static Csr umkehren( Csr csr, int anzahl ) {
+
+        final int[] start = new int[ anzahl + 1 ];
+        for ( int ziel : csr.ziel() ) {
+
+            start[ ziel + 1 ]++;
+        }
+        for ( int k = 0; k < anzahl; k++ ) {
+
+            start[ k + 1 ] += start[ k ];
+        }
+
+        final int[] position = Arrays.copyOf( start, anzahl );
+        final int[] quelle   = new int[ csr.ziel().length ];
+        for ( int k = 0; k < anzahl; k++ ) {
+
+            for ( int j = csr.start()[ k ]; j < csr.start()[ k + 1 ]; j++ ) {
+
+                quelle[ position[ csr.ziel()[ j ] ]++ ] = k;
+            }
+        }
+
+        return new Csr( start, quelle );
+    }
+
+
+    /**
+     * Teilaufgabe: Verweise in einem Bereich eines Blocks von Erklärungen suchen.
+     */
+    @SuppressWarnings( "serial" ) // wird nie serialisiert
+    private final class VerweiseSuchen extends RecursiveAction {
+
+        private final List<Object[]> _zeilenListe;
+        private final long[]         _idBlock;
+        private final long[][]       _zielBlock;
+        private final int            _von;
+        private final int            _bis;
+
+        VerweiseSuchen( List<Object[]> zeilenListe, long[] idBlock, long[][] zielBlock, int von, int bis ) {
+
+            _zeilenListe = zeilenListe;
+            _idBlock     = idBlock;
+            _zielBlock   = zielBlock;
+            _von         = von;
+            _bis         = bis;
+        }
+
+        @Override
+        protected void compute() {
+
+            if ( _bis - _von > TEILAUFGABE_MIN ) {
+
+                final int mitte = ( _von + _bis ) >>> 1;
+                invokeAll( new VerweiseSuchen( _zeilenListe, _idBlock, _zielBlock, _von, mitte ),
+                           new VerweiseSuchen( _zeilenListe, _idBlock, _zielBlock, mitte, _bis ) );
+                return;
+            }
+
+            for ( int i = _von; i < _bis; i++ ) {
+
+                final Object[] zeile      = _zeilenListe.get( i );
+                final long     id         = (Long) zeile[ 0 ];
+                final String   erklaerung = zeile[ 1 ] == null ? "" : (String) zeile[ 1 ];
+
+                _idBlock[ i ]   = id;
+                _zielBlock[ i ] = Arrays.stream( _querverweise.verweiseSuchen( id, erklaerung ).zielArray() )
+                                        .distinct().sorted().toArray();
+            }
+        }
+    }
+
+
+    /**
+     * Teilaufgabe: verwandte Einträge für einen Bereich von Knoten berechnen. Punkte bekommt
+     * ein anderer Eintrag für jeden direkten Verweis (in beide Richtungen), für jeden Begriff,
+     * auf den beide verweisen, und für jede Erklärung, die auf beide verweist.
+     */
+    @SuppressWarnings( "serial" ) // wird nie serialisiert
+    private final class VerwandteBerechnen extends RecursiveAction {
+
+        private final Csr     _verweise;
+        private final Csr     _verweisend;
+        private final int[][] _verwandtArray;
+        private final int     _von;
+        private final int     _bis;
+
+        VerwandteBerechnen( Csr verweise, Csr verweisend, int[][] verwandtArray, int von, int bis ) {
+
+            _verweise      = verweise;
+            _verweisend    = verweisend;
+            _verwandtArray = verwandtArray;
+            _von           = von;
+            _bis           = bis;
+        }
+
+        @Override
+        protected void compute() {
+
+            if ( _bis - _von > TEILAUFGABE_MIN ) {
+
+                final int mitte = ( _von + _bis ) >>> 1;
+                invokeAll( new VerwandteBerechnen( _verweise, _verweisend, _verwandtArray, _von, mitte ),
+                           new VerwandteBerechnen( _verweise, _verweisend, _verwandtArray, mitte, _bis ) );
+                return;
+            }
+
+            final int[] punkte     = new int[ _verwandtArray.length ];
+            final int[] kandidaten = new int[ _verwandtArray.length ];
+
+            for ( int knoten = _von; knoten < _bis; knoten++ ) {
+
+                int anzahlKandidaten = 0;
+                anzahlKandidaten = punkteVergeben( knoten, _verweise,   _verweisend, punkte, kandidaten, anzahlKandidaten );
+                anzahlKandidaten = punkteVergeben( knoten, _verweisend, _verweise,   punkte, kandidaten, anzahlKandidaten );
+
+                final Integer[] auswahl = new Integer[ anzahlKandidaten ];
+                int anzahlAuswahl = 0;
+                for ( int k = 0; k < anzahlKandidaten; k++ ) {
+
+                    final int kandidat = kandidaten[ k ];
+                    if ( kandidat != knoten && punkte[ kandidat ] >= PUNKTE_MIN ) {
+
+                        auswahl[ anzahlAuswahl++ ] = kandidat;
+                    }
+                }
+                Arrays.sort( auswahl, 0, anzahlAuswahl,
+                             Comparator.comparingInt( ( Integer kandidat ) -> -punkte[ kandidat ] )
+                                       .thenComparingInt( kandidat -> kandidat ) );
+
+                final int[] verwandt = new int[ Math.min( anzahlAuswahl, _verwandtMax ) ];
+                for ( int k = 0; k < verwandt.length; k++ ) {
+
+                    verwandt[ k ] = auswahl[ k ];
+                }
+                _verwandtArray[ knoten ] = verwandt;
+
+                for ( int k = 0; k < anzahlKandidaten; k++ ) {
+
+                    punkte[ kandidaten[ k ] ] = 0;
+                }
+            }
+        }
+
+        /**
+         * Punkte für die direkten Nachbarn von {@code knoten} in {@code hin} und deren
+         * Nachbarn in {@code zurueck} vergeben; Nachbarn mit zu hohem Grad werden für den
+         * zweiten Schritt übersprungen.
+         *
+         * @return Neue Anzahl Kandidaten
+         */
+        private int punkteVergeben( int knoten, Csr hin, Csr zurueck, int[] punkte, int[] kandidaten, int anzahlKandidaten ) {
+
+            for ( int k = hin.start()[ knoten ]; k < hin.start()[ knoten + 1 ]; k++ ) {
+
+                final int nachbar = hin.ziel()[ k ];
+                anzahlKandidaten = punkteAddieren( nachbar, GEWICHT_VERWEIS, punkte, kandidaten, anzahlKandidaten );
+
+                if ( zurueck.grad( nachbar ) > GRAD_VOKABULAR_MAX ) {
+
+                    continue;
+                }
+                for ( int j = zurueck.start()[ nachbar ]; j < zurueck.start()[ nachbar + 1 ]; j++ ) {
+
+                    anzahlKandidaten = punkteAddieren( zurueck.ziel()[ j ], 1, punkte, kandidaten, anzahlKandidaten );
+                }
+            }
+
+            return anzahlKandidaten;
+        }
+
+        private static int punkteAddieren( int kandidat, int gewicht, int[] punkte, int[] kandidaten, int anzahlKandidaten ) {
+
+            if ( punkte[ kandidat ] == 0 ) {
+
+                kandidaten[ anzahlKandidaten++ ] = kandidat;
+            }
+            punkte[ kandidat ] += gewicht;
+
+            return anzahlKandidaten;
+        }
+    }
+
+
+    /**
+     * Metriken bei Micrometer registrieren.
+     *
+     * @param registry Registry, bei der die Metriken registriert werden
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        Gauge.builder( "glossar.graph.kanten", this, graph -> graph._graph.verweise().ziel().length )
+             .description( "Anzahl Verweise im Begriffsgraph" )
+             .register( registry );
+
+        Gauge.builder( "glossar.graph.geaendert", _geaendertMap, Map::size )
+             .description( "Anzahl seit dem letzten Aufbau des Begriffsgraphen geänderter Einträge" )
+             .register( registry );
+    }
+
+}
@@ -0,0 +1,396 @@
+package de.eldecker.dhbw.spring.glossar.index;
+
+import static java.util.Locale.ROOT;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.glossar.db.Aenderungsfeed;
+import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.model.Aenderung;
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+
+
+/**
+ * Index im Hauptspeicher mit ID und Begriff aller Glossareinträge, z.B. für die Liste der
+ * Begriffe auf der Hauptseite.
+ * <br><br>
+ *
+ * Beim Programmstart wird der Index aus der Snapshot-Datei (siehe {@link BegriffSnapshot})
+ * geladen und dann mit den Änderungen aus dem {@link Aenderungsfeed} aktualisiert, die neuer
+ * als der Snapshot sind; aus der Datenbank werden also nur die wenigen Änderungen seit dem
+ * letzten Snapshot gelesen, egal wie groß das Glossar ist. Nur wenn es keine gültige
+ * Snapshot-Datei gibt, werden alle Begriffe aus der Datenbank gelesen.
+ * <br><br>
+ *
+ * Im laufenden Betrieb werden neue Änderungen vor jedem Lesen aus dem Änderungsfeed
+ * nachgezogen; in einem festen Abstand wird im Hintergrund ein neuer Snapshot geschrieben,
+ * wenn es seit dem letzten Snapshot Änderungen gab.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.index.begriffe}: Anzahl Begriffe im Index</li>
+ * <li>{@code glossar.index.snapshot.rueckstand}: Anzahl Änderungen seit dem letzten Snapshot</li>
+ * </ul>
+ */
+@Component
+public class Begriffsindex implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( Begriffsindex.class );
+
+    /** Max Anzahl Änderungen, die pro Abfrage aus dem Änderungsfeed gelesen werden. */
+    private static final int SEITE_MAX = 1000;
+
+    /** Sortierung wie in {@link Datenbank#getGlossarBegriffe()}: Begriff ohne Groß-/Kleinschreibung, dann ID. */
+    private static final Comparator<Sortiereintrag> SORTIERUNG =
+            Comparator.comparing( Sortiereintrag::begriffKlein )
+                      .thenComparingLong( Sortiereintrag::id );
+
+    /** Begriff mit vorberechnetem Sortierschlüssel, nur während des Sortierens. */
+    private record Sortiereintrag( String begriffKlein, long id, String begriff ) {}
+
+    /** Sortierte Liste mit der Sequenznummer, für die sie erzeugt wurde. */
+    private record ListeStand( long sequenz, Begriffsliste liste ) {}
+
+    /** Repository-Bean, nur für den Aufbau des Index ohne Snapshot. */
+    private final Datenbank _datenbank;
+
+    /** Änderungsfeed, mit dem der Index aktualisiert wird. */
+    private final Aenderungsfeed _aenderungsfeed;
+
+    /** Pfad der Snapshot-Datei. */
+    private final Path _snapshotDatei;
+
+    /** Map von ID auf Begriff. */
+    private final Map<Long, String> _begriffMap = new ConcurrentHashMap<>();
+
+    /** Sequenznummer, bis zu der alle Änderungen im Index enthalten sind. */
+    private volatile long _sequenz = 0;
+
+    /** Sequenznummer des zuletzt geschriebenen oder geladenen Snapshots. */
+    private volatile long _sequenzSnapshot = -1;
+
+    /**
+     * Wird erhöht, wenn ein Begriff neu hinzukommt oder umbenannt wird (aber nicht, wenn sich
+     * nur die Erklärung ändert); siehe {@link #getBegriffeVersion()}.
+     */
+    private volatile long _begriffeVersion = 0;
+
+    /**
+     * Zuletzt erzeugte sortierte Liste; wird nur neu erzeugt, wenn sich die Sequenznummer
+     * geändert hat, sonst bekommen alle Aufrufer dieselbe (unveränderliche) Liste.
+     */
+    private volatile ListeStand _listeStand = null;
+
+    /** Nur ein Thread darf gleichzeitig Änderungen nachziehen oder einen Snapshot erstellen. */
+    private final ReentrantLock _sperre = new ReentrantLock();
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}.
+     */
+    @Autowired
+    public Begriffsindex( Datenbank datenbank,
+                          Aenderungsfeed aenderungsfeed,
+                          @Value( "${de.eldecker.glossar.index.snapshot.datei:./db/begriffe.snapshot}" ) String snapshotDatei ) {
+
+        _datenbank      = datenbank;
+        _aenderungsfeed = aenderungsfeed;
+        _snapshotDatei  = Paths.get( snapshotDatei );
+    }
+
+
+    /**
+     * Index beim Programmstart aus Snapshot (oder Datenbank) laden und auf den aktuellen
+     * Stand bringen.
+     */
+    @PostConstruct
+    void laden() {
+
+        final long startNanos = System.nanoTime();
+
+        final long horizont = _aenderungsfeed.getHorizont();
+
+        String quelle = "Snapshot";
+        try {
+
+            final BegriffSnapshot snapshot = BegriffSnapshot.lesen( _snapshotDatei );
+            if ( snapshot.sequenz() > horizont ) {
+
+                throw new IOException( "Snapshot (Sequenznummer " + snapshot.sequenz() +
+                                       ") ist neuer als Datenbank (" + horizont + ")" );
+            }
+
+            for ( int i = 0; i < snapshot.idArray().length; i++ ) {
+
+                _begriffMap.put( snapshot.idArray()[ i ], snapshot.begriffArray()[ i ] );
+            }
+            _sequenz         = snapshot.sequenz();
+            _sequenzSnapshot = snapshot.sequenz();
+        }
+        catch ( NoSuchFileException ex ) {
+
+            quelle = "Datenbank (kein Snapshot vorhanden)";
+            ausDatenbankLaden( horizont );
+        }
+        catch ( IOException ex ) {
+
+            LOG.warn( "Snapshot-Datei \"{}\" wird nicht verwendet: {}", _snapshotDatei, ex.getMessage() );
+            quelle = "Datenbank";
+            ausDatenbankLaden( horizont );
+        }
+
+        final long sequenzGeladen = _sequenz;
+        aktualisieren();
+
+        LOG.info( "Begriffsindex aus {} geladen: {} Begriffe, {} Änderungen nachgezogen, {} ms.",
+                  quelle, _begriffMap.size(), _sequenz - sequenzGeladen,
+                  ( System.nanoTime() - startNanos ) / 1_000_000 );
+    }
+
+
+    /**
+     * Alle Begriffe aus der Datenbank lesen.
+     *
+     * @param horizont Horizont des Änderungsfeeds vor der Abfrage; spätere Änderungen werden
+     *                 danach nachgezogen.
+     */
+    private void ausDatenbankLaden( long horizont ) {
+
+        _begriffMap.clear();
+        final Begriffsliste begriffsliste = _datenbank.getGlossarBegriffe();
+        for ( int i = 0; i < begriffsliste.size(); i++ ) {
+
+            _begriffMap.put( begriffsliste.getId( i ), begriffsliste.getBegriff( i ) );
+        }
+        _sequenz    = horizont;
+        _listeStand = null;
+    }
+
+
+    /**
+     * Änderungen aus dem Änderungsfeed nachziehen, die neuer als der Index sind. Der Aufruf
+     * ist billig, wenn es keine neuen Änderungen gibt (kein Datenbankzugriff).
+     */
+    private void aktualisieren() {
+
+        if ( _aenderungsfeed.getHorizont() <= _sequenz ) {
+
+            return;
+        }
+
+        _sperre.lock();
+        try {
+
+            _sequenz = _aenderungsfeed.folgen( _sequenz, SEITE_MAX, seite -> {
+
+                for ( Aenderung aenderung : seite.aenderungen() ) {
+
+                    final String begriffAlt = _begriffMap.put( aenderung.id(), aenderung.begriff() );
+                    if ( !aenderung.begriff().equals( begriffAlt ) ) {
+
+                        _begriffeVersion++; // nur unter _sperre geschrieben
+                    }
+                }
+            } );
+        }
+        finally {
+
+            _sperre.unlock();
+        }
+    }
+
+
+    /**
+     * Liste aller Begriffe, sortiert wie bei {@link Datenbank#getGlossarBegriffe()}.
+     * <br><br>
+     *
+     * Die Liste wird nur nach Änderungen neu sortiert; solange sich nichts geändert hat,
+     * wird immer dieselbe kompakte Liste zurückgegeben.
+     *
+     * @return Unveränderliche Liste mit ID und Begriff aller Einträge
+     */
+    public Begriffsliste getGlossarBegriffe() {
+
+        aktualisieren();
+
+        final ListeStand stand = _listeStand;
+        if ( stand != null && stand.sequenz() == _sequenz ) {
+
+            return stand.liste();
+        }
+
+        _sperre.lock();
+        try {
+
+            final long sequenz = _sequenz;
+
+            final List<Sortiereintrag> sortierListe = new ArrayList<>( _begriffMap.size() );
+            _begriffMap.forEach( ( id, begriff ) ->
+                                 sortierListe.add( new Sortiereintrag( begriff.toLowerCase( ROOT ), id, begriff ) ) );
+            sortierListe.sort( SORTIERUNG );
+
+            final Begriffsliste.Sammler sammler = new Begriffsliste.Sammler();
+            for ( Sortiereintrag eintrag : sortierListe ) {
+
+                sammler.hinzufuegen( eintrag.id(), eintrag.begriff() );
+            }
+
+            final Begriffsliste liste = sammler.erzeugen();
+            _listeStand = new ListeStand( sequenz, liste );
+
+            return liste;
+        }
+        finally {
+
+            _sperre.unlock();
+        }
+    }
+
+
+    /**
+     * Begriff eines Eintrags.
+     *
+     * @param id ID des Eintrags
+     *
+     * @return Optional enthält Begriff, ist leer wenn es keinen Eintrag mit {@code id} gibt
+     */
+    public Optional<String> getBegriff( long id ) {
+
+        aktualisieren();
+
+        return Optional.ofNullable( _begriffMap.get( id ) );
+    }
+
+
+    /**
+     * Version der Menge der Begriffe: ändert sich nur, wenn ein Begriff neu hinzukommt oder
+     * umbenannt wird, z.B. damit davon abgeleitete Strukturen nicht bei jeder geänderten
+     * Erklärung neu aufgebaut werden müssen.
+     *
+     * @return Version, nur innerhalb eines Programmlaufs vergleichbar
+     */
+    public long getBegriffeVersion() {
+
+        aktualisieren();
+
+        return _begriffeVersion;
+    }
+
+
+    /**
+     * Neuen Snapshot schreiben, wenn es seit dem letzten Snapshot Änderungen gab; wird
+     * periodisch im Hintergrund aufgerufen.
+     */
+    @Scheduled( fixedDelayString   = "${de.eldecker.glossar.index.snapshot.intervall.ms:300000}",
+                initialDelayString = "${de.eldecker.glossar.index.snapshot.intervall.ms:300000}" )
+    public void snapshotSchreiben() {
+
+        aktualisieren();
+        snapshotSchreibenIntern();
+    }
+
+
+    /**
+     * Snapshot beim Herunterfahren schreiben, damit der nächste Start möglichst wenige
+     * Änderungen nachziehen muss; es wird dafür nicht mehr auf die Datenbank zugegriffen.
+     */
+    @PreDestroy
+    private void beenden() {
+
+        snapshotSchreibenIntern();
+    }
+
+
+    /**
+     * Aktuellen Stand des Index als Snapshot schreiben, wenn er neuer als der letzte Snapshot ist.
+     */
+    private void snapshotSchreibenIntern() {
+
+        if ( _sequenz == _sequenzSnapshot ) {
+
+            return;
+        }
+
+        final long              sequenz;
+        final Map<Long, String> kopie;
+
+        _sperre.lock();
+        try {
+
+            sequenz = _sequenz;
+            kopie   = new HashMap<>( _begriffMap );
+        }
+        finally {
+
+            _sperre.unlock();
+        }
+
+        try {
+
+            final Path verzeichnis = _snapshotDatei.toAbsolutePath().getParent();
+            if ( verzeichnis != null ) {
+
+                Files.createDirectories( verzeichnis );
+            }
+
+            final long startNanos = System.nanoTime();
+            final long groesse    = BegriffSnapshot.schreiben( _snapshotDatei, sequenz, kopie );
+
+            _sequenzSnapshot = sequenz;
+
+            LOG.info( "Snapshot mit {} Begriffen bis Sequenznummer {} geschrieben ({} Bytes, {} ms).",
+                      kopie.size(), sequenz, groesse, ( System.nanoTime() - startNanos ) / 1_000_000 );
+        }
+        catch ( IOException ex ) {
+
+            LOG.error( "Fehler beim Schreiben der Snapshot-Datei \"{}\".", _snapshotDatei, ex );
+        }
+    }
+
+
+    /**
+     * Metriken bei Micrometer registrieren.
+     *
+     * @param registry Registry, bei der die Metriken registriert werden
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        Gauge.builder( "glossar.index.begriffe", _begriffMap, Map::size )
+             .description( "Anzahl Begriffe im Begriffsindex" )
+             .register( registry );
+
+        Gauge.builder( "glossar.index.snapshot.rueckstand", this,
+                       index -> Math.max( 0, index._sequenz - index._sequenzSnapshot ) )
+             .description( "Sequenznummern seit dem letzten Snapshot des Begriffsindex" )
+             .register( registry );
+    }
+
+}
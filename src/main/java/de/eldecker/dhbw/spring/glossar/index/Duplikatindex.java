@@ -0,0 +1,598 @@
+package de.eldecker.dhbw.spring.glossar.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.glossar.db.Aenderungsfeed;
+import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.db.GebuendelterLeser;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.helferlein.MinHash;
+import de.eldecker.dhbw.spring.glossar.model.Aenderung;
+import de.eldecker.dhbw.spring.glossar.model.Aenderungsseite;
+import de.eldecker.dhbw.spring.glossar.model.Duplikat;
+import de.eldecker.dhbw.spring.glossar.model.Duplikatbericht;
+import de.eldecker.dhbw.spring.glossar.model.Duplikatcluster;
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
+
+
+/**
+ * Index im Hauptspeicher für die Suche nach Glossareinträgen mit fast gleichen Erklärungen,
+ * auch wenn die Begriffe verschieden sind.
+ * <br><br>
+ *
+ * Für jede Erklärung wird eine MinHash-Signatur (siehe {@link MinHash}) gespeichert und in
+ * jedem Band der Signatur unter dessen Hash-Wert eingetragen (<i>Locality-Sensitive
+ * Hashing</i>). Kandidaten für eine Erklärung sind die Einträge, die in mindestens einem Band
+ * denselben Hash-Wert haben; nur für diese wird die Ähnlichkeit aus den Signaturen geschätzt.
+ * Eine Suche kostet deshalb nicht mehr, wenn das Glossar wächst.
+ * <br><br>
+ *
+ * Beim Programmstart werden die Signaturen für alle Erklärungen im Hintergrund parallel
+ * berechnet; danach wird nach jedem Speichern die Signatur des Eintrags neu berechnet,
+ * ausgelöst wie bei {@link Querverweise} durch den {@link Aenderungsfeed}.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.duplikate.signaturen}: Anzahl Einträge mit Signatur</li>
+ * </ul>
+ */
+@Component
+public class Duplikatindex implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( Duplikatindex.class );
+
+    /** Anzahl Einträge bzw. Änderungen, die pro Abfrage gelesen werden. */
+    private static final int SEITE_MAX = 500;
+
+    /** Max Anzahl ähnlicher Einträge, die für eine Erklärung zurückgegeben werden. */
+    private static final int TREFFER_MAX = 5;
+
+    /** Anzahl Einträge, die eine Teilaufgabe im {@link ForkJoinPool} mindestens bearbeitet. */
+    private static final int TEILAUFGABE_MIN = 256;
+
+    /** Ähnliches Paar für den Bericht, Indizes in den Arrays der Berechnung. */
+    private record Paar( int a, int b, double aehnlichkeit ) {}
+
+    /** Repository-Bean, von der beim Start alle Erklärungen gelesen werden. */
+    private final Datenbank _datenbank;
+
+    /** Änderungsfeed, über den gespeicherte Einträge gemeldet werden. */
+    private final Aenderungsfeed _aenderungsfeed;
+
+    /** Bean zum Laden gespeicherter Einträge. */
+    private final GebuendelterLeser _gebuendelterLeser;
+
+    /** Bean mit den Begriffen für die Ergebnisse. */
+    private final Begriffsindex _begriffsindex;
+
+    /** Ab dieser geschätzten Ähnlichkeit gelten zwei Erklärungen als fast gleich. */
+    private final double _schwelle;
+
+    /** Anzahl Threads für das Laden und für den Bericht. */
+    private final int _anzahlThreads;
+
+    /** Signatur nach ID des Eintrags. */
+    private final Map<Long, int[]> _signaturMap = new ConcurrentHashMap<>();
+
+    /** Pro Band: IDs der Einträge nach Hash-Wert des Bands; die Arrays werden nur ersetzt, nie geändert. */
+    private final List<Map<Long, long[]>> _bandListe = new ArrayList<>( MinHash.ANZAHL_BAENDER );
+
+    /** Nur ein Thread darf gleichzeitig Signaturen ändern. */
+    private final ReentrantLock _sperre = new ReentrantLock();
+
+    /** Signal für Hintergrund-Thread: es gibt neue Änderungen. */
+    private final Semaphore _signal = new Semaphore( 0 );
+
+    /** Ist {@code true}, sobald die Signaturen aller Einträge berechnet sind. */
+    private volatile boolean _geladen = false;
+
+    /** Thread, der die Signaturen berechnet. */
+    private Thread _signaturThread = null;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}.
+     */
+    @Autowired
+    public Duplikatindex( Datenbank datenbank,
+                          Aenderungsfeed aenderungsfeed,
+                          GebuendelterLeser gebuendelterLeser,
+                          Begriffsindex begriffsindex,
+                          @Value( "${de.eldecker.glossar.duplikate.schwelle:0.8}" ) double schwelle,
+                          @Value( "${de.eldecker.glossar.duplikate.threads:0}"    ) int    anzahlThreads ) {
+
+        _datenbank         = datenbank;
+        _aenderungsfeed    = aenderungsfeed;
+        _gebuendelterLeser = gebuendelterLeser;
+        _begriffsindex     = begriffsindex;
+        _schwelle          = schwelle;
+        _anzahlThreads     = anzahlThreads > 0 ? anzahlThreads : Runtime.getRuntime().availableProcessors();
+
+        for ( int band = 0; band < MinHash.ANZAHL_BAENDER; band++ ) {
+
+            _bandListe.add( new ConcurrentHashMap<>() );
+        }
+    }
+
+
+    /**
+     * Hintergrund-Thread starten, der zuerst die Signaturen aller Einträge berechnet und
+     * dann die Änderungen aus dem Änderungsfeed nachzieht.
+     */
+    @PostConstruct
+    private void starten() {
+
+        _aenderungsfeed.beobachterHinzufuegen( _signal::release );
+
+        _signaturThread = new Thread( this::signaturSchleife, "duplikatindex" );
+        _signaturThread.setDaemon( true );
+        _signaturThread.start();
+    }
+
+
+    /**
+     * Hintergrund-Thread beenden.
+     */
+    @PreDestroy
+    private void beenden() {
+
+        _signaturThread.interrupt();
+    }
+
+
+    /**
+     * Einträge suchen, deren Erklärung fast gleich wie {@code erklaerung} ist.
+     *
+     * @param erklaerung Erklärung, z.B. aus einem Request zum Speichern
+     *
+     * @param ausserId ID des Eintrags, zu dem die Erklärung gehört (wird nicht gefunden);
+     *                 {@code null} für neuen Eintrag
+     *
+     * @return Ähnliche Einträge, die ähnlichsten zuerst; leer wenn es keine gibt, die
+     *         Erklärung zu kurz ist oder die Signaturen noch nicht berechnet sind
+     */
+    public List<Duplikat> aehnlicheSuchen( String erklaerung, Long ausserId ) {
+
+        final int[] signatur = MinHash.signatur( erklaerung );
+        if ( signatur == null ) {
+
+            return List.of();
+        }
+
+        final Set<Long> kandidatSet = new LinkedHashSet<>();
+        for ( int band = 0; band < MinHash.ANZAHL_BAENDER; band++ ) {
+
+            final long[] idArray = _bandListe.get( band ).get( MinHash.bandHash( signatur, band ) );
+            if ( idArray != null ) {
+
+                for ( long id : idArray ) {
+
+                    kandidatSet.add( id );
+                }
+            }
+        }
+        if ( ausserId != null ) {
+
+            kandidatSet.remove( ausserId );
+        }
+
+        final List<Duplikat> ergebnisListe = new ArrayList<>();
+        for ( long id : kandidatSet ) {
+
+            final int[] signaturKandidat = _signaturMap.get( id );
+            if ( signaturKandidat == null ) {
+
+                continue;
+            }
+
+            final double aehnlichkeit = MinHash.aehnlichkeit( signatur, signaturKandidat );
+            if ( aehnlichkeit >= _schwelle ) {
+
+                final Optional<String> begriffOptional = _begriffsindex.getBegriff( id );
+                if ( begriffOptional.isPresent() ) {
+
+                    ergebnisListe.add( new Duplikat( id, begriffOptional.get(), aehnlichkeit ) );
+                }
+            }
+        }
+        ergebnisListe.sort( Comparator.comparingDouble( Duplikat::aehnlichkeit ).reversed()
+                                      .thenComparingLong( Duplikat::id ) );
+
+        return ergebnisListe.size() > TREFFER_MAX ? ergebnisListe.subList( 0, TREFFER_MAX ) : ergebnisListe;
+    }
+
+
+    /**
+     * Alle Cluster von Einträgen mit fast gleichen Erklärungen suchen. Die Kandidaten werden
+     * für alle Einträge parallel gesucht und geprüft, danach werden die ähnlichen Paare zu
+     * Clustern zusammengefasst.
+     *
+     * @return Bericht; {@link Optional#empty()} wenn die Signaturen noch nicht berechnet sind
+     */
+    public Optional<Duplikatbericht> clusterBerechnen() {
+
+        if ( !_geladen ) {
+
+            return Optional.empty();
+        }
+
+        final long startMillis = System.currentTimeMillis();
+
+        final long[]  idArray       = new long[ _signaturMap.size() ];
+        final int[][] signaturArray = new int[ idArray.length ][];
+        int anzahl = 0;
+        for ( Map.Entry<Long, int[]> eintrag : _signaturMap.entrySet() ) {
+
+            if ( anzahl == idArray.length ) {
+
+                break; // inzwischen hinzugekommen
+            }
+            idArray[ anzahl ]       = eintrag.getKey();
+            signaturArray[ anzahl ] = eintrag.getValue();
+            anzahl++;
+        }
+
+        final Map<Long, Integer> indexMap = new HashMap<>( anzahl * 2 );
+        for ( int i = 0; i < anzahl; i++ ) {
+
+            indexMap.put( idArray[ i ], i );
+        }
+
+        final List<Paar> paarListe;
+        try ( ForkJoinPool pool = new ForkJoinPool( _anzahlThreads ) ) {
+
+            paarListe = pool.invoke( new PaareSuchen( idArray, signaturArray, indexMap, 0, anzahl ) );
+        }
+
+        // Union-Find über die Paare
+        final int[]    vorgaenger      = new int[ anzahl ];
+        final double[] aehnlichkeitMax = new double[ anzahl ];
+        for ( int i = 0; i < anzahl; i++ ) {
+
+            vorgaenger[ i ] = i;
+        }
+        for ( Paar paar : paarListe ) {
+
+            vorgaenger[ wurzel( vorgaenger, paar.a() ) ] = wurzel( vorgaenger, paar.b() );
+            aehnlichkeitMax[ paar.a() ] = Math.max( aehnlichkeitMax[ paar.a() ], paar.aehnlichkeit() );
+            aehnlichkeitMax[ paar.b() ] = Math.max( aehnlichkeitMax[ paar.b() ], paar.aehnlichkeit() );
+        }
+
+        final Map<Integer, List<Duplikat>> clusterMap = new HashMap<>();
+        for ( int i = 0; i < anzahl; i++ ) {
+
+            if ( aehnlichkeitMax[ i ] == 0 ) {
+
+                continue; // kein ähnlicher Eintrag
+            }
+            final String begriff = _begriffsindex.getBegriff( idArray[ i ] ).orElse( "" );
+            clusterMap.computeIfAbsent( wurzel( vorgaenger, i ), k -> new ArrayList<>() )
+                      .add( new Duplikat( idArray[ i ], begriff, aehnlichkeitMax[ i ] ) );
+        }
+
+        final List<Duplikatcluster> clusterListe = new ArrayList<>( clusterMap.size() );
+        for ( List<Duplikat> duplikatListe : clusterMap.values() ) {
+
+            duplikatListe.sort( Comparator.comparingLong( Duplikat::id ) );
+            clusterListe.add( new Duplikatcluster( duplikatListe.size(), duplikatListe ) );
+        }
+        clusterListe.sort( Comparator.comparingInt( Duplikatcluster::anzahl ).reversed()
+                                     .thenComparingLong( cluster -> cluster.eintraege().getFirst().id() ) );
+
+        final long dauerMillis = System.currentTimeMillis() - startMillis;
+
+        LOG.info( "Duplikate gesucht: {} Einträge, {} ähnliche Paare, {} Cluster ({} ms).",
+                  anzahl, paarListe.size(), clusterListe.size(), dauerMillis );
+
+        return Optional.of( new Duplikatbericht( anzahl, clusterListe.size(), _schwelle, dauerMillis, clusterListe ) );
+    }
+
+
+    private static int wurzel( int[] vorgaenger, int i ) {
+
+        while ( vorgaenger[ i ] != i ) {
+
+            vorgaenger[ i ] = vorgaenger[ vorgaenger[ i ] ]; // Pfad halbieren
+            i = vorgaenger[ i ];
+        }
+
+        return i;
+    }
+
+
+    /**
+     * Teilaufgabe: für einen Bereich von Einträgen die Kandidaten mit größerer ID suchen
+     * und die ähnlichen Paare zurückgeben.
+     */
+    @SuppressWarnings( "serial" ) // wird nie serialisiert
+    private final class PaareSuchen extends RecursiveTask<List<Paar>> {
+
+        private final long[]             _idArray;
+        private final int[][]            _signaturArray;
+        private final Map<Long, Integer> _indexMap;
+        private final int                _von;
+        private final int                _bis;
+
+        PaareSuchen( long[] idArray, int[][] signaturArray, Map<Long, Integer> indexMap, int von, int bis ) {
+
+            _idArray       = idArray;
+            _signaturArray = signaturArray;
+            _indexMap      = indexMap;
+            _von           = von;
+            _bis           = bis;
+        }
+
+        @Override
+        protected List<Paar> compute() {
+
+            if ( _bis - _von > TEILAUFGABE_MIN ) {
+
+                final int mitte = ( _von + _bis ) >>> 1;
+                final PaareSuchen links  = new PaareSuchen( _idArray, _signaturArray, _indexMap, _von, mitte );
+                final PaareSuchen rechts = new PaareSuchen( _idArray, _signaturArray, _indexMap, mitte, _bis );
+                links.fork();
+                final List<Paar> paarListe = new ArrayList<>( rechts.compute() );
+                paarListe.addAll( links.join() );
+                return paarListe;
+            }
+
+            final List<Paar> paarListe = new ArrayList<>();
+            final Set<Long>  geprueft  = new HashSet<>();
+            for ( int i = _von; i < _bis; i++ ) {
+
+                geprueft.clear();
+                for ( int band = 0; band < MinHash.ANZAHL_BAENDER; band++ ) {
+
+                    final long[] kandidatArray = _bandListe.get( band ).get( MinHash.bandHash( _signaturArray[ i ], band ) );
+                    if ( kandidatArray == null ) {
+
+                        continue;
+                    }
+                    for ( long kandidat : kandidatArray ) {
+
+                        if ( kandidat <= _idArray[ i ] || !geprueft.add( kandidat ) ) {
+
+                            continue; // jedes Paar nur einmal
+                        }
+                        final Integer j = _indexMap.get( kandidat );
+                        if ( j == null ) {
+
+                            continue;
+                        }
+                        final double aehnlichkeit = MinHash.aehnlichkeit( _signaturArray[ i ], _signaturArray[ j ] );
+                        if ( aehnlichkeit >= _schwelle ) {
+
+                            paarListe.add( new Paar( i, j, aehnlichkeit ) );
+                        }
+                    }
+                }
+            }
+
+            return paarListe;
+        }
+    }
+
+
+    /**
+     * Teilaufgabe: Signaturen für einen Bereich eines Blocks von Erklärungen berechnen.
+     */
+    @SuppressWarnings( "serial" ) // wird nie serialisiert
+    private static final class SignaturenBerechnen extends RecursiveAction {
+
+        private final List<Object[]> _zeilenListe;
+        private final int[][]        _signaturArray;
+        private final int            _von;
+        private final int            _bis;
+
+        SignaturenBerechnen( List<Object[]> zeilenListe, int[][] signaturArray, int von, int bis ) {
+
+            _zeilenListe   = zeilenListe;
+            _signaturArray = signaturArray;
+            _von           = von;
+            _bis           = bis;
+        }
+
+        @Override
+        protected void compute() {
+
+            if ( _bis - _von > TEILAUFGABE_MIN / 4 ) {
+
+                final int mitte = ( _von + _bis ) >>> 1;
+                invokeAll( new SignaturenBerechnen( _zeilenListe, _signaturArray, _von, mitte ),
+                           new SignaturenBerechnen( _zeilenListe, _signaturArray, mitte, _bis ) );
+                return;
+            }
+
+            for ( int i = _von; i < _bis; i++ ) {
+
+                _signaturArray[ i ] = MinHash.signatur( (String) _zeilenListe.get( i )[ 1 ] );
+            }
+        }
+    }
+
+
+    /**
+     * Signatur eines Eintrags setzen oder entfernen und die Bänder anpassen; nur unter
+     * {@link #_sperre} aufrufen.
+     *
+     * @param id ID des Eintrags
+     *
+     * @param signatur Neue Signatur, {@code null} zum Entfernen (z.B. Erklärung zu kurz)
+     */
+    private void signaturSetzen( long id, int[] signatur ) {
+
+        final int[] signaturAlt = signatur == null ? _signaturMap.remove( id ) : _signaturMap.put( id, signatur );
+        if ( signaturAlt != null ) {
+
+            for ( int band = 0; band < MinHash.ANZAHL_BAENDER; band++ ) {
+
+                _bandListe.get( band ).computeIfPresent( MinHash.bandHash( signaturAlt, band ), ( hash, idArray ) -> {
+
+                    final long[] neu = Arrays.stream( idArray ).filter( x -> x != id ).toArray();
+                    return neu.length == 0 ? null : neu;
+                });
+            }
+        }
+        if ( signatur != null ) {
+
+            for ( int band = 0; band < MinHash.ANZAHL_BAENDER; band++ ) {
+
+                _bandListe.get( band ).merge( MinHash.bandHash( signatur, band ), new long[] { id }, ( alt, neu ) -> {
+
+                    final long[] ergebnis = Arrays.copyOf( alt, alt.length + 1 );
+                    ergebnis[ alt.length ] = id;
+                    return ergebnis;
+                });
+            }
+        }
+    }
+
+
+    /**
+     * Schleife des Hintergrund-Threads.
+     */
+    private void signaturSchleife() {
+
+        long stand = _aenderungsfeed.getHorizont();
+        try {
+
+            alleLaden();
+        }
+        catch ( RuntimeException ex ) {
+
+            LOG.error( "Fehler beim Berechnen der Signaturen für die Duplikatsuche.", ex );
+        }
+
+        while ( !Thread.currentThread().isInterrupted() ) {
+
+            try {
+
+                stand = _aenderungsfeed.folgen( stand, SEITE_MAX, this::signaturenAktualisieren );
+
+                _signal.acquire();
+                _signal.drainPermits();
+            }
+            catch ( InterruptedException ex ) {
+
+                return;
+            }
+            catch ( RuntimeException ex ) {
+
+                LOG.error( "Fehler beim Aktualisieren der Signaturen für die Duplikatsuche.", ex );
+            }
+        }
+    }
+
+
+    /**
+     * Signaturen der Einträge neu berechnen, die auf einer Seite des Änderungsfeeds angelegt
+     * oder geändert wurden.
+     *
+     * @param seite Seite mit neuen Änderungen
+     */
+    private void signaturenAktualisieren( Aenderungsseite seite ) {
+
+        final Set<Long> idSet = new LinkedHashSet<>();
+        for ( Aenderung aenderung : seite.aenderungen() ) {
+
+            idSet.add( aenderung.id() );
+        }
+        for ( long id : idSet ) {
+
+            final Optional<GlossarEntity> entityOptional = _gebuendelterLeser.getEintragById( id );
+            final int[] signatur = entityOptional.isPresent() ? MinHash.signatur( entityOptional.get().getErklaerung() ) : null;
+
+            _sperre.lock();
+            try {
+
+                signaturSetzen( id, signatur );
+            }
+            finally {
+
+                _sperre.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Signaturen aller Einträge blockweise berechnen, jeweils parallel für einen Block.
+     */
+    private void alleLaden() {
+
+        final long startNanos = System.nanoTime();
+
+        final List<EintragFeld> felder = List.of( EintragFeld.ERKLAERUNG );
+
+        try ( ForkJoinPool pool = new ForkJoinPool( _anzahlThreads ) ) {
+
+            for ( List<Object[]> zeilenListe : _datenbank.getEintraegeProjektionSeiten( felder, SEITE_MAX ) ) {
+
+                final int[][] signaturArray = new int[ zeilenListe.size() ][];
+                pool.invoke( new SignaturenBerechnen( zeilenListe, signaturArray, 0, signaturArray.length ) );
+
+                _sperre.lock();
+                try {
+
+                    for ( int i = 0; i < signaturArray.length; i++ ) {
+
+                        signaturSetzen( (Long) zeilenListe.get( i )[ 0 ], signaturArray[ i ] );
+                    }
+                }
+                finally {
+
+                    _sperre.unlock();
+                }
+            }
+        }
+
+        _geladen = true;
+
+        LOG.info( "Signaturen für Duplikatsuche berechnet: {} Einträge ({} ms).",
+                  _signaturMap.size(), ( System.nanoTime() - startNanos ) / 1_000_000 );
+    }
+
+
+    /**
+     * Metriken bei Micrometer registrieren.
+     *
+     * @param registry Registry, bei der die Metriken registriert werden
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        Gauge.builder( "glossar.duplikate.signaturen", _signaturMap, Map::size )
+             .description( "Anzahl Einträge mit Signatur für die Duplikatsuche" )
+             .register( registry );
+    }
+
+}
@@ -0,0 +1,343 @@
+package de.eldecker.dhbw.spring.glossar.index;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.glossar.db.Aenderungsfeed;
+import de.eldecker.dhbw.spring.glossar.db.GebuendelterLeser;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.model.Aenderung;
+import de.eldecker.dhbw.spring.glossar.model.Aenderungsseite;
+
+
+/**
+ * Querverweise zwischen Glossareinträgen: jedes Vorkommen des Begriffs eines anderen Eintrags
+ * in einer Erklärung wird auf der Seite {@code /app/eintrag/{id}} als Link auf diesen Eintrag
+ * dargestellt.
+ * <br><br>
+ *
+ * Gesucht wird mit einem Aho-Corasick-Automaten über alle Begriffe (siehe {@link BegriffAutomat}),
+ * der nur neu aufgebaut wird, wenn ein Begriff hinzukommt oder umbenannt wird (siehe
+ * {@link Begriffsindex#getBegriffeVersion()}); der neue Automat ersetzt den alten erst, wenn er
+ * fertig ist, Leser werden also nie blockiert.
+ * <br><br>
+ *
+ * Die Positionen der Verweise werden nach dem Speichern eines Eintrags von einem Hintergrund-Thread
+ * berechnet, der wie {@link de.eldecker.dhbw.spring.glossar.web.AenderungsStream} vom
+ * {@link Aenderungsfeed} aufgeweckt wird. Beim Rendern wird dann nur noch der Text an den
+ * gespeicherten Positionen zerlegt; das ist linear in der Länge des Texts und hängt nicht von
+ * der Anzahl der Begriffe ab. Für Einträge, die seit dem Start nicht gespeichert wurden, und
+ * nach dem Neuaufbau des Automaten werden die Positionen beim ersten Anzeigen berechnet.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.querverweise.automat.zustaende}: Anzahl Zustände des Automaten</li>
+ * <li>{@code glossar.querverweise.vorberechnet}: Anzahl Einträge mit berechneten Verweisen</li>
+ * </ul>
+ */
+@Component
+public class Querverweise implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( Querverweise.class );
+
+    /** Max Anzahl Änderungen, die pro Abfrage aus dem Änderungsfeed gelesen werden. */
+    private static final int SEITE_MAX = 500;
+
+    /** Automat mit der Version der Begriffe, aus denen er erzeugt wurde. */
+    private record Automatstand( long begriffeVersion, BegriffAutomat automat ) {}
+
+    /** Berechnete Verweise mit Version der Begriffe und Änderungszeitpunkt des Eintrags. */
+    private record Vorberechnet( long begriffeVersion, LocalDateTime zeitpunktAenderung,
+                                 VerlinkterText.Verweise verweise ) {}
+
+    /** Bean mit allen Begriffen. */
+    private final Begriffsindex _begriffsindex;
+
+    /** Änderungsfeed, über den gespeicherte Einträge gemeldet werden. */
+    private final Aenderungsfeed _aenderungsfeed;
+
+    /** Bean zum Laden gespeicherter Einträge. */
+    private final GebuendelterLeser _gebuendelterLeser;
+
+    /** Aktueller Automat, wird als Ganzes ersetzt. */
+    private volatile Automatstand _automatstand = new Automatstand( -1, BegriffAutomat.LEER );
+
+    /** Nur ein Thread darf gleichzeitig den Automaten neu aufbauen. */
+    private final ReentrantLock _sperre = new ReentrantLock();
+
+    /** Berechnete Verweise nach ID des Eintrags. */
+    private final Map<Long, Vorberechnet> _vorberechnetMap = new ConcurrentHashMap<>();
+
+    /** Werden nach dem Berechnen der Verweise eines gespeicherten Eintrags aufgerufen. */
+    private final List<BiConsumer<Long, VerlinkterText.Verweise>> _beobachterListe = new CopyOnWriteArrayList<>();
+
+    /** Signal für Hintergrund-Thread: es gibt neue Änderungen. */
+    private final Semaphore _signal = new Semaphore( 0 );
+
+    /** Sequenznummer, bis zu der der Hintergrund-Thread alle Änderungen bearbeitet hat. */
+    private long _stand = 0;
+
+    /** Thread, der nach dem Speichern die Verweise berechnet. */
+    private Thread _berechnungThread = null;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public Querverweise( Begriffsindex begriffsindex,
+                         Aenderungsfeed aenderungsfeed,
+                         GebuendelterLeser gebuendelterLeser ) {
+
+        _begriffsindex     = begriffsindex;
+        _aenderungsfeed    = aenderungsfeed;
+        _gebuendelterLeser = gebuendelterLeser;
+    }
+
+
+    /**
+     * Hintergrund-Thread starten und beim Änderungsfeed für das Aufwecken registrieren;
+     * ältere Änderungen werden nicht nachgezogen.
+     */
+    @PostConstruct
+    private void starten() {
+
+        _stand = _aenderungsfeed.getHorizont();
+        _aenderungsfeed.beobachterHinzufuegen( _signal::release );
+
+        _berechnungThread = new Thread( this::berechnungSchleife, "querverweise" );
+        _berechnungThread.setDaemon( true );
+        _berechnungThread.start();
+    }
+
+
+    /**
+     * Hintergrund-Thread beenden.
+     */
+    @PreDestroy
+    private void beenden() {
+
+        _berechnungThread.interrupt();
+    }
+
+
+    /**
+     * Erklärung eines Eintrags mit Querverweisen für die Anzeige.
+     *
+     * @param id ID des Eintrags; sein eigener Begriff wird nicht verlinkt
+     *
+     * @param zeitpunktAenderung Zeitpunkt der letzten Änderung des Eintrags, für die Prüfung,
+     *                           ob die berechneten Verweise noch zum Text passen; {@code null}
+     *                           wenn die Verweise nicht gespeichert werden sollen
+     *
+     * @param erklaerung Liefert die Erklärung; wird für berechnete Verweise erst beim Rendern
+     *                   aufgerufen
+     *
+     * @return Erklärung mit Verweisen
+     */
+    public VerlinkterText verlinken( long id, LocalDateTime zeitpunktAenderung, Supplier<String> erklaerung ) {
+
+        final Automatstand automatstand = getAutomatstand();
+
+        if ( zeitpunktAenderung != null ) {
+
+            final Vorberechnet vorberechnet = _vorberechnetMap.get( id );
+            if ( vorberechnet != null &&
+                 vorberechnet.begriffeVersion() == automatstand.begriffeVersion() &&
+                 vorberechnet.zeitpunktAenderung().isEqual( zeitpunktAenderung ) ) {
+
+                return new VerlinkterText( erklaerung, vorberechnet.verweise() );
+            }
+        }
+
+        final String                  text     = erklaerung.get();
+        final VerlinkterText.Verweise verweise = automatstand.automat().finden( text, id );
+        if ( zeitpunktAenderung != null ) {
+
+            _vorberechnetMap.put( id, new Vorberechnet( automatstand.begriffeVersion(), zeitpunktAenderung, verweise ) );
+        }
+
+        return new VerlinkterText( () -> text, verweise );
+    }
+
+
+    /**
+     * Verweise in einem Text mit dem aktuellen Automaten suchen, ohne sie zu speichern; z.B.
+     * für den Aufbau des {@link Begriffsgraph} aus allen Erklärungen. Kann von mehreren
+     * Threads gleichzeitig aufgerufen werden.
+     *
+     * @param id ID des Eintrags; sein eigener Begriff wird nicht gefunden
+     *
+     * @param erklaerung Erklärung des Eintrags
+     *
+     * @return Verweise in der Erklärung
+     */
+    public VerlinkterText.Verweise verweiseSuchen( long id, String erklaerung ) {
+
+        return getAutomatstand().automat().finden( erklaerung, id );
+    }
+
+
+    /**
+     * Beobachter registrieren, der vom Hintergrund-Thread nach dem Berechnen der Verweise
+     * eines gespeicherten Eintrags aufgerufen wird.
+     *
+     * @param beobachter Bekommt ID des Eintrags und seine Verweise; sollte schnell sein
+     */
+    public void beobachterHinzufuegen( BiConsumer<Long, VerlinkterText.Verweise> beobachter ) {
+
+        _beobachterListe.add( beobachter );
+    }
+
+
+    /**
+     * Version der Begriffe, mit der die Verweise berechnet werden, z.B. für den ETag der
+     * Seite eines Eintrags: Wenn ein Begriff hinzukommt oder umbenannt wird, dann können sich
+     * die Verweise ändern, auch wenn der Eintrag selbst unverändert ist.
+     *
+     * @return Version, nur innerhalb eines Programmlaufs vergleichbar
+     */
+    public long getVersion() {
+
+        return _begriffsindex.getBegriffeVersion();
+    }
+
+
+    /**
+     * Aktuellen Automaten holen und ihn vorher neu aufbauen, wenn sich die Begriffe geändert
+     * haben.
+     *
+     * @return Automat mit Version der Begriffe
+     */
+    private Automatstand getAutomatstand() {
+
+        final long begriffeVersion = _begriffsindex.getBegriffeVersion();
+
+        final Automatstand stand = _automatstand;
+        if ( stand.begriffeVersion() == begriffeVersion ) {
+
+            return stand;
+        }
+
+        _sperre.lock();
+        try {
+
+            if ( _automatstand.begriffeVersion() == begriffeVersion ) {
+
+                return _automatstand; // anderer Thread war schneller
+            }
+
+            final long startNanos = System.nanoTime();
+
+            final BegriffAutomat automat = BegriffAutomat.erzeugen( _begriffsindex.getGlossarBegriffe() );
+            _automatstand = new Automatstand( begriffeVersion, automat );
+
+            LOG.info( "Automat für Querverweise mit {} Zuständen erzeugt ({} ms).",
+                      automat.getAnzahlZustaende(), ( System.nanoTime() - startNanos ) / 1_000_000 );
+
+            return _automatstand;
+        }
+        finally {
+
+            _sperre.unlock();
+        }
+    }
+
+
+    /**
+     * Schleife des Hintergrund-Threads.
+     */
+    private void berechnungSchleife() {
+
+        while ( !Thread.currentThread().isInterrupted() ) {
+
+            try {
+
+                _signal.acquire();
+                _signal.drainPermits();
+
+                _stand = _aenderungsfeed.folgen( _stand, SEITE_MAX, this::verweiseBerechnen );
+            }
+            catch ( InterruptedException ex ) {
+
+                return;
+            }
+            catch ( RuntimeException ex ) {
+
+                LOG.error( "Fehler beim Berechnen von Querverweisen.", ex );
+            }
+        }
+    }
+
+
+    /**
+     * Für die Einträge, die auf einer Seite des Änderungsfeeds angelegt oder geändert wurden,
+     * die Verweise berechnen.
+     *
+     * @param seite Seite mit neuen Änderungen
+     */
+    private void verweiseBerechnen( Aenderungsseite seite ) {
+
+        final Set<Long> idSet = new LinkedHashSet<>();
+        for ( Aenderung aenderung : seite.aenderungen() ) {
+
+            idSet.add( aenderung.id() );
+        }
+        for ( long id : idSet ) {
+
+            final Optional<GlossarEntity> entityOptional = _gebuendelterLeser.getEintragById( id );
+            if ( entityOptional.isPresent() ) {
+
+                final GlossarEntity  eintrag        = entityOptional.get();
+                final VerlinkterText verlinkterText = verlinken( id, eintrag.getZeitpunktAenderung(), eintrag::getErklaerung );
+                for ( BiConsumer<Long, VerlinkterText.Verweise> beobachter : _beobachterListe ) {
+
+                    beobachter.accept( id, verlinkterText.getVerweise() );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Metriken bei Micrometer registrieren.
+     *
+     * @param registry Registry, bei der die Metriken registriert werden
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        Gauge.builder( "glossar.querverweise.automat.zustaende", this,
+                       querverweise -> querverweise._automatstand.automat().getAnzahlZustaende() )
+             .description( "Anzahl Zustände des Automaten für Querverweise" )
+             .register( registry );
+
+        Gauge.builder( "glossar.querverweise.vorberechnet", _vorberechnetMap, Map::size )
+             .description( "Anzahl Einträge mit berechneten Querverweisen" )
+             .register( registry );
+    }
+
+}
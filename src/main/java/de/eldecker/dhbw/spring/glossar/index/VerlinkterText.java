@@ -0,0 +1,190 @@
+package de.eldecker.dhbw.spring.glossar.index;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+
+/**
+ * Erklärung eines Glossareintrags mit Querverweisen auf andere Einträge, für das Template
+ * {@code eintrag.html}: beim Iterieren wird der Text in Teile ohne Verweis und Teile mit
+ * Verweis (Begriff eines anderen Eintrags) zerlegt.
+ * <br><br>
+ *
+ * Die Positionen der Verweise sind schon berechnet (siehe {@link Querverweise}); der Text
+ * selbst wird erst beim Iterieren geholt, also beim Rendern, und das Zerlegen ist linear in
+ * der Länge des Texts.
+ */
+public final class VerlinkterText implements Iterable<VerlinkterText.Textteil> {
+
+    /**
+     * Positionen der Verweise in einem Text, nach Position sortiert und ohne Überlappung.
+     *
+     * @param startArray Index des ersten Zeichens jedes Verweises
+     *
+     * @param endeArray Index nach dem letzten Zeichen jedes Verweises
+     *
+     * @param zielArray ID des Eintrags, auf den verwiesen wird
+     */
+    public record Verweise( int[] startArray, int[] endeArray, long[] zielArray ) {
+
+        /**
+         * Anzahl Verweise.
+         *
+         * @return Anzahl Verweise im Text
+         */
+        public int anzahl() {
+
+            return startArray.length;
+        }
+    }
+
+    /**
+     * Ein Teil des Texts, entweder mit oder ohne Verweis.
+     */
+    public static final class Textteil {
+
+        private final String _text;
+
+        private final long _zielId;
+
+        private Textteil( String text, long zielId ) {
+
+            _text   = text;
+            _zielId = zielId;
+        }
+
+        /**
+         * Text des Teils.
+         *
+         * @return Text, nicht leer
+         */
+        public String getText() {
+
+            return _text;
+        }
+
+        /**
+         * ID des Eintrags, auf den verwiesen wird.
+         *
+         * @return ID, oder -1 für Teil ohne Verweis
+         */
+        public long getZielId() {
+
+            return _zielId;
+        }
+
+        /**
+         * Ist der Teil ein Verweis?
+         *
+         * @return {@code true} gdw. der Teil als Link auf einen anderen Eintrag dargestellt wird
+         */
+        public boolean isVerweis() {
+
+            return _zielId >= 0;
+        }
+    }
+
+    /** Liefert den Text erst beim Rendern. */
+    private final Supplier<String> _textSupplier;
+
+    /** Positionen der Verweise im Text. */
+    private final Verweise _verweise;
+
+
+    /**
+     * Konstruktor.
+     *
+     * @param textSupplier Liefert den Text, für den {@code verweise} berechnet wurde
+     *
+     * @param verweise Positionen der Verweise im Text
+     */
+    public VerlinkterText( Supplier<String> textSupplier, Verweise verweise ) {
+
+        _textSupplier = textSupplier;
+        _verweise     = verweise;
+    }
+
+
+    /**
+     * Anzahl Verweise im Text.
+     *
+     * @return Anzahl Verweise
+     */
+    public int getAnzahlVerweise() {
+
+        return _verweise.anzahl();
+    }
+
+
+    /**
+     * Positionen der Verweise, z.B. für den {@link Begriffsgraph}.
+     *
+     * @return Verweise im Text
+     */
+    Verweise getVerweise() {
+
+        return _verweise;
+    }
+
+
+    /**
+     * Text in Teile zerlegen; holt den Text vom Supplier.
+     *
+     * @return Iterator über die Teile des Texts in ihrer Reihenfolge
+     */
+    @Override
+    public Iterator<Textteil> iterator() {
+
+        final String   text     = _textSupplier.get();
+        final Verweise verweise = _verweise;
+
+        // Verweise hinter dem Textende ignorieren, falls der Text nicht mehr zu den Positionen passt
+        int anzahlGueltig = 0;
+        while ( anzahlGueltig < verweise.anzahl() && verweise.endeArray()[ anzahlGueltig ] <= text.length() ) {
+
+            anzahlGueltig++;
+        }
+        final int anzahl = anzahlGueltig;
+
+        return new Iterator<>() {
+
+            /** Position im Text. */
+            private int _position = 0;
+
+            /** Index des nächsten Verweises. */
+            private int _naechster = 0;
+
+            @Override
+            public boolean hasNext() {
+
+                return _position < text.length();
+            }
+
+            @Override
+            public Textteil next() {
+
+                if ( !hasNext() ) {
+
+                    throw new NoSuchElementException();
+                }
+
+                if ( _naechster < anzahl && verweise.startArray()[ _naechster ] == _position ) {
+
+                    final int  ende   = verweise.endeArray()[ _naechster ];
+                    final long zielId = verweise.zielArray()[ _naechster ];
+                    final Textteil teil = new Textteil( text.substring( _position, ende ), zielId );
+                    _position = ende;
+                    _naechster++;
+                    return teil;
+                }
+
+                final int ende = _naechster < anzahl ? verweise.startArray()[ _naechster ] : text.length();
+                final Textteil teil = new Textteil( text.substring( _position, ende ), -1 );
+                _position = ende;
+                return teil;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Dieses Paket enthält Indexe, die im Hauptspeicher gehalten werden, damit häufige
+ * Abfragen nicht jedes Mal die Datenbank belasten.
+ */
+package de.eldecker.dhbw.spring.glossar.index;
\ No newline at end of file
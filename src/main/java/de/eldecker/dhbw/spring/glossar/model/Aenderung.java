@@ -0,0 +1,30 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+import java.time.LocalDateTime;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse beschreibt eine Änderung im Änderungsfeed, also das Anlegen
+ * oder Ändern eines Glossareintrags. Die Erklärung ist nicht enthalten, ein Client kann
+ * den aktuellen Stand des Eintrags bei Bedarf über {@code /api/v1/eintraege/{id}} lesen.
+ *
+ * @param sequenz Monoton steigende Sequenznummer der Änderung
+ *
+ * @param id ID des angelegten oder geänderten Glossareintrags
+ *
+ * @param revision Nummer der Revision des Eintrags, {@code 1} für neu angelegte Einträge
+ *
+ * @param begriff Begriff nach der Änderung
+ *
+ * @param zeitpunkt Zeitpunkt der Änderung
+ *
+ * @param autor Nutzername des Autors der Änderung
+ */
+public record Aenderung( long sequenz,
+                         long id,
+                         int revision,
+                         String begriff,
+                         LocalDateTime zeitpunkt,
+                         String autor
+                       ) {
+}
@@ -0,0 +1,22 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+import java.util.List;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse ist eine Seite des Änderungsfeeds, die als JSON
+ * an den Client geschickt wird.
+ *
+ * @param aenderungen Änderungen auf dieser Seite, aufsteigend nach Sequenznummer
+ *
+ * @param token Wert für den URL-Parameter {@code seit} der nächsten Abfrage; entspricht der
+ *              Sequenznummer der letzten Änderung auf der Seite (oder dem übergebenen Wert,
+ *              wenn die Seite leer ist).
+ *
+ * @param weitere {@code true} wenn sofort weitere Änderungen abgefragt werden können
+ */
+public record Aenderungsseite( List<Aenderung> aenderungen,
+                               long token,
+                               boolean weitere
+                             ) {
+}
@@ -0,0 +1,26 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+import java.util.Map;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse enthält das Ergebnis eines Backups oder der Prüfung
+ * eines Backups der Datenbank.
+ *
+ * @param datei Name der Backup-Datei (ohne Verzeichnis)
+ *
+ * @param bytes Größe der (komprimierten) Backup-Datei in Bytes
+ *
+ * @param sha256 SHA-256-Prüfsumme der Backup-Datei als Hex-String
+ *
+ * @param zeilen Map von Tabellenname auf Anzahl Zeilen im Backup
+ *
+ * @param dauerMillis Dauer in Millisekunden
+ */
+public record BackupErgebnis( String datei,
+                              long bytes,
+                              String sha256,
+                              Map<String, Long> zeilen,
+                              long dauerMillis
+                            ) {
+}
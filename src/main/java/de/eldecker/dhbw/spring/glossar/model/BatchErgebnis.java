@@ -0,0 +1,22 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse enthält das Ergebnis für ein einzelnes Element
+ * aus einem Batch-Request zum Speichern von Glossareinträgen.
+ *
+ * @param index Position des Elements im Array des Requests (beginnend bei 0)
+ *
+ * @param status HTTP-Status-Code, den ein einzelner Request für dieses Element
+ *               ergeben hätte, z.B. 201 (neu angelegt) oder 409 (Begriff schon vorhanden)
+ *
+ * @param id ID des angelegten bzw. geänderten Eintrags; {@code null} bei Fehler
+ *
+ * @param meldung Beschreibung des Ergebnisses
+ */
+public record BatchErgebnis( int index,
+                             int status,
+                             Long id,
+                             String meldung
+                           ) {
+}
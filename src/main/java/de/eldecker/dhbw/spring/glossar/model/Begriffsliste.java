@@ -0,0 +1,246 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+
+/**
+ * Kompakte, unveränderliche Liste von Glossarbegriffen mit ihren IDs, z.B. für die Liste aller
+ * Begriffe auf der Hauptseite.
+ * <br><br>
+ *
+ * Statt eines Objekts pro Begriff gibt es nur drei Arrays: ein {@code long[]} mit den IDs,
+ * ein {@code byte[]}, in dem alle Begriffe als UTF-8 hintereinander stehen, und ein
+ * {@code int[]} mit dem Offset jedes Begriffs in diesem Array (plus Ende des letzten Begriffs).
+ * Für 500.000 Begriffe sind das wenige MB statt einer Million Objekte.
+ * <br><br>
+ *
+ * Damit Thymeleaf-Templates ({@code th:each}, {@code #lists.size()}) die Liste wie bisher
+ * verwenden können, ist sie eine {@link java.util.List}; {@link #get(int)} liefert aber nur
+ * ein kleines Sicht-Objekt {@link Begriff}, das den Begriff erst beim Zugriff dekodiert und
+ * nirgends gespeichert wird. Für JSON können die UTF-8-Bytes über {@link #getUtf8()},
+ * {@link #getOffset(int)} und {@link #getLaenge(int)} ohne Dekodieren ausgegeben werden.
+ */
+public final class Begriffsliste extends AbstractList<Begriffsliste.Begriff> implements RandomAccess {
+
+    /** Leere Liste. */
+    public static final Begriffsliste LEER = new Begriffsliste( new long[ 0 ], new byte[ 0 ], new int[] { 0 } );
+
+
+    /**
+     * Sicht auf ein Element der Liste; die Getter werden von Thymeleaf aufgerufen
+     * ({@code ${eintrag.id}}, {@code ${eintrag.begriff}}).
+     */
+    public final class Begriff {
+
+        /** Position in der Liste. */
+        private final int _index;
+
+        private Begriff( int index ) {
+
+            _index = index;
+        }
+
+        /**
+         * ID des Glossareintrags.
+         *
+         * @return ID
+         */
+        public long getId() {
+
+            return _idArray[ _index ];
+        }
+
+        /**
+         * Begriff, wird bei jedem Aufruf dekodiert.
+         *
+         * @return Begriff
+         */
+        public String getBegriff() {
+
+            return Begriffsliste.this.getBegriff( _index );
+        }
+    }
+
+
+    /**
+     * Hilfsklasse, mit der eine {@link Begriffsliste} Begriff für Begriff aufgebaut wird.
+     */
+    public static final class Sammler {
+
+        private long[] _idArray     = new long[ 64 ];
+        private int[]  _offsetArray = new int[ 65 ];
+        private byte[] _utf8        = new byte[ 1024 ];
+        private int    _anzahl      = 0;
+
+        /**
+         * Begriff hinten anhängen.
+         *
+         * @param id ID des Glossareintrags
+         *
+         * @param begriff Begriff, {@code null} wird als leerer String gespeichert
+         *
+         * @return Dieses Objekt
+         */
+        public Sammler hinzufuegen( long id, String begriff ) {
+
+            final byte[] utf8 = begriff == null ? new byte[ 0 ] : begriff.getBytes( UTF_8 );
+
+            if ( _anzahl == _idArray.length ) {
+
+                _idArray     = Arrays.copyOf( _idArray, _anzahl * 2 );
+                _offsetArray = Arrays.copyOf( _offsetArray, _anzahl * 2 + 1 );
+            }
+
+            final int ende = _offsetArray[ _anzahl ];
+            if ( ende + utf8.length > _utf8.length ) {
+
+                _utf8 = Arrays.copyOf( _utf8, Math.max( _utf8.length * 2, ende + utf8.length ) );
+            }
+            System.arraycopy( utf8, 0, _utf8, ende, utf8.length );
+
+            _idArray[ _anzahl ]         = id;
+            _offsetArray[ _anzahl + 1 ] = ende + utf8.length;
+            _anzahl++;
+
+            return this;
+        }
+
+        /**
+         * Liste erzeugen; die Arrays werden dabei auf die tatsächliche Größe gekürzt.
+         *
+         * @return Neue Liste
+         */
+        public Begriffsliste erzeugen() {
+
+            return new Begriffsliste( Arrays.copyOf( _idArray, _anzahl ),
+                                      Arrays.copyOf( _utf8, _offsetArray[ _anzahl ] ),
+                                      Arrays.copyOf( _offsetArray, _anzahl + 1 ) );
+        }
+    }
+
+
+    /** IDs der Einträge. */
+    private final long[] _idArray;
+
+    /** Alle Begriffe als UTF-8 hintereinander. */
+    private final byte[] _utf8;
+
+    /** Offset jedes Begriffs in {@link #_utf8}; hat ein Element mehr als {@link #_idArray}. */
+    private final int[] _offsetArray;
+
+
+    /**
+     * Konstruktor, nur über {@link Sammler}.
+     */
+    private Begriffsliste( long[] idArray, byte[] utf8, int[] offsetArray ) {
+
+        _idArray     = idArray;
+        _utf8        = utf8;
+        _offsetArray = offsetArray;
+    }
+
+
+    /**
+     * Anzahl Begriffe.
+     *
+     * @return Anzahl Begriffe
+     */
+    @Override
+    public int size() {
+
+        return _idArray.length;
+    }
+
+
+    /**
+     * Sicht auf den Begriff an Position {@code index}.
+     *
+     * @param index Position
+     *
+     * @return Neues Sicht-Objekt
+     */
+    @Override
+    public Begriff get( int index ) {
+
+        return new Begriff( index );
+    }
+
+
+    /**
+     * ID an Position {@code index}.
+     *
+     * @param index Position
+     *
+     * @return ID des Eintrags
+     */
+    public long getId( int index ) {
+
+        return _idArray[ index ];
+    }
+
+
+    /**
+     * Begriff an Position {@code index} dekodieren.
+     *
+     * @param index Position
+     *
+     * @return Begriff
+     */
+    public String getBegriff( int index ) {
+
+        return new String( _utf8, getOffset( index ), getLaenge( index ), UTF_8 );
+    }
+
+
+    /**
+     * Array mit allen Begriffen als UTF-8; darf nicht verändert werden.
+     *
+     * @return Array, Positionen über {@link #getOffset(int)} und {@link #getLaenge(int)}
+     */
+    public byte[] getUtf8() {
+
+        return _utf8;
+    }
+
+
+    /**
+     * Offset des Begriffs an Position {@code index} in {@link #getUtf8()}.
+     *
+     * @param index Position
+     *
+     * @return Offset in Bytes
+     */
+    public int getOffset( int index ) {
+
+        return _offsetArray[ index ];
+    }
+
+
+    /**
+     * Länge des Begriffs an Position {@code index} in Bytes (UTF-8).
+     *
+     * @param index Position
+     *
+     * @return Länge in Bytes
+     */
+    public int getLaenge( int index ) {
+
+        return _offsetArray[ index + 1 ] - _offsetArray[ index ];
+    }
+
+
+    /**
+     * Speicherbedarf der Arrays (ohne Objekt-Header), z.B. für Log-Ausgaben.
+     *
+     * @return Anzahl Bytes
+     */
+    public long getGroesseBytes() {
+
+        return (long) _idArray.length * Long.BYTES + _utf8.length + (long) _offsetArray.length * Integer.BYTES;
+    }
+
+}
@@ -0,0 +1,18 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse enthält einen Glossareintrag für die Seite mit den am
+ * häufigsten aufgerufenen Einträgen.
+ *
+ * @param id ID des Eintrags
+ *
+ * @param begriff Begriff des Eintrags
+ *
+ * @param anzahl Anzahl Aufrufe der Seite des Eintrags
+ */
+public record BeliebterEintrag( long id,
+                                String begriff,
+                                long anzahl
+                              ) {
+}
@@ -0,0 +1,21 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse beschreibt einen Glossareintrag, dessen Erklärung fast
+ * gleich wie eine andere Erklärung ist (siehe
+ * {@link de.eldecker.dhbw.spring.glossar.index.Duplikatindex}).
+ *
+ * @param id ID des Eintrags
+ *
+ * @param begriff Begriff des Eintrags
+ *
+ * @param aehnlichkeit Geschätzte Ähnlichkeit der Erklärungen zwischen 0 und 1; in einem
+ *                     {@link Duplikatcluster} die größte Ähnlichkeit zu einem anderen Eintrag
+ *                     im Cluster
+ */
+public record Duplikat( long id,
+                        String begriff,
+                        double aehnlichkeit
+                      ) {
+}
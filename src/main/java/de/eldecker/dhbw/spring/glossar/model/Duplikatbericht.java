@@ -0,0 +1,26 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+import java.util.List;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse enthält das Ergebnis der Suche nach Glossareinträgen mit
+ * fast gleichen Erklärungen über das ganze Glossar.
+ *
+ * @param anzahlEintraege Anzahl Einträge mit Signatur, die verglichen wurden
+ *
+ * @param anzahlCluster Anzahl gefundener Cluster
+ *
+ * @param schwelle Ab dieser geschätzten Ähnlichkeit gelten zwei Erklärungen als fast gleich
+ *
+ * @param dauerMillis Dauer der Berechnung in Millisekunden
+ *
+ * @param cluster Gefundene Cluster, die größten zuerst
+ */
+public record Duplikatbericht( int anzahlEintraege,
+                               int anzahlCluster,
+                               double schwelle,
+                               long dauerMillis,
+                               List<Duplikatcluster> cluster
+                             ) {
+}
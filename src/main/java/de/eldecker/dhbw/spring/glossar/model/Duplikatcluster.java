@@ -0,0 +1,17 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+import java.util.List;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse enthält eine Gruppe von Glossareinträgen mit fast gleichen
+ * Erklärungen: jeder Eintrag ist zu mindestens einem anderen Eintrag der Gruppe ähnlich.
+ *
+ * @param anzahl Anzahl Einträge im Cluster
+ *
+ * @param eintraege Einträge im Cluster, nach ID sortiert
+ */
+public record Duplikatcluster( int anzahl,
+                               List<Duplikat> eintraege
+                             ) {
+}
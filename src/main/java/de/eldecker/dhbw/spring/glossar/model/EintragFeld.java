@@ -0,0 +1,113 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+
+/**
+ * Aufzählung der Felder eines Glossareintrags, die über die REST-API gelesen werden können.
+ * Mit dem URL-Parameter {@code fields} kann ein Client eine Teilmenge dieser Felder auswählen
+ * (<i>Sparse Fieldsets</i>), es werden dann auch nur diese Spalten von der Datenbank gelesen.
+ */
+public enum EintragFeld {
+
+    ID                  ( "id"                 ),
+    BEGRIFF             ( "begriff"            ),
+    ERKLAERUNG          ( "erklaerung"         ),
+    ZEITPUNKT_ERZEUGUNG ( "zeitpunktErzeugung" ),
+    ZEITPUNKT_AENDERUNG ( "zeitpunktAenderung" ),
+    AUTOR_ERZEUGUNG     ( "autorErzeugung"     ),
+    AUTOR_AENDERUNG     ( "autorAenderung"     );
+
+
+    /** Name des Felds im JSON und im URL-Parameter {@code fields}. */
+    private final String _jsonName;
+
+
+    /**
+     * Konstruktor für Enum-Wert.
+     *
+     * @param jsonName Name des Felds im JSON
+     */
+    private EintragFeld( String jsonName ) {
+
+        _jsonName = jsonName;
+    }
+
+
+    /**
+     * Getter für Name des Felds im JSON.
+     *
+     * @return Feldname, z.B. "begriff"
+     */
+    public String getJsonName() {
+
+        return _jsonName;
+    }
+
+
+    /**
+     * Parst den Wert des URL-Parameters {@code fields}, z.B. "id,begriff".
+     * Doppelt genannte Felder werden nur einmal berücksichtigt, die Reihenfolge
+     * der Felder im String bleibt erhalten.
+     *
+     * @param feldListeString Kommagetrennte Liste von Feldnamen; wenn {@code null} oder leer,
+     *                        dann werden alle Felder zurückgegeben.
+     *
+     * @return Optional enthält Liste der ausgewählten Felder; ist leer, wenn mindestens ein
+     *         unbekannter Feldname enthalten ist oder gar kein Feldname (z.B. {@code ","}).
+     */
+    public static Optional<List<EintragFeld>> parseFeldliste( String feldListeString ) {
+
+        if ( feldListeString == null || feldListeString.isBlank() ) {
+
+            return Optional.of( List.of( values() ) );
+        }
+
+        final List<EintragFeld> ergebnisListe = new ArrayList<>();
+
+        for ( String feldName : feldListeString.split( "," ) ) {
+
+            final Optional<EintragFeld> feldOptional = fuerJsonName( feldName.trim() );
+            if ( feldOptional.isEmpty() ) {
+
+                return Optional.empty();
+            }
+
+            if ( !ergebnisListe.contains( feldOptional.get() ) ) {
+
+                ergebnisListe.add( feldOptional.get() );
+            }
+        }
+
+        if ( ergebnisListe.isEmpty() ) {
+
+            return Optional.empty(); // nur Kommas, wäre sonst eine Liste mit leeren Objekten
+        }
+
+        return Optional.of( ergebnisListe );
+    }
+
+
+    /**
+     * Sucht Feld anhand Name im JSON.
+     *
+     * @param jsonName Name des Felds, z.B. "erklaerung"
+     *
+     * @return Optional enthält Feld, wenn {@code jsonName} bekannt ist
+     */
+    private static Optional<EintragFeld> fuerJsonName( String jsonName ) {
+
+        for ( EintragFeld feld : values() ) {
+
+            if ( feld._jsonName.equals( jsonName ) ) {
+
+                return Optional.of( feld );
+            }
+        }
+
+        return Optional.empty();
+    }
+
+}
@@ -0,0 +1,27 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse enthält das Ergebnis eines Exports des Glossars als
+ * statische HTML-Seiten.
+ *
+ * @param eintraegeGeschrieben Anzahl der Seiten für Einträge, die neu geschrieben wurden
+ *
+ * @param eintraegeUnveraendert Anzahl der Seiten für Einträge, die nicht verändert wurden
+ *
+ * @param eintraegeGeloescht Anzahl der Seiten für nicht mehr vorhandene Einträge, die gelöscht wurden
+ *
+ * @param uebersichtGeschrieben Anzahl der Seiten der Übersicht, die neu geschrieben wurden
+ *
+ * @param uebersichtGesamt Anzahl der Seiten der Übersicht insgesamt
+ *
+ * @param dauerMillis Dauer des Exports in Millisekunden
+ */
+public record ExportErgebnis( int eintraegeGeschrieben,
+                              int eintraegeUnveraendert,
+                              int eintraegeGeloescht,
+                              int uebersichtGeschrieben,
+                              int uebersichtGesamt,
+                              long dauerMillis
+                            ) {
+}
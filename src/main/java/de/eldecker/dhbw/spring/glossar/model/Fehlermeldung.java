@@ -0,0 +1,15 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse wird als JSON an einen Client zurückgeschickt, wenn
+ * dessen Request nicht verarbeitet werden konnte (z.B. weil die Payload ungültig ist).
+ *
+ * @param fehlercode Maschinenlesbarer Code, z.B. {@code PAYLOAD_ZU_GROSS}
+ *
+ * @param meldung Fehlermeldung für Menschen
+ */
+public record Fehlermeldung( String fehlercode,
+                             String meldung
+                           ) {
+}
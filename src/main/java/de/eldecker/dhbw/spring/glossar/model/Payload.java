@@ -13,10 +13,15 @@ import java.util.Optional;
  * @param begriff Begriff des Eintrags (darf nicht leer sein)
  *  
  * @param erklaerung Erklärung zu {@code begriff}
+ *
+ * @param version Version des zu ändernden Eintrags, die der Client zuletzt gesehen hat;
+ *                wenn gesetzt, dann wird die Änderung abgelehnt, falls der Eintrag inzwischen
+ *                geändert wurde. Für neue Einträge nicht relevant.
  */
 public record Payload( String id, 
                        String begriff, 
-                       String erklaerung ) { 
+                       String erklaerung,
+                       Long version ) { 
     
     /**
      * Methode parst die ID (wenn vorhanden) von {@code String} nach {@code long}.
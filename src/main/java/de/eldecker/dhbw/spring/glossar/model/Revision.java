@@ -0,0 +1,26 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+import java.time.LocalDateTime;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse enthält eine aus der Historie rekonstruierte Revision
+ * eines Glossareintrags.
+ *
+ * @param nummer Laufende Nummer der Revision, beginnt mit 1
+ *
+ * @param begriff Begriff in dieser Revision
+ *
+ * @param erklaerung Vollständige Erklärung in dieser Revision
+ *
+ * @param zeitpunkt Zeitpunkt der Änderung
+ *
+ * @param autor Nutzername des Autors der Änderung
+ */
+public record Revision( int nummer,
+                        String begriff,
+                        String erklaerung,
+                        LocalDateTime zeitpunkt,
+                        String autor
+                      ) {
+}
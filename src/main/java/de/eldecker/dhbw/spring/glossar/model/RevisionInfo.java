@@ -0,0 +1,30 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+import java.time.LocalDateTime;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse beschreibt eine Revision eines Glossareintrags für die
+ * Übersicht auf der Seite mit der Historie; die Erklärung selbst ist nicht enthalten.
+ *
+ * @param nummer Laufende Nummer der Revision, beginnt mit 1
+ *
+ * @param begriff Begriff in dieser Revision
+ *
+ * @param zeitpunkt Zeitpunkt der Änderung
+ *
+ * @param autor Nutzername des Autors der Änderung
+ *
+ * @param istSnapshot {@code true} wenn die Revision die vollständige Erklärung enthält,
+ *                    {@code false} wenn nur ein Delta gespeichert ist
+ *
+ * @param laenge Anzahl der gespeicherten Zeichen (vollständige Erklärung oder Delta)
+ */
+public record RevisionInfo( int nummer,
+                            String begriff,
+                            LocalDateTime zeitpunkt,
+                            String autor,
+                            boolean istSnapshot,
+                            int laenge
+                          ) {
+}
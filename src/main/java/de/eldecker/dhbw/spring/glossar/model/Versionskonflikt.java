@@ -0,0 +1,31 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+
+/**
+ * Ein Objekt dieser Record-Klasse wird als JSON mit HTTP-Status-Code 409 (Conflict) an den
+ * Client zurückgeschickt, wenn er einen Eintrag ändern wollte, der inzwischen von jemand
+ * anderem geändert wurde. Der Client bekommt damit den aktuellen Stand des Eintrags.
+ *
+ * @param meldung Fehlermeldung für Menschen
+ *
+ * @param id ID des Eintrags
+ *
+ * @param begriff Aktueller Begriff
+ *
+ * @param erklaerung Aktuelle Erklärung
+ *
+ * @param version Aktuelle Version, muss für eine erneute Änderung mitgeschickt werden
+ *
+ * @param zeitpunktAenderung Zeitpunkt der letzten Änderung (ISO-8601)
+ *
+ * @param autorAenderung Nutzername des Autors der letzten Änderung
+ */
+public record Versionskonflikt( String meldung,
+                                long   id,
+                                String begriff,
+                                String erklaerung,
+                                long   version,
+                                String zeitpunktAenderung,
+                                String autorAenderung
+                              ) {
+}
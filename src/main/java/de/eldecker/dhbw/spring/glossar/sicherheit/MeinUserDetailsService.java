@@ -15,7 +15,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.db.GebuendelterLeser;
 import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
 
 
@@ -34,17 +34,20 @@ public class MeinUserDetailsService implements UserDetailsService {
     /** Objekt für Kodierung Passwort. */
     private final PasswordEncoder _passwordEncoder = createDelegatingPasswordEncoder();
 
-    /** Repository-Bean für Datenbankzugriff. */
-    private final Datenbank _datenbank;
+    /**
+     * Bean für Datenbankzugriff; gleichzeitige Anmeldungen mit demselben Nutzernamen
+     * führen nur zu einer Abfrage.
+     */
+    private final GebuendelterLeser _gebuendelterLeser;
 
 
     /**
      * Konstruktor für <i>Dependency Injection</i>.
      */
     @Autowired
-    public MeinUserDetailsService( Datenbank datenbank ) {
+    public MeinUserDetailsService( GebuendelterLeser gebuendelterLeser ) {
 
-        _datenbank = datenbank;
+        _gebuendelterLeser = gebuendelterLeser;
     }
 
 
@@ -66,7 +69,7 @@ public class MeinUserDetailsService implements UserDetailsService {
 
         LOG.info( "Laden von Nutzername \"{}\" angefordert.", nutzername );
 
-        final Optional<AutorEntity> autorOptional = _datenbank.getAutorByName( nutzername );
+        final Optional<AutorEntity> autorOptional = _gebuendelterLeser.getAutorByName( nutzername );
         if ( autorOptional.isEmpty() ) {
 
             throw new UsernameNotFoundException( "Nutzer \"" + nutzername + "\" nicht in DB gefunden.");
@@ -26,7 +26,12 @@ public class Sicherheitskonfiguration {
                                                                "/anmeldungGescheitert.html",
                                                                "/h2-console/**"            ,
                                                                "/app/hauptseite"           ,
-                                                               "/app/eintrag/**"
+                                                               "/app/eintrag/**"           ,
+                                                               "/app/beliebt"              ,
+                                                               "/api/v1/eintraege"         ,
+                                                               "/api/v1/eintraege/**"      ,
+                                                               "/api/v1/aenderungen"       ,
+                                                               "/api/v1/aenderungen/**"
                                                              };
 
     /** Objekt mit Event-Handler-Methode, die ausgeführt wird, wenn ein Nutzer sich erfolgreich angemeldet hat. */
@@ -0,0 +1,538 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import tools.jackson.databind.ObjectMapper;
+
+import de.eldecker.dhbw.spring.glossar.db.Aenderungsfeed;
+import de.eldecker.dhbw.spring.glossar.model.Aenderung;
+import de.eldecker.dhbw.spring.glossar.model.Aenderungsseite;
+
+
+/**
+ * Verteilt neue Änderungen aus dem {@link Aenderungsfeed} als <i>Server-Sent Events</i> an alle
+ * Clients, die den Stream abonniert haben.
+ * <br><br>
+ *
+ * Die Änderungen werden von einem einzigen Thread verteilt, der nach jedem Commit mit neuen
+ * Revisionen aufgeweckt wird. Er liest die Änderungen ab dem kleinsten Stand aller Abonnenten
+ * seitenweise von der Datenbank und stellt jedem Abonnenten die Änderungen, die er noch nicht
+ * hat, in dessen Puffer; ein neuer Abonnent mit altem Stand holt so zuerst die verpassten
+ * Änderungen nach, ohne dass für jeden Abonnenten eine eigene Abfrage nötig ist. Wenn es längere
+ * Zeit keine Änderungen gibt, dann wird ein Kommentar als Lebenszeichen geschickt, damit
+ * abgebrochene Verbindungen erkannt werden.
+ * <br><br>
+ *
+ * Das eigentliche Senden übernimmt ein Thread-Pool, damit ein Client, der nur langsam liest,
+ * nicht alle anderen Abonnenten aufhält. Der Puffer pro Abonnent ist begrenzt: Ist er voll,
+ * dann bekommt der Abonnent vorerst keine weiteren Änderungen (und bremst auch das Lesen für die
+ * anderen nicht); kommt er länger als der Abstand zwischen zwei Lebenszeichen nicht voran, dann
+ * wird er abgemeldet und muss sich mit seinem letzten Stand neu verbinden.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.aenderungen.abonnenten}: Anzahl offener Streams</li>
+ * <li>{@code glossar.aenderungen.gesendet}: Anzahl verschickter Änderungen (über alle Abonnenten)</li>
+ * </ul>
+ */
+@Component
+public class AenderungsStream implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( AenderungsStream.class );
+
+    /** Max Anzahl Änderungen, die pro Datenbankabfrage gelesen werden. */
+    private static final int SEITE_MAX = 500;
+
+    /** Name der Events mit Änderungen. */
+    private static final String EVENT_NAME = "aenderung";
+
+    /**
+     * Ein Event im Puffer eines Abonnenten.
+     *
+     * @param event Zu sendendes Event
+     *
+     * @param istAenderung {@code true} für eine Änderung, {@code false} für einen Kommentar
+     */
+    private record Nachricht( SseEventBuilder event, boolean istAenderung ) {}
+
+    /**
+     * Ein Abonnent des Streams.
+     */
+    private static final class Abo {
+
+        /** Emitter für die Events an den Client. */
+        final SseEmitter emitter;
+
+        /** Events, die noch an den Client gesendet werden müssen. */
+        final BlockingQueue<Nachricht> puffer;
+
+        /** {@code true} solange ein Thread aus dem Pool den Puffer abarbeitet. */
+        final AtomicBoolean wirdGesendet = new AtomicBoolean( false );
+
+        /**
+         * Sequenznummer, bis zu der alle Änderungen in den Puffer gestellt sind; wird nur vom
+         * Verteiler-Thread geändert.
+         */
+        volatile long stand;
+
+        /** Zeitpunkt ({@link System#nanoTime()}) des letzten erfolgreichen Sendens. */
+        volatile long letzterFortschritt = System.nanoTime();
+
+        Abo( SseEmitter emitter, long stand, int pufferMax ) {
+
+            this.emitter = emitter;
+            this.puffer  = new ArrayBlockingQueue<>( pufferMax );
+            this.stand   = stand;
+        }
+    }
+
+    /** Repository-Bean, von der die Änderungen gelesen werden. */
+    private final Aenderungsfeed _aenderungsfeed;
+
+    /** Für Serialisierung der Änderungen als JSON. */
+    private final ObjectMapper _objectMapper;
+
+    /** Timeout für einen Stream in Millisekunden, danach muss sich der Client neu verbinden. */
+    private final long _timeoutMillis;
+
+    /** Abstand zwischen Lebenszeichen in Millisekunden, wenn es keine Änderungen gibt. */
+    private final long _lebenszeichenMillis;
+
+    /** Max Anzahl gleichzeitiger Abonnenten. */
+    private final int _abonnentenMax;
+
+    /** Max Anzahl Events im Puffer eines Abonnenten. */
+    private final int _pufferMax;
+
+    /** Anzahl Threads für das Senden an die Abonnenten. */
+    private final int _anzahlSenderThreads;
+
+    /** Aktuelle Abonnenten. */
+    private final List<Abo> _aboListe = new CopyOnWriteArrayList<>();
+
+    /**
+     * Freie Plätze für Abonnenten; ein Platz wird vor dem Anlegen eines Abonnenten belegt
+     * und beim Entfernen aus {@link #_aboListe} wieder freigegeben.
+     */
+    private final Semaphore _freiePlaetze;
+
+    /**
+     * Signal für Verteiler-Thread: es gibt neue Änderungen, einen neuen Abonnenten oder
+     * wieder Platz im Puffer eines Abonnenten.
+     */
+    private final Semaphore _signal = new Semaphore( 0 );
+
+    /** Anzahl verschickter Änderungen (für Metrik). */
+    private final LongAdder _anzahlGesendet = new LongAdder();
+
+    /** Thread, der die Änderungen in die Puffer der Abonnenten stellt. */
+    private Thread _verteilerThread = null;
+
+    /** Thread-Pool, der die Puffer der Abonnenten abarbeitet. */
+    private ExecutorService _senderPool = null;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}.
+     */
+    @Autowired
+    public AenderungsStream( Aenderungsfeed aenderungsfeed,
+                             ObjectMapper objectMapper,
+                             @Value( "${de.eldecker.glossar.aenderungen.stream.timeout.ms:1800000}"   ) long timeoutMillis,
+                             @Value( "${de.eldecker.glossar.aenderungen.stream.lebenszeichen.ms:15000}" ) long lebenszeichenMillis,
+                             @Value( "${de.eldecker.glossar.aenderungen.stream.max:100}"              ) int  abonnentenMax,
+                             @Value( "${de.eldecker.glossar.aenderungen.stream.puffer:1000}"          ) int  pufferMax,
+                             @Value( "${de.eldecker.glossar.aenderungen.stream.sender.threads:4}"     ) int  anzahlSenderThreads ) {
+
+        _aenderungsfeed      = aenderungsfeed;
+        _objectMapper        = objectMapper;
+        _timeoutMillis       = timeoutMillis;
+        _lebenszeichenMillis = lebenszeichenMillis;
+        _abonnentenMax       = abonnentenMax;
+        _pufferMax           = Math.max( pufferMax, SEITE_MAX );
+        _anzahlSenderThreads = anzahlSenderThreads;
+        _freiePlaetze        = new Semaphore( abonnentenMax );
+    }
+
+
+    /**
+     * Verteiler-Thread und Thread-Pool starten und beim Änderungsfeed für das Aufwecken registrieren.
+     */
+    @PostConstruct
+    private void starten() {
+
+        _senderPool = Executors.newFixedThreadPool( _anzahlSenderThreads );
+
+        _aenderungsfeed.beobachterHinzufuegen( _signal::release );
+
+        _verteilerThread = new Thread( this::verteilSchleife, "aenderungs-stream" );
+        _verteilerThread.setDaemon( true );
+        _verteilerThread.start();
+    }
+
+
+    /**
+     * Verteiler-Thread und Thread-Pool beenden und alle Streams schließen.
+     */
+    @PreDestroy
+    private void beenden() {
+
+        _verteilerThread.interrupt();
+        _senderPool.shutdownNow();
+
+        for ( Abo abo : _aboListe ) {
+
+            entfernen( abo );
+            abo.emitter.complete();
+        }
+    }
+
+
+    /**
+     * Neuen Abonnenten anlegen.
+     *
+     * @param seit Sequenznummer, ab der der Client Änderungen bekommen soll
+     *             (ohne diese selbst); {@code 0} für alle Änderungen.
+     *
+     * @return Optional enthält Emitter, der vom Controller zurückgegeben werden muss;
+     *         ist leer, wenn es schon die max. Anzahl Abonnenten gibt.
+     *
+     * @throws IOException Fehler beim Senden des ersten Kommentars an den Client
+     */
+    public Optional<SseEmitter> abonnieren( long seit ) throws IOException {
+
+        if ( !_freiePlaetze.tryAcquire() ) {
+
+            LOG.warn( "Max. Anzahl von {} Abonnenten für Änderungsstream erreicht.", _abonnentenMax );
+            return Optional.empty();
+        }
+
+        final SseEmitter emitter = new SseEmitter( _timeoutMillis );
+        final Abo        abo     = new Abo( emitter, seit, _pufferMax );
+
+        try {
+
+            // damit der Client sofort die HTTP-Header bekommt
+            emitter.send( SseEmitter.event().comment( "Änderungen seit " + seit ) );
+        }
+        catch ( IOException | RuntimeException ex ) {
+
+            _freiePlaetze.release();
+            throw ex;
+        }
+
+        _aboListe.add( abo );
+
+        emitter.onCompletion( () -> entfernen( abo ) );
+        emitter.onTimeout(    () -> entfernen( abo ) );
+        emitter.onError(   ex -> entfernen( abo ) );
+
+        _signal.release();
+
+        LOG.info( "Neuer Abonnent für Änderungsstream ab Sequenznummer {}.", seit );
+
+        return Optional.of( emitter );
+    }
+
+
+    /**
+     * Schleife des Verteiler-Threads.
+     */
+    private void verteilSchleife() {
+
+        while ( !Thread.currentThread().isInterrupted() ) {
+
+            try {
+
+                final boolean signalBekommen = _signal.tryAcquire( _lebenszeichenMillis, MILLISECONDS );
+                _signal.drainPermits();
+
+                neueAenderungenSenden();
+
+                if ( !signalBekommen ) {
+
+                    lebenszeichenSenden();
+                }
+            }
+            catch ( InterruptedException ex ) {
+
+                return;
+            }
+            catch ( RuntimeException ex ) {
+
+                LOG.error( "Fehler beim Verteilen von Änderungen an Abonnenten.", ex );
+            }
+        }
+    }
+
+
+    /**
+     * Neuen Änderungen seitenweise folgen und sie in die Puffer aller Abonnenten stellen, die
+     * diese noch nicht haben. Ein Abonnent, dessen Puffer für eine Seite zu voll ist, wird ab
+     * dieser Seite übersprungen und kommt dran, sobald sein Puffer leer ist; sind alle
+     * übersprungen, dann werden keine weiteren Seiten gelesen.
+     */
+    private void neueAenderungenSenden() {
+
+        final long horizont = _aenderungsfeed.getHorizont();
+
+        final List<Abo> bereitListe = new ArrayList<>( _aboListe.size() );
+        long kleinsterStand = Long.MAX_VALUE;
+        for ( Abo abo : _aboListe ) {
+
+            if ( abo.stand < horizont ) {
+
+                bereitListe.add( abo );
+                kleinsterStand = Math.min( kleinsterStand, abo.stand );
+            }
+        }
+        if ( bereitListe.isEmpty() ) {
+
+            return;
+        }
+
+        _aenderungsfeed.folgenSolange( kleinsterStand, SEITE_MAX, seite -> seiteVerteilen( seite, bereitListe ) );
+    }
+
+
+    /**
+     * Eine Seite aus dem Änderungsfeed in die Puffer der Abonnenten stellen.
+     *
+     * @param seite Seite mit neuen Änderungen
+     *
+     * @param bereitListe Abonnenten, die noch Änderungen aufnehmen; wer für diese Seite keinen
+     *                    Platz mehr hat, wird entfernt
+     *
+     * @return {@code true} wenn noch ein Abonnent weitere Seiten aufnehmen kann
+     */
+    private boolean seiteVerteilen( Aenderungsseite seite, List<Abo> bereitListe ) {
+
+        final List<Aenderung> aenderungListe = seite.aenderungen();
+
+        final List<String> jsonListe = new ArrayList<>( aenderungListe.size() );
+        for ( Aenderung aenderung : aenderungListe ) {
+
+            jsonListe.add( _objectMapper.writeValueAsString( aenderung ) );
+        }
+
+        final Iterator<Abo> iterator = bereitListe.iterator();
+        while ( iterator.hasNext() ) {
+
+            final Abo abo = iterator.next();
+            if ( abo.stand >= seite.token() ) {
+
+                continue; // Abonnent ist schon weiter als diese Seite
+            }
+            if ( abo.puffer.remainingCapacity() < aenderungListe.size() ) {
+
+                pruefenObHinterher( abo );
+                iterator.remove();
+                continue;
+            }
+
+            for ( int i = 0; i < aenderungListe.size(); i++ ) {
+
+                final long sequenz = aenderungListe.get( i ).sequenz();
+                if ( sequenz > abo.stand ) {
+
+                    // Platz für die ganze Seite wurde oben geprüft, nur der Verteiler-Thread füllt den Puffer
+                    abo.puffer.add( new Nachricht( SseEmitter.event()
+                                                             .id( Long.toString( sequenz ) )
+                                                             .name( EVENT_NAME )
+                                                             .data( jsonListe.get( i ), APPLICATION_JSON ),
+                                                   true ) );
+                }
+            }
+            abo.stand = seite.token();
+            senden( abo );
+        }
+
+        return !bereitListe.isEmpty();
+    }
+
+
+    /**
+     * Kommentar als Lebenszeichen an alle Abonnenten schicken, die gerade nichts im Puffer haben.
+     */
+    private void lebenszeichenSenden() {
+
+        for ( Abo abo : _aboListe ) {
+
+            if ( !abo.puffer.isEmpty() ) {
+
+                pruefenObHinterher( abo );
+
+            } else if ( abo.puffer.offer( new Nachricht( SseEmitter.event().comment( "lebenszeichen" ), false ) ) ) {
+
+                abo.letzterFortschritt = System.nanoTime(); // ein leerer Puffer ist kein Rückstand
+                senden( abo );
+            }
+        }
+    }
+
+
+    /**
+     * Abonnenten abmelden, wenn er mit vollem Puffer länger als den Abstand zwischen zwei
+     * Lebenszeichen kein Event mehr abgenommen hat.
+     *
+     * @param abo Zu prüfender Abonnent
+     */
+    private void pruefenObHinterher( Abo abo ) {
+
+        final long stillstandMillis = MILLISECONDS.convert( System.nanoTime() - abo.letzterFortschritt, NANOSECONDS );
+        if ( stillstandMillis > _lebenszeichenMillis ) {
+
+            abmelden( abo, "seit " + stillstandMillis + " ms kein Fortschritt, " + abo.puffer.size() + " Events im Puffer" );
+        }
+    }
+
+
+    /**
+     * Abarbeiten des Puffers im Thread-Pool anstoßen, falls nicht schon ein Thread dabei ist.
+     *
+     * @param abo Abonnent mit neuen Events im Puffer
+     */
+    private void senden( Abo abo ) {
+
+        if ( abo.wirdGesendet.compareAndSet( false, true ) ) {
+
+            _senderPool.execute( () -> pufferAbarbeiten( abo ) );
+        }
+    }
+
+
+    /**
+     * Alle Events im Puffer eines Abonnenten an den Client schicken; läuft im Thread-Pool,
+     * für jeden Abonnenten höchstens in einem Thread gleichzeitig.
+     *
+     * @param abo Abonnent, dessen Puffer abgearbeitet wird
+     */
+    private void pufferAbarbeiten( Abo abo ) {
+
+        while ( true ) {
+
+            final Nachricht nachricht = abo.puffer.poll();
+            if ( nachricht == null ) {
+
+                abo.wirdGesendet.set( false );
+                _signal.release(); // Verteiler-Thread kann wieder eine Seite in den Puffer stellen
+
+                // Event, das nach poll() aber vor set() eingereiht wurde, nicht liegen lassen
+                if ( abo.puffer.isEmpty() || !abo.wirdGesendet.compareAndSet( false, true ) ) {
+
+                    return;
+                }
+                continue;
+            }
+
+            try {
+
+                abo.emitter.send( nachricht.event() );
+                abo.letzterFortschritt = System.nanoTime();
+                if ( nachricht.istAenderung() ) {
+
+                    _anzahlGesendet.increment();
+                }
+            }
+            catch ( IOException | IllegalStateException ex ) {
+
+                abmelden( abo, ex.getMessage() );
+                abo.wirdGesendet.set( false );
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Abonnenten aus der Liste entfernen und seinen Platz freigeben; darf mehrfach für denselben
+     * Abonnenten aufgerufen werden.
+     *
+     * @param abo Zu entfernender Abonnent
+     */
+    private void entfernen( Abo abo ) {
+
+        if ( _aboListe.remove( abo ) ) {
+
+            _freiePlaetze.release();
+        }
+        abo.puffer.clear();
+    }
+
+
+    /**
+     * Abonnent entfernen, nachdem das Senden fehlgeschlagen ist (z.B. Verbindung abgebrochen)
+     * oder er zu weit zurückliegt.
+     *
+     * @param abo Zu entfernender Abonnent
+     *
+     * @param grund Grund für das Abmelden, für das Log
+     */
+    private void abmelden( Abo abo, String grund ) {
+
+        LOG.info( "Abonnent für Änderungsstream entfernt: {}", grund );
+
+        entfernen( abo );
+        try {
+
+            abo.emitter.complete();
+        }
+        catch ( RuntimeException ex2 ) {
+
+            // Verbindung ist schon geschlossen
+        }
+    }
+
+
+    /**
+     * Metriken bei Micrometer registrieren.
+     *
+     * @param registry Registry, bei der die Metriken registriert werden
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        Gauge.builder( "glossar.aenderungen.abonnenten", _aboListe, List::size )
+             .description( "Anzahl offener Streams mit Änderungen" )
+             .register( registry );
+
+        FunctionCounter.builder( "glossar.aenderungen.gesendet", _anzahlGesendet, LongAdder::sum )
+                       .description( "Anzahl an Abonnenten verschickter Änderungen" )
+                       .register( registry );
+    }
+
+}
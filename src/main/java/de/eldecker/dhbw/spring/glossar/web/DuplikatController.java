@@ -0,0 +1,68 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import tools.jackson.databind.ObjectMapper;
+
+import de.eldecker.dhbw.spring.glossar.index.Duplikatindex;
+import de.eldecker.dhbw.spring.glossar.model.Duplikatbericht;
+
+
+/**
+ * REST-Controller, mit dem ein angemeldeter Nutzer einen Bericht über alle Gruppen von
+ * Glossareinträgen mit fast gleichen Erklärungen abrufen kann (siehe {@link Duplikatindex}).
+ */
+@RestController
+@RequestMapping( "/api/v1" )
+public class DuplikatController {
+
+    /** Bean mit den Signaturen aller Erklärungen. */
+    private final Duplikatindex _duplikatindex;
+
+    /** Für Serialisierung des Berichts als JSON. */
+    private final ObjectMapper _objectMapper;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public DuplikatController( Duplikatindex duplikatindex,
+                               ObjectMapper objectMapper ) {
+
+        _duplikatindex = duplikatindex;
+        _objectMapper  = objectMapper;
+    }
+
+
+    /**
+     * Cluster von Einträgen mit fast gleichen Erklärungen über das ganze Glossar berechnen;
+     * der Request kehrt erst nach Ende der Berechnung zurück.
+     *
+     * @return HTTP-Status-Code 200 mit {@link Duplikatbericht} als JSON; 503 (Service Unavailable)
+     *         wenn die Signaturen nach dem Programmstart noch berechnet werden.
+     */
+    @GetMapping( "/duplikate" )
+    public ResponseEntity<String> duplikateBerichten() {
+
+        final Optional<Duplikatbericht> berichtOptional = _duplikatindex.clusterBerechnen();
+        if ( berichtOptional.isEmpty() ) {
+
+            return new ResponseEntity<>( "Signaturen für die Duplikatsuche werden noch berechnet.", SERVICE_UNAVAILABLE );
+        }
+
+        return ResponseEntity.ok()
+                             .contentType( APPLICATION_JSON )
+                             .body( _objectMapper.writeValueAsString( berichtOptional.get() ) );
+    }
+
+}
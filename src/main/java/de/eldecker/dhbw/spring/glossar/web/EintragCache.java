@@ -0,0 +1,236 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.glossar.db.GebuendelterLeser;
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.helferlein.AusgelagerterText;
+import de.eldecker.dhbw.spring.glossar.helferlein.TextSpeicher;
+
+
+/**
+ * Cache für die Anzeige einzelner Glossareinträge (Template {@code eintrag.html}).
+ * <br><br>
+ *
+ * Die Erklärungen (bis zu 9999 Zeichen) liegen nicht auf dem Heap, sondern in einem
+ * {@link TextSpeicher} außerhalb des Heaps; auf dem Heap liegen pro Eintrag nur Begriff,
+ * Zeitpunkte, Autoren und das Handle für die Erklärung. Die Erklärung wird erst beim Rendern
+ * des Templates dekodiert (siehe {@link AusgelagerterText}). Wenn die Kapazität des
+ * Speichers erreicht ist, dann werden die am längsten nicht mehr angezeigten Erklärungen
+ * verdrängt und mit ihnen der ganze Eintrag aus dem Cache entfernt.
+ * <br><br>
+ *
+ * Ein Eintrag im Cache ist gültig, solange sich der Zeitpunkt der letzten Änderung nicht
+ * geändert hat; diesen Zeitpunkt liest {@link ThymeleafWebController} für den ETag sowieso
+ * schon vor jeder Anzeige aus der Datenbank.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}):
+ * <ul>
+ * <li>{@code glossar.eintragcache.eintraege}: Anzahl Einträge im Cache</li>
+ * <li>{@code glossar.eintragcache.bytes.belegt}: Länge aller Erklärungen (UTF-8) außerhalb des Heaps</li>
+ * <li>{@code glossar.eintragcache.bytes.reserviert}: tatsächlich außerhalb des Heaps reservierter Speicher</li>
+ * <li>{@code glossar.eintragcache.bytes.kapazitaet}: konfigurierte Kapazität</li>
+ * <li>{@code glossar.eintragcache.verdraengt}: Anzahl verdrängter Erklärungen</li>
+ * <li>{@code glossar.eintragcache.treffer} und {@code glossar.eintragcache.fehlschlaege}:
+ *     Anzahl Zugriffe mit bzw. ohne gültigen Eintrag im Cache</li>
+ * </ul>
+ */
+@Component
+public class EintragCache implements MeterBinder {
+
+    /**
+     * Ein Glossareintrag im Cache; alle Felder außer der Erklärung liegen auf dem Heap.
+     *
+     * @param id ID des Eintrags
+     *
+     * @param version Version des Eintrags
+     *
+     * @param begriff Begriff
+     *
+     * @param erklaerung Erklärung, wird erst mit {@code toString()} dekodiert
+     *
+     * @param zeitpunktErzeugung Zeitpunkt der Erzeugung
+     *
+     * @param zeitpunktAenderung Zeitpunkt der letzten Änderung, für die Prüfung der Gültigkeit
+     *
+     * @param autorErzeugung Nutzername des Autors, der den Eintrag angelegt hat
+     *
+     * @param autorAenderung Nutzername des Autors der letzten Änderung
+     */
+    public record Eintrag( long id,
+                           long version,
+                           String begriff,
+                           AusgelagerterText erklaerung,
+                           LocalDateTime zeitpunktErzeugung,
+                           LocalDateTime zeitpunktAenderung,
+                           String autorErzeugung,
+                           String autorAenderung
+                         ) {}
+
+
+    /** Bean zum Laden der Einträge, die nicht im Cache sind. */
+    private final GebuendelterLeser _gebuendelterLeser;
+
+    /** Einträge im Cache nach ID. */
+    private final Map<Long, Eintrag> _eintragMap = new ConcurrentHashMap<>();
+
+    /** Speicher außerhalb des Heaps für die Erklärungen, Schlüssel ist die ID des Eintrags. */
+    private final TextSpeicher _textSpeicher;
+
+    /** Anzahl Zugriffe mit gültigem Eintrag im Cache. */
+    private final AtomicLong _anzahlTreffer = new AtomicLong( 0 );
+
+    /** Anzahl Zugriffe, für die der Eintrag geladen werden musste. */
+    private final AtomicLong _anzahlFehlschlaege = new AtomicLong( 0 );
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}.
+     */
+    @Autowired
+    public EintragCache( GebuendelterLeser gebuendelterLeser,
+                         @Value( "${de.eldecker.glossar.eintragcache.bytes.max:33554432}" ) long bytesMax,
+                         @Value( "${de.eldecker.glossar.eintragcache.seite.bytes:1048576}" ) int seiteBytes ) {
+
+        _gebuendelterLeser = gebuendelterLeser;
+        _textSpeicher      = new TextSpeicher( bytesMax, seiteBytes, _eintragMap::remove );
+    }
+
+
+    /**
+     * Glossareintrag aus dem Cache holen; wenn er nicht im Cache ist oder sich inzwischen
+     * geändert hat, dann wird er geladen und im Cache abgelegt.
+     *
+     * @param id ID des Eintrags
+     *
+     * @param zeitpunktAenderung Aktueller Zeitpunkt der letzten Änderung des Eintrags
+     *
+     * @return Optional enthält den Eintrag; ist leer, wenn es keinen Eintrag mit {@code id}
+     *         (mehr) gibt
+     */
+    public Optional<Eintrag> holen( long id, LocalDateTime zeitpunktAenderung ) {
+
+        final Eintrag eintragCache = _eintragMap.get( id );
+        if ( eintragCache != null &&
+             eintragCache.zeitpunktAenderung().isEqual( zeitpunktAenderung ) &&
+             eintragCache.erklaerung().istImSpeicher() ) {
+
+            _anzahlTreffer.incrementAndGet();
+            return Optional.of( eintragCache );
+        }
+
+        _anzahlFehlschlaege.incrementAndGet();
+
+        final Optional<GlossarEntity> entityOptional = _gebuendelterLeser.getEintragById( id );
+        if ( entityOptional.isEmpty() ) {
+
+            _eintragMap.remove( id );
+            _textSpeicher.entfernen( id );
+            return Optional.empty();
+        }
+
+        final GlossarEntity entity     = entityOptional.get();
+        final String        erklaerung = entity.getErklaerung() == null ? "" : entity.getErklaerung();
+
+        final long handle = _textSpeicher.ablegen( id, erklaerung );
+
+        final AusgelagerterText text = handle == TextSpeicher.KEIN_HANDLE
+                                       ? new AusgelagerterText( _textSpeicher, handle, () -> erklaerung ) // zu lang
+                                       : new AusgelagerterText( _textSpeicher, handle, () -> nachladen( id ) );
+
+        final Eintrag eintrag = new Eintrag( id,
+                                             entity.getVersion(),
+                                             entity.getBegriff(),
+                                             text,
+                                             entity.getZeitpunktErzeugung(),
+                                             entity.getZeitpunktAenderung(),
+                                             nutzername( entity.getAutorErzeugung() ),
+                                             nutzername( entity.getAutorAenderung() ) );
+
+        if ( handle == TextSpeicher.KEIN_HANDLE ) {
+
+            _eintragMap.remove( id );
+
+        } else {
+
+            _eintragMap.put( id, eintrag );
+        }
+
+        return Optional.of( eintrag );
+    }
+
+
+    /**
+     * Erklärung aus der Datenbank lesen, wenn sie zwischen {@link #holen(long, LocalDateTime)}
+     * und dem Rendern verdrängt wurde.
+     */
+    private String nachladen( long id ) {
+
+        return _gebuendelterLeser.getEintragById( id )
+                                 .map( GlossarEntity::getErklaerung )
+                                 .orElse( "" );
+    }
+
+
+    private static String nutzername( AutorEntity autor ) {
+
+        return autor == null ? "" : autor.getNutzername();
+    }
+
+
+    /**
+     * Metriken registrieren; wird von Spring Boot aufgerufen.
+     *
+     * @param registry Registry für Metriken
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        Gauge.builder( "glossar.eintragcache.eintraege", _eintragMap, Map::size )
+             .description( "Anzahl Glossareinträge im Cache für die Anzeige" )
+             .register( registry );
+
+        Gauge.builder( "glossar.eintragcache.bytes.belegt", _textSpeicher, TextSpeicher::getBytesBelegt )
+             .description( "Länge aller Erklärungen im Cache außerhalb des Heaps" )
+             .baseUnit( "bytes" )
+             .register( registry );
+
+        Gauge.builder( "glossar.eintragcache.bytes.reserviert", _textSpeicher, TextSpeicher::getBytesReserviert )
+             .description( "Außerhalb des Heaps reservierter Speicher für Erklärungen" )
+             .baseUnit( "bytes" )
+             .register( registry );
+
+        Gauge.builder( "glossar.eintragcache.bytes.kapazitaet", _textSpeicher, TextSpeicher::getKapazitaet )
+             .description( "Maximaler Speicher außerhalb des Heaps für Erklärungen" )
+             .baseUnit( "bytes" )
+             .register( registry );
+
+        FunctionCounter.builder( "glossar.eintragcache.verdraengt", _textSpeicher, TextSpeicher::getAnzahlVerdraengt )
+                       .description( "Anzahl verdrängter Erklärungen (LRU)" )
+                       .register( registry );
+
+        FunctionCounter.builder( "glossar.eintragcache.treffer", _anzahlTreffer, AtomicLong::get )
+                       .description( "Anzahl Zugriffe mit gültigem Eintrag im Cache" )
+                       .register( registry );
+
+        FunctionCounter.builder( "glossar.eintragcache.fehlschlaege", _anzahlFehlschlaege, AtomicLong::get )
+                       .description( "Anzahl Zugriffe, für die der Eintrag geladen werden musste" )
+                       .register( registry );
+    }
+
+}
@@ -0,0 +1,191 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.IWebExchange;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import de.eldecker.dhbw.spring.glossar.db.GlossarVersion;
+import de.eldecker.dhbw.spring.glossar.index.Begriffsindex;
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+
+/**
+ * Cache für die gerenderte Hauptseite (Template {@code hauptseite.html}).
+ * <br><br>
+ *
+ * Die Hauptseite hängt nur von der Liste der Glossarbegriffe und dem Anmeldestatus
+ * des Nutzers ab. Deshalb wird die Seite pro Glossarversion (siehe {@link GlossarVersion})
+ * nur einmal komplett gerendert, und zwar mit einem Platzhalter anstelle des nutzerabhängigen
+ * Teils (Fragment {@code nutzerblock}). Das Ergebnis wird am Platzhalter in zwei bereits
+ * UTF-8-kodierte Byte-Arrays zerlegt. Für einen Request muss dann nur noch das kleine
+ * Fragment {@code nutzerblock} gerendert werden, die beiden Byte-Arrays werden unverändert
+ * in die HTTP-Antwort kopiert.
+ */
+@Component
+public class HauptseiteCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger( HauptseiteCache.class );
+
+    /** Name der Template-Datei (ohne Datei-Endung). */
+    private static final String TEMPLATE_NAME = "hauptseite";
+
+    /** Name des Fragments im Template mit dem nutzerabhängigen Teil der Seite. */
+    private static final String FRAGMENT_NUTZERBLOCK = "nutzerblock";
+
+    /** Attribut-Key für Platzhalter in Template, der den Platzhalter für das Fragment mit dem Nutzerblock enthält. */
+    private static final String ATTRIBUT_PLATZHALTER_NUTZERBLOCK = "platzhalter_nutzerblock";
+
+    /** Markierung, die beim Rendern für den Cache anstelle des Nutzerblocks eingesetzt wird. */
+    private static final String PLATZHALTER_NUTZERBLOCK = "<!--@@NUTZERBLOCK@@-->";
+
+    /** Content-Type für die HTTP-Antwort. */
+    private static final String CONTENT_TYPE_HTML = "text/html;charset=UTF-8";
+
+    /**
+     * Ein Objekt dieser Record-Klasse enthält die gerenderte Hauptseite für eine
+     * bestimmte Glossarversion.
+     *
+     * @param version Glossarversion, für die die Seite gerendert wurde
+     *
+     * @param teilVorNutzerblock UTF-8-kodierter Teil der Seite vor dem Nutzerblock
+     *
+     * @param teilNachNutzerblock UTF-8-kodierter Teil der Seite nach dem Nutzerblock
+     *                            (enthält die Liste der Begriffe)
+     */
+    private record GerenderteSeite( long version,
+                                    byte[] teilVorNutzerblock,
+                                    byte[] teilNachNutzerblock ) {
+    }
+
+    /** Index mit allen Begriffen im Hauptspeicher. */
+    private final Begriffsindex _begriffsindex;
+
+    /** Bean mit der aktuellen Glossarversion. */
+    private final GlossarVersion _glossarVersion;
+
+    /** Template-Engine (Thymeleaf) zum Rendern der Seite. */
+    private final ITemplateEngine _templateEngine;
+
+    /** Zuletzt gerenderte Seite; ist {@code null}, solange noch nie gerendert wurde. */
+    private final AtomicReference<GerenderteSeite> _cache = new AtomicReference<>();
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public HauptseiteCache( Begriffsindex begriffsindex,
+                            GlossarVersion glossarVersion,
+                            ITemplateEngine templateEngine ) {
+
+        _begriffsindex  = begriffsindex;
+        _glossarVersion = glossarVersion;
+        _templateEngine = templateEngine;
+    }
+
+
+    /**
+     * Hauptseite in HTTP-Antwort schreiben. Nur wenn sich die Glossarversion seit dem
+     * letzten Aufruf geändert hat, wird die Liste der Begriffe aus dem Begriffsindex gelesen
+     * und die Seite komplett neu gerendert.
+     *
+     * @param modellNutzer Werte für die Platzhalter im Fragment {@code nutzerblock}
+     *                     (Anmeldestatus und Nutzername)
+     *
+     * @param request HTTP-Request (wird für Thymeleaf-Kontext benötigt)
+     *
+     * @param response HTTP-Antwort, in die die Seite geschrieben wird
+     *
+     * @throws IOException Fehler beim Schreiben der HTTP-Antwort
+     */
+    public void schreibeHauptseite( Map<String, Object> modellNutzer,
+                                    HttpServletRequest request,
+                                    HttpServletResponse response ) throws IOException {
+
+        final IWebExchange webExchange = JakartaServletWebApplication.buildApplication( request.getServletContext() )
+                                                                     .buildExchange( request, response );
+
+        // Nutzerblock muss zuerst gerendert werden: Thymeleaf legt die Werte im Kontext als
+        // Request-Attribute ab, der Platzhalter vom Rendern der ganzen Seite wäre sonst sichtbar.
+        final WebContext kontextNutzer = new WebContext( webExchange, request.getLocale(), modellNutzer );
+        final String nutzerblock = _templateEngine.process( TEMPLATE_NAME,
+                                                            Set.of( FRAGMENT_NUTZERBLOCK ),
+                                                            kontextNutzer );
+
+        final GerenderteSeite seite = holeGerenderteSeite( webExchange );
+
+        response.setContentType( CONTENT_TYPE_HTML );
+
+        final OutputStream ausgabe = response.getOutputStream();
+        ausgabe.write( seite.teilVorNutzerblock() );
+        ausgabe.write( nutzerblock.getBytes( UTF_8 ) );
+        ausgabe.write( seite.teilNachNutzerblock() );
+    }
+
+
+    /**
+     * Liefert die gerenderte Seite für die aktuelle Glossarversion, rendert sie also
+     * nur neu, wenn die Version im Cache veraltet ist.
+     * <br><br>
+     *
+     * Die Versionsnummer wird <i>vor</i> der Abfrage des {@link Begriffsindex} ausgelesen: Wird während
+     * des Renderns ein Eintrag geändert, dann ist die im Cache abgelegte Version schon
+     * veraltet und die Seite wird beim nächsten Aufruf nochmal gerendert.
+     *
+     * @param webExchange Thymeleaf-Objekt für aktuellen Request
+     *
+     * @return Gerenderte Seite, passend mindestens zur aktuellen Version
+     */
+    private GerenderteSeite holeGerenderteSeite( IWebExchange webExchange ) {
+
+        final long versionAktuell = _glossarVersion.getVersion();
+
+        final GerenderteSeite seiteCache = _cache.get();
+        if ( seiteCache != null && seiteCache.version() == versionAktuell ) {
+
+            return seiteCache;
+        }
+
+        final Begriffsliste begriffListe = _begriffsindex.getGlossarBegriffe();
+
+        final WebContext kontext = new WebContext( webExchange );
+        kontext.setVariable( ThymeleafWebController.ATTRIBUT_EINTRAEGE_LISTE, begriffListe            );
+        kontext.setVariable( ATTRIBUT_PLATZHALTER_NUTZERBLOCK               , PLATZHALTER_NUTZERBLOCK );
+
+        final String html = _templateEngine.process( TEMPLATE_NAME, kontext );
+
+        final int position = html.indexOf( PLATZHALTER_NUTZERBLOCK );
+        if ( position < 0 ) {
+
+            throw new IllegalStateException( "Platzhalter für Nutzerblock nicht in Template \"" + TEMPLATE_NAME + "\" gefunden." );
+        }
+
+        final byte[] teilVorher  = html.substring( 0, position ).getBytes( UTF_8 );
+        final byte[] teilNachher = html.substring( position + PLATZHALTER_NUTZERBLOCK.length() ).getBytes( UTF_8 );
+
+        final GerenderteSeite seiteNeu = new GerenderteSeite( versionAktuell, teilVorher, teilNachher );
+
+        _cache.accumulateAndGet( seiteNeu, (alt, neu) -> alt != null && alt.version() > neu.version() ? alt : neu );
+
+        LOG.info( "Hauptseite für Glossarversion {} mit {} Einträgen neu gerendert.",
+                  versionAktuell, begriffListe.size() );
+
+        return seiteNeu;
+    }
+
+}
@@ -0,0 +1,84 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.db.ErklaerungKompression;
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
+
+
+/**
+ * REST-Controller, mit dem ein angemeldeter Nutzer ein neues Wörterbuch für die
+ * Kompression der Erklärungen (siehe {@link ErklaerungKompression}) aus den vorhandenen
+ * Erklärungen erzeugen kann.
+ */
+@RestController
+@RequestMapping( "/api/v1/kompression" )
+public class KompressionController {
+
+    /** Anzahl Einträge, die pro Abfrage gelesen werden. */
+    private static final int SEITE_MAX = 1000;
+
+    /** Repository-Bean für Zugriff auf Datenbank. */
+    private final Datenbank _datenbank;
+
+    /** Bean mit Konfiguration der Kompression. */
+    private final ErklaerungKompression _erklaerungKompression;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public KompressionController( Datenbank datenbank,
+                                  ErklaerungKompression erklaerungKompression ) {
+
+        _datenbank             = datenbank;
+        _erklaerungKompression = erklaerungKompression;
+    }
+
+
+    /**
+     * Wörterbuch aus allen Erklärungen erzeugen und in der Datenbank speichern; es wird sofort
+     * für neue Erklärungen verwendet.
+     *
+     * @return HTTP-Status-Code 200 mit Größe des Wörterbuchs; 409 (Conflict) wenn es dasselbe
+     *         Wörterbuch schon gibt oder die Erklärungen keine geeigneten Wörter enthalten.
+     */
+    @PostMapping( "/woerterbuch" )
+    public ResponseEntity<String> woerterbuchErzeugen() {
+
+        final List<EintragFeld> felder          = List.of( EintragFeld.ERKLAERUNG );
+        final List<String>      erklaerungListe = new ArrayList<>();
+
+        for ( List<Object[]> zeilenListe : _datenbank.getEintraegeProjektionSeiten( felder, SEITE_MAX ) ) {
+
+            for ( Object[] zeile : zeilenListe ) {
+
+                erklaerungListe.add( (String) zeile[ 1 ] );
+            }
+        }
+
+        try {
+
+            final int groesse = _erklaerungKompression.woerterbuchSchreiben( erklaerungListe );
+
+            return ResponseEntity.ok( "Wörterbuch mit " + groesse + " Bytes aus " + erklaerungListe.size() +
+                                      " Erklärungen erzeugt, wird ab sofort verwendet." );
+        }
+        catch ( IllegalStateException ex ) {
+
+            return new ResponseEntity<>( ex.getMessage(), CONFLICT );
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static tools.jackson.databind.SerializationFeature.INDENT_OUTPUT;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import de.eldecker.dhbw.spring.glossar.db.Aenderungsfeed;
+import de.eldecker.dhbw.spring.glossar.model.Aenderungsseite;
+
+
+/**
+ * REST-Controller für den Änderungsfeed (siehe {@link Aenderungsfeed}): Ein Client, der eine
+ * Kopie des Glossars hält (z.B. Cache oder Offline-Client), kann damit abfragen, welche
+ * Einträge seit seiner letzten Synchronisation angelegt oder geändert wurden. Die Endpunkte
+ * sind auch ohne Anmeldung erreichbar.
+ * <br><br>
+ *
+ * Ablauf für einen Client: Beim ersten Mal werden mit {@code seit=0} alle Änderungen
+ * seitenweise abgefragt, danach jeweils mit dem {@code token} der letzten Antwort. Statt
+ * regelmäßig nachzufragen kann der Client auch den Stream unter {@code /api/v1/aenderungen/stream}
+ * abonnieren, der neue Änderungen als <i>Server-Sent Events</i> schickt.
+ */
+@RestController
+@RequestMapping( "/api/v1/aenderungen" )
+public class RestAenderungenController {
+
+    /** Anzahl Änderungen pro Seite, wenn der Client keinen Wert angibt. */
+    private static final int ANZAHL_DEFAULT = 100;
+
+    /** Maximale Anzahl Änderungen pro Seite. */
+    private static final int ANZAHL_MAX = 1000;
+
+    /** Repository-Bean für den Änderungsfeed. */
+    private final Aenderungsfeed _aenderungsfeed;
+
+    /** Bean, die neue Änderungen an die Abonnenten des Streams verschickt. */
+    private final AenderungsStream _aenderungsStream;
+
+    /** Für Serialisierung der Antwort als JSON. */
+    private final ObjectMapper _objectMapper;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public RestAenderungenController( Aenderungsfeed aenderungsfeed,
+                                      AenderungsStream aenderungsStream,
+                                      ObjectMapper objectMapper ) {
+
+        _aenderungsfeed   = aenderungsfeed;
+        _aenderungsStream = aenderungsStream;
+        _objectMapper     = objectMapper;
+    }
+
+
+    /**
+     * Endpunkt für eine Seite von Änderungen, aufsteigend nach Sequenznummer sortiert.
+     * <br><br>
+     *
+     * Beispiel für Antwort:
+     * <pre>
+     * {"aenderungen":[{"sequenz":7,"id":3,"revision":2,"begriff":"Maven",
+     *   "zeitpunkt":"2026-10-18T12:00:00","autor":"alice"}],"token":7,"weitere":false}
+     * </pre>
+     * Für die nächste Abfrage muss der Wert von {@code token} als URL-Parameter {@code seit}
+     * übergeben werden. Ein Eintrag kann mehrfach enthalten sein, wenn er mehrfach geändert wurde.
+     *
+     * @param seit Es werden nur Änderungen nach diesem Token geliefert; {@code 0} für alle Änderungen.
+     *
+     * @param anzahl Maximale Anzahl der Änderungen auf der Seite
+     *
+     * @param formatiert Wenn {@code true}, dann wird das JSON für bessere Lesbarkeit
+     *                   eingerückt (URL-Parameter {@code pretty}).
+     *
+     * @return HTTP-Status-Code 200 mit {@link Aenderungsseite} als JSON; 400 (Bad Request)
+     *         bei ungültigem Wert für {@code seit} oder {@code anzahl}.
+     */
+    @GetMapping
+    public ResponseEntity<String> aenderungenLesen( @RequestParam( name = "seit", defaultValue = "0"       ) long seit,
+                                                    @RequestParam( name = "anzahl", required = false      ) Integer anzahl,
+                                                    @RequestParam( name = "pretty", defaultValue = "false" ) boolean formatiert ) {
+
+        if ( seit < 0 ) {
+
+            return new ResponseEntity<>( "URL-Parameter \"seit\" darf nicht negativ sein.", BAD_REQUEST );
+        }
+
+        final int anzahlSeite = anzahl == null ? ANZAHL_DEFAULT : anzahl;
+        if ( anzahlSeite < 1 || anzahlSeite > ANZAHL_MAX ) {
+
+            return new ResponseEntity<>( "URL-Parameter \"anzahl\" muss zwischen 1 und " + ANZAHL_MAX + " liegen.",
+                                         BAD_REQUEST );
+        }
+
+        final Aenderungsseite seite = _aenderungsfeed.getSeite( seit, anzahlSeite );
+
+        final ObjectWriter objectWriter = formatiert ? _objectMapper.writer().with( INDENT_OUTPUT )
+                                                     : _objectMapper.writer();
+
+        final String json = objectWriter.writeValueAsString( seite );
+
+        return ResponseEntity.ok()
+                             .contentType( APPLICATION_JSON )
+                             .body( json );
+    }
+
+
+    /**
+     * Endpunkt für den Stream mit neuen Änderungen als <i>Server-Sent Events</i>
+     * (Event-Name {@code aenderung}, Daten wie ein Element von {@code aenderungen}
+     * bei {@link #aenderungenLesen(long, Integer, boolean)}, Event-ID ist die Sequenznummer).
+     * Zuerst werden alle Änderungen nach {@code seit} nachgeholt.
+     * <br><br>
+     *
+     * Bei einer neuen Verbindung nach einem Abbruch schickt ein Browser (Klasse {@code EventSource})
+     * automatisch die ID des letzten Events im Header {@code Last-Event-ID} mit; dieser Wert
+     * hat Vorrang vor dem URL-Parameter.
+     *
+     * @param seit Es werden nur Änderungen nach diesem Token geschickt
+     *
+     * @param letzteEventId Wert von HTTP-Header {@code Last-Event-ID}, optional
+     *
+     * @return Emitter für den Stream; 503 (Service Unavailable), wenn es schon zu viele
+     *         Abonnenten gibt, 400 bei ungültigem Token.
+     *
+     * @throws IOException Fehler beim Senden an den Client
+     */
+    @GetMapping( path = "/stream", produces = TEXT_EVENT_STREAM_VALUE )
+    public ResponseEntity<SseEmitter> aenderungenAbonnieren( @RequestParam( name = "seit", defaultValue = "0" ) long seit,
+                                                             @RequestHeader( name = "Last-Event-ID", required = false ) Long letzteEventId )
+                                                           throws IOException {
+
+        final long stand = letzteEventId != null ? letzteEventId : seit;
+        if ( stand < 0 ) {
+
+            return ResponseEntity.status( BAD_REQUEST ).build();
+        }
+
+        final Optional<SseEmitter> emitterOptional = _aenderungsStream.abonnieren( stand );
+        if ( emitterOptional.isEmpty() ) {
+
+            return ResponseEntity.status( SERVICE_UNAVAILABLE ).build();
+        }
+
+        return ResponseEntity.ok( emitterOptional.get() );
+    }
+
+}
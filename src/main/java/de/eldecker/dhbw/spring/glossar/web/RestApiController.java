@@ -2,35 +2,66 @@ package de.eldecker.dhbw.spring.glossar.web;
 
 import static java.lang.String.format;
 import static java.time.LocalDateTime.now;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.CONTENT_TOO_LARGE;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 
-import jakarta.transaction.Transactional;
+import static de.eldecker.dhbw.spring.glossar.web.UngueltigePayloadException.FEHLERCODE_UNGUELTIG;
+import static de.eldecker.dhbw.spring.glossar.web.UngueltigePayloadException.FEHLERCODE_ZU_GROSS;
+
+import static tools.jackson.databind.SerializationFeature.INDENT_OUTPUT;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.time.LocalDateTime;
 
 import tools.jackson.core.JacksonException;
 import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.ObjectWriter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import de.eldecker.dhbw.spring.glossar.db.BatchSpeicherer;
 import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.db.GruppenCommit;
 import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
 import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.helferlein.BegrenzterInputStream;
+import de.eldecker.dhbw.spring.glossar.index.Duplikatindex;
+import de.eldecker.dhbw.spring.glossar.model.BatchErgebnis;
+import de.eldecker.dhbw.spring.glossar.model.Duplikat;
+import de.eldecker.dhbw.spring.glossar.model.Fehlermeldung;
 import de.eldecker.dhbw.spring.glossar.model.Payload;
+import de.eldecker.dhbw.spring.glossar.model.Versionskonflikt;
 
 
 /**
@@ -44,39 +75,107 @@ public class RestApiController {
 
     private static Logger LOG = LoggerFactory.getLogger( RestApiController.class );
 
+    /** Max Wartezeit eines Requests auf das Ergebnis von {@link GruppenCommit}. */
+    private static final long GRUPPENCOMMIT_TIMEOUT_SEKUNDEN = 30;
+
+    /**
+     * Name des HTTP-Headers, der bei erfolgreichem Speichern die IDs der Einträge mit fast
+     * gleicher Erklärung enthält (siehe {@link Duplikatindex}).
+     */
+    static final String HEADER_DUPLIKATE = "X-Glossar-Duplikate";
+
     /** Repository-Bean für Zugriff auf Datenbank. */
     private final Datenbank _datenbank;
 
     /** Bean für Deserialisierung von JSON-Playload. */
     private final ObjectMapper _objectMapper;
 
+    /** Bean zum Speichern vieler Einträge mit einem Request. */
+    private final BatchSpeicherer _batchSpeicherer;
+
+    /** Optionale Schreib-Pipeline, die einzelne Speicheraufträge gemeinsam committet. */
+    private final GruppenCommit _gruppenCommit;
+
+    /** Für Ausführung der direkten Speicherung (ohne {@link GruppenCommit}) in einer Transaktion. */
+    private final TransactionTemplate _transactionTemplate;
+
+    /** Bean für die Suche nach Einträgen mit fast gleicher Erklärung. */
+    private final Duplikatindex _duplikatindex;
+
+    /**
+     * Konfiguration aus {@code application.properties}: maximale Anzahl Einträge in einem
+     * Batch-Request.
+     */
+    @Value( "${de.eldecker.glossar.batch.max:10000}" )
+    private int _konfigurationBatchMax;
+
+    /**
+     * Konfiguration aus {@code application.properties}: maximale Größe in Bytes der Payload
+     * für einen einzelnen Eintrag.
+     */
+    @Value( "${de.eldecker.glossar.api.payload.max.bytes:65536}" )
+    private long _konfigurationPayloadMaxBytes;
+
+    /**
+     * Konfiguration aus {@code application.properties}: maximale Größe in Bytes der Payload
+     * für einen Batch-Request.
+     */
+    @Value( "${de.eldecker.glossar.batch.payload.max.bytes:52428800}" )
+    private long _konfigurationBatchPayloadMaxBytes;
+
 
     /**
      * Konstruktor für <i>Dependency Injection</i>.
      */
     @Autowired
     public RestApiController( Datenbank datenbank,
-                              ObjectMapper objectMapper ) {
+                              ObjectMapper objectMapper,
+                              BatchSpeicherer batchSpeicherer,
+                              GruppenCommit gruppenCommit,
+                              PlatformTransactionManager transactionManager,
+                              Duplikatindex duplikatindex ) {
 
-        _datenbank    = datenbank;
-        _objectMapper = objectMapper;
+        _datenbank           = datenbank;
+        _objectMapper        = objectMapper;
+        _batchSpeicherer     = batchSpeicherer;
+        _gruppenCommit       = gruppenCommit;
+        _transactionTemplate = new TransactionTemplate( transactionManager );
+        _duplikatindex       = duplikatindex;
     }
 
 
     /**
      * Endpunkt für HTTP-POST-Request für Erzeugung oder Änderung Eintrag.
+     * <br><br>
+     *
+     * Die JSON-Payload wird direkt aus dem Request-Stream deserialisiert (ohne Umweg über
+     * einen String) und darf höchstens so groß sein wie in {@code application.properties}
+     * konfiguriert.
+     * <br><br>
+     *
+     * Wenn {@link GruppenCommit} aktiv ist, dann wird der Eintrag zusammen mit anderen
+     * gleichzeitig eintreffenden Einträgen in einer gemeinsamen Transaktion gespeichert,
+     * sonst direkt in einer eigenen Transaktion. Die Antwort wird in beiden Fällen erst nach
+     * dem Commit geschickt.
+     * <br><br>
      *
-     * @param jsonPayload JSON-Payload mit Begriff und Erklärung; für Änderung auch ID.
+     * Wenn es andere Einträge mit fast gleicher Erklärung gibt (siehe {@link Duplikatindex}),
+     * dann wird trotzdem gespeichert, aber an den Text der Antwort eine Warnung angehängt
+     * und der Header {@link #HEADER_DUPLIKATE} mit den IDs dieser Einträge gesetzt.
+     *
+     * @param request HTTP-Request, enthält JSON-Payload mit Begriff und Erklärung;
+     *                für Änderung auch ID.
      *
      * @param authentication Objekt für Abfrage authentifizierter Nutzer.
      *
      * @return Wenn erfolgreich dann HTTP-Status-Code 201 (neuer Eintrag) bzw. 
      *         200 (Änderung); wenn der aktuelle Nutzer in der DB nicht gefunden
      *         wird, dann wird 500 (Internal Server Error) zurückgegeben. 
+     *         Bei ungültiger Payload wird 400 (Bad Request), bei zu großer Payload
+     *         413 (Content Too Large) jeweils mit {@link Fehlermeldung} zurückgegeben.
      */
     @PostMapping( "/speichern" )
-    @Transactional
-    public ResponseEntity<String> eintragNeuAendern( @RequestBody String jsonPayload,
+    public ResponseEntity<String> eintragNeuAendern( HttpServletRequest request,
                                                      Authentication authentication ) {
 
         if ( authentication == null || authentication.isAuthenticated() == false ) {
@@ -85,8 +184,85 @@ public class RestApiController {
             LOG.warn( "Versuch neuen Eintrag anzulegen, aber Nutzer ist nicht authentifziert." );
             return new ResponseEntity<>( "Keine Berechtigung einen neuen Eintrag anzulegen", UNAUTHORIZED ); // HTTP-Status-Code 401
         }
+
+        final Payload payloadObjekt = leseJsonPayload( request, _konfigurationPayloadMaxBytes,
+                                                       _objectMapper.readerFor( Payload.class ) );
         
         final String nameAutor = authentication.getName();
+
+        // vor dem Speichern suchen, damit ein neuer Eintrag nicht sich selbst findet
+        final List<Duplikat> duplikatListe = _duplikatindex.aehnlicheSuchen( payloadObjekt.erklaerung(),
+                                                                             payloadObjekt.holeID().orElse( null ) );
+
+        final ResponseEntity<String> antwort;
+        if ( _gruppenCommit.istAktiv() ) {
+
+            antwort = eintragUeberGruppenCommit( payloadObjekt, nameAutor );
+
+        } else {
+
+            antwort = _transactionTemplate.execute( status -> eintragNeuAendernDirekt( payloadObjekt, nameAutor ) );
+        }
+
+        return duplikatWarnungAnhaengen( antwort, duplikatListe );
+    }
+
+
+    /**
+     * Warnung über Einträge mit fast gleicher Erklärung an eine erfolgreiche Antwort anhängen.
+     *
+     * @param antwort Antwort nach dem Speichern
+     *
+     * @param duplikatListe Einträge mit fast gleicher Erklärung, evtl. leer
+     *
+     * @return {@code antwort} unverändert, wenn nicht erfolgreich gespeichert wurde oder es
+     *         keine solchen Einträge gibt; sonst Antwort mit Warnung und Header
+     *         {@link #HEADER_DUPLIKATE}
+     */
+    private ResponseEntity<String> duplikatWarnungAnhaengen( ResponseEntity<String> antwort,
+                                                             List<Duplikat> duplikatListe ) {
+
+        if ( duplikatListe.isEmpty() || !antwort.getStatusCode().is2xxSuccessful() ) {
+
+            return antwort;
+        }
+
+        final StringBuilder idListe = new StringBuilder();
+        final StringBuilder warnung = new StringBuilder( antwort.getBody() );
+        warnung.append( "\nWarnung: Die Erklärung ist fast gleich wie bei " );
+        for ( int i = 0; i < duplikatListe.size(); i++ ) {
+
+            final Duplikat duplikat = duplikatListe.get( i );
+            if ( i > 0 ) {
+
+                idListe.append( ',' );
+                warnung.append( ", " );
+            }
+            idListe.append( duplikat.id() );
+            warnung.append( format( "\"%s\" (ID=%d, %.0f%%)", duplikat.begriff(), duplikat.id(),
+                                    duplikat.aehnlichkeit() * 100 ) );
+        }
+        warnung.append( '.' );
+
+        LOG.warn( "Erklärung fast gleich wie bei Einträgen mit IDs {}.", idListe );
+
+        return ResponseEntity.status( antwort.getStatusCode() )
+                             .headers( antwort.getHeaders() )
+                             .header( HEADER_DUPLIKATE, idListe.toString() )
+                             .body( warnung.toString() );
+    }
+
+
+    /**
+     * Eintrag in der aktuellen Transaktion anlegen oder ändern.
+     *
+     * @param payloadObjekt Deserialisierte Payload
+     *
+     * @param nameAutor Nutzername des angemeldeten Nutzers
+     *
+     * @return HTTP-Antwort, siehe {@link #eintragNeuAendern(HttpServletRequest, Authentication)}
+     */
+    private ResponseEntity<String> eintragNeuAendernDirekt( Payload payloadObjekt, String nameAutor ) {
         
         final Optional<AutorEntity> autorOptional = _datenbank.getAutorByName( nameAutor );
         if ( autorOptional.isEmpty() ) {
@@ -97,17 +273,6 @@ public class RestApiController {
                                          INTERNAL_SERVER_ERROR );
         }
         final AutorEntity autor = autorOptional.get();
-
-        Payload payloadObjekt = null;
-        try {
-
-            payloadObjekt = _objectMapper.readValue( jsonPayload, Payload.class );
-        }
-        catch ( JacksonException ex ) {
-
-            LOG.error( "Fehler bei Deserialisierung von HTTP-Payload mit neuem Eintrag.", ex );
-            return new ResponseEntity<>( "Ungültige JSON-Payload.", BAD_REQUEST );
-        }
         
         final Optional<Long> idOptional = payloadObjekt.holeID();
         
@@ -120,8 +285,202 @@ public class RestApiController {
             return eintragNeu( payloadObjekt, autor );
         }
     }
+
+
+    /**
+     * Eintrag über {@link GruppenCommit} speichern und auf das Ergebnis warten.
+     *
+     * @param payloadObjekt Deserialisierte Payload
+     *
+     * @param nameAutor Nutzername des angemeldeten Nutzers
+     *
+     * @return HTTP-Antwort mit Status-Code und Text aus dem Ergebnis für den Eintrag, bei
+     *         einem Versionskonflikt wie ohne Group Commit mit {@link Versionskonflikt} als
+     *         JSON; 503 (Service Unavailable), wenn das Ergebnis nicht rechtzeitig vorliegt.
+     */
+    private ResponseEntity<String> eintragUeberGruppenCommit( Payload payloadObjekt, String nameAutor ) {
+
+        // Autor wird erst in der Transaktion der Gruppe gelesen, damit dieser Thread beim
+        // Warten keine Datenbankverbindung hält (Open Session in View)
+        final CompletableFuture<BatchErgebnis> ergebnisFuture = _gruppenCommit.einreihen( payloadObjekt, nameAutor );
+        try {
+
+            final BatchErgebnis ergebnis = ergebnisFuture.get( GRUPPENCOMMIT_TIMEOUT_SEKUNDEN, SECONDS );
+
+            if ( ergebnis.status() == CONFLICT.value() && payloadObjekt.holeID().isPresent() ) {
+
+                // Gruppe ist schon committet, es wird also der Stand nach der anderen Änderung gelesen
+                return versionskonfliktAntwort( payloadObjekt.holeID().get(), payloadObjekt.version() );
+            }
+
+            return new ResponseEntity<>( ergebnis.meldung(), HttpStatus.valueOf( ergebnis.status() ) );
+        }
+        catch ( TimeoutException ex ) {
+
+            LOG.error( "Kein Ergebnis von Group Commit nach {} Sekunden.", GRUPPENCOMMIT_TIMEOUT_SEKUNDEN );
+            return new ResponseEntity<>( "Zeitüberschreitung beim Speichern, Ergebnis unbekannt.", SERVICE_UNAVAILABLE );
+        }
+        catch ( InterruptedException ex ) {
+
+            Thread.currentThread().interrupt();
+            return new ResponseEntity<>( "Warten auf Speicherung unterbrochen, Ergebnis unbekannt.", SERVICE_UNAVAILABLE );
+        }
+        catch ( ExecutionException ex ) {
+
+            LOG.error( "Fehler bei Group Commit.", ex.getCause() );
+            return new ResponseEntity<>( "Interner Fehler beim Speichern.", INTERNAL_SERVER_ERROR );
+        }
+    }
     
     
+    /**
+     * Endpunkt für HTTP-POST-Request, mit dem viele Einträge auf einmal angelegt oder
+     * geändert werden können. Die Payload ist ein JSON-Array, jedes Element hat denselben
+     * Aufbau wie die Payload für {@link #eintragNeuAendern(HttpServletRequest, Authentication)}.
+     * <br><br>
+     *
+     * Der Autor wird nur einmal für den ganzen Batch von der Datenbank gelesen; die Einträge
+     * werden von {@link BatchSpeicherer} blockweise in jeweils einer Transaktion gespeichert.
+     *
+     * @param request HTTP-Request, enthält JSON-Array mit den zu speichernden Einträgen
+     *
+     * @param formatiert Wenn {@code true}, dann wird das JSON in der Antwort für bessere
+     *                   Lesbarkeit eingerückt (URL-Parameter {@code pretty}).
+     *
+     * @param authentication Objekt für Abfrage authentifizierter Nutzer.
+     *
+     * @return HTTP-Status-Code 200 mit JSON-Array, das für jedes Element des Requests
+     *         ein Ergebnis (siehe {@link BatchErgebnis}) mit einem eigenen Status-Code
+     *         enthält; 400 (Bad Request) bei ungültiger Payload oder zu vielen Elementen,
+     *         413 (Content Too Large) bei zu großer Payload.
+     */
+    @PostMapping( "/speichern/batch" )
+    public ResponseEntity<String> eintraegeBatchSpeichern( HttpServletRequest request,
+                                                           @RequestParam( name = "pretty", defaultValue = "false" ) boolean formatiert,
+                                                           Authentication authentication ) {
+
+        if ( authentication == null || authentication.isAuthenticated() == false ) {
+
+            // sollte nicht passieren wenn Spring Security richtig konfiguriert
+            LOG.warn( "Versuch Batch mit Einträgen zu speichern, aber Nutzer ist nicht authentifziert." );
+            return new ResponseEntity<>( "Keine Berechtigung Einträge zu speichern", UNAUTHORIZED ); // HTTP-Status-Code 401
+        }
+
+        final Payload[] payloadArray = leseJsonPayload( request, _konfigurationBatchPayloadMaxBytes,
+                                                        _objectMapper.readerFor( Payload[].class ) );
+
+        if ( payloadArray.length > _konfigurationBatchMax ) {
+
+            return new ResponseEntity<>( "Batch muss ein Array mit höchstens " + _konfigurationBatchMax + " Elementen sein.",
+                                         BAD_REQUEST );
+        }
+
+        final String nameAutor = authentication.getName();
+
+        final Optional<AutorEntity> autorOptional = _datenbank.getAutorByName( nameAutor );
+        if ( autorOptional.isEmpty() ) {
+
+            LOG.error( "Aktueller Nutzer \"{}\" nicht in Datenbank gefunden.", nameAutor );
+
+            return new ResponseEntity<>( "Interner Fehler: Aktueller Nutzer nicht in Datenbank gefunden.",
+                                         INTERNAL_SERVER_ERROR );
+        }
+
+        final List<BatchErgebnis> ergebnisListe = _batchSpeicherer.speichern( Arrays.asList( payloadArray ),
+                                                                              autorOptional.get() );
+
+        final ObjectWriter objectWriter = formatiert ? _objectMapper.writer().with( INDENT_OUTPUT )
+                                                     : _objectMapper.writer();
+
+        final String ergebnisJson = objectWriter.writeValueAsString( ergebnisListe );
+
+        return ResponseEntity.ok()
+                             .contentType( APPLICATION_JSON )
+                             .body( ergebnisJson );
+    }
+
+
+    /**
+     * Behandelt eine {@link UngueltigePayloadException}, die von einer Mapping-Methode
+     * dieser Klasse geworfen wurde.
+     *
+     * @param ex Exception mit HTTP-Status-Code und Fehlercode
+     *
+     * @return HTTP-Antwort mit Status-Code aus {@code ex} und {@link Fehlermeldung} als JSON
+     */
+    @ExceptionHandler( UngueltigePayloadException.class )
+    public ResponseEntity<Fehlermeldung> behandleUngueltigePayload( UngueltigePayloadException ex ) {
+
+        final Fehlermeldung fehlermeldung = new Fehlermeldung( ex.getFehlercode(), ex.getMessage() );
+
+        return ResponseEntity.status( ex.getStatus() )
+                             .contentType( APPLICATION_JSON )
+                             .body( fehlermeldung );
+    }
+
+
+    /**
+     * JSON-Payload direkt aus dem Input-Stream des HTTP-Requests deserialisieren.
+     * <br><br>
+     *
+     * Wenn der Client den Header {@code Content-Length} mitschickt, dann wird eine zu große
+     * Payload schon vor dem Lesen abgelehnt; ansonsten wird das Lesen nach {@code maxBytes}
+     * Bytes abgebrochen.
+     *
+     * @param <T> Zielklasse der Deserialisierung
+     *
+     * @param request HTTP-Request mit der Payload
+     *
+     * @param maxBytes Maximale Größe der Payload in Bytes
+     *
+     * @param objectReader Reader für die Zielklasse
+     *
+     * @return Deserialisiertes Objekt, nicht {@code null}
+     *
+     * @throws UngueltigePayloadException Payload zu groß (HTTP-Status-Code 413) oder
+     *                                    kein gültiges JSON für Zielklasse (400)
+     */
+    private <T> T leseJsonPayload( HttpServletRequest request,
+                                   long maxBytes,
+                                   ObjectReader objectReader ) {
+
+        final String fehlertextZuGross = "Payload ist größer als " + maxBytes + " Bytes.";
+
+        if ( request.getContentLengthLong() > maxBytes ) {
+
+            LOG.warn( "Payload mit {} Bytes abgelehnt, Maximum ist {} Bytes.", request.getContentLengthLong(), maxBytes );
+            throw new UngueltigePayloadException( CONTENT_TOO_LARGE, FEHLERCODE_ZU_GROSS, fehlertextZuGross );
+        }
+
+        try ( InputStream inputStream = new BegrenzterInputStream( request.getInputStream(), maxBytes ) ) {
+
+            final T ergebnis = objectReader.readValue( inputStream );
+            if ( ergebnis == null ) {
+
+                throw new UngueltigePayloadException( BAD_REQUEST, FEHLERCODE_UNGUELTIG, "Payload darf nicht null sein." );
+            }
+            return ergebnis;
+        }
+        catch ( JacksonException ex ) {
+
+            if ( ex.getCause() instanceof BegrenzterInputStream.ZuGrossException ) {
+
+                LOG.warn( "Lesen der Payload nach {} Bytes abgebrochen.", maxBytes );
+                throw new UngueltigePayloadException( CONTENT_TOO_LARGE, FEHLERCODE_ZU_GROSS, fehlertextZuGross );
+            }
+
+            LOG.error( "Fehler bei Deserialisierung von HTTP-Payload.", ex );
+            throw new UngueltigePayloadException( BAD_REQUEST, FEHLERCODE_UNGUELTIG,
+                                                  "Ungültige JSON-Payload: " + ex.getOriginalMessage() );
+        }
+        catch ( IOException ex ) {
+
+            LOG.error( "Fehler beim Lesen von HTTP-Payload.", ex );
+            throw new UngueltigePayloadException( BAD_REQUEST, FEHLERCODE_UNGUELTIG, "Payload konnte nicht gelesen werden." );
+        }
+    }
+
+
     /**
      * Neuen Eintrag anlegen.
      * 
@@ -160,7 +519,11 @@ public class RestApiController {
     
     
     /**
-     * Einträg ändern. 
+     * Eintrag ändern, ohne ihn vorher zu lesen: die Prüfung, ob es den Eintrag gibt und ob
+     * die Version aus {@code payload} noch aktuell ist, erfolgt in der WHERE-Klausel des
+     * UPDATE-Statements (siehe {@link Datenbank#aendereGlossarEintrag(long, Long, String, String, LocalDateTime, AutorEntity)}).
+     * Nur wenn kein Eintrag geändert wurde, wird der Eintrag gelesen, um den Grund
+     * festzustellen.
      * 
      * @param payload Payload mit Details für zu ändernden Eintrag.
      *                es muss vor dem Aufruf überprüft worden sein, dass
@@ -172,11 +535,13 @@ public class RestApiController {
      * @return HTTP-Status-Code 200 (OK) wenn Änderung erfolgreich,
      *         400 (Bad Request) wenn es keinen Glossareintrag mit der ID
      *         aus {@code payload} gibt oder wenn das Feld {@code begriff}
-     *         in diesem Objekt leer ist.
+     *         in diesem Objekt leer ist; 409 (Conflict) mit aktuellem Stand
+     *         des Eintrags (siehe {@link Versionskonflikt}) als JSON, wenn der
+     *         Eintrag inzwischen von jemand anderem geändert wurde.
      */
     private ResponseEntity<String> eintragAendern( Payload payload, AutorEntity autor ) {
                                         
-        if ( payload.begriff().isBlank() ) {
+        if ( payload.begriff() == null || payload.begriff().isBlank() ) {
             
             return new ResponseEntity<>( "Begriff darf für Änderung von Glossareintrag nicht leer sein.",
                                          BAD_REQUEST );            
@@ -184,25 +549,61 @@ public class RestApiController {
                 
         final long id = payload.holeID().get();
         
+        final boolean wurdeGeaendert = _datenbank.aendereGlossarEintrag( id,
+                                                                         payload.version(),
+                                                                         payload.begriff(),
+                                                                         payload.erklaerung(),
+                                                                         now(),
+                                                                         autor );
+        if ( !wurdeGeaendert ) {
+
+            return versionskonfliktAntwort( id, payload.version() );
+        }
+        
+        final String ergebnisText = format( "Glossareintrag mit ID=%d geändert: \"%s\"", 
+                                            id, payload.begriff() );
+                        
+        return new ResponseEntity<>( ergebnisText, OK ); // HTTP-Status-Code 200
+    }
+
+
+    /**
+     * Antwort für eine gescheiterte Änderung erzeugen: der aktuelle Stand des Eintrags wird
+     * gelesen und als {@link Versionskonflikt} zurückgeschickt, damit der Client dem Nutzer
+     * das Neuladen anbieten kann.
+     *
+     * @param id ID des Eintrags, der geändert werden sollte
+     *
+     * @param versionErwartet Version aus der Payload, nur für Logging
+     *
+     * @return HTTP-Status-Code 409 (Conflict) mit {@link Versionskonflikt} als JSON;
+     *         400 (Bad Request), wenn es keinen Eintrag mit {@code id} gibt.
+     */
+    private ResponseEntity<String> versionskonfliktAntwort( long id, Long versionErwartet ) {
+
         final Optional<GlossarEntity> eintragOptional = _datenbank.getEintragById( id );
         if ( eintragOptional.isEmpty() ) {
-            
+
             return new ResponseEntity<>( "Kein Glossareintrag mit ID=" + id + " zum Ändern gefunden.",
                                           BAD_REQUEST );
         }
-        
+
         final GlossarEntity eintrag = eintragOptional.get();
-        
-        eintrag.setBegriff(    payload.begriff()    );
-        eintrag.setErklaerung( payload.erklaerung() );
-        eintrag.setZeitpunktAenderung( now() );
-        eintrag.setAutorAenderung( autor );
-        
-        _datenbank.updateGlossarEintrag( eintrag );
-        
-        final String ergebnisText = format( "Glossareintrag mit ID=%d geändert: \"%s\"", 
-                                            id, payload.begriff() );
-                        
-        return new ResponseEntity<>( ergebnisText, OK ); // HTTP-Status-Code 201                                      
+
+        LOG.warn( "Versionskonflikt bei Änderung von Glossareintrag mit ID={}: Version {} erwartet, aktuell {}.",
+                  id, versionErwartet, eintrag.getVersion() );
+
+        final Versionskonflikt konflikt =
+                new Versionskonflikt( "Eintrag wurde inzwischen von einem anderen Nutzer geändert.",
+                                      id,
+                                      eintrag.getBegriff(),
+                                      eintrag.getErklaerung(),
+                                      eintrag.getVersion(),
+                                      eintrag.getZeitpunktAenderung().toString(),
+                                      eintrag.getAutorAenderung().getNutzername() );
+
+        return ResponseEntity.status( CONFLICT )
+                             .contentType( APPLICATION_JSON )
+                             .body( _objectMapper.writeValueAsString( konflikt ) );
     }
 }
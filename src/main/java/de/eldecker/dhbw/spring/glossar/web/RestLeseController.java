@@ -0,0 +1,380 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static tools.jackson.databind.SerializationFeature.INDENT_OUTPUT;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.db.GebuendelterLeser;
+import de.eldecker.dhbw.spring.glossar.index.Begriffsindex;
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
+import jakarta.servlet.http.HttpServletResponse;
+
+
+/**
+ * REST-Controller mit lesenden Endpunkten für Glossareinträge, damit Clients nicht
+ * die HTML-Seiten auswerten müssen. Die Endpunkte sind auch ohne Anmeldung erreichbar.
+ * <br><br>
+ *
+ * Mit dem URL-Parameter {@code fields} (z.B. {@code fields=id,begriff}) kann ein Client
+ * festlegen, welche Felder er benötigt; es werden dann auch nur diese Spalten von der
+ * Datenbank gelesen. Das JSON wird ohne Zwischenobjekte direkt in den Ausgabestrom
+ * der HTTP-Antwort geschrieben.
+ */
+@RestController
+@RequestMapping( "/api/v1/eintraege" )
+public class RestLeseController {
+
+    private static final Logger LOG = LoggerFactory.getLogger( RestLeseController.class );
+
+    /** Anzahl Einträge pro Seite, wenn der Client keinen Wert angibt. */
+    private static final int ANZAHL_DEFAULT = 100;
+
+    /** Maximale Anzahl Einträge pro Seite. */
+    private static final int ANZAHL_MAX = 1000;
+
+    /** Content-Type für JSON-Antworten. */
+    private static final String CONTENT_TYPE_JSON = "application/json";
+
+    /** Content-Type für Fehlermeldungen. */
+    private static final String CONTENT_TYPE_TEXT = "text/plain;charset=UTF-8";
+
+    /** Repository-Bean für Zugriff auf Datenbank. */
+    private final Datenbank _datenbank;
+
+    /** Bean für Suche nach Begriff, gleichzeitige Anfragen werden zusammengefasst. */
+    private final GebuendelterLeser _gebuendelterLeser;
+
+    /** Index mit allen Begriffen für {@code /begriffe}. */
+    private final Begriffsindex _begriffsindex;
+
+    /** Writer für kompaktes JSON (ohne Einrückungen). */
+    private final ObjectWriter _objectWriter;
+
+    /** Writer für formatiertes JSON, wenn URL-Parameter {@code pretty=true}. */
+    private final ObjectWriter _objectWriterFormatiert;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>.
+     */
+    @Autowired
+    public RestLeseController( Datenbank datenbank,
+                               GebuendelterLeser gebuendelterLeser,
+                               Begriffsindex begriffsindex,
+                               ObjectMapper objectMapper ) {
+
+        _datenbank              = datenbank;
+        _gebuendelterLeser      = gebuendelterLeser;
+        _begriffsindex          = begriffsindex;
+        _objectWriter           = objectMapper.writer().without( INDENT_OUTPUT );
+        _objectWriterFormatiert = objectMapper.writer().with( INDENT_OUTPUT );
+    }
+
+
+    /**
+     * Endpunkt für Liste der Glossareinträge, seitenweise nach ID sortiert
+     * (<i>Keyset Pagination</i>), oder für die Suche nach einem Begriff.
+     * <br><br>
+     *
+     * Beispiel für Antwort:
+     * <pre>
+     * {"eintraege":[{"id":1,"begriff":"Maven"},{"id":2,"begriff":"Phase"}],"naechsteSeite":2}
+     * </pre>
+     * Für die nächste Seite muss der Wert von {@code naechsteSeite} als URL-Parameter
+     * {@code nach} übergeben werden; für die letzte Seite ist der Wert {@code null}.
+     *
+     * @param feldListe Kommagetrennte Liste der auszugebenden Felder; wenn nicht gesetzt,
+     *                  dann werden alle Felder ausgegeben.
+     *
+     * @param begriff Wenn gesetzt, dann wird nur der Eintrag für diesen Begriff (case-insensitive)
+     *                geliefert; die Parameter für das Blättern werden dann ignoriert.
+     *
+     * @param nachId Es werden nur Einträge mit einer größeren ID geliefert
+     *
+     * @param anzahl Maximale Anzahl der Einträge auf der Seite
+     *
+     * @param formatiert Wenn {@code true}, dann wird das JSON für bessere Lesbarkeit
+     *                   eingerückt (URL-Parameter {@code pretty}).
+     *
+     * @param response HTTP-Antwort, in die das JSON geschrieben wird
+     *
+     * @throws IOException Fehler beim Schreiben der HTTP-Antwort
+     */
+    @GetMapping
+    public void eintraegeLesen( @RequestParam( name = "fields", required = false      ) String feldListe,
+                                @RequestParam( name = "begriff", required = false     ) String begriff,
+                                @RequestParam( name = "nach", defaultValue = "0"      ) long nachId,
+                                @RequestParam( name = "anzahl", required = false      ) Integer anzahl,
+                                @RequestParam( name = "pretty", defaultValue = "false" ) boolean formatiert,
+                                HttpServletResponse response ) throws IOException {
+
+        final ObjectWriter objectWriter = formatiert ? _objectWriterFormatiert : _objectWriter;
+
+        final Optional<List<EintragFeld>> felderOptional = EintragFeld.parseFeldliste( feldListe );
+        if ( felderOptional.isEmpty() ) {
+
+            fehlerAntwort( response, BAD_REQUEST, "Unbekanntes oder fehlendes Feld in URL-Parameter \"fields\": " + feldListe );
+            return;
+        }
+        final List<EintragFeld> felder = felderOptional.get();
+
+        if ( begriff != null ) {
+
+            final List<Object[]> zeilenListe = _gebuendelterLeser.getEintraegeProjektionByBegriff( felder, begriff );
+
+            schreibeSeite( response, objectWriter, felder, zeilenListe, null );
+            return;
+        }
+
+        final int anzahlSeite = anzahl == null ? ANZAHL_DEFAULT : anzahl;
+        if ( anzahlSeite < 1 || anzahlSeite > ANZAHL_MAX ) {
+
+            fehlerAntwort( response, BAD_REQUEST, "URL-Parameter \"anzahl\" muss zwischen 1 und " + ANZAHL_MAX + " liegen." );
+            return;
+        }
+
+        // einen Eintrag mehr lesen, um zu erkennen, ob es noch eine weitere Seite gibt
+        final List<Object[]> zeilenListe = _datenbank.getEintraegeProjektion( felder, nachId, anzahlSeite + 1 );
+
+        Long naechsteSeite = null;
+        if ( zeilenListe.size() > anzahlSeite ) {
+
+            naechsteSeite = (Long) zeilenListe.get( anzahlSeite - 1 )[ 0 ];
+        }
+
+        schreibeSeite( response, objectWriter, felder, zeilenListe.subList( 0, Math.min( anzahlSeite, zeilenListe.size() ) ),
+                       naechsteSeite );
+    }
+
+
+    /**
+     * Endpunkt für die alphabetisch sortierte Liste aller Begriffe mit ID (wie auf der Hauptseite).
+     * <br><br>
+     *
+     * Die Liste kommt aus dem {@link Begriffsindex}, es gibt also keinen Datenbankzugriff;
+     * die Begriffe liegen dort schon als UTF-8 vor und werden ohne Dekodieren direkt
+     * in die HTTP-Antwort kopiert.
+     * <br><br>
+     *
+     * Beispiel für Antwort:
+     * <pre>
+     * {"anzahl":2,"begriffe":[{"id":1,"begriff":"Maven"},{"id":2,"begriff":"Phase"}]}
+     * </pre>
+     *
+     * @param formatiert Wenn {@code true}, dann wird das JSON für bessere Lesbarkeit
+     *                   eingerückt (URL-Parameter {@code pretty}).
+     *
+     * @param response HTTP-Antwort, in die das JSON geschrieben wird
+     *
+     * @throws IOException Fehler beim Schreiben der HTTP-Antwort
+     */
+    @GetMapping( "/begriffe" )
+    public void begriffeLesen( @RequestParam( name = "pretty", defaultValue = "false" ) boolean formatiert,
+                               HttpServletResponse response ) throws IOException {
+
+        final Begriffsliste begriffsliste = _begriffsindex.getGlossarBegriffe();
+        final byte[]        utf8          = begriffsliste.getUtf8();
+
+        response.setContentType( CONTENT_TYPE_JSON );
+
+        final ObjectWriter objectWriter = formatiert ? _objectWriterFormatiert : _objectWriter;
+
+        try ( JsonGenerator generator = objectWriter.createGenerator( response.getOutputStream() ) ) {
+
+            generator.writeStartObject();
+            generator.writeNumberProperty( "anzahl", begriffsliste.size() );
+            generator.writeName( "begriffe" );
+            generator.writeStartArray();
+            for ( int i = 0; i < begriffsliste.size(); i++ ) {
+
+                generator.writeStartObject();
+                generator.writeNumberProperty( "id", begriffsliste.getId( i ) );
+                generator.writeName( "begriff" );
+                generator.writeUTF8String( utf8, begriffsliste.getOffset( i ), begriffsliste.getLaenge( i ) );
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+
+    /**
+     * Endpunkt für einzelnen Glossareintrag.
+     *
+     * @param id ID des Glossareintrags
+     *
+     * @param feldListe Kommagetrennte Liste der auszugebenden Felder; wenn nicht gesetzt,
+     *                  dann werden alle Felder ausgegeben.
+     *
+     * @param formatiert Wenn {@code true}, dann wird das JSON für bessere Lesbarkeit
+     *                   eingerückt (URL-Parameter {@code pretty}).
+     *
+     * @param response HTTP-Antwort, in die das JSON geschrieben wird; HTTP-Status-Code 404
+     *                 (Not Found), wenn es keinen Eintrag mit {@code id} gibt.
+     *
+     * @throws IOException Fehler beim Schreiben der HTTP-Antwort
+     */
+    @GetMapping( "/{id}" )
+    public void eintragLesen( @PathVariable( "id" ) long id,
+                              @RequestParam( name = "fields", required = false ) String feldListe,
+                              @RequestParam( name = "pretty", defaultValue = "false" ) boolean formatiert,
+                              HttpServletResponse response ) throws IOException {
+
+        final Optional<List<EintragFeld>> felderOptional = EintragFeld.parseFeldliste( feldListe );
+        if ( felderOptional.isEmpty() ) {
+
+            fehlerAntwort( response, BAD_REQUEST, "Unbekanntes oder fehlendes Feld in URL-Parameter \"fields\": " + feldListe );
+            return;
+        }
+        final List<EintragFeld> felder = felderOptional.get();
+
+        final Optional<Object[]> zeileOptional = _datenbank.getEintragProjektionById( felder, id );
+        if ( zeileOptional.isEmpty() ) {
+
+            fehlerAntwort( response, NOT_FOUND, "Kein Glossareintrag mit ID=" + id + " gefunden." );
+            return;
+        }
+
+        response.setContentType( CONTENT_TYPE_JSON );
+
+        final ObjectWriter objectWriter = formatiert ? _objectWriterFormatiert : _objectWriter;
+
+        try ( JsonGenerator generator = objectWriter.createGenerator( response.getOutputStream() ) ) {
+
+            schreibeEintrag( generator, felder, zeileOptional.get() );
+        }
+    }
+
+
+    /**
+     * Schreibt eine Seite mit Glossareinträgen als JSON in die HTTP-Antwort.
+     *
+     * @param response HTTP-Antwort
+     *
+     * @param objectWriter Writer für kompaktes oder formatiertes JSON
+     *
+     * @param felder Auszugebende Felder
+     *
+     * @param zeilenListe Ergebnis der Projektionsabfrage
+     *
+     * @param naechsteSeite Wert für {@code naechsteSeite}, {@code null} für letzte Seite
+     *
+     * @throws IOException Fehler beim Schreiben der HTTP-Antwort
+     */
+    private void schreibeSeite( HttpServletResponse response,
+                                ObjectWriter objectWriter,
+                                List<EintragFeld> felder,
+                                List<Object[]> zeilenListe,
+                                Long naechsteSeite ) throws IOException {
+
+        response.setContentType( CONTENT_TYPE_JSON );
+
+        try ( JsonGenerator generator = objectWriter.createGenerator( response.getOutputStream() ) ) {
+
+            generator.writeStartObject();
+            generator.writeName( "eintraege" );
+            generator.writeStartArray();
+            for ( Object[] zeile : zeilenListe ) {
+
+                schreibeEintrag( generator, felder, zeile );
+            }
+            generator.writeEndArray();
+
+            if ( naechsteSeite == null ) {
+
+                generator.writeNullProperty( "naechsteSeite" );
+
+            } else {
+
+                generator.writeNumberProperty( "naechsteSeite", naechsteSeite );
+            }
+            generator.writeEndObject();
+        }
+    }
+
+
+    /**
+     * Schreibt einen Glossareintrag als JSON-Objekt.
+     *
+     * @param generator Generator für JSON
+     *
+     * @param felder Auszugebende Felder
+     *
+     * @param zeile Zeile aus der Projektionsabfrage; das erste Element ist die ID,
+     *              danach kommen die Werte für {@code felder}.
+     */
+    private static void schreibeEintrag( JsonGenerator generator, List<EintragFeld> felder, Object[] zeile ) {
+
+        generator.writeStartObject();
+        for ( int i = 0; i < felder.size(); i++ ) {
+
+            final String name = felder.get( i ).getJsonName();
+            final Object wert = zeile[ i + 1 ];
+
+            if ( wert == null ) {
+
+                generator.writeNullProperty( name );
+
+            } else if ( wert instanceof Long zahl ) {
+
+                generator.writeNumberProperty( name, zahl );
+
+            } else if ( wert instanceof LocalDateTime zeitpunkt ) {
+
+                generator.writeStringProperty( name, zeitpunkt.toString() );
+
+            } else {
+
+                generator.writeStringProperty( name, wert.toString() );
+            }
+        }
+        generator.writeEndObject();
+    }
+
+
+    /**
+     * Fehlermeldung als Text in die HTTP-Antwort schreiben.
+     *
+     * @param response HTTP-Antwort
+     *
+     * @param status HTTP-Status-Code
+     *
+     * @param fehlerText Fehlermeldung
+     *
+     * @throws IOException Fehler beim Schreiben der HTTP-Antwort
+     */
+    private static void fehlerAntwort( HttpServletResponse response,
+                                       HttpStatus status,
+                                       String fehlerText ) throws IOException {
+
+        LOG.warn( fehlerText );
+
+        response.setStatus( status.value() );
+        response.setContentType( CONTENT_TYPE_TEXT );
+        response.getWriter().write( fehlerText );
+    }
+
+}
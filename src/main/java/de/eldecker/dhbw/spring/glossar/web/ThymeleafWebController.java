@@ -4,10 +4,21 @@ import static java.util.Collections.EMPTY_LIST;
 
 import static java.lang.Long.parseLong;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneId.systemDefault;
 
+import static org.springframework.http.HttpHeaders.CACHE_CONTROL;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,18 +29,36 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 
+import de.eldecker.dhbw.spring.glossar.db.Aufrufzaehler;
 import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.db.GebuendelterLeser;
+import de.eldecker.dhbw.spring.glossar.db.GlossarVersion;
+import de.eldecker.dhbw.spring.glossar.db.Historie;
 import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
 import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.index.Begriffsgraph;
+import de.eldecker.dhbw.spring.glossar.index.Begriffsindex;
+import de.eldecker.dhbw.spring.glossar.index.Querverweise;
 import de.eldecker.dhbw.spring.glossar.model.AutorArtikelAnzahl;
+import de.eldecker.dhbw.spring.glossar.model.BeliebterEintrag;
+import de.eldecker.dhbw.spring.glossar.model.Revision;
+import de.eldecker.dhbw.spring.glossar.model.RevisionInfo;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 
 /**
  * Controller (kein RestController!), der die Anfragen für die Thymeleaf-Views bearbeitet.
  * Alle Pfade beginnen mit {@code /app/}.
- * Die Mapping-Methoden geben immer den Namen (ohne Datei-Endung) der darzustellenden Template-Datei
- * zurück, der im Ordner {@code src/main/resources/templates/} gesucht wird. 
+ * Die Mapping-Methoden geben in der Regel den Namen (ohne Datei-Endung) der darzustellenden
+ * Template-Datei zurück, der im Ordner {@code src/main/resources/templates/} gesucht wird.
+ * Ausnahmen: {@link #hauptseiteAnzeigen(Authentication, Model, WebRequest, HttpServletRequest, HttpServletResponse)}
+ * schreibt die zwischengespeicherte Seite selbst in die HTTP-Antwort (siehe {@link HauptseiteCache})
+ * und {@link #eintragAnzeigen(Authentication, Model, String, WebRequest, HttpServletResponse)}
+ * gibt {@code null} zurück, wenn mit HTTP-Status-Code 304 (Not Modified) geantwortet wird.
  * Neben Mapping-Methoden enthält die Klasse aber auch noch Hilfsmethoden, die von mehreren
  * Mapping-Methoden aufgerufen werden.
  * <br><br>
@@ -57,7 +86,7 @@ public class ThymeleafWebController {
     private static final String ATTRIBUT_NUTZER = "nutzername";
 
     /** Attribut-Key für Platzhalter in Template, der die Liste der Einträge enthält. */
-    private static final String ATTRIBUT_EINTRAEGE_LISTE = "eintraege";
+    static final String ATTRIBUT_EINTRAEGE_LISTE = "eintraege";
 
     /** Attribut-Key für Platzhalter in Template, der den Glossarbegriff (Lemma) enthält.  */ 
     private static final String ATTRIBUT_BEGRIFF = "begriff";
@@ -65,6 +94,18 @@ public class ThymeleafWebController {
     /** Attribut-Key für Platzhalter in Template, der die Erklärung für einen Glossarbegriff enthält.  */
     private static final String ATTRIBUT_ERKLAERUNG = "erklaerung";
 
+    /**
+     * Attribut-Key für Platzhalter in Template, der die Erklärung mit Querverweisen auf andere
+     * Einträge enthält (siehe {@link Querverweise}); nur auf der Seite für einen Eintrag.
+     */
+    private static final String ATTRIBUT_ERKLAERUNG_VERLINKT = "erklaerung_verlinkt";
+
+    /** Attribut-Key für Platzhalter in Template, der die Liste der verwandten Begriffe enthält (siehe {@link Begriffsgraph}). */
+    private static final String ATTRIBUT_VERWANDTE = "verwandte_begriffe";
+
+    /** Attribut-Key für Platzhalter in Template, der die Liste der Begriffe enthält, die auf den Eintrag verweisen. */
+    private static final String ATTRIBUT_VERWEISENDE = "verweisende_begriffe";
+
     /** Attribut-Key für Platzhalter in Template, der den Zeitpunkt der Erzeugung des Eintrags enthält. */
     private static final String ATTRIBUT_ZEITPUNKT_ANGELEGT = "zeitpunkt_angelegt";
 
@@ -74,6 +115,12 @@ public class ThymeleafWebController {
     /** Attribut-Key für Platzhalter in Template, der die ID des Eintrags enthält. */
     private static final String ATTRIBUT_ID = "eintrag_id";
 
+    /**
+     * Attribut-Key für Platzhalter in Template, der die Version des Eintrags enthält; wird beim
+     * Bearbeiten mitgeschickt, damit gleichzeitige Änderungen erkannt werden.
+     */
+    private static final String ATTRIBUT_VERSION = "eintrag_version";
+
     /** Attribut-Key für Platzhalter in Template, der ggf. eine Fehlermeldung enthält. */
     private static final String ATTRIBUT_FEHLERMELDUNG = "fehlermeldung";
 
@@ -88,47 +135,153 @@ public class ThymeleafWebController {
     
     /** Attribut-Key für Platzhalter in Template, das die Liste mit der Anzahl der Artikel pro Autor referenziert. */ 
     private static final String ATTRIBUT_ARTIKEL_PRO_AUTOR_LISTE = "artikel_pro_autor_liste";
+
+    /** Attribut-Key für Platzhalter in Template, das die Liste der Revisionen eines Eintrags referenziert. */
+    private static final String ATTRIBUT_REVISIONEN_LISTE = "revisionen";
+
+    /** Attribut-Key für Platzhalter in Template, das die ausgewählte (rekonstruierte) Revision referenziert. */
+    private static final String ATTRIBUT_REVISION = "revision";
+
+    /** Attribut-Key für Platzhalter in Template, das die Liste der meistaufgerufenen Einträge referenziert. */
+    private static final String ATTRIBUT_BELIEBT_LISTE = "beliebt_liste";
         
+    /**
+     * Wert für HTTP-Header {@code Cache-Control}: Browser und Proxy dürfen die Seite speichern,
+     * müssen aber vor jeder Verwendung mit einem bedingten Request nachfragen, ob sie noch aktuell ist.
+     */
+    private static final String CACHE_CONTROL_OEFFENTLICH = "no-cache";
+
+    /**
+     * Wert für HTTP-Header {@code Cache-Control} für angemeldete Nutzer: wie
+     * {@link #CACHE_CONTROL_OEFFENTLICH}, aber ein gemeinsam genutzter Proxy darf die
+     * Seite nicht speichern, weil sie den Nutzernamen enthält.
+     */
+    private static final String CACHE_CONTROL_PRIVAT = "private, no-cache";
+
     /** Repository-Bean für Zugriff auf Datenbank. */
     private final Datenbank _datenbank;
 
+    /**
+     * Bean für lesende Datenbankzugriffe, bei denen gleichzeitige Anfragen für denselben
+     * Eintrag bzw. Autor zusammengefasst werden.
+     */
+    private final GebuendelterLeser _gebuendelterLeser;
+
+    /** Bean mit der für die aktuelle Glossarversion gerenderten Hauptseite. */
+    private final HauptseiteCache _hauptseiteCache;
+
+    /** Bean mit der aktuellen Glossarversion, wird für ETag der Hauptseite benötigt. */
+    private final GlossarVersion _glossarVersion;
+
+    /** Repository-Bean für die Historie (Revisionen) der Glossareinträge. */
+    private final Historie _historie;
+
+    /** Bean mit Cache für die Anzeige einzelner Einträge, Erklärungen außerhalb des Heaps. */
+    private final EintragCache _eintragCache;
+
+    /** Bean für die Querverweise in den Erklärungen. */
+    private final Querverweise _querverweise;
+
+    /** Bean mit dem Graph der Querverweise für verwandte und verweisende Begriffe. */
+    private final Begriffsgraph _begriffsgraph;
+
+    /** Bean, die die Aufrufe der Einträge zählt. */
+    private final Aufrufzaehler _aufrufzaehler;
+
+    /** Bean mit den Begriffen nach ID, für die meistaufgerufenen Einträge. */
+    private final Begriffsindex _begriffsindex;
+
 
     /**
      * Konstruktor für <i>Dependency Injection</i>.
      */
     @Autowired
-    public ThymeleafWebController( Datenbank datenbank ) {
-
-        _datenbank = datenbank;
+    public ThymeleafWebController( Datenbank datenbank,
+                                   GebuendelterLeser gebuendelterLeser,
+                                   HauptseiteCache hauptseiteCache,
+                                   GlossarVersion glossarVersion,
+                                   Historie historie,
+                                   EintragCache eintragCache,
+                                   Querverweise querverweise,
+                                   Begriffsgraph begriffsgraph,
+                                   Aufrufzaehler aufrufzaehler,
+                                   Begriffsindex begriffsindex ) {
+
+        _datenbank         = datenbank;
+        _gebuendelterLeser = gebuendelterLeser;
+        _hauptseiteCache   = hauptseiteCache;
+        _glossarVersion    = glossarVersion;
+        _historie          = historie;
+        _eintragCache      = eintragCache;
+        _querverweise      = querverweise;
+        _begriffsgraph     = begriffsgraph;
+        _aufrufzaehler     = aufrufzaehler;
+        _begriffsindex     = begriffsindex;
     }
 
 
     /**
      * Übersichtsseite mit Liste der Glossareinträge (aber ohne Erklärungen) anzeigen.
+     * <br><br>
+     *
+     * Die Seite wird nicht über einen View-Namen gerendert, sondern direkt von
+     * {@link HauptseiteCache} in die HTTP-Antwort geschrieben; nur der vom Anmeldestatus
+     * abhängige Teil der Seite wird für jeden Request neu gerendert.
+     * <br><br>
+     *
+     * Der ETag wird aus der Glossarversion (siehe {@link GlossarVersion}) gebildet; bei einem
+     * bedingten Request mit unveränderter Version wird ohne Datenbankzugriff mit HTTP-Status-Code
+     * 304 (Not Modified) geantwortet.
      *
      * @param authentication Objekt zur Abfrage, ob Nutzer authentifiziert ist;
      *                       ACHTUNG: ist {@code null} für unangemeldete Nutzer.
      *
-     * @param model Objekt, in das die Werte für die Platzhalter in der Template-Datei
-     *              geschrieben werden.
+     * @param model Objekt, in das die Werte für die Platzhalter im Nutzerblock
+     *              der Template-Datei geschrieben werden.
      *
-     * @return "hauptseite" (Name von Template-Datei ohne Datei-Endung)
+     * @param webRequest Objekt für Auswertung bedingter Requests
+     *
+     * @param request HTTP-Request
+     *
+     * @param response HTTP-Antwort, in die die Seite geschrieben wird
+     *
+     * @throws IOException Fehler beim Schreiben der HTTP-Antwort
      */
     @GetMapping( "/hauptseite" )
-    public String hauptseiteAnzeigen( Authentication authentication,
-                                      Model model ) {
+    public void hauptseiteAnzeigen( Authentication authentication,
+                                    Model model,
+                                    WebRequest webRequest,
+                                    HttpServletRequest request,
+                                    HttpServletResponse response ) throws IOException {
 
-        authentifzierungAufloesen( authentication, model );
+        final boolean istNutzerAngemeldet = authentifzierungAufloesen( authentication, model );
+
+        final String etagBasis = "h" + _glossarVersion.getVersion();
+        if ( istNichtGeaendert( webRequest, response, authentication, istNutzerAngemeldet, etagBasis ) ) {
 
-        final List<GlossarEntity> begriffListe = _datenbank.getGlossarBegriffe();
-        model.addAttribute( ATTRIBUT_EINTRAEGE_LISTE, begriffListe );
+            return; // HTTP-Status-Code 304 wurde schon gesetzt
+        }
 
-        return "hauptseite";
+        _hauptseiteCache.schreibeHauptseite( model.asMap(), request, response );
     }
 
       
     /**
      * Einzelnen Glossareintrag anzeigen.
+     * <br><br>
+     *
+     * Der ETag wird aus ID und Zeitpunkt der letzten Änderung des Eintrags sowie der Version
+     * der Begriffe (für die Querverweise, siehe {@link Querverweise}) und des
+     * {@link Begriffsgraph} gebildet.
+     * Für die Prüfung eines bedingten Requests wird nur der Änderungszeitpunkt von der
+     * Datenbank gelesen; wenn sich der Eintrag nicht geändert hat, dann wird mit
+     * HTTP-Status-Code 304 (Not Modified) geantwortet, ohne die Entity zu laden.
+     * Sonst wird der Eintrag aus dem {@link EintragCache} geholt, falls er sich seit dem
+     * letzten Laden nicht geändert hat.
+     * <br><br>
+     *
+     * Jeder Aufruf eines vorhandenen Eintrags wird vom {@link Aufrufzaehler} gezählt, auch
+     * wenn mit 304 geantwortet wird.
      *
      * @param authentication Objekt zur Abfrage, ob Nutzer authentifiziert ist;
      *                       ACHTUNG: ist {@code null} für unangemeldete Nutzer.
@@ -139,16 +292,64 @@ public class ThymeleafWebController {
      * @param idStr ID (Nummer) des Glossareintrags als String, sollte sich nach 
      *              {@code long} parsen lassen
      *
-     * @return "eintrag" (Name von Template-Datei ohne Datei-Endung)
+     * @param webRequest Objekt für Auswertung bedingter Requests
+     *
+     * @param response HTTP-Antwort, für Header {@code Cache-Control}
+     *
+     * @return "eintrag" (Name von Template-Datei ohne Datei-Endung) oder {@code null},
+     *         wenn mit HTTP-Status-Code 304 geantwortet wird
      */
     @GetMapping( "/eintrag/{id}")
     public String eintragAnzeigen( Authentication authentication,
                                    Model model,
-                                   @PathVariable("id") String idStr ) {
+                                   @PathVariable("id") String idStr,
+                                   WebRequest webRequest,
+                                   HttpServletResponse response ) {
 
-        authentifzierungAufloesen( authentication, model );
-        
-        holeEntityFuerID( idStr, model );
+        final boolean istNutzerAngemeldet = authentifzierungAufloesen( authentication, model );
+
+        try {
+
+            final long idLong = parseLong( idStr );
+
+            final Optional<LocalDateTime> zeitpunktOptional = _datenbank.getZeitpunktAenderung( idLong );
+            if ( zeitpunktOptional.isPresent() ) {
+
+                _aufrufzaehler.zaehlen( idLong );
+
+                final Instant zeitpunktAenderung = zeitpunktOptional.get().atZone( systemDefault() ).toInstant();
+
+                final String etagBasis = format( "e%d-%d-%d-v%d-g%d", idLong,
+                                                 zeitpunktAenderung.getEpochSecond(),
+                                                 zeitpunktAenderung.getNano(),
+                                                 _querverweise.getVersion(),
+                                                 _begriffsgraph.getVersion() );
+
+                if ( istNichtGeaendert( webRequest, response, authentication, istNutzerAngemeldet, etagBasis ) ) {
+
+                    return null; // HTTP-Status-Code 304 wurde schon gesetzt
+                }
+
+                final Optional<EintragCache.Eintrag> eintragOptional = _eintragCache.holen( idLong, zeitpunktOptional.get() );
+                if ( eintragOptional.isPresent() ) {
+
+                    final EintragCache.Eintrag eintrag = eintragOptional.get();
+                    eintragSetzen( eintrag, model );
+                    querverweiseSetzen( idLong, eintrag.zeitpunktAenderung(), () -> eintrag.erklaerung().toString(), model );
+                    return "eintrag";
+                }
+            }
+        }
+        catch ( NumberFormatException ex ) {
+
+            // Fehlermeldung wird in holeEntityFuerID() erzeugt
+        }
+
+        if ( holeEntityFuerID( idStr, model ) ) {
+
+            final String erklaerung = (String) model.getAttribute( ATTRIBUT_ERKLAERUNG );
+            querverweiseSetzen( parseLong( idStr ), null, () -> erklaerung, model );
+        }
 
         return "eintrag";
     }
@@ -239,6 +440,39 @@ public class ThymeleafWebController {
     }
     
     
+    /**
+     * Seite mit den am häufigsten aufgerufenen Einträgen anzeigen. Die Liste wird vom
+     * {@link Aufrufzaehler} laufend gepflegt, die Begriffe kommen aus dem {@link Begriffsindex};
+     * es wird also nicht auf die Datenbank zugegriffen.
+     *
+     * @param authentication Objekt zur Abfrage, ob Nutzer authentifiziert ist;
+     *                       ACHTUNG: ist {@code null} für unangemeldete Nutzer.
+     *
+     * @param model Objekt, in das die Werte für die Platzhalter in der Template-Datei
+     *              geschrieben werden.
+     *
+     * @return "beliebt" (Name von Template-Datei ohne Datei-Endung)
+     */
+    @GetMapping( "/beliebt" )
+    public String beliebteEintraege( Authentication authentication,
+                                     Model model ) {
+
+        authentifzierungAufloesen( authentication, model );
+
+        final List<Aufrufzaehler.Platz> platzListe   = _aufrufzaehler.getMeistaufgerufene();
+        final List<BeliebterEintrag>    beliebtListe = new ArrayList<>( platzListe.size() );
+        for ( Aufrufzaehler.Platz platz : platzListe ) {
+
+            _begriffsindex.getBegriff( platz.id() )
+                          .ifPresent( begriff -> beliebtListe.add( new BeliebterEintrag( platz.id(), begriff, platz.anzahl() ) ) );
+        }
+
+        model.addAttribute( ATTRIBUT_BELIEBT_LISTE, beliebtListe );
+
+        return "beliebt";
+    }
+
+
     /**
      * Seite mit öffentlichen Infos zu einem Autor anzeigen; vorerst nur die Artikel, die er angelegt hat.
      * 
@@ -253,7 +487,7 @@ public class ThymeleafWebController {
                                    @PathVariable("nutzername") String nutzername ) {
                 
         
-        final Optional<AutorEntity> autorOptional = _datenbank.getAutorByName( nutzername );
+        final Optional<AutorEntity> autorOptional = _gebuendelterLeser.getAutorByName( nutzername );
         if ( autorOptional.isEmpty() ) {
             
             LOG.warn( "Infoseite zu unbekanntem Autor \"{}\" aufgerufen.", nutzername );
@@ -281,6 +515,73 @@ public class ThymeleafWebController {
     }
     
     
+    /**
+     * Seite mit der Historie eines Glossareintrags anzeigen: Liste aller Revisionen und
+     * der vollständige Inhalt der ausgewählten Revision, der aus dem letzten Snapshot und
+     * den folgenden Deltas rekonstruiert wird (siehe {@link Historie}).
+     *
+     * @param model Objekt, in das die Werte für die Platzhalter in der Template-Datei geschrieben werden.
+     *
+     * @param idString ID des Glossareintrags als String (sollte sich nach {@code long} parsen lassen)
+     *
+     * @param nummer Optionaler URL-Parameter mit Nummer der anzuzeigenden Revision;
+     *               Default ist die neueste Revision.
+     *
+     * @return "historie" (Name von Template-Datei ohne Datei-Endung)
+     */
+    @GetMapping( "/eintrag/{id}/historie" )
+    public String historieAnzeigen( Model model,
+                                    @PathVariable("id") String idString,
+                                    @RequestParam( value = "revision", required = false ) Integer nummer ) {
+
+        model.addAttribute( ATTRIBUT_ID              , idString   );
+        model.addAttribute( ATTRIBUT_SEITENTITEL     , "Historie" );
+        model.addAttribute( ATTRIBUT_REVISIONEN_LISTE, EMPTY_LIST );
+        model.addAttribute( ATTRIBUT_REVISION        , null       );
+        model.addAttribute( ATTRIBUT_FEHLERMELDUNG   , ""         );
+
+        long idLong = -1;
+        try {
+
+            idLong = parseLong( idString );
+        }
+        catch ( NumberFormatException ex ) {
+
+            final String fehlerText = format( "Ungültige ID als Pfadparameter übergeben: \"%s\"", idString );
+            model.addAttribute( ATTRIBUT_FEHLERMELDUNG, fehlerText );
+            LOG.error( fehlerText );
+
+            return "historie";
+        }
+
+        final List<RevisionInfo> revisionenListe = _historie.getRevisionen( idLong );
+        if ( revisionenListe.isEmpty() ) {
+
+            model.addAttribute( ATTRIBUT_FEHLERMELDUNG,
+                                format( "Keine Historie für Glossareintrag mit ID=%d vorhanden.", idLong ) );
+            return "historie";
+        }
+        model.addAttribute( ATTRIBUT_REVISIONEN_LISTE, revisionenListe );
+
+        final int nummerAnzeige = nummer == null ? revisionenListe.getFirst().nummer() : nummer;
+
+        final Optional<Revision> revisionOptional = _historie.getRevision( idLong, nummerAnzeige );
+        if ( revisionOptional.isEmpty() ) {
+
+            model.addAttribute( ATTRIBUT_FEHLERMELDUNG,
+                                format( "Keine Revision %d für Glossareintrag mit ID=%d gefunden.", nummerAnzeige, idLong ) );
+        } else {
+
+            model.addAttribute( ATTRIBUT_REVISION, revisionOptional.get() );
+        }
+
+        model.addAttribute( ATTRIBUT_SEITENTITEL,
+                            "Historie von Eintrag \"" + revisionenListe.getFirst().begriff() + "\"" );
+
+        return "historie";
+    }
+
+
     /** 
      * <b>Hilfsmethode:</b> 
      * Platzhalterwerte in {@code model} in Abhängigkeit ob ein Nutzer
@@ -324,6 +625,139 @@ public class ThymeleafWebController {
     }
 
     
+    /**
+     * <b>Hilfsmethode:</b>
+     * Prüft einen bedingten GET-Request ({@code If-None-Match}) und setzt die Header
+     * {@code ETag} und {@code Cache-Control} für die HTTP-Antwort.
+     * <br><br>
+     *
+     * Da die Seiten den Namen des angemeldeten Nutzers enthalten, wird an {@code etagBasis}
+     * noch eine Kennung für den Nutzer angehängt (SHA-256 des vollständigen Nutzernamens),
+     * damit ein Nutzer nie eine für einen anderen Nutzer gerenderte Seite bestätigt bekommt.
+     * <br><br>
+     *
+     * Es wird bewusst kein {@code Last-Modified} gesetzt: Die Seiten hängen auch vom
+     * Anmeldestatus und (Seite eines Eintrags) von den Querverweisen ab, für die es keinen
+     * Zeitpunkt gibt; ein Client, der nur mit {@code If-Modified-Since} nachfragt, bekäme
+     * sonst nach einer Anmeldung oder der Umbenennung eines anderen Eintrags fälschlich 304.
+     *
+     * @param webRequest Objekt für Auswertung bedingter Requests
+     *
+     * @param response HTTP-Antwort
+     *
+     * @param authentication Objekt zur Abfrage des Nutzernamens;
+     *                       ACHTUNG: ist {@code null} für unangemeldete Nutzer.
+     *
+     * @param istNutzerAngemeldet {@code true} gdw. ein Nutzer angemeldet ist
+     *
+     * @param etagBasis Nutzerunabhängiger Teil des ETags, muss sich bei jeder Änderung
+     *                  des Inhalts der Seite ändern
+     *
+     * @return {@code true} gdw. die Seite beim Client noch aktuell ist; in diesem Fall
+     *         wurde HTTP-Status-Code 304 (Not Modified) schon gesetzt und die Seite darf
+     *         nicht mehr gerendert werden.
+     */
+    private boolean istNichtGeaendert( WebRequest webRequest,
+                                       HttpServletResponse response,
+                                       Authentication authentication,
+                                       boolean istNutzerAngemeldet,
+                                       String etagBasis ) {
+
+        final String nutzerKennung = istNutzerAngemeldet
+                                     ? "n" + nutzerHash( authentication.getName() )
+                                     : "anonym";
+
+        final String etag = "\"" + etagBasis + "-" + nutzerKennung + "\"";
+
+        response.setHeader( CACHE_CONTROL, istNutzerAngemeldet ? CACHE_CONTROL_PRIVAT : CACHE_CONTROL_OEFFENTLICH );
+
+        return webRequest.checkNotModified( etag );
+    }
+
+
+    /**
+     * <b>Hilfsmethode:</b>
+     * Kennung eines Nutzers für den ETag; der Name selbst soll nicht im Header stehen, und
+     * anders als {@link String#hashCode()} haben zwei verschiedene Namen praktisch nie
+     * dieselbe Kennung.
+     *
+     * @param nutzername Name des angemeldeten Nutzers
+     *
+     * @return SHA-256 des Nutzernamens (UTF-8) als Hex-String
+     */
+    private static String nutzerHash( String nutzername ) {
+
+        try {
+
+            final MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+            return HexFormat.of().formatHex( digest.digest( nutzername.getBytes( UTF_8 ) ) );
+        }
+        catch ( NoSuchAlgorithmException ex ) {
+
+            throw new IllegalStateException( ex ); // ist in jeder Java-Laufzeitumgebung vorhanden
+        }
+    }
+
+
+    /**
+     * <b>Hilfsmethode:</b>
+     * Attribute für Template {@code eintrag} aus einem Eintrag im {@link EintragCache} setzen,
+     * es werden dieselben Keys wie in {@link #holeEntityFuerID(String, Model)} gesetzt. Die
+     * Erklärung wird nicht dekodiert, sondern erst beim Rendern des Templates.
+     *
+     * @param eintrag Eintrag aus dem Cache
+     *
+     * @param model Objekt, in das die Werte für die Platzhalter in der Template-Datei
+     *              geschrieben werden.
+     */
+    private void eintragSetzen( EintragCache.Eintrag eintrag, Model model ) {
+
+        model.addAttribute( ATTRIBUT_FEHLERMELDUNG, "" );
+
+        model.addAttribute( ATTRIBUT_ID                 , eintrag.id()                 );
+        model.addAttribute( ATTRIBUT_VERSION            , eintrag.version()            );
+        model.addAttribute( ATTRIBUT_BEGRIFF            , eintrag.begriff()            );
+        model.addAttribute( ATTRIBUT_ERKLAERUNG         , eintrag.erklaerung()         );
+        model.addAttribute( ATTRIBUT_AUTOR_ERZEUGUNG    , eintrag.autorErzeugung()     );
+        model.addAttribute( ATTRIBUT_AUTOR_AENDERUNG    , eintrag.autorAenderung()     );
+        model.addAttribute( ATTRIBUT_ZEITPUNKT_ANGELEGT , eintrag.zeitpunktErzeugung() );
+
+        if ( eintrag.zeitpunktErzeugung().isEqual( eintrag.zeitpunktAenderung() ) ) {
+
+            model.addAttribute( ATTRIBUT_ZEITPUNKT_GEAENDERT, "" );
+
+        } else {
+
+            model.addAttribute( ATTRIBUT_ZEITPUNKT_GEAENDERT, eintrag.zeitpunktAenderung() );
+        }
+    }
+
+
+    /**
+     * <b>Hilfsmethode:</b>
+     * Attribute für Template {@code eintrag} mit Querverweisen setzen: Erklärung mit Links
+     * (siehe {@link Querverweise}) sowie verwandte und verweisende Begriffe (siehe
+     * {@link Begriffsgraph}).
+     *
+     * @param id ID des Eintrags
+     *
+     * @param zeitpunktAenderung Zeitpunkt der letzten Änderung, {@code null} wenn die
+     *                           Verweise nicht gespeichert werden sollen
+     *
+     * @param erklaerung Liefert die Erklärung
+     *
+     * @param model Objekt, in das die Werte für die Platzhalter in der Template-Datei
+     *              geschrieben werden.
+     */
+    private void querverweiseSetzen( long id, LocalDateTime zeitpunktAenderung,
+                                     Supplier<String> erklaerung, Model model ) {
+
+        model.addAttribute( ATTRIBUT_ERKLAERUNG_VERLINKT, _querverweise.verlinken( id, zeitpunktAenderung, erklaerung ) );
+        model.addAttribute( ATTRIBUT_VERWANDTE          , _begriffsgraph.getVerwandte( id )                           );
+        model.addAttribute( ATTRIBUT_VERWEISENDE        , _begriffsgraph.getVerweisende( id )                         );
+    }
+
+
     /**
      * Glossareintrag anhand ID (als String übergeben) von Datenbank holen und Attribute mit zugehörigen    
      * Werten in {@code mode} setzen.
@@ -368,6 +802,7 @@ public class ThymeleafWebController {
             model.addAttribute( ATTRIBUT_ZEITPUNKT_ANGELEGT , "" );
             model.addAttribute( ATTRIBUT_ZEITPUNKT_GEAENDERT, "" );
             model.addAttribute( ATTRIBUT_ID                 , "" );
+            model.addAttribute( ATTRIBUT_VERSION            , "" );
             model.addAttribute( ATTRIBUT_AUTOR_ERZEUGUNG    , "" );
             model.addAttribute( ATTRIBUT_AUTOR_AENDERUNG    , "" );
             
@@ -380,7 +815,7 @@ public class ThymeleafWebController {
             return false;
          }                
         
-        final Optional<GlossarEntity> entityOptional = _datenbank.getEintragById( idLong );
+        final Optional<GlossarEntity> entityOptional = _gebuendelterLeser.getEintragById( idLong );
         if ( entityOptional.isEmpty() ) {
             
             model.addAttribute( ATTRIBUT_BEGRIFF            , "" );
@@ -388,6 +823,7 @@ public class ThymeleafWebController {
             model.addAttribute( ATTRIBUT_ZEITPUNKT_ANGELEGT , "" );
             model.addAttribute( ATTRIBUT_ZEITPUNKT_GEAENDERT, "" );
             model.addAttribute( ATTRIBUT_ID                 , "" );
+            model.addAttribute( ATTRIBUT_VERSION            , "" );
             model.addAttribute( ATTRIBUT_AUTOR_ERZEUGUNG    , "" );
             model.addAttribute( ATTRIBUT_AUTOR_AENDERUNG    , "" );
             
@@ -408,6 +844,7 @@ public class ThymeleafWebController {
         model.addAttribute( ATTRIBUT_FEHLERMELDUNG, "" );
 
         model.addAttribute( ATTRIBUT_ID                 , idLong                         );
+        model.addAttribute( ATTRIBUT_VERSION            , glossarEintrag.getVersion()    );
         model.addAttribute( ATTRIBUT_BEGRIFF            , glossarEintrag.getBegriff()    );
         model.addAttribute( ATTRIBUT_ERKLAERUNG         , glossarEintrag.getErklaerung() );
         
@@ -0,0 +1,68 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import org.springframework.http.HttpStatus;
+
+
+/**
+ * Exception für eine HTTP-Payload, die nicht verarbeitet werden kann, weil sie kein gültiges
+ * JSON enthält oder zu groß ist. Die Exception wird in {@link RestApiController} in eine
+ * HTTP-Antwort mit einer {@link de.eldecker.dhbw.spring.glossar.model.Fehlermeldung}
+ * umgewandelt.
+ */
+public class UngueltigePayloadException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Fehlercode für Payload, die die konfigurierte Maximalgröße überschreitet. */
+    public static final String FEHLERCODE_ZU_GROSS = "PAYLOAD_ZU_GROSS";
+
+    /** Fehlercode für Payload, die sich nicht deserialisieren lässt. */
+    public static final String FEHLERCODE_UNGUELTIG = "PAYLOAD_UNGUELTIG";
+
+    /** HTTP-Status-Code für die Antwort. */
+    private final HttpStatus _status;
+
+    /** Maschinenlesbarer Fehlercode, siehe Konstanten {@code FEHLERCODE_...}. */
+    private final String _fehlercode;
+
+
+    /**
+     * Konstruktor.
+     *
+     * @param status HTTP-Status-Code für die Antwort
+     *
+     * @param fehlercode Maschinenlesbarer Fehlercode
+     *
+     * @param meldung Fehlermeldung für Menschen
+     */
+    public UngueltigePayloadException( HttpStatus status, String fehlercode, String meldung ) {
+
+        super( meldung );
+
+        _status     = status;
+        _fehlercode = fehlercode;
+    }
+
+
+    /**
+     * Getter für HTTP-Status-Code.
+     *
+     * @return HTTP-Status-Code, z.B. 413 (Content Too Large)
+     */
+    public HttpStatus getStatus() {
+
+        return _status;
+    }
+
+
+    /**
+     * Getter für Fehlercode.
+     *
+     * @return Fehlercode, z.B. {@link #FEHLERCODE_ZU_GROSS}
+     */
+    public String getFehlercode() {
+
+        return _fehlercode;
+    }
+
+}
@@ -0,0 +1,230 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Budget für die Anzahl gleichzeitig bearbeiteter Requests einer Art (lesend oder schreibend),
+ * siehe {@link ZugangskontrolleFilter}.
+ * <br><br>
+ *
+ * Wenn alle Plätze belegt sind, dann wartet ein Request in einer Warteschlange (faire Semaphore,
+ * also in Reihenfolge der Ankunft), aber höchstens die konfigurierte Wartezeit. Wenn die
+ * Warteschlange schon voll ist, dann wird der Request sofort abgelehnt.
+ */
+class Zugangsbudget {
+
+    /** Ergebnis des Versuchs, einen Platz zu belegen. */
+    enum Ergebnis {
+
+        /** Platz erhalten, nach Bearbeitung muss {@link Zugangsbudget#freigeben()} aufgerufen werden. */
+        ZUGELASSEN,
+
+        /** Abgelehnt, weil schon zu viele Requests in der Warteschlange stehen. */
+        WARTESCHLANGE_VOLL,
+
+        /** Abgelehnt, weil innerhalb der max. Wartezeit kein Platz frei geworden ist. */
+        ZEITUEBERSCHREITUNG
+    }
+
+    /** Bezeichnung, z.B. "schreiben", für Logging und Metriken. */
+    private final String _art;
+
+    /** Max Anzahl gleichzeitig bearbeiteter Requests. */
+    private final int _anzahlMax;
+
+    /** Max Anzahl wartender Requests. */
+    private final int _warteschlangeMax;
+
+    /** Max Wartezeit in Millisekunden. */
+    private final long _wartezeitMaxMillis;
+
+    /** Faire Semaphore mit {@code _anzahlMax} Plätzen. */
+    private final Semaphore _semaphore;
+
+    /** Anzahl der aktuell wartenden Requests. */
+    private final AtomicInteger _anzahlWartend = new AtomicInteger( 0 );
+
+    /** Anzahl zugelassener Requests seit Programmstart. */
+    private final AtomicLong _anzahlZugelassen = new AtomicLong( 0 );
+
+    /** Anzahl abgelehnter Requests wegen voller Warteschlange seit Programmstart. */
+    private final AtomicLong _anzahlAbgelehntVoll = new AtomicLong( 0 );
+
+    /** Anzahl abgelehnter Requests wegen Zeitüberschreitung seit Programmstart. */
+    private final AtomicLong _anzahlAbgelehntZeit = new AtomicLong( 0 );
+
+
+    /**
+     * Konstruktor.
+     *
+     * @param art Bezeichnung, z.B. "lesen"
+     *
+     * @param anzahlMax Max Anzahl gleichzeitig bearbeiteter Requests
+     *
+     * @param warteschlangeMax Max Anzahl wartender Requests
+     *
+     * @param wartezeitMaxMillis Max Wartezeit in Millisekunden
+     */
+    Zugangsbudget( String art, int anzahlMax, int warteschlangeMax, long wartezeitMaxMillis ) {
+
+        _art                = art;
+        _anzahlMax          = anzahlMax;
+        _warteschlangeMax   = warteschlangeMax;
+        _wartezeitMaxMillis = wartezeitMaxMillis;
+        _semaphore          = new Semaphore( anzahlMax, true );
+    }
+
+
+    /**
+     * Versuchen, einen Platz zu belegen; blockiert höchstens die konfigurierte Wartezeit.
+     *
+     * @return {@link Ergebnis#ZUGELASSEN} wenn Platz erhalten, sonst Grund der Ablehnung
+     *
+     * @throws InterruptedException Thread wurde beim Warten unterbrochen
+     */
+    Ergebnis belegen() throws InterruptedException {
+
+        if ( _semaphore.tryAcquire() ) {
+
+            _anzahlZugelassen.incrementAndGet();
+            return Ergebnis.ZUGELASSEN;
+        }
+
+        if ( _anzahlWartend.incrementAndGet() > _warteschlangeMax ) {
+
+            _anzahlWartend.decrementAndGet();
+            _anzahlAbgelehntVoll.incrementAndGet();
+            return Ergebnis.WARTESCHLANGE_VOLL;
+        }
+
+        try {
+
+            if ( _semaphore.tryAcquire( _wartezeitMaxMillis, MILLISECONDS ) ) {
+
+                _anzahlZugelassen.incrementAndGet();
+                return Ergebnis.ZUGELASSEN;
+            }
+
+            _anzahlAbgelehntZeit.incrementAndGet();
+            return Ergebnis.ZEITUEBERSCHREITUNG;
+        }
+        finally {
+
+            _anzahlWartend.decrementAndGet();
+        }
+    }
+
+
+    /**
+     * Platz nach Bearbeitung des Requests wieder freigeben.
+     */
+    void freigeben() {
+
+        _semaphore.release();
+    }
+
+
+    /**
+     * Getter für Bezeichnung.
+     *
+     * @return Bezeichnung, z.B. "schreiben"
+     */
+    String getArt() {
+
+        return _art;
+    }
+
+
+    /**
+     * Getter für max. Anzahl gleichzeitig bearbeiteter Requests.
+     *
+     * @return Anzahl Plätze
+     */
+    int getAnzahlMax() {
+
+        return _anzahlMax;
+    }
+
+
+    /**
+     * Getter für max. Anzahl wartender Requests.
+     *
+     * @return Größe der Warteschlange
+     */
+    int getWarteschlangeMax() {
+
+        return _warteschlangeMax;
+    }
+
+
+    /**
+     * Getter für max. Wartezeit.
+     *
+     * @return Wartezeit in Millisekunden
+     */
+    long getWartezeitMaxMillis() {
+
+        return _wartezeitMaxMillis;
+    }
+
+
+    /**
+     * Anzahl der Requests, die gerade bearbeitet werden.
+     *
+     * @return Anzahl belegter Plätze
+     */
+    int getAnzahlAktiv() {
+
+        return _anzahlMax - _semaphore.availablePermits();
+    }
+
+
+    /**
+     * Anzahl der Requests, die gerade auf einen Platz warten (Länge der Warteschlange).
+     *
+     * @return Anzahl wartender Requests
+     */
+    int getAnzahlWartend() {
+
+        return _anzahlWartend.get();
+    }
+
+
+    /**
+     * Anzahl zugelassener Requests.
+     *
+     * @return Anzahl seit Programmstart
+     */
+    long getAnzahlZugelassen() {
+
+        return _anzahlZugelassen.get();
+    }
+
+
+    /**
+     * Anzahl wegen voller Warteschlange abgelehnter Requests.
+     *
+     * @return Anzahl seit Programmstart
+     */
+    long getAnzahlAbgelehntVoll() {
+
+        return _anzahlAbgelehntVoll.get();
+    }
+
+
+    /**
+     * Anzahl wegen Zeitüberschreitung abgelehnter Requests.
+     *
+     * @return Anzahl seit Programmstart
+     */
+    long getAnzahlAbgelehntZeit() {
+
+        return _anzahlAbgelehntZeit.get();
+    }
+
+}
@@ -0,0 +1,268 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import java.io.IOException;
+import java.util.Set;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import tools.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import de.eldecker.dhbw.spring.glossar.model.Fehlermeldung;
+
+
+/**
+ * Zugangskontrolle (<i>Admission Control</i>) für die HTTP-Requests an die Anwendung:
+ * lesende, schreibende und Verwaltungs-Requests haben jeweils ein eigenes {@link Zugangsbudget},
+ * damit z.B. viele gleichzeitige Speicher-Requests von Sync-Jobs nicht alle Datenbankverbindungen
+ * belegen und die Antwortzeiten für lesende Nutzer in die Höhe treiben.
+ * <br><br>
+ *
+ * Als schreibend gelten nur die Speicher-Requests ({@code /api/v1/speichern} und
+ * {@code /api/v1/speichern/batch}) mit einer anderen HTTP-Methode als {@code GET} oder
+ * {@code HEAD}. Alle anderen solchen Requests an {@code /api/} (Backup, Export usw.) laufen
+ * u.U. mehrere Minuten und würden das kleine Schreibbudget blockieren; sie haben deshalb ein
+ * eigenes Budget, das standardmäßig nur einen Request gleichzeitig und keine Warteschlange
+ * zulässt. Als lesend gelten alle {@code GET}- und {@code HEAD}-Requests an {@code /app/} und
+ * {@code /api/}. Alle anderen Requests (z.B. statische Dateien, Anmeldung) werden nicht begrenzt.
+ * <br><br>
+ *
+ * Wenn ein Request abgelehnt wird, dann bekommt der Client den HTTP-Status-Code 429
+ * (Too Many Requests) mit Header {@code Retry-After} und einer {@link Fehlermeldung} als JSON.
+ * <br><br>
+ *
+ * Metriken (über {@code /actuator/metrics}), jeweils mit Tag {@code art} ("lesen", "schreiben"
+ * oder "verwaltung"):
+ * <ul>
+ * <li>{@code glossar.zugang.aktiv}: Anzahl Requests in Bearbeitung</li>
+ * <li>{@code glossar.zugang.wartend}: Länge der Warteschlange</li>
+ * <li>{@code glossar.zugang.zugelassen}: Anzahl zugelassener Requests</li>
+ * <li>{@code glossar.zugang.abgelehnt}: Anzahl abgelehnter Requests, zusätzlich mit Tag
+ *     {@code grund} ("warteschlange_voll" oder "zeitueberschreitung")</li>
+ * </ul>
+ */
+@Component
+public class ZugangskontrolleFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger( ZugangskontrolleFilter.class );
+
+    /** Fehlercode in {@link Fehlermeldung} bei Ablehnung. */
+    public static final String FEHLERCODE_UEBERLASTET = "UEBERLASTET";
+
+    /** Budget für lesende Requests. */
+    private final Zugangsbudget _budgetLesen;
+
+    /** Pfade der Requests, die das Budget für schreibende Requests belegen. */
+    private static final Set<String> PFADE_SCHREIBEN = Set.of( "/api/v1/speichern", "/api/v1/speichern/batch" );
+
+    /** Budget für schreibende Requests. */
+    private final Zugangsbudget _budgetSchreiben;
+
+    /** Budget für Verwaltungs-Requests wie Backup oder Export. */
+    private final Zugangsbudget _budgetVerwaltung;
+
+    /** Wert für HTTP-Header {@code Retry-After} in Sekunden. */
+    private final int _retryAfterSekunden;
+
+    /** Für Serialisierung der Fehlermeldung. */
+    private final ObjectMapper _objectMapper;
+
+
+    /**
+     * Konstruktor für <i>Dependency Injection</i>, Werte aus {@code application.properties}.
+     */
+    @Autowired
+    public ZugangskontrolleFilter( ObjectMapper objectMapper,
+                                   @Value( "${de.eldecker.glossar.zugang.lesen.max:50}"                ) int  lesenMax,
+                                   @Value( "${de.eldecker.glossar.zugang.lesen.warteschlange:500}"     ) int  lesenWarteschlange,
+                                   @Value( "${de.eldecker.glossar.zugang.lesen.wartezeit.ms:2000}"     ) long lesenWartezeitMillis,
+                                   @Value( "${de.eldecker.glossar.zugang.schreiben.max:2}"             ) int  schreibenMax,
+                                   @Value( "${de.eldecker.glossar.zugang.schreiben.warteschlange:20}"  ) int  schreibenWarteschlange,
+                                   @Value( "${de.eldecker.glossar.zugang.schreiben.wartezeit.ms:1000}" ) long schreibenWartezeitMillis,
+                                   @Value( "${de.eldecker.glossar.zugang.verwaltung.max:1}"            ) int  verwaltungMax,
+                                   @Value( "${de.eldecker.glossar.zugang.verwaltung.warteschlange:0}"  ) int  verwaltungWarteschlange,
+                                   @Value( "${de.eldecker.glossar.zugang.verwaltung.wartezeit.ms:0}"   ) long verwaltungWartezeitMillis,
+                                   @Value( "${de.eldecker.glossar.zugang.retryafter.sekunden:1}"       ) int  retryAfterSekunden ) {
+
+        _objectMapper       = objectMapper;
+        _budgetLesen        = new Zugangsbudget( "lesen"     , lesenMax     , lesenWarteschlange     , lesenWartezeitMillis      );
+        _budgetSchreiben    = new Zugangsbudget( "schreiben" , schreibenMax , schreibenWarteschlange , schreibenWartezeitMillis  );
+        _budgetVerwaltung   = new Zugangsbudget( "verwaltung", verwaltungMax, verwaltungWarteschlange, verwaltungWartezeitMillis );
+        _retryAfterSekunden = retryAfterSekunden;
+    }
+
+
+    /**
+     * Konfiguration loggen.
+     */
+    @PostConstruct
+    private void loggeKonfiguration() {
+
+        for ( Zugangsbudget budget : new Zugangsbudget[] { _budgetLesen, _budgetSchreiben, _budgetVerwaltung } ) {
+
+            LOG.info( "Zugangskontrolle \"{}\": max. {} gleichzeitig, max. {} wartend, max. Wartezeit {} ms.",
+                      budget.getArt(), budget.getAnzahlMax(), budget.getWarteschlangeMax(),
+                      budget.getWartezeitMaxMillis() );
+        }
+    }
+
+
+    /**
+     * Request nur bearbeiten, wenn im zugehörigen Budget ein Platz frei ist oder innerhalb
+     * der max. Wartezeit frei wird; sonst mit HTTP-Status-Code 429 ablehnen.
+     */
+    @Override
+    protected void doFilterInternal( HttpServletRequest request,
+                                     HttpServletResponse response,
+                                     FilterChain filterChain ) throws ServletException, IOException {
+
+        final Zugangsbudget budget = budgetFuerRequest( request );
+        if ( budget == null ) {
+
+            filterChain.doFilter( request, response );
+            return;
+        }
+
+        Zugangsbudget.Ergebnis ergebnis;
+        try {
+
+            ergebnis = budget.belegen();
+        }
+        catch ( InterruptedException ex ) {
+
+            Thread.currentThread().interrupt();
+            throw new ServletException( "Warten auf Zugang unterbrochen.", ex );
+        }
+
+        if ( ergebnis != Zugangsbudget.Ergebnis.ZUGELASSEN ) {
+
+            LOG.warn( "Request {} {} abgelehnt ({}): {} in Bearbeitung, {} wartend.",
+                      request.getMethod(), request.getRequestURI(), ergebnis,
+                      budget.getAnzahlAktiv(), budget.getAnzahlWartend() );
+
+            ablehnen( response );
+            return;
+        }
+
+        try {
+
+            filterChain.doFilter( request, response );
+        }
+        finally {
+
+            budget.freigeben();
+        }
+    }
+
+
+    /**
+     * Budget für den Request bestimmen.
+     *
+     * @param request HTTP-Request
+     *
+     * @return Budget für lesende, schreibende oder Verwaltungs-Requests; {@code null}, wenn
+     *         der Request nicht begrenzt wird.
+     */
+    private Zugangsbudget budgetFuerRequest( HttpServletRequest request ) {
+
+        final String  pfad      = request.getRequestURI().substring( request.getContextPath().length() );
+        final String  methode   = request.getMethod();
+        final boolean istLesend = "GET".equals( methode ) || "HEAD".equals( methode );
+
+        if ( pfad.startsWith( "/api/" ) ) {
+
+            if ( istLesend ) {
+
+                return _budgetLesen;
+            }
+            return PFADE_SCHREIBEN.contains( pfad ) ? _budgetSchreiben : _budgetVerwaltung;
+        }
+        if ( pfad.startsWith( "/app/" ) && istLesend ) {
+
+            return _budgetLesen;
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Antwort mit HTTP-Status-Code 429 und Header {@code Retry-After} schreiben.
+     *
+     * @param response HTTP-Antwort
+     *
+     * @throws IOException Fehler beim Schreiben der Antwort
+     */
+    private void ablehnen( HttpServletResponse response ) throws IOException {
+
+        final Fehlermeldung fehlermeldung =
+                new Fehlermeldung( FEHLERCODE_UEBERLASTET,
+                                   "Server ist ausgelastet, bitte in " + _retryAfterSekunden + " Sekunde(n) erneut versuchen." );
+
+        response.setStatus( TOO_MANY_REQUESTS.value() );
+        response.setHeader( "Retry-After", Integer.toString( _retryAfterSekunden ) );
+        response.setContentType( APPLICATION_JSON_VALUE );
+        response.setCharacterEncoding( "UTF-8" );
+
+        _objectMapper.writeValue( response.getOutputStream(), fehlermeldung );
+    }
+
+
+    /**
+     * Metriken registrieren; wird von Spring Boot aufgerufen.
+     *
+     * @param registry Registry für Metriken
+     */
+    @Override
+    public void bindTo( MeterRegistry registry ) {
+
+        for ( Zugangsbudget budget : new Zugangsbudget[] { _budgetLesen, _budgetSchreiben, _budgetVerwaltung } ) {
+
+            Gauge.builder( "glossar.zugang.aktiv", budget, Zugangsbudget::getAnzahlAktiv )
+                 .description( "Anzahl Requests in Bearbeitung" )
+                 .tag( "art", budget.getArt() )
+                 .register( registry );
+
+            Gauge.builder( "glossar.zugang.wartend", budget, Zugangsbudget::getAnzahlWartend )
+                 .description( "Anzahl Requests in der Warteschlange" )
+                 .tag( "art", budget.getArt() )
+                 .register( registry );
+
+            FunctionCounter.builder( "glossar.zugang.zugelassen", budget, Zugangsbudget::getAnzahlZugelassen )
+                           .description( "Anzahl zugelassener Requests" )
+                           .tag( "art", budget.getArt() )
+                           .register( registry );
+
+            FunctionCounter.builder( "glossar.zugang.abgelehnt", budget, Zugangsbudget::getAnzahlAbgelehntVoll )
+                           .description( "Anzahl abgelehnter Requests" )
+                           .tag( "art"  , budget.getArt()       )
+                           .tag( "grund", "warteschlange_voll" )
+                           .register( registry );
+
+            FunctionCounter.builder( "glossar.zugang.abgelehnt", budget, Zugangsbudget::getAnzahlAbgelehntZeit )
+                           .description( "Anzahl abgelehnter Requests" )
+                           .tag( "art"  , budget.getArt()        )
+                           .tag( "grund", "zeitueberschreitung" )
+                           .register( registry );
+        }
+    }
+
+}
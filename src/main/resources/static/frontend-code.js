@@ -4,7 +4,9 @@
 /**
  * Event-Handler-Funktion für Klick auf den "Speichern"-Button.
  * Wenn das (hidden) Attribut `eintrag_id` leer ist, wird ein neuer Eintrag angelegt,
- * ansonsten wird ein bestehender Eintrag geändert.
+ * ansonsten wird ein bestehender Eintrag geändert. Bei einer Änderung wird auch die
+ * Version (hidden Attribut `eintrag_version`) mitgeschickt; wenn der Eintrag inzwischen
+ * von jemand anderem geändert wurde, dann lehnt der Server die Änderung ab.
  *
  * @returns {Boolean} Immer Wert `false`, um Laden einer anderen Seite zu verhindern.
  */
@@ -13,6 +15,7 @@ function onSpeichernButton() {
     const eingabeBegriff    = document.getElementById( "eingabe_begriff"    );
     const eingabeErklaerung = document.getElementById( "eingabe_erklaerung" );
     const eingabeID         = document.getElementById( "eintrag_id"         );
+    const eingabeVersion    = document.getElementById( "eintrag_version"    );
     if ( !eingabeBegriff || !eingabeErklaerung || !eingabeID ) {
 
         alert( "Interner Fehler: Referenz auf mindestens ein Eingabe-Element nicht gefunden." );
@@ -50,6 +53,11 @@ function onSpeichernButton() {
         erklaerung : erklaerung,
         id         : eingabeIDWert
     };
+
+    if ( eingabeVersion && eingabeVersion.value ) {
+
+        payloadObjekt.version = Number( eingabeVersion.value );
+    }
     const jsonPayload = JSON.stringify( payloadObjekt );
 
     fetch( "/api/v1/speichern", {
@@ -63,6 +71,12 @@ function onSpeichernButton() {
 
             if (response.status === 409) {
 
+                const contentType = response.headers.get( "Content-Type" ) || "";
+                if ( contentType.includes( "application/json" ) ) {
+
+                    return response.json().then( konflikt => versionskonfliktAnzeigen( konflikt ) );
+                }
+
                 throw new Error( `Es gibt bereits einen Eintrag für den Begriff \"${begriff}\".` );
 
             } else {
@@ -72,11 +86,20 @@ function onSpeichernButton() {
 
         } else {
 
-            return response.text() ;
+            return response.text().then( text => {
+
+                if ( response.headers.get( "X-Glossar-Duplikate" ) ) {
+
+                    alert( text ); // Warnung wegen fast gleicher Erklärung, Eintrag ist trotzdem gespeichert
+                }
+                return text;
+            });
         }
     })
     .then( data => {
 
+        if ( data === null ) { return; } // Versionskonflikt wurde schon angezeigt
+
         console.log( "Erfolg:", data );
         window.location.href = "/app/hauptseite";
     })
@@ -88,3 +111,27 @@ function onSpeichernButton() {
 
     return false;
 }
+
+
+/**
+ * Versionskonflikt anzeigen: der Eintrag wurde inzwischen von jemand anderem geändert.
+ * Der Nutzer kann dann die Seite mit dem aktuellen Stand neu laden; seine eigenen
+ * Änderungen gehen dabei verloren.
+ *
+ * @param {Object} konflikt Antwort des Servers mit aktuellem Stand des Eintrags
+ *
+ * @returns {null} Immer `null`, damit keine Weiterleitung auf die Hauptseite erfolgt.
+ */
+function versionskonfliktAnzeigen( konflikt ) {
+
+    const frage = `${konflikt.meldung}\n\n` +
+                  `Letzte Änderung durch \"${konflikt.autorAenderung}\" am ${konflikt.zeitpunktAenderung}.\n\n` +
+                  "Aktuellen Stand laden? (Ihre Änderungen gehen dabei verloren.)";
+
+    if ( confirm( frage ) ) {
+
+        window.location.reload();
+    }
+
+    return null;
+}
@@ -0,0 +1,14 @@
+package de.eldecker.dhbw.spring.glossar;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest( properties = { "de.eldecker.glossar.datenbank.engine=speicher",
+                                "de.eldecker.glossar.datenbank.speicher.log=./target/glossar-speicher-test.log" } )
+class GlossarApplicationSpeicherTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
@@ -0,0 +1,270 @@
+package de.eldecker.dhbw.spring.glossar.backup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import de.eldecker.dhbw.spring.glossar.backup.BackupInkrement.Segment;
+import de.eldecker.dhbw.spring.glossar.backup.BackupInkrement.Tabelle;
+
+
+/**
+ * Tests für das Zusammenfassen und Einspielen von Segmenten mit
+ * {@link BackupInkrement#einspielen(DataSource, List, int)}. Die Segmente werden direkt im
+ * Speicher erzeugt und in eine In-Memory-Datenbank mit vereinfachtem Schema eingespielt,
+ * in der schon der Stand eines vollständigen Backups steht.
+ */
+class BackupInkrementTests {
+
+    /** Spalten der Tabellen im vereinfachten Schema. */
+    private static final List<String> SPALTEN_AUTOREN     = List.of( "ID", "NUTZERNAME" );
+    private static final List<String> SPALTEN_EINTRAEGE   = List.of( "ID", "BEGRIFF" );
+    private static final List<String> SPALTEN_REVISIONEN  = List.of( "ID", "EINTRAG_ID" );
+    private static final List<String> SPALTEN_AUFRUFE     = List.of( "EINTRAG_ID", "ANZAHL" );
+    private static final List<String> SPALTEN_WOERTERBUCH = List.of( "ADLER", "DATEN" );
+
+    private DataSource _dataSource;
+
+
+    @BeforeEach
+    void datenbankAnlegen() throws SQLException {
+
+        _dataSource = new DriverManagerDataSource( "jdbc:h2:mem:inkrement-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                                                   "sa", "" );
+
+        ausfuehren( "CREATE TABLE AUTOREN ( ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, NUTZERNAME VARCHAR(255) )",
+                    "CREATE TABLE GLOSSAR_EINTRAEGE ( ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, BEGRIFF VARCHAR(255) )",
+                    "CREATE TABLE REVISIONEN ( ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, EINTRAG_ID BIGINT )",
+                    "CREATE TABLE AUFRUFE ( EINTRAG_ID BIGINT PRIMARY KEY, ANZAHL BIGINT NOT NULL )",
+                    "CREATE TABLE WOERTERBUECHER ( ADLER INTEGER PRIMARY KEY, DATEN VARBINARY(32768) NOT NULL )",
+                    // Stand des vollständigen Backups
+                    "INSERT INTO AUTOREN ( NUTZERNAME ) VALUES ( 'alice' )",
+                    "INSERT INTO GLOSSAR_EINTRAEGE ( BEGRIFF ) VALUES ( 'Maven' )",
+                    "INSERT INTO REVISIONEN ( EINTRAG_ID ) VALUES ( 1 )",
+                    "INSERT INTO AUFRUFE ( EINTRAG_ID, ANZAHL ) VALUES ( 1, 10 )" );
+    }
+
+
+    @Test
+    void spaetereAenderungGewinnt() throws Exception {
+
+        final Segment segment1 = segment( "eins",
+                                          eintraege( zeile( 1L, "Maven (Segment 1)" ) ),
+                                          revisionen( zeile( 2L, 1L ) ),
+                                          1, 2 );
+        final Segment segment2 = segment( "zwei",
+                                          eintraege( zeile( 1L, "Maven (Segment 2)" ) ),
+                                          revisionen( zeile( 3L, 1L ) ),
+                                          1, 3 );
+
+        final Map<String, Long> eingespieltMap = BackupInkrement.einspielen( _dataSource, List.of( segment1, segment2 ), 2 );
+
+        // Eintrag steht in beiden Segmenten, wird aber nur einmal (mit dem neuesten Stand) geschrieben
+        assertThat( eingespieltMap ).containsEntry( "GLOSSAR_EINTRAEGE", 1L )
+                                    .containsEntry( "REVISIONEN"       , 2L );
+
+        assertThat( abfragen( "SELECT BEGRIFF FROM GLOSSAR_EINTRAEGE ORDER BY ID" ) ).containsExactly( "Maven (Segment 2)" );
+        assertThat( abfragen( "SELECT ID FROM REVISIONEN ORDER BY ID"             ) ).containsExactly( "1", "2", "3" );
+    }
+
+
+    @Test
+    void neueIdsUndZaehler() throws Exception {
+
+        final Segment segment1 = segment( "eins",
+                                          eintraege( zeile( 5L, "Phase" ) ),
+                                          revisionen( zeile( 8L, 5L ) ),
+                                          2, 2 );
+        final Segment segment2 = segment( "zwei",
+                                          eintraege( zeile( 7L, "pom.xml" ) ),
+                                          revisionen( zeile( 9L, 7L ) ),
+                                          3, 3 );
+
+        BackupInkrement.einspielen( _dataSource, List.of( segment1, segment2 ), 2 );
+
+        assertThat( abfragen( "SELECT ID || ':' || BEGRIFF FROM GLOSSAR_EINTRAEGE ORDER BY ID" ) )
+                .containsExactly( "1:Maven", "5:Phase", "7:pom.xml" );
+
+        // nach dem MERGE mit expliziten IDs muss der Zähler hinter der größten ID stehen
+        ausfuehren( "INSERT INTO GLOSSAR_EINTRAEGE ( BEGRIFF ) VALUES ( 'Neu' )",
+                    "INSERT INTO REVISIONEN ( EINTRAG_ID ) VALUES ( 8 )",
+                    "INSERT INTO AUTOREN ( NUTZERNAME ) VALUES ( 'bob' )" );
+
+        assertThat( abfragen( "SELECT MAX(ID) FROM GLOSSAR_EINTRAEGE" ) ).containsExactly( "8"  );
+        assertThat( abfragen( "SELECT MAX(ID) FROM REVISIONEN"        ) ).containsExactly( "10" );
+        assertThat( abfragen( "SELECT MAX(ID) FROM AUTOREN"           ) ).containsExactly( "2"  );
+    }
+
+
+    @Test
+    void aufrufeNachEintragId() throws Exception {
+
+        final Segment segment1 = segment( "eins",
+                                          eintraege( zeile( 5L, "Phase" ) ),
+                                          revisionen( zeile( 2L, 5L ) ),
+                                          aufrufe( zeile( 1L, 11L ), zeile( 5L, 1L ) ),
+                                          2, 2, 2 );
+        final Segment segment2 = segment( "zwei",
+                                          eintraege(),
+                                          revisionen(),
+                                          aufrufe( zeile( 1L, 15L ), zeile( 5L, 4L ) ),
+                                          2, 2, 2 );
+
+        final Map<String, Long> eingespieltMap = BackupInkrement.einspielen( _dataSource, List.of( segment1, segment2 ), 2 );
+
+        // Zähler ohne neue Revision werden trotzdem übernommen, pro Eintrag gewinnt das spätere Segment
+        assertThat( eingespieltMap ).containsEntry( "AUFRUFE", 2L );
+        assertThat( abfragen( "SELECT EINTRAG_ID || ':' || ANZAHL FROM AUFRUFE ORDER BY EINTRAG_ID" ) )
+                .containsExactly( "1:15", "5:4" );
+    }
+
+
+    @Test
+    void falscheAnzahlAufrufeWirdErkannt() {
+
+        final Segment segment = segment( "eins",
+                                         eintraege(),
+                                         revisionen(),
+                                         aufrufe( zeile( 1L, 11L ) ),
+                                         1, 1, 2 );
+
+        assertThatThrownBy( () -> BackupInkrement.einspielen( _dataSource, List.of( segment ), 2 ) )
+                .isInstanceOf( IOException.class )
+                .hasMessageContaining( "Anzahl Zeilen" );
+    }
+
+
+    @Test
+    void abweichendeSpaltenWerdenAbgelehnt() throws Exception {
+
+        final Segment segment1 = segment( "eins",
+                                          eintraege( zeile( 1L, "Maven (Segment 1)" ) ),
+                                          revisionen( zeile( 2L, 1L ) ),
+                                          1, 2 );
+        final Segment segment2 = segment( "zwei",
+                                          new Tabelle( "GLOSSAR_EINTRAEGE", List.of( "ID", "BEGRIFF", "ERKLAERUNG" ),
+                                                       List.<Object[]>of( zeile( 1L, "Maven (Segment 2)", "neue Spalte" ) ) ),
+                                          revisionen( zeile( 3L, 1L ) ),
+                                          1, 3 );
+
+        assertThatThrownBy( () -> BackupInkrement.einspielen( _dataSource, List.of( segment1, segment2 ), 2 ) )
+                .isInstanceOf( IOException.class )
+                .hasMessageContaining( "Spalten von Tabelle GLOSSAR_EINTRAEGE" );
+
+        // Segmente werden vor dem ersten Schreiben zusammengefasst, die Datenbank ist unverändert
+        assertThat( abfragen( "SELECT BEGRIFF FROM GLOSSAR_EINTRAEGE" ) ).containsExactly( "Maven" );
+        assertThat( abfragen( "SELECT COUNT(*) FROM REVISIONEN"       ) ).containsExactly( "1" );
+    }
+
+
+    /**
+     * Segment mit unverändertem Aufrufzähler aus dem vollständigen Backup erzeugen.
+     */
+    private static Segment segment( String name, Tabelle eintraege, Tabelle revisionen,
+                                    long anzahlEintraege, long anzahlRevisionen ) {
+
+        return segment( name, eintraege, revisionen, aufrufe( zeile( 1L, 10L ) ),
+                        anzahlEintraege, anzahlRevisionen, 1 );
+    }
+
+
+    /**
+     * Segment erzeugen; Autoren, Aufrufe und Wörterbücher (hier keine) sind wie beim Schreiben
+     * eines Segments immer vollständig enthalten.
+     *
+     * @param anzahlEintraege Anzahl Einträge in der Datenbank zum Zeitpunkt des Segments
+     *
+     * @param anzahlRevisionen Anzahl Revisionen in der Datenbank zum Zeitpunkt des Segments
+     *
+     * @param anzahlAufrufe Anzahl Zeilen mit Aufrufzählern in der Datenbank zum Zeitpunkt des Segments
+     */
+    private static Segment segment( String name, Tabelle eintraege, Tabelle revisionen, Tabelle aufrufe,
+                                    long anzahlEintraege, long anzahlRevisionen, long anzahlAufrufe ) {
+
+        final Tabelle autoren     = new Tabelle( "AUTOREN", SPALTEN_AUTOREN, List.<Object[]>of( zeile( 1L, "alice" ) ) );
+        final Tabelle woerterbuch = new Tabelle( "WOERTERBUECHER", SPALTEN_WOERTERBUCH, List.of() );
+
+        return new Segment( Path.of( "glossar-" + name + ".inkr.gz" ),
+                            Map.of( "AUTOREN"          , autoren,
+                                    "GLOSSAR_EINTRAEGE", eintraege,
+                                    "REVISIONEN"       , revisionen,
+                                    "AUFRUFE"          , aufrufe,
+                                    "WOERTERBUECHER"   , woerterbuch ),
+                            Map.of( "AUTOREN"          , 1L,
+                                    "GLOSSAR_EINTRAEGE", anzahlEintraege,
+                                    "REVISIONEN"       , anzahlRevisionen,
+                                    "AUFRUFE"          , anzahlAufrufe,
+                                    "WOERTERBUECHER"   , 0L ) );
+    }
+
+
+    private static Tabelle eintraege( Object[]... zeilen ) {
+
+        return new Tabelle( "GLOSSAR_EINTRAEGE", SPALTEN_EINTRAEGE, List.of( zeilen ) );
+    }
+
+
+    private static Tabelle revisionen( Object[]... zeilen ) {
+
+        return new Tabelle( "REVISIONEN", SPALTEN_REVISIONEN, List.of( zeilen ) );
+    }
+
+
+    private static Tabelle aufrufe( Object[]... zeilen ) {
+
+        return new Tabelle( "AUFRUFE", SPALTEN_AUFRUFE, List.of( zeilen ) );
+    }
+
+
+    private static Object[] zeile( Object... werte ) {
+
+        return werte;
+    }
+
+
+    private void ausfuehren( String... sqlArray ) throws SQLException {
+
+        try ( Connection connection = _dataSource.getConnection();
+              Statement  statement  = connection.createStatement() ) {
+
+            for ( String sql : sqlArray ) {
+
+                statement.execute( sql );
+            }
+        }
+    }
+
+
+    private List<String> abfragen( String sql ) throws SQLException {
+
+        final List<String> ergebnisListe = new ArrayList<>();
+        try ( Connection connection = _dataSource.getConnection();
+              Statement  statement  = connection.createStatement();
+              ResultSet  resultSet  = statement.executeQuery( sql ) ) {
+
+            while ( resultSet.next() ) {
+
+                ergebnisListe.add( resultSet.getString( 1 ) );
+            }
+        }
+
+        return ergebnisListe;
+    }
+
+}
@@ -0,0 +1,198 @@
+package de.eldecker.dhbw.spring.glossar.backup;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import de.eldecker.dhbw.spring.glossar.model.BackupErgebnis;
+
+
+/**
+ * Tests für {@link BackupWiederherstellung}: Ein mit {@link OnlineBackup} geschriebenes Backup
+ * wird in eine neue, leere Datenbank eingespielt. Ist die Prüfdatei falsch, dann muss der
+ * Start abgebrochen werden, bevor die Datenbank verändert wird.
+ */
+@SpringBootTest( properties = { "spring.datasource.url=jdbc:h2:mem:glossar-wiederherstellung-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-wiederherstellung-test.snapshot",
+                                "de.eldecker.glossar.backup.verzeichnis=./target/backup-wiederherstellung-test",
+                                "de.eldecker.glossar.backup.bytes.pro.sekunde=0" } )
+class BackupWiederherstellungTests {
+
+    private static final Path VERZEICHNIS = Paths.get( "./target/backup-wiederherstellung-test" );
+
+    /** Abfrage für den Vergleich des Inhalts von Quell- und Zieldatenbank. */
+    private static final String SQL_EINTRAEGE = "SELECT ID, BEGRIFF FROM GLOSSAR_EINTRAEGE ORDER BY ID";
+
+    @Autowired
+    private OnlineBackup _onlineBackup;
+
+    @Autowired
+    private DataSource _dataSource;
+
+    /** Leere Datenbank, in die das Backup eingespielt wird. */
+    private DataSource _zielDataSource;
+
+    /** Snapshot-Datei des Begriffsindex, die beim Wiederherstellen gelöscht werden muss. */
+    private Path _indexSnapshot;
+
+
+    @BeforeEach
+    void vorbereiten() throws IOException {
+
+        if ( Files.isDirectory( VERZEICHNIS ) ) {
+
+            try ( Stream<Path> dateien = Files.list( VERZEICHNIS ) ) {
+
+                for ( Path datei : dateien.toList() ) {
+
+                    Files.delete( datei );
+                }
+            }
+        }
+
+        _zielDataSource = new DriverManagerDataSource( "jdbc:h2:mem:glossar-ziel-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                                                       "sa", "" );
+
+        _indexSnapshot = Paths.get( "./target/begriffe-wiederherstellung-ziel-test.snapshot" );
+        Files.writeString( _indexSnapshot, "alter Stand" );
+    }
+
+
+    @Test
+    void vollstaendigesBackupWiederherstellen() throws Exception {
+
+        final BackupErgebnis ergebnis = _onlineBackup.sichern( false );
+
+        wiederherstellen( VERZEICHNIS.resolve( ergebnis.datei() ) );
+
+        try ( Connection quelle = _dataSource.getConnection();
+              Connection ziel   = _zielDataSource.getConnection() ) {
+
+            assertThat( BackupDatei.zeilenZaehlen( ziel ) ).isEqualTo( ergebnis.zeilen() );
+            assertThat( eintraege( ziel ) ).isEqualTo( eintraege( quelle ) )
+                                           .anyMatch( eintrag -> eintrag.endsWith( ":Maven" ) );
+        }
+
+        assertThat( _indexSnapshot ).doesNotExist();
+
+        // bisheriger Stand der Zieldatenbank wurde vor dem Einspielen gesichert
+        try ( Stream<Path> dateien = Files.list( VERZEICHNIS ) ) {
+
+            assertThat( dateien.map( datei -> datei.getFileName().toString() ) )
+                    .anyMatch( name -> name.startsWith( "vor-wiederherstellung-" ) && name.endsWith( ".sql.gz" ) );
+        }
+    }
+
+
+    @Test
+    void falschePruefsummeBrichtStartAb() throws Exception {
+
+        final BackupErgebnis ergebnis = _onlineBackup.sichern( false );
+
+        pruefdateiAendern( ergebnis.datei(), "sha256=" + ergebnis.sha256(), "sha256=" + "f".repeat( 64 ) );
+
+        assertThatThrownBy( () -> wiederherstellen( VERZEICHNIS.resolve( ergebnis.datei() ) ) )
+                .isInstanceOf( BeanInitializationException.class )
+                .hasMessageContaining( "Prüfsumme" );
+
+        assertThat( zielUnveraendert() ).isTrue();
+    }
+
+
+    @Test
+    void falscheZeilenanzahlBrichtStartAb() throws Exception {
+
+        final BackupErgebnis ergebnis = _onlineBackup.sichern( false );
+        final long           anzahl   = ergebnis.zeilen().get( "GLOSSAR_EINTRAEGE" );
+
+        pruefdateiAendern( ergebnis.datei(), "zeilen.GLOSSAR_EINTRAEGE=" + anzahl,
+                                             "zeilen.GLOSSAR_EINTRAEGE=" + ( anzahl + 1 ) );
+
+        assertThatThrownBy( () -> wiederherstellen( VERZEICHNIS.resolve( ergebnis.datei() ) ) )
+                .isInstanceOf( BeanInitializationException.class )
+                .hasMessageContaining( "Anzahl Zeilen" );
+
+        assertThat( zielUnveraendert() ).isTrue();
+    }
+
+
+    /**
+     * Backup so einspielen wie beim Programmstart, d.h. über den {@code BeanPostProcessor}.
+     */
+    private void wiederherstellen( Path datei ) throws SQLException {
+
+        try ( Connection connection = _zielDataSource.getConnection();
+              Statement  statement  = connection.createStatement() ) {
+
+            statement.execute( "CREATE TABLE MARKIERUNG ( ID INT )" );
+        }
+
+        final BackupWiederherstellung wiederherstellung =
+                new BackupWiederherstellung( datei.toString(), 2, _indexSnapshot.toString() );
+
+        assertThat( wiederherstellung.postProcessAfterInitialization( _zielDataSource, "dataSource" ) )
+                .isSameAs( _zielDataSource );
+    }
+
+
+    /**
+     * Prüft, ob die Zieldatenbank noch so ist wie vor dem Wiederherstellen (nur Markierung).
+     */
+    private boolean zielUnveraendert() throws SQLException {
+
+        try ( Connection ziel = _zielDataSource.getConnection() ) {
+
+            return BackupDatei.zeilenZaehlen( ziel ).keySet().equals( Set.of( "MARKIERUNG" ) );
+        }
+    }
+
+
+    private static void pruefdateiAendern( String dateiname, String alt, String neu ) throws IOException {
+
+        final Path   pruefdatei = VERZEICHNIS.resolve( dateiname + BackupDatei.ENDUNG_PRUEFUNG );
+        final String inhalt     = Files.readString( pruefdatei, UTF_8 );
+
+        assertThat( inhalt ).contains( alt );
+        Files.writeString( pruefdatei, inhalt.replace( alt, neu ), UTF_8 );
+    }
+
+
+    private static List<String> eintraege( Connection connection ) throws SQLException {
+
+        final List<String> ergebnisListe = new ArrayList<>();
+        try ( Statement statement = connection.createStatement();
+              ResultSet resultSet = statement.executeQuery( SQL_EINTRAEGE ) ) {
+
+            while ( resultSet.next() ) {
+
+                ergebnisListe.add( resultSet.getLong( 1 ) + ":" + resultSet.getString( 2 ) );
+            }
+        }
+
+        return ergebnisListe;
+    }
+
+}
@@ -0,0 +1,106 @@
+package de.eldecker.dhbw.spring.glossar.backup;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import de.eldecker.dhbw.spring.glossar.model.BackupErgebnis;
+
+
+/**
+ * Tests für {@link OnlineBackup} und {@link BackupDatei}: Schreiben und Prüfen eines
+ * vollständigen Backups, Ablehnen einer falschen Prüfdatei und ungültiger Dateinamen.
+ */
+@SpringBootTest( properties = { "spring.datasource.url=jdbc:h2:mem:glossar-onlinebackup-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-onlinebackup-test.snapshot",
+                                "de.eldecker.glossar.backup.verzeichnis=./target/backup-onlinebackup-test",
+                                "de.eldecker.glossar.backup.bytes.pro.sekunde=0" } )
+class OnlineBackupTests {
+
+    private static final Path VERZEICHNIS = Paths.get( "./target/backup-onlinebackup-test" );
+
+    @Autowired
+    private OnlineBackup _onlineBackup;
+
+
+    @BeforeEach
+    void verzeichnisLeeren() throws IOException {
+
+        if ( Files.isDirectory( VERZEICHNIS ) ) {
+
+            try ( Stream<Path> dateien = Files.list( VERZEICHNIS ) ) {
+
+                for ( Path datei : dateien.toList() ) {
+
+                    Files.delete( datei );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    void vollstaendigesBackupPruefen() throws Exception {
+
+        final BackupErgebnis ergebnis = _onlineBackup.sichern( false );
+
+        assertThat( ergebnis.datei()  ).matches( "glossar-\\d{8}-\\d{6}-\\d{3}\\.sql\\.gz" );
+        assertThat( ergebnis.zeilen() ).containsKey( "GLOSSAR_EINTRAEGE" );
+        assertThat( ergebnis.zeilen().get( "GLOSSAR_EINTRAEGE" ) ).isGreaterThanOrEqualTo( 3 );
+
+        final BackupErgebnis pruefung = _onlineBackup.pruefen( ergebnis.datei() ).orElseThrow();
+        assertThat( pruefung.sha256() ).isEqualTo( ergebnis.sha256() );
+        assertThat( pruefung.zeilen() ).isEqualTo( ergebnis.zeilen() );
+    }
+
+
+    @Test
+    void falschePruefsummeWirdAbgelehnt() throws Exception {
+
+        final BackupErgebnis ergebnis   = _onlineBackup.sichern( false );
+        final Path           pruefdatei = VERZEICHNIS.resolve( ergebnis.datei() + BackupDatei.ENDUNG_PRUEFUNG );
+
+        final String falscheSumme = "0".repeat( 64 );
+        Files.writeString( pruefdatei, Files.readString( pruefdatei, UTF_8 )
+                                            .replace( "sha256=" + ergebnis.sha256(), "sha256=" + falscheSumme ), UTF_8 );
+
+        assertThatThrownBy( () -> _onlineBackup.pruefen( ergebnis.datei() ) )
+                .isInstanceOf( IOException.class )
+                .hasMessageContaining( "Prüfsumme" );
+    }
+
+
+    @ParameterizedTest
+    @ValueSource( strings = { "../glossar-20260101-030000-000.sql.gz",
+                              "glossar-20260101-030000-000.sql.gz.pruefung",
+                              "glossar-20260101-030000.sql.gz",
+                              "andere-20260101-030000-000.sql.gz",
+                              "glossar-20260101-030000-000.sql" } )
+    void ungueltigerDateinameWirdAbgelehnt( String dateiname ) throws Exception {
+
+        final BackupErgebnis ergebnis = _onlineBackup.sichern( false );
+
+        // auch wenn es eine Datei mit diesem Namen gibt, wird sie nicht geprüft
+        final Path datei = VERZEICHNIS.resolve( dateiname ).normalize();
+        if ( datei.getParent().equals( VERZEICHNIS.normalize() ) ) {
+
+            Files.copy( VERZEICHNIS.resolve( ergebnis.datei() ), datei );
+        }
+
+        assertThat( _onlineBackup.pruefen( dateiname ) ).isEmpty();
+    }
+
+}
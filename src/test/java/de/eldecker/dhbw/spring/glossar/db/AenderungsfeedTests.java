@@ -0,0 +1,144 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.time.LocalDateTime.now;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.model.Aenderung;
+import de.eldecker.dhbw.spring.glossar.model.Aenderungsseite;
+
+
+/**
+ * Tests für den Horizont von {@link Aenderungsfeed}: Eine Änderung darf erst geliefert werden,
+ * wenn alle Transaktionen mit kleinerer Sequenznummer beendet sind. Außerdem für das
+ * seitenweise Folgen mit {@link Aenderungsfeed#folgen(long, int, java.util.function.Consumer)}.
+ */
+@SpringBootTest( properties = { "spring.datasource.url=jdbc:h2:mem:glossar-aenderungsfeed-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-aenderungsfeed-test.snapshot" } )
+class AenderungsfeedTests {
+
+    @Autowired
+    private Aenderungsfeed _aenderungsfeed;
+
+    @Autowired
+    private Historie _historie;
+
+    @Autowired
+    private Datenbank _datenbank;
+
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+
+    @Test
+    void horizontBeiCommitsAusserDerReihe() throws Exception {
+
+        final AutorEntity autor      = _datenbank.getAutorByName( "alice" ).orElseThrow();
+        final long        eintragId1 = ThreadLocalRandom.current().nextLong( 3_000_000, 4_000_000 );
+        final long        eintragId2 = eintragId1 + 1;
+
+        final long horizontVorher = _aenderungsfeed.getHorizont();
+
+        // Transaktion 1 hängt zuerst eine Revision an, committet aber erst nach Transaktion 2
+        final CountDownLatch angehaengt = new CountDownLatch( 1 );
+        final CountDownLatch commit1    = new CountDownLatch( 1 );
+        final CompletableFuture<Void> transaktion1 = CompletableFuture.runAsync( () ->
+                new TransactionTemplate( _transactionManager ).executeWithoutResult( status -> {
+
+                    _historie.anhaengen( eintragId1, "Erster", "zuerst angehängt", now(), autor );
+                    angehaengt.countDown();
+                    warten( commit1 );
+                } ) );
+
+        assertThat( angehaengt.await( 10, TimeUnit.SECONDS ) ).isTrue();
+
+        new TransactionTemplate( _transactionManager ).executeWithoutResult( status ->
+                _historie.anhaengen( eintragId2, "Zweiter", "zuerst committet", now(), autor ) );
+
+        // Transaktion 2 ist committet, liegt aber hinter der offenen Transaktion 1
+        assertThat( _aenderungsfeed.getHorizont() ).isEqualTo( horizontVorher );
+        assertThat( eintragIds( horizontVorher, _aenderungsfeed.getHorizont() ) ).isEmpty();
+
+        commit1.countDown();
+        transaktion1.get( 10, TimeUnit.SECONDS );
+
+        final long horizontNachher = _aenderungsfeed.getHorizont();
+        assertThat( horizontNachher ).isGreaterThanOrEqualTo( horizontVorher + 2 );
+
+        // beide Änderungen in Reihenfolge der Sequenznummer, also Transaktion 1 zuerst
+        assertThat( eintragIds( horizontVorher, horizontNachher ) ).containsExactly( eintragId1, eintragId2 );
+    }
+
+
+    @Test
+    void folgenSeitenweise() {
+
+        final AutorEntity autor     = _datenbank.getAutorByName( "bob" ).orElseThrow();
+        final long        eintragId = ThreadLocalRandom.current().nextLong( 5_000_000, 6_000_000 );
+
+        final long standVorher = _aenderungsfeed.getHorizont();
+        new TransactionTemplate( _transactionManager ).executeWithoutResult( status -> {
+
+            for ( int i = 1; i <= 5; i++ ) {
+
+                _historie.anhaengen( eintragId + i, "Begriff " + i, "Erklärung " + i, now(), autor );
+            }
+        } );
+
+        final List<Aenderungsseite> seitenListe = new ArrayList<>();
+        final long standNachher = _aenderungsfeed.folgen( standVorher, 2, seitenListe::add );
+
+        assertThat( standNachher ).isEqualTo( _aenderungsfeed.getHorizont() );
+        assertThat( seitenListe ).extracting( seite -> seite.aenderungen().size() ).containsExactly( 2, 2, 1 );
+        assertThat( seitenListe ).extracting( Aenderungsseite::weitere ).containsExactly( true, true, false );
+        assertThat( seitenListe.stream().flatMap( seite -> seite.aenderungen().stream() ).map( Aenderung::id ) )
+                .containsExactly( eintragId + 1, eintragId + 2, eintragId + 3, eintragId + 4, eintragId + 5 );
+
+        // nichts Neues: Verarbeiter wird nicht aufgerufen
+        assertThat( _aenderungsfeed.folgen( standNachher, 2, seite -> seitenListe.add( seite ) ) ).isEqualTo( standNachher );
+        assertThat( seitenListe ).hasSize( 3 );
+
+        // Abbruch nach der ersten Seite: Stand ist die Sequenznummer der zweiten Änderung
+        final long standAbbruch = _aenderungsfeed.folgenSolange( standVorher, 2, seite -> false );
+        assertThat( standAbbruch ).isEqualTo( seitenListe.getFirst().token() );
+    }
+
+
+    private List<Long> eintragIds( long seit, long bis ) {
+
+        return _aenderungsfeed.getAenderungen( seit, bis, 100 ).stream()
+                              .map( Aenderung::id )
+                              .toList();
+    }
+
+
+    private static void warten( CountDownLatch freigabe ) {
+
+        try {
+
+            if ( !freigabe.await( 10, TimeUnit.SECONDS ) ) {
+
+                throw new IllegalStateException( "Keine Freigabe im Test." );
+            }
+        }
+        catch ( InterruptedException ex ) {
+
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( ex );
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.util.Locale.ROOT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.model.BatchErgebnis;
+import de.eldecker.dhbw.spring.glossar.model.Payload;
+
+
+/**
+ * Tests für {@link BatchSpeicherer} mit Blöcken von nur drei Einträgen, damit auch Prüfungen
+ * über Blockgrenzen hinweg abgedeckt sind.
+ */
+@SpringBootTest( properties = { "spring.datasource.url=jdbc:h2:mem:glossar-batch-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-batch-test.snapshot",
+                                "de.eldecker.glossar.batch.chunkgroesse=3" } )
+class BatchSpeichererTests {
+
+    /** Begriff, der nicht in die Spalte passt; die Transaktion des Blocks scheitert damit. */
+    private static final String BEGRIFF_ZU_LANG = "x".repeat( 300 );
+
+    @Autowired
+    private BatchSpeicherer _batchSpeicherer;
+
+    @Autowired
+    private Datenbank _datenbank;
+
+    private AutorEntity _autor;
+
+
+    @BeforeEach
+    void vorbereiten() {
+
+        _autor = _datenbank.getAutorByName( "alice" ).orElseThrow(); // von BeispielDatenImportRunner
+    }
+
+
+    @Test
+    void statusProIndex() {
+
+        final String begriff = eindeutigerBegriff();
+        final long   id      = neuerEintrag( eindeutigerBegriff() );
+        final String idStr   = Long.toString( id );
+
+        final List<BatchErgebnis> ergebnisListe = _batchSpeicherer.speichern( Arrays.asList(
+                new Payload( null       , begriff                    , "neu"         , null ), // 0: Block 1
+                new Payload( null       , begriff.toUpperCase( ROOT ), "doppelt"     , null ), // 1
+                new Payload( idStr      , "Geändert"                 , "falsch"      , 5L   ), // 2
+                new Payload( idStr      , "Geändert"                 , "Version 0"   , 0L   ), // 3: Block 2
+                new Payload( idStr      , "Geändert"                 , "nochmal 0"   , 0L   ), // 4
+                new Payload( idStr      , "Geändert"                 , "ohne"        , null ), // 5
+                null,                                                                          // 6: Block 3
+                new Payload( "987654321", "Unbekannt"                , "gibt's nicht", null ), // 7
+                new Payload( null       , begriff                    , "doppelt"     , null )  // 8: Begriff aus Block 1
+            ), _autor );
+
+        assertThat( ergebnisListe ).extracting( BatchErgebnis::index  ).containsExactly( 0, 1, 2, 3, 4, 5, 6, 7, 8 );
+        assertThat( ergebnisListe ).extracting( BatchErgebnis::status )
+                                   .containsExactly( 201, 409, 409, 200, 409, 200, 400, 400, 409 );
+
+        assertThat( ergebnisListe.get( 0 ).id() ).isNotNull();
+        assertThat( ergebnisListe.get( 3 ).id() ).isEqualTo( id );
+
+        // zwei erfolgreiche Änderungen in einer Transaktion: die letzte gewinnt, Version nur einmal erhöht
+        final GlossarEntity eintrag = _datenbank.getEintragById( id ).orElseThrow();
+        assertThat( eintrag.getVersion()    ).isEqualTo( 1 );
+        assertThat( eintrag.getErklaerung() ).isEqualTo( "ohne" );
+
+        assertThat( _datenbank.getEintragById( ergebnisListe.get( 0 ).id() ).orElseThrow().getErklaerung() ).isEqualTo( "neu" );
+    }
+
+
+    @Test
+    void gescheiterterBlockBetrifftNurSichSelbst() {
+
+        final String begriffBlock1 = eindeutigerBegriff();
+        final String begriffBlock2 = eindeutigerBegriff();
+        final String begriffBlock3 = eindeutigerBegriff();
+
+        final List<BatchErgebnis> ergebnisListe = _batchSpeicherer.speichern( List.of(
+                new Payload( null, begriffBlock1       , "Block 1", null ),
+                new Payload( null, eindeutigerBegriff(), "Block 1", null ),
+                new Payload( null, eindeutigerBegriff(), "Block 1", null ),
+                new Payload( null, begriffBlock2       , "Block 2", null ),
+                new Payload( null, BEGRIFF_ZU_LANG     , "Block 2", null ),
+                new Payload( null, eindeutigerBegriff(), "Block 2", null ),
+                new Payload( null, begriffBlock3       , "Block 3", null )
+            ), _autor );
+
+        assertThat( ergebnisListe ).extracting( BatchErgebnis::index  ).containsExactly( 0, 1, 2, 3, 4, 5, 6 );
+        assertThat( ergebnisListe ).extracting( BatchErgebnis::status ).containsExactly( 201, 201, 201, 500, 500, 500, 201 );
+
+        assertThat( _datenbank.getVorhandeneBegriffe( Set.of( begriffBlock1.toLowerCase( ROOT ),
+                                                              begriffBlock2.toLowerCase( ROOT ),
+                                                              begriffBlock3.toLowerCase( ROOT ) ) ) )
+                .containsExactlyInAnyOrder( begriffBlock1.toLowerCase( ROOT ), begriffBlock3.toLowerCase( ROOT ) );
+    }
+
+
+    @Test
+    void gruppeMitEinzelnemFehler() {
+
+        final String begriff1 = eindeutigerBegriff();
+        final String begriff2 = eindeutigerBegriff();
+
+        final List<BatchErgebnis> ergebnisListe = _batchSpeicherer.speichernGruppe(
+                List.of( new Payload( null, begriff1            , "eins", null ),
+                         new Payload( null, BEGRIFF_ZU_LANG     , "zwei", null ),
+                         new Payload( null, begriff2            , "drei", null ),
+                         new Payload( null, eindeutigerBegriff(), "vier", null ) ),
+                List.of( "alice", "bob", "claire", "unbekannt" ) );
+
+        // gemeinsame Transaktion scheitert, jeder Eintrag wird dann einzeln gespeichert
+        assertThat( ergebnisListe ).extracting( BatchErgebnis::index  ).containsExactly( 0, 1, 2, 3 );
+        assertThat( ergebnisListe ).extracting( BatchErgebnis::status ).containsExactly( 201, 500, 201, 500 );
+
+        final GlossarEntity eintrag = _datenbank.getEintragById( ergebnisListe.get( 2 ).id() ).orElseThrow();
+        assertThat( eintrag.getBegriff()                        ).isEqualTo( begriff2 );
+        assertThat( eintrag.getAutorErzeugung().getNutzername() ).isEqualTo( "claire" );
+    }
+
+
+    private long neuerEintrag( String begriff ) {
+
+        final List<BatchErgebnis> ergebnisListe =
+                _batchSpeicherer.speichern( List.of( new Payload( null, begriff, "Basis", null ) ), _autor );
+
+        assertThat( ergebnisListe.getFirst().status() ).isEqualTo( 201 );
+
+        return ergebnisListe.getFirst().id();
+    }
+
+
+    private static String eindeutigerBegriff() {
+
+        return "Batch-" + UUID.randomUUID();
+    }
+
+}
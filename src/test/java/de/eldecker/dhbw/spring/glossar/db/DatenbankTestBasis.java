@@ -0,0 +1,272 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.time.LocalDateTime.now;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.model.EintragFeld;
+
+
+/**
+ * Tests für {@link Datenbank}, die für jede Engine gleich laufen müssen; für jede Engine
+ * gibt es eine Unterklasse mit der passenden Konfiguration. Jeder Test legt seine eigenen
+ * Einträge (mit eindeutigem Begriff) an, damit die Tests unabhängig von der Reihenfolge sind.
+ */
+abstract class DatenbankTestBasis {
+
+    @Autowired
+    private Datenbank _datenbank;
+
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    private TransactionTemplate _transaktion;
+
+    private AutorEntity _autor;
+
+
+    /**
+     * Klasse der Engine, die mit der Konfiguration der Unterklasse verwendet werden muss.
+     */
+    abstract Class<? extends Datenbank> getEngineKlasse();
+
+
+    @BeforeEach
+    void vorbereiten() {
+
+        _transaktion = new TransactionTemplate( _transactionManager );
+        _autor       = _datenbank.getAutorByName( "alice" ).orElseThrow(); // von BeispielDatenImportRunner
+    }
+
+
+    @Test
+    void richtigeEngine() {
+
+        assertThat( _datenbank ).isInstanceOf( getEngineKlasse() );
+    }
+
+
+    @Test
+    void neuerEintrag() {
+
+        final String begriff = eindeutigerBegriff( "Neu" );
+
+        final long id = neuerEintrag( begriff, "Erklärung für neuen Eintrag" );
+
+        final GlossarEntity eintrag = _datenbank.getEintragById( id ).orElseThrow();
+        assertThat( eintrag.getBegriff()                         ).isEqualTo( begriff );
+        assertThat( eintrag.getErklaerung()                      ).isEqualTo( "Erklärung für neuen Eintrag" );
+        assertThat( eintrag.getVersion()                         ).isZero();
+        assertThat( eintrag.getAutorErzeugung().getNutzername()  ).isEqualTo( "alice" );
+        assertThat( _datenbank.getZeitpunktAenderung( id )       ).isPresent();
+    }
+
+
+    @Test
+    void eintragAendern() {
+
+        final long id = neuerEintrag( eindeutigerBegriff( "Aendern" ), "alt" );
+
+        _transaktion.executeWithoutResult( status -> {
+
+            final GlossarEntity eintrag = _datenbank.getEintragById( id ).orElseThrow();
+            eintrag.setErklaerung( "neu über update" );
+            eintrag.setZeitpunktAenderung( now() );
+            eintrag.setAutorAenderung( _autor );
+            _datenbank.updateGlossarEintrag( eintrag );
+        });
+
+        final GlossarEntity nachUpdate = _datenbank.getEintragById( id ).orElseThrow();
+        assertThat( nachUpdate.getErklaerung() ).isEqualTo( "neu über update" );
+        assertThat( nachUpdate.getVersion()    ).isEqualTo( 1 );
+
+        final Boolean wurdeGeaendert = _transaktion.execute( status ->
+                _datenbank.aendereGlossarEintrag( id, 1L, nachUpdate.getBegriff(), "neu über aendere", now(), _autor ) );
+
+        assertThat( wurdeGeaendert ).isTrue();
+        final GlossarEntity nachAendern = _datenbank.getEintragById( id ).orElseThrow();
+        assertThat( nachAendern.getErklaerung() ).isEqualTo( "neu über aendere" );
+        assertThat( nachAendern.getVersion()    ).isEqualTo( 2 );
+    }
+
+
+    @Test
+    void versionskonflikt() {
+
+        final String begriff = eindeutigerBegriff( "Konflikt" );
+        final long   id      = neuerEintrag( begriff, "alt" );
+
+        final GlossarEntity veraltet = _datenbank.getEintragById( id ).orElseThrow();
+
+        _transaktion.executeWithoutResult( status ->
+                _datenbank.aendereGlossarEintrag( id, 0L, begriff, "erste Änderung", now(), _autor ) );
+
+        final Boolean wurdeGeaendert = _transaktion.execute( status ->
+                _datenbank.aendereGlossarEintrag( id, 0L, begriff, "zweite Änderung", now(), _autor ) );
+        assertThat( wurdeGeaendert ).isFalse();
+
+        veraltet.setErklaerung( "dritte Änderung" );
+        assertThatThrownBy( () -> _transaktion.executeWithoutResult( status -> _datenbank.updateGlossarEintrag( veraltet ) ) )
+                .isInstanceOf( OptimisticLockingFailureException.class );
+
+        final GlossarEntity eintrag = _datenbank.getEintragById( id ).orElseThrow();
+        assertThat( eintrag.getErklaerung() ).isEqualTo( "erste Änderung" );
+        assertThat( eintrag.getVersion()    ).isEqualTo( 1 );
+    }
+
+
+    @Test
+    void zweiterSchreiberWartetAufCommit() {
+
+        final String begriff = eindeutigerBegriff( "Sperre" );
+        final long   id      = neuerEintrag( begriff, "alt" );
+
+        final CompletableFuture<Boolean> zweiterSchreiber = _transaktion.execute( status -> {
+
+            _datenbank.aendereGlossarEintrag( id, 0L, begriff, "erster Schreiber", now(), _autor );
+
+            final CompletableFuture<Boolean> future = CompletableFuture.supplyAsync( () ->
+                    _transaktion.execute( status2 ->
+                            _datenbank.aendereGlossarEintrag( id, 0L, begriff, "zweiter Schreiber", now(), _autor ) ) );
+
+            // der zweite Schreiber muss warten, bis die erste Transaktion abgeschlossen ist
+            assertThat( future ).failsWithin( Duration.ofMillis( 500 ) )
+                                .withThrowableOfType( TimeoutException.class );
+            return future;
+        });
+
+        assertThat( zweiterSchreiber.join() ).isFalse();
+
+        final GlossarEntity eintrag = _datenbank.getEintragById( id ).orElseThrow();
+        assertThat( eintrag.getErklaerung() ).isEqualTo( "erster Schreiber" );
+        assertThat( eintrag.getVersion()    ).isEqualTo( 1 );
+    }
+
+
+    @Test
+    void sucheNachBegriff() {
+
+        final String begriff = eindeutigerBegriff( "Suche" );
+        final long   id      = neuerEintrag( begriff, "gesucht" );
+
+        final Optional<GlossarEntity> gefunden = _datenbank.getEintragByBegriff( begriff.toUpperCase() );
+        assertThat( gefunden ).isPresent();
+        assertThat( gefunden.get().getId() ).isEqualTo( id );
+
+        assertThat( _datenbank.getEintragByBegriff( begriff + "-fehlt" ) ).isEmpty();
+
+        final String begriffKlein = begriff.toLowerCase();
+        assertThat( _datenbank.getVorhandeneBegriffe( List.of( begriffKlein, begriffKlein + "-fehlt" ) ) )
+                .containsExactly( begriffKlein );
+    }
+
+
+    @Test
+    void keysetPagination() {
+
+        final List<Long> idListeNeu = new ArrayList<>();
+        for ( int i = 0; i < 5; i++ ) {
+
+            idListeNeu.add( neuerEintrag( eindeutigerBegriff( "Seite" + i ), "Eintrag " + i ) );
+        }
+
+        final List<EintragFeld> felder = List.of( EintragFeld.BEGRIFF );
+
+        final List<Long> idListeGelesen = new ArrayList<>();
+        long nachId = idListeNeu.getFirst() - 1;
+        while ( true ) {
+
+            final List<Object[]> seite = _datenbank.getEintraegeProjektion( felder, nachId, 2 );
+            if ( seite.isEmpty() ) {
+
+                break;
+            }
+            assertThat( seite ).hasSizeLessThanOrEqualTo( 2 );
+
+            for ( Object[] zeile : seite ) {
+
+                assertThat( zeile ).hasSize( 2 );
+                idListeGelesen.add( (Long) zeile[ 0 ] );
+            }
+            nachId = idListeGelesen.getLast();
+        }
+
+        assertThat( idListeGelesen ).isEqualTo( idListeNeu );
+    }
+
+
+    @Test
+    void rollback() {
+
+        final String begriffVorhanden = eindeutigerBegriff( "Vorhanden" );
+        final long   idVorhanden      = neuerEintrag( begriffVorhanden, "alt" );
+        final String begriffNeu       = eindeutigerBegriff( "Rollback" );
+
+        final Long idNeu = _transaktion.execute( status -> {
+
+            final long id = _datenbank.neuerGlossarEintrag( new GlossarEntity( begriffNeu, "neu", now(), _autor ) );
+            _datenbank.aendereGlossarEintrag( idVorhanden, 0L, begriffVorhanden, "geändert", now(), _autor );
+
+            // eigene Änderungen sind in der Transaktion sichtbar ...
+            assertThat( _datenbank.getEintragById( id ) ).isPresent();
+            assertThat( _datenbank.getEintragById( idVorhanden ).orElseThrow().getVersion() ).isEqualTo( 1 );
+
+            // ... aber nicht für andere Threads, solange nicht committet ist
+            final GlossarEntity andererThread =
+                    CompletableFuture.supplyAsync( () -> _datenbank.getEintragById( idVorhanden ).orElseThrow() ).join();
+            assertThat( andererThread.getVersion()    ).isZero();
+            assertThat( andererThread.getErklaerung() ).isEqualTo( "alt" );
+
+            status.setRollbackOnly();
+            return id;
+        });
+
+        assertThat( _datenbank.getEintragById( idNeu )          ).isEmpty();
+        assertThat( _datenbank.getEintragByBegriff( begriffNeu ) ).isEmpty();
+
+        final GlossarEntity vorhanden = _datenbank.getEintragById( idVorhanden ).orElseThrow();
+        assertThat( vorhanden.getErklaerung() ).isEqualTo( "alt" );
+        assertThat( vorhanden.getVersion()    ).isZero();
+
+        // nach dem Rollback kann der Eintrag mit der alten Version geändert werden
+        final Boolean wurdeGeaendert = _transaktion.execute( status ->
+                _datenbank.aendereGlossarEintrag( idVorhanden, 0L, begriffVorhanden, "neu", now(), _autor ) );
+        assertThat( wurdeGeaendert ).isTrue();
+    }
+
+
+    /**
+     * Neuen Eintrag in eigener Transaktion anlegen.
+     *
+     * @return ID des neuen Eintrags
+     */
+    private long neuerEintrag( String begriff, String erklaerung ) {
+
+        return _transaktion.execute( status ->
+                _datenbank.neuerGlossarEintrag( new GlossarEntity( begriff, erklaerung, now(), _autor ) ) );
+    }
+
+
+    private static String eindeutigerBegriff( String praefix ) {
+
+        return praefix + "-" + UUID.randomUUID().toString().substring( 0, 8 );
+    }
+
+}
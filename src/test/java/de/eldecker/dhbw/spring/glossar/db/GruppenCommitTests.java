@@ -0,0 +1,227 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.util.Locale.ROOT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.eldecker.dhbw.spring.glossar.model.BatchErgebnis;
+import de.eldecker.dhbw.spring.glossar.model.Payload;
+
+
+/**
+ * Tests für {@link GruppenCommit} mit einem {@link BatchSpeicherer} ohne Datenbank, der
+ * die Größe jeder Gruppe aufzeichnet und innerhalb einer Gruppe doppelte Begriffe mit 409
+ * beantwortet.
+ */
+class GruppenCommitTests {
+
+    /** Größen der gespeicherten Gruppen in der Reihenfolge der Commits. */
+    private final List<Integer> _gruppenGroessen = new CopyOnWriteArrayList<>();
+
+    /** Wenn gesetzt, dann wirft jeder Aufruf von {@code speichernGruppe} diese Exception. */
+    private volatile RuntimeException _fehler = null;
+
+    /** Wenn gesetzt, dann wird beim Speichern bis zu dessen Freigabe gewartet. */
+    private volatile CountDownLatch _speichernFreigabe = null;
+
+    /** Wird beim Beginn jedes Speicherns heruntergezählt. */
+    private final CountDownLatch _speichernBegonnen = new CountDownLatch( 1 );
+
+    private final BatchSpeicherer _batchSpeicherer = new BatchSpeicherer( null, null ) {
+
+        @Override
+        public List<BatchErgebnis> speichernGruppe( List<Payload> payloadListe, List<String> nutzernameListe ) {
+
+            _speichernBegonnen.countDown();
+            final CountDownLatch freigabe = _speichernFreigabe;
+            if ( freigabe != null ) {
+
+                warten( freigabe );
+            }
+            if ( _fehler != null ) {
+
+                throw _fehler;
+            }
+
+            _gruppenGroessen.add( payloadListe.size() );
+
+            final Set<String>         begriffe      = new HashSet<>();
+            final List<BatchErgebnis> ergebnisListe = new ArrayList<>();
+            for ( int i = 0; i < payloadListe.size(); i++ ) {
+
+                final boolean neu = begriffe.add( payloadListe.get( i ).begriff().toLowerCase( ROOT ) );
+                ergebnisListe.add( neu ? new BatchErgebnis( i, 201, 100L + i, null )
+                                       : new BatchErgebnis( i, 409, null, "Begriff schon vorhanden" ) );
+            }
+            return ergebnisListe;
+        }
+    };
+
+    private GruppenCommit _gruppenCommit;
+
+
+    @AfterEach
+    void aufraeumen() {
+
+        final CountDownLatch freigabe = _speichernFreigabe;
+        if ( freigabe != null ) {
+
+            freigabe.countDown();
+        }
+        if ( _gruppenCommit != null ) {
+
+            _gruppenCommit.beenden();
+        }
+    }
+
+
+    @Test
+    void gruppierungNachAnzahl() throws Exception {
+
+        starten( 3, 10_000 );
+
+        final List<CompletableFuture<BatchErgebnis>> futureListe = new ArrayList<>();
+        for ( int i = 1; i <= 6; i++ ) {
+
+            futureListe.add( _gruppenCommit.einreihen( payload( "A" + i ), "alice" ) );
+        }
+        for ( CompletableFuture<BatchErgebnis> future : futureListe ) {
+
+            assertThat( future.get( 5, TimeUnit.SECONDS ).status() ).isEqualTo( 201 );
+        }
+
+        // trotz langer Wartezeit wird geschrieben, sobald eine Gruppe voll ist
+        assertThat( _gruppenGroessen ).containsExactly( 3, 3 );
+    }
+
+
+    @Test
+    void gruppierungNachWartezeit() throws Exception {
+
+        starten( 100, 300 );
+
+        final long start = System.nanoTime();
+        final CompletableFuture<BatchErgebnis> erster  = _gruppenCommit.einreihen( payload( "B1" ), "alice" );
+        final CompletableFuture<BatchErgebnis> zweiter = _gruppenCommit.einreihen( payload( "B2" ), "bob"   );
+
+        assertThat( erster.get(  10, TimeUnit.SECONDS ).status() ).isEqualTo( 201 );
+        assertThat( zweiter.get( 10, TimeUnit.SECONDS ).status() ).isEqualTo( 201 );
+
+        // Gruppe nicht voll, wird also erst nach Ablauf der Wartezeit geschrieben
+        assertThat( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) ).isGreaterThanOrEqualTo( 300 );
+        assertThat( _gruppenGroessen ).containsExactly( 2 );
+    }
+
+
+    @Test
+    void ergebnisProAufrufer() throws Exception {
+
+        starten( 3, 10_000 );
+
+        final CompletableFuture<BatchErgebnis> erster  = _gruppenCommit.einreihen( payload( "Doppelt" ), "alice"  );
+        final CompletableFuture<BatchErgebnis> zweiter = _gruppenCommit.einreihen( payload( "DOPPELT" ), "bob"    );
+        final CompletableFuture<BatchErgebnis> dritter = _gruppenCommit.einreihen( payload( "Einzeln" ), "claire" );
+
+        assertThat( erster.get(  10, TimeUnit.SECONDS ).status() ).isEqualTo( 201 );
+        assertThat( zweiter.get( 10, TimeUnit.SECONDS ).status() ).isEqualTo( 409 );
+        assertThat( dritter.get( 10, TimeUnit.SECONDS ).status() ).isEqualTo( 201 );
+
+        assertThat( erster.get().id()  ).isEqualTo( 100L );
+        assertThat( zweiter.get().id() ).isNull();
+        assertThat( dritter.get().id() ).isEqualTo( 102L );
+        assertThat( _gruppenGroessen   ).containsExactly( 3 );
+    }
+
+
+    @Test
+    void exceptionAnAlleAufrufer() {
+
+        _fehler = new IllegalStateException( "Datenbank nicht erreichbar" );
+        starten( 2, 10_000 );
+
+        final CompletableFuture<BatchErgebnis> erster  = _gruppenCommit.einreihen( payload( "C1" ), "alice" );
+        final CompletableFuture<BatchErgebnis> zweiter = _gruppenCommit.einreihen( payload( "C2" ), "bob"   );
+
+        for ( CompletableFuture<BatchErgebnis> future : List.of( erster, zweiter ) ) {
+
+            assertThatThrownBy( () -> future.get( 10, TimeUnit.SECONDS ) )
+                    .isInstanceOf( ExecutionException.class )
+                    .hasCause( _fehler );
+        }
+    }
+
+
+    @Test
+    void beendenWartetAufLaufendeGruppe() throws Exception {
+
+        starten( 1, 0 );
+
+        _speichernFreigabe = new CountDownLatch( 1 );
+        final CompletableFuture<BatchErgebnis> laufend = _gruppenCommit.einreihen( payload( "D1" ), "alice" );
+        assertThat( _speichernBegonnen.await( 10, TimeUnit.SECONDS ) ).isTrue();
+
+        final CompletableFuture<BatchErgebnis> wartend = _gruppenCommit.einreihen( payload( "D2" ), "bob" );
+
+        final CompletableFuture<Void> beenden = CompletableFuture.runAsync( _gruppenCommit::beenden );
+
+        // nach Beginn des Herunterfahrens werden keine Aufträge mehr angenommen
+        while ( !_gruppenCommit.einreihen( payload( "D3" ), "claire" ).isDone() ) {
+
+            Thread.sleep( 10 ); // bis beenden() begonnen hat; zu früh eingereihte Aufträge bleiben wartend
+        }
+        assertThat( _gruppenCommit.einreihen( payload( "D4" ), "claire" ).get().status() ).isEqualTo( 503 );
+
+        // laufende Gruppe wird nicht abgebrochen
+        assertThat( beenden.isDone() ).isFalse();
+        _speichernFreigabe.countDown();
+        beenden.get( 10, TimeUnit.SECONDS );
+
+        assertThat( laufend.get( 10, TimeUnit.SECONDS ).status() ).isEqualTo( 201 );
+        assertThat( wartend.get( 10, TimeUnit.SECONDS ).status() ).isEqualTo( 503 );
+        assertThat( _gruppenGroessen ).containsExactly( 1 );
+    }
+
+
+    private void starten( int anzahlMax, long wartezeitMs ) {
+
+        _gruppenCommit = new GruppenCommit( _batchSpeicherer, true, anzahlMax, wartezeitMs, 100 );
+        _gruppenCommit.starten();
+    }
+
+
+    private static Payload payload( String begriff ) {
+
+        return new Payload( null, begriff, "Erklärung", null );
+    }
+
+
+    private static void warten( CountDownLatch freigabe ) {
+
+        try {
+
+            if ( !freigabe.await( 10, TimeUnit.SECONDS ) ) {
+
+                throw new IllegalStateException( "Keine Freigabe im Test." );
+            }
+        }
+        catch ( InterruptedException ex ) {
+
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( ex );
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.time.LocalDateTime.now;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.model.Revision;
+import de.eldecker.dhbw.spring.glossar.model.RevisionInfo;
+
+
+/**
+ * Tests für {@link Historie} mit kleinem Snapshot-Intervall, damit die Rekonstruktion von
+ * Revisionen über mehrere Snapshots hinweg geprüft wird.
+ */
+@SpringBootTest( properties = { "spring.datasource.url=jdbc:h2:mem:glossar-historie-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-historie-test.snapshot",
+                                "de.eldecker.glossar.historie.snapshot.intervall=3" } )
+class HistorieTests {
+
+    @Autowired
+    private Historie _historie;
+
+    @Autowired
+    private Datenbank _datenbank;
+
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+
+    @Test
+    void revisionenUeberSnapshotGrenzen() {
+
+        final long        eintragId = ThreadLocalRandom.current().nextLong( 1_000_000, 2_000_000 );
+        final AutorEntity autor     = _datenbank.getAutorByName( "alice" ).orElseThrow();
+
+        final String basis = "Maven ist ein Build-Management-Tool für Java-Projekte, das Abhängigkeiten " +
+                             "auflöst und den Lebenszyklus eines Projekts in Phasen einteilt. ";
+
+        final List<String> erklaerungListe = new ArrayList<>();
+        for ( int i = 1; i <= 8; i++ ) {
+
+            // zwei aufeinanderfolgende Revisionen unterscheiden sich nur im zweiten Teil des Surrogat-Paars
+            erklaerungListe.add( basis + "Stand " + ( i / 2 ) + ( i % 2 == 0 ? " 😀" : " 😁" ) );
+        }
+
+        final TransactionTemplate transaktion = new TransactionTemplate( _transactionManager );
+        for ( String erklaerung : erklaerungListe ) {
+
+            transaktion.executeWithoutResult( status ->
+                    _historie.anhaengen( eintragId, "Maven", erklaerung, now(), autor ) );
+        }
+
+        // Snapshot bei Revision 1, 4 und 7, dazwischen Deltas
+        final List<RevisionInfo> infoListe = _historie.getRevisionen( eintragId );
+        assertThat( infoListe ).extracting( RevisionInfo::nummer     ).containsExactly( 8, 7, 6, 5, 4, 3, 2, 1 );
+        assertThat( infoListe ).extracting( RevisionInfo::istSnapshot )
+                               .containsExactly( false, true, false, false, true, false, false, true );
+
+        for ( int nummer = 1; nummer <= erklaerungListe.size(); nummer++ ) {
+
+            final Revision revision = _historie.getRevision( eintragId, nummer ).orElseThrow();
+            assertThat( revision.nummer()     ).isEqualTo( nummer );
+            assertThat( revision.erklaerung() ).isEqualTo( erklaerungListe.get( nummer - 1 ) );
+            assertThat( revision.autor()      ).isEqualTo( "alice" );
+        }
+
+        assertThat( _historie.getRevision( eintragId, 9 ) ).isEmpty();
+        assertThat( _historie.getRevision( eintragId, 0 ) ).isEmpty();
+    }
+
+}
@@ -0,0 +1,21 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+
+/**
+ * Tests aus {@link DatenbankTestBasis} mit {@link JpaDatenbank}, auf einer eigenen
+ * H2-Datenbank im Hauptspeicher.
+ */
+@SpringBootTest( properties = { "de.eldecker.glossar.datenbank.engine=jpa",
+                                "spring.datasource.url=jdbc:h2:mem:glossar-jpa-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-jpa-test.snapshot" } )
+class JpaDatenbankTests extends DatenbankTestBasis {
+
+    @Override
+    Class<? extends Datenbank> getEngineKlasse() {
+
+        return JpaDatenbank.class;
+    }
+
+}
@@ -0,0 +1,41 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+
+/**
+ * Tests aus {@link DatenbankTestBasis} mit {@link SpeicherDatenbank}, auf einer eigenen
+ * H2-Datenbank im Hauptspeicher (für Autoren und Historie) und einer leeren Log-Datei.
+ */
+@SpringBootTest( properties = { "de.eldecker.glossar.datenbank.engine=speicher",
+                                "spring.datasource.url=jdbc:h2:mem:glossar-speicher-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-speicher-test.snapshot" } )
+class SpeicherDatenbankTests extends DatenbankTestBasis {
+
+    /**
+     * Log-Datei vor dem Start löschen, weil sie sonst nicht zur leeren H2-Datenbank passt.
+     */
+    @DynamicPropertySource
+    static void logDatei( DynamicPropertyRegistry registry ) throws IOException {
+
+        final Path logDatei = Paths.get( "./target/glossar-speicher-datenbank-test.log" );
+        Files.deleteIfExists( logDatei );
+
+        registry.add( "de.eldecker.glossar.datenbank.speicher.log", logDatei::toString );
+    }
+
+
+    @Override
+    Class<? extends Datenbank> getEngineKlasse() {
+
+        return SpeicherDatenbank.class;
+    }
+
+}
@@ -0,0 +1,165 @@
+package de.eldecker.dhbw.spring.glossar.db;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.eldecker.dhbw.spring.glossar.db.SpeicherLog.Eintrag;
+import de.eldecker.dhbw.spring.glossar.db.SpeicherLog.Satz;
+
+
+/**
+ * Tests für {@link SpeicherLog}: Abspielen der Sätze beim Öffnen und Abschneiden eines
+ * unvollständig geschriebenen letzten Satzes.
+ */
+class SpeicherLogTests {
+
+    private static final LocalDateTime ZEITPUNKT = LocalDateTime.of( 2026, 10, 18, 12, 30, 15, 123_456_789 );
+
+    @TempDir
+    private Path _verzeichnis;
+
+
+    @Test
+    void abspielen() throws IOException {
+
+        final Path datei = _verzeichnis.resolve( "test.log" );
+
+        try ( SpeicherLog log = SpeicherLog.oeffnen( datei, satz -> {} ) ) {
+
+            log.anhaengen( List.of( new Satz( 1, eintrag( 1, 0, "Maven", "Build-Tool" ) ),
+                                    new Satz( 2, eintrag( 2, 0, "Phase", null ) ) ) );
+            log.anhaengen( List.of( new Satz( 1, eintrag( 1, 1, "Maven", "Größe: 1 µm, Zeichen: ☕ 𝄞" ) ) ) );
+            log.anhaengen( List.of( new Satz( 2, null ) ) );
+        }
+
+        final List<Satz> satzListe = new ArrayList<>();
+        try ( SpeicherLog log = SpeicherLog.oeffnen( datei, satzListe::add ) ) {
+
+            assertThat( log.getAnzahlSaetze() ).isEqualTo( 4 );
+        }
+
+        assertThat( satzListe ).extracting( Satz::id ).containsExactly( 1L, 2L, 1L, 2L );
+
+        final Eintrag erster = satzListe.get( 0 ).eintrag();
+        assertThat( erster.version()            ).isZero();
+        assertThat( erster.begriff()            ).isEqualTo( "Maven" );
+        assertThat( erster.erklaerung()         ).isEqualTo( "Build-Tool" );
+        assertThat( erster.zeitpunktErzeugung() ).isEqualTo( ZEITPUNKT );
+        assertThat( erster.autorErzeugungId()   ).isEqualTo( 7 );
+
+        assertThat( satzListe.get( 1 ).eintrag().erklaerung() ).isNull();
+
+        final Eintrag dritter = satzListe.get( 2 ).eintrag();
+        assertThat( dritter.version()    ).isEqualTo( 1 );
+        assertThat( dritter.erklaerung() ).isEqualTo( "Größe: 1 µm, Zeichen: ☕ 𝄞" );
+
+        assertThat( satzListe.get( 3 ).eintrag() ).isNull();
+    }
+
+
+    @Test
+    void unvollstaendigerLetzterSatzWirdAbgeschnitten() throws IOException {
+
+        final Path datei = _verzeichnis.resolve( "test.log" );
+
+        final long endeErsterSatz;
+        final long endeZweiterSatz;
+        try ( SpeicherLog log = SpeicherLog.oeffnen( datei, satz -> {} ) ) {
+
+            log.anhaengen( List.of( new Satz( 1, eintrag( 1, 0, "Maven", "Build-Tool" ) ) ) );
+            endeErsterSatz = log.getGroesse();
+
+            log.anhaengen( List.of( new Satz( 2, eintrag( 2, 0, "Phase", "Teil eines Lifecycle" ) ) ) );
+            endeZweiterSatz = log.getGroesse();
+        }
+
+        // Absturz beim Schreiben simulieren: nur die erste Hälfte des zweiten Satzes ist auf dem Datenträger
+        final long mitte = ( endeErsterSatz + endeZweiterSatz ) / 2;
+        nullBytesSchreiben( datei, mitte, endeZweiterSatz );
+
+        final List<Satz> satzListe = new ArrayList<>();
+        try ( SpeicherLog log = SpeicherLog.oeffnen( datei, satzListe::add ) ) {
+
+            assertThat( satzListe ).extracting( Satz::id ).containsExactly( 1L );
+            assertThat( log.getAnzahlSaetze() ).isEqualTo( 1 );
+            assertThat( log.getGroesse()      ).isEqualTo( endeErsterSatz );
+
+            // nach dem Abschneiden wird hinter dem letzten gültigen Satz weitergeschrieben
+            log.anhaengen( List.of( new Satz( 3, eintrag( 3, 0, "pom.xml", "Konfiguration" ) ) ) );
+        }
+
+        assertThat( datei.resolveSibling( "test.log.defekt" ) ).exists();
+
+        final List<Satz> satzListeNeu = new ArrayList<>();
+        try ( SpeicherLog log = SpeicherLog.oeffnen( datei, satzListeNeu::add ) ) {
+
+            assertThat( log.getAnzahlSaetze() ).isEqualTo( 2 );
+        }
+        assertThat( satzListeNeu ).extracting( Satz::id ).containsExactly( 1L, 3L );
+        assertThat( satzListeNeu.get( 1 ).eintrag().erklaerung() ).isEqualTo( "Konfiguration" );
+    }
+
+
+    @Test
+    void falschePruefsummeWirdAbgeschnitten() throws IOException {
+
+        final Path datei = _verzeichnis.resolve( "test.log" );
+
+        final long endeErsterSatz;
+        try ( SpeicherLog log = SpeicherLog.oeffnen( datei, satz -> {} ) ) {
+
+            log.anhaengen( List.of( new Satz( 1, eintrag( 1, 0, "Maven", "Build-Tool" ) ) ) );
+            endeErsterSatz = log.getGroesse();
+
+            log.anhaengen( List.of( new Satz( 2, eintrag( 2, 0, "Phase", "Teil eines Lifecycle" ) ) ) );
+        }
+
+        // ein Byte in den Nutzdaten des zweiten Satzes verfälschen (hinter Satzkopf, Typ und ID)
+        final long position = endeErsterSatz + 20;
+        try ( FileChannel kanal = FileChannel.open( datei, READ, WRITE ) ) {
+
+            final ByteBuffer puffer = ByteBuffer.allocate( 1 );
+            kanal.read( puffer, position );
+            puffer.put( 0, (byte) ( puffer.get( 0 ) ^ 0x01 ) );
+            kanal.write( puffer.flip(), position );
+        }
+
+        final List<Satz> satzListe = new ArrayList<>();
+        try ( SpeicherLog log = SpeicherLog.oeffnen( datei, satzListe::add ) ) {
+
+            assertThat( log.getGroesse() ).isEqualTo( endeErsterSatz );
+        }
+        assertThat( satzListe ).extracting( Satz::id ).containsExactly( 1L );
+    }
+
+
+    private static Eintrag eintrag( long id, long version, String begriff, String erklaerung ) {
+
+        return new Eintrag( id, version, begriff, Eintrag.utf8( erklaerung ), ZEITPUNKT, ZEITPUNKT, 7, 7 );
+    }
+
+
+    /**
+     * Bytes von {@code von} (inklusive) bis {@code bis} (exklusive) mit Null-Bytes überschreiben.
+     */
+    private static void nullBytesSchreiben( Path datei, long von, long bis ) throws IOException {
+
+        try ( FileChannel kanal = FileChannel.open( datei, WRITE ) ) {
+
+            kanal.write( ByteBuffer.allocate( (int) ( bis - von ) ), von );
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests für {@link MinHash}: Fast gleiche Texte müssen über die Bänder (<i>Locality-Sensitive
+ * Hashing</i>) als Kandidaten gefunden werden, wie im Duplikatindex; verschiedene Texte nicht.
+ */
+class MinHashTests {
+
+    /** Anzahl Wörter der erzeugten Texte. */
+    private static final int ANZAHL_WOERTER = 60;
+
+    /** Anzahl Paare für die Messung der Trefferquote. */
+    private static final int ANZAHL_PAARE = 100;
+
+
+    @Test
+    void bekanntesFastGleichesPaar() {
+
+        final String original = "Maven ist ein Build-Management-Tool der Apache Software Foundation. " +
+                                "Es basiert auf einem Project Object Model, das in der Datei pom.xml " +
+                                "beschrieben wird, und kann Abhängigkeiten aus zentralen Repositories " +
+                                "herunterladen. Der Lebenszyklus eines Builds besteht aus Phasen wie " +
+                                "compile, test, package und install, an die Plugins gebunden werden.";
+
+        final String kopie = original.replace( "herunterladen", "laden" ).toUpperCase();
+
+        final int[] a = MinHash.signatur( original );
+        final int[] b = MinHash.signatur( kopie    );
+
+        assertThat( MinHash.aehnlichkeit( a, b ) ).isGreaterThanOrEqualTo( 0.8 );
+        assertThat( istKandidat( a, b ) ).isTrue();
+
+        assertThat( MinHash.aehnlichkeit( a, a ) ).isEqualTo( 1.0 );
+    }
+
+
+    @Test
+    void trefferquoteFastGleicherPaare() {
+
+        final SplittableRandom zufall = new SplittableRandom( 42 );
+
+        int anzahlKandidaten = 0;
+        double summeAehnlichkeit = 0;
+        for ( int p = 0; p < ANZAHL_PAARE; p++ ) {
+
+            final String[] woerter = woerter( zufall );
+            final String   text1   = String.join( " ", woerter );
+
+            // ein Wort in der Mitte ersetzen: 3 von 58 Shingles ändern sich, Jaccard-Index etwa 0,9
+            woerter[ ANZAHL_WOERTER / 2 ] = "ersetzt" + p;
+            final String text2 = String.join( " ", woerter );
+
+            final int[] a = MinHash.signatur( text1 );
+            final int[] b = MinHash.signatur( text2 );
+
+            summeAehnlichkeit += MinHash.aehnlichkeit( a, b );
+            if ( istKandidat( a, b ) ) {
+
+                anzahlKandidaten++;
+            }
+        }
+
+        // laut Klassenbeschreibung werden Paare mit Ähnlichkeit 0,9 zu 99% gefunden
+        assertThat( anzahlKandidaten ).isGreaterThanOrEqualTo( ANZAHL_PAARE * 95 / 100 );
+        assertThat( summeAehnlichkeit / ANZAHL_PAARE ).isBetween( 0.85, 0.95 );
+    }
+
+
+    @Test
+    void verschiedeneTexteSindKeineKandidaten() {
+
+        final SplittableRandom zufall = new SplittableRandom( 4711 );
+
+        int anzahlKandidaten = 0;
+        for ( int p = 0; p < ANZAHL_PAARE; p++ ) {
+
+            final int[] a = MinHash.signatur( String.join( " ", woerter( zufall ) ) );
+            final int[] b = MinHash.signatur( String.join( " ", woerter( zufall ) ) );
+
+            assertThat( MinHash.aehnlichkeit( a, b ) ).isLessThan( 0.2 );
+            if ( istKandidat( a, b ) ) {
+
+                anzahlKandidaten++;
+            }
+        }
+
+        assertThat( anzahlKandidaten ).isZero();
+    }
+
+
+    @Test
+    void kurzeTexteHabenKeineSignatur() {
+
+        assertThat( MinHash.signatur( null ) ).isNull();
+        assertThat( MinHash.signatur( "Nur fünf Wörter hier drin" ) ).isNull();
+        assertThat( MinHash.signatur( "Jetzt sind es schon sieben Wörter hier" ) ).hasSize( MinHash.ANZAHL_HASHES );
+    }
+
+
+    /**
+     * Zwei Signaturen sind Kandidaten, wenn sie in mindestens einem Band übereinstimmen.
+     */
+    private static boolean istKandidat( int[] a, int[] b ) {
+
+        for ( int band = 0; band < MinHash.ANZAHL_BAENDER; band++ ) {
+
+            if ( MinHash.bandHash( a, band ) == MinHash.bandHash( b, band ) ) {
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Zufällige Wörter aus einem großen Vokabular, damit sich zwei Texte kaum überschneiden.
+     */
+    private static String[] woerter( SplittableRandom zufall ) {
+
+        final String[] woerter = new String[ ANZAHL_WOERTER ];
+        for ( int i = 0; i < ANZAHL_WOERTER; i++ ) {
+
+            woerter[ i ] = "wort" + zufall.nextInt( 10_000 );
+        }
+
+        return woerter;
+    }
+
+}
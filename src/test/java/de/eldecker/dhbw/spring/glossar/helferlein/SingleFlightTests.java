@@ -0,0 +1,163 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests für {@link SingleFlight}: gleichzeitige Aufrufe für denselben Schlüssel werden zu
+ * einem Ladevorgang zusammengefasst, auch wenn dieser mit einer Exception scheitert.
+ */
+class SingleFlightTests {
+
+    /** Anzahl gleichzeitiger Aufrufe. */
+    private static final int ANZAHL_THREADS = 8;
+
+    private final ExecutorService _executor = Executors.newFixedThreadPool( ANZAHL_THREADS );
+
+    private final SingleFlight<String, String> _singleFlight = new SingleFlight<>();
+
+
+    @AfterEach
+    void aufraeumen() {
+
+        _executor.shutdownNow();
+    }
+
+
+    @Test
+    void gleichzeitigeAufrufeWerdenZusammengefasst() throws InterruptedException {
+
+        final CountDownLatch  freigabe      = new CountDownLatch( 1 );
+        final AtomicInteger   anzahlGeladen = new AtomicInteger( 0 );
+        final Supplier<String> lader        = () -> {
+
+            anzahlGeladen.incrementAndGet();
+            warten( freigabe );
+            return "Wert";
+        };
+
+        final List<CompletableFuture<String>> futureListe = gleichzeitigLaden( "a", lader );
+
+        warteBisZusammengefasst( ANZAHL_THREADS - 1 );
+        freigabe.countDown();
+
+        for ( CompletableFuture<String> future : futureListe ) {
+
+            assertThat( future.join() ).isEqualTo( "Wert" );
+        }
+        assertThat( anzahlGeladen.get()                     ).isEqualTo( 1 );
+        assertThat( _singleFlight.getAnzahlLadevorgaenge()   ).isEqualTo( 1 );
+        assertThat( _singleFlight.getAnzahlZusammengefasst() ).isEqualTo( ANZAHL_THREADS - 1 );
+
+        // kein Cache: nach dem Ende des Ladevorgangs wird neu geladen
+        assertThat( _singleFlight.laden( "a", () -> "Neu" ) ).isEqualTo( "Neu" );
+        assertThat( _singleFlight.getAnzahlLadevorgaenge() ).isEqualTo( 2 );
+    }
+
+
+    @Test
+    void exceptionBekommenAlleWartendenAufrufe() throws InterruptedException {
+
+        final CountDownLatch        freigabe  = new CountDownLatch( 1 );
+        final IllegalStateException exception = new IllegalStateException( "Datenbank nicht erreichbar" );
+        final Supplier<String>      lader     = () -> {
+
+            warten( freigabe );
+            throw exception;
+        };
+
+        final List<CompletableFuture<String>> futureListe = gleichzeitigLaden( "a", lader );
+
+        warteBisZusammengefasst( ANZAHL_THREADS - 1 );
+        freigabe.countDown();
+
+        for ( CompletableFuture<String> future : futureListe ) {
+
+            assertThatThrownBy( future::join ).isInstanceOf( CompletionException.class )
+                                              .cause().isSameAs( exception );
+        }
+        assertThat( _singleFlight.getAnzahlLadevorgaenge() ).isEqualTo( 1 );
+
+        // die Exception wird nicht gemerkt, der nächste Aufruf lädt neu
+        assertThat( _singleFlight.laden( "a", () -> "Wert" ) ).isEqualTo( "Wert" );
+    }
+
+
+    @Test
+    void verschiedeneSchluesselWerdenNichtZusammengefasst() {
+
+        final CountDownLatch freigabe = new CountDownLatch( 1 );
+
+        final CompletableFuture<String> futureA = CompletableFuture.supplyAsync(
+                () -> _singleFlight.laden( "a", () -> { warten( freigabe ); return "A"; } ), _executor );
+
+        // läuft, während der Ladevorgang für "a" noch blockiert ist
+        assertThat( _singleFlight.laden( "b", () -> "B" ) ).isEqualTo( "B" );
+
+        freigabe.countDown();
+        assertThat( futureA.join() ).isEqualTo( "A" );
+        assertThat( _singleFlight.getAnzahlZusammengefasst() ).isZero();
+    }
+
+
+    /**
+     * {@link #ANZAHL_THREADS} Aufrufe für {@code schluessel} gleichzeitig starten.
+     */
+    private List<CompletableFuture<String>> gleichzeitigLaden( String schluessel, Supplier<String> lader ) {
+
+        final List<CompletableFuture<String>> futureListe = new ArrayList<>( ANZAHL_THREADS );
+        for ( int i = 0; i < ANZAHL_THREADS; i++ ) {
+
+            futureListe.add( CompletableFuture.supplyAsync( () -> _singleFlight.laden( schluessel, lader ), _executor ) );
+        }
+
+        return futureListe;
+    }
+
+
+    /**
+     * Warten, bis {@code anzahl} Aufrufe auf den laufenden Ladevorgang warten.
+     */
+    private void warteBisZusammengefasst( int anzahl ) throws InterruptedException {
+
+        final long ende = System.nanoTime() + TimeUnit.SECONDS.toNanos( 10 );
+        while ( _singleFlight.getAnzahlZusammengefasst() < anzahl && System.nanoTime() < ende ) {
+
+            Thread.sleep( 5 );
+        }
+        assertThat( _singleFlight.getAnzahlZusammengefasst() ).isEqualTo( anzahl );
+    }
+
+
+    private static void warten( CountDownLatch freigabe ) {
+
+        try {
+
+            if ( !freigabe.await( 10, TimeUnit.SECONDS ) ) {
+
+                throw new IllegalStateException( "Keine Freigabe im Test." );
+            }
+        }
+        catch ( InterruptedException ex ) {
+
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( ex );
+        }
+    }
+
+}
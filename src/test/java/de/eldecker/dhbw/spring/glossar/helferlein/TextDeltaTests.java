@@ -0,0 +1,70 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+
+/**
+ * Tests für {@link TextDelta}: Ein erzeugtes Delta muss angewendet auf den alten Text immer
+ * genau den neuen Text ergeben.
+ */
+class TextDeltaTests {
+
+    @ParameterizedTest
+    @CsvSource( delimiter = '|', value = {
+
+        // Einfügung, Löschung, Ersetzung
+        "Ein Hund bellt.          | Ein großer Hund bellt.",
+        "Ein großer Hund bellt.   | Ein Hund bellt.",
+        "Ein Hund bellt.          | Ein Hund knurrt.",
+        "Hund                     | Der Hund",
+        "Der Hund                 | Hund",
+        "abc                      | abcabc",
+        "aaaa                     | aa",
+
+        // leere Texte
+        "''                       | ''",
+        "''                       | neu",
+        "alt                      | ''",
+        "gleich                   | gleich",
+
+        // Zeichen mit mehreren Bytes in UTF-8, auch außerhalb der BMP (Surrogat-Paare in Java)
+        "Größe in µm              | Größe in nm",
+        "Kaffee ☕ heiß           | Kaffee ☕☕ heiß",
+        "Note 𝄞 Ende              | Note 𝄢 Ende",
+        "𝄞                        | 𝄢",
+        "Emoji 😀                 | Emoji 😁",
+        "😀 am Anfang             | 😁 am Anfang",
+    })
+    void erzeugenUndAnwenden( String alt, String neu ) {
+
+        final String delta = TextDelta.erzeugen( alt, neu );
+
+        assertThat( TextDelta.anwenden( alt, delta ) ).isEqualTo( neu );
+
+        // Delta muss sich verlustfrei als UTF-8 speichern lassen (keine einzelnen Surrogate)
+        assertThat( new String( delta.getBytes( UTF_8 ), UTF_8 ) ).isEqualTo( delta );
+    }
+
+
+    @Test
+    void deltaEnthaeltNurGeaendertenText() {
+
+        assertThat( TextDelta.erzeugen( "Ein Hund bellt.", "Ein Hund knurrt." ) ).isEqualTo( "9:2:knurr" );
+        assertThat( TextDelta.erzeugen( "Note 𝄞 Ende", "Note 𝄢 Ende" )          ).isEqualTo( "5:5:𝄢" );
+    }
+
+
+    @Test
+    void ungueltigesDelta() {
+
+        assertThatThrownBy( () -> TextDelta.anwenden( "abc", "kein Delta" ) ).isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> TextDelta.anwenden( "abc", "2:2:x"      ) ).isInstanceOf( IllegalArgumentException.class );
+    }
+
+}
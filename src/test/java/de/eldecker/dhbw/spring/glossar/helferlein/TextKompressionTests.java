@@ -0,0 +1,142 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests für {@link TextKompression}: Schwelle in Bytes (nicht Zeichen), Verzicht auf Kompression
+ * ohne Ersparnis und Auswahl des Wörterbuchs anhand der Adler-32-Prüfsumme beim Entpacken.
+ */
+class TextKompressionTests {
+
+    /** Schwelle für alle Tests in Bytes (UTF-8). */
+    private static final int SCHWELLE = 100;
+
+    private static final byte[] WOERTERBUCH_1 = "Maven Phase pom.xml Plugin Goal Lebenszyklus ".getBytes( UTF_8 );
+
+    private static final byte[] WOERTERBUCH_2 = "Gradle Task build.gradle Abhängigkeit ".getBytes( UTF_8 );
+
+    /** Text, der sich mit {@link #WOERTERBUCH_1} gut komprimieren lässt. */
+    private static final String TEXT = "Eine Maven Phase im Lebenszyklus führt jedes Goal aus, das ein Plugin in der pom.xml bindet. ".repeat( 3 );
+
+
+    @Test
+    void rundreiseAnDerSchwelle() {
+
+        final TextKompression kompression = new TextKompression( SCHWELLE, null );
+
+        // "ä" hat in UTF-8 zwei Bytes: 49 Zeichen + 1 Byte liegen knapp unter, 50 Zeichen genau auf der Schwelle
+        final String knappDarunter = "ä".repeat( 49 ) + "a";
+        final String genauSchwelle = "ä".repeat( 50 );
+
+        assertThat( knappDarunter.getBytes( UTF_8 ) ).hasSize( SCHWELLE - 1 );
+        assertThat( kompression.komprimieren( knappDarunter ) ).isNull();
+        assertThat( kompression.komprimieren( null          ) ).isNull();
+
+        final byte[] komprimiert = kompression.komprimieren( genauSchwelle );
+        assertThat( komprimiert ).isNotNull();
+        assertThat( kompression.entpacken( komprimiert ) ).isEqualTo( genauSchwelle );
+
+        assertThat( kompression.getAnzahlKomprimiert() ).isEqualTo( 1 );
+        assertThat( kompression.getAnzahlEntpackt()    ).isEqualTo( 1 );
+    }
+
+
+    @Test
+    void nichtKomprimierbarerText() {
+
+        final TextKompression kompression = new TextKompression( SCHWELLE, WOERTERBUCH_1 );
+
+        // zufällige Buchstaben und Ziffern knapp über der Schwelle: ohne Wiederholungen kostet
+        // Deflate mit Header und Prüfsumme mehr, als es spart
+        final String        zeichen = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        final Random        zufall  = new Random( 42 );
+        final StringBuilder builder = new StringBuilder();
+        for ( int i = 0; i < SCHWELLE + 20; i++ ) {
+
+            builder.append( zeichen.charAt( zufall.nextInt( zeichen.length() ) ) );
+        }
+
+        assertThat( kompression.komprimieren( builder.toString() ) ).isNull();
+        assertThat( kompression.getAnzahlKomprimiert()              ).isZero();
+    }
+
+
+    @Test
+    void unbekanntesWoerterbuchWirdErkannt() {
+
+        final byte[] komprimiert = new TextKompression( SCHWELLE, WOERTERBUCH_1 ).komprimieren( TEXT );
+        assertThat( komprimiert ).isNotNull();
+
+        assertThatThrownBy( () -> new TextKompression( SCHWELLE, WOERTERBUCH_2 ).entpacken( komprimiert ) )
+                .isInstanceOf( IllegalStateException.class )
+                .hasMessageContaining( "unbekannten Wörterbuch" )
+                .hasMessageContaining( Integer.toHexString( TextKompression.adler32( WOERTERBUCH_1 ) ) );
+
+        assertThatThrownBy( () -> new TextKompression( SCHWELLE, null ).entpacken( komprimiert ) )
+                .isInstanceOf( IllegalStateException.class )
+                .hasMessageContaining( "unbekannten Wörterbuch" );
+
+        // Lader liefert ein Wörterbuch mit falscher Prüfsumme, das wird nicht verwendet
+        assertThatThrownBy( () -> new TextKompression( SCHWELLE, null, adler -> WOERTERBUCH_2 ).entpacken( komprimiert ) )
+                .isInstanceOf( IllegalStateException.class )
+                .hasMessageContaining( "unbekannten Wörterbuch" );
+    }
+
+
+    @Test
+    void woerterbuchWirdNachgeladen() {
+
+        final byte[] komprimiert = new TextKompression( SCHWELLE, WOERTERBUCH_1 ).komprimieren( TEXT );
+
+        final int[] anzahlGeladen = { 0 };
+        final TextKompression kompression = new TextKompression( SCHWELLE, WOERTERBUCH_2, adler -> {
+
+            anzahlGeladen[ 0 ]++;
+            return adler == TextKompression.adler32( WOERTERBUCH_1 ) ? WOERTERBUCH_1.clone() : null;
+        } );
+
+        assertThat( kompression.entpacken( komprimiert ) ).isEqualTo( TEXT );
+        assertThat( kompression.entpacken( komprimiert ) ).isEqualTo( TEXT );
+
+        // geladenes Wörterbuch wird gemerkt
+        assertThat( anzahlGeladen[ 0 ] ).isEqualTo( 1 );
+    }
+
+
+    @Test
+    void woerterbuchWechsel() {
+
+        final TextKompression kompression = new TextKompression( SCHWELLE, WOERTERBUCH_1 );
+
+        final byte[] alt = kompression.komprimieren( TEXT );
+        kompression.setWoerterbuch( WOERTERBUCH_2 );
+        final byte[] neu = kompression.komprimieren( TEXT );
+
+        // neuer Text verwendet das neue Wörterbuch, der alte bleibt lesbar
+        assertThat( Arrays.equals( alt, neu ) ).isFalse();
+        assertThat( kompression.entpacken( alt ) ).isEqualTo( TEXT );
+        assertThat( kompression.entpacken( neu ) ).isEqualTo( TEXT );
+        assertThat( new TextKompression( SCHWELLE, WOERTERBUCH_2 ).entpacken( neu ) ).isEqualTo( TEXT );
+    }
+
+
+    @Test
+    void unvollstaendigeDaten() {
+
+        final TextKompression kompression = new TextKompression( SCHWELLE, null );
+        final byte[]          komprimiert = kompression.komprimieren( TEXT );
+
+        assertThatThrownBy( () -> kompression.entpacken( Arrays.copyOf( komprimiert, komprimiert.length / 2 ) ) )
+                .isInstanceOf( IllegalStateException.class )
+                .hasMessageContaining( "unvollständig" );
+    }
+
+}
@@ -0,0 +1,132 @@
+package de.eldecker.dhbw.spring.glossar.helferlein;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests für {@link TextSpeicher} mit nur einer Seite von 1 KB, damit schon wenige Texte
+ * das Verdrängen (LRU) auslösen; dabei müssen alte Handles ungültig werden.
+ */
+class TextSpeicherTests {
+
+    /** Seitengröße und zugleich Kapazität: 16 Plätze der kleinsten Größenklasse (64 Bytes). */
+    private static final int SEITEN_GROESSE = 1024;
+
+    /** Anzahl Plätze der kleinsten Größenklasse auf der einzigen Seite. */
+    private static final int ANZAHL_PLAETZE = SEITEN_GROESSE / 64;
+
+    /** Schlüssel der verdrängten Texte, in Reihenfolge des Verdrängens. */
+    private final List<Long> _verdraengtListe = new ArrayList<>();
+
+    private final TextSpeicher _textSpeicher = new TextSpeicher( SEITEN_GROESSE, SEITEN_GROESSE, _verdraengtListe::add );
+
+
+    @Test
+    void ablegenUndLesen() {
+
+        final String text = "Größenklasse für Umlaute und 😀";
+
+        final long handle = _textSpeicher.ablegen( 1, text );
+
+        assertThat( _textSpeicher.lesen( handle ) ).contains( text );
+        assertThat( _textSpeicher.getAnzahlTexte()     ).isEqualTo( 1 );
+        assertThat( _textSpeicher.getBytesBelegt()     ).isEqualTo( text.getBytes( UTF_8 ).length );
+        assertThat( _textSpeicher.getBytesReserviert() ).isEqualTo( SEITEN_GROESSE );
+
+        // länger als eine Seite: wird nicht abgelegt, alter Text mit dem Schlüssel wird entfernt
+        assertThat( _textSpeicher.ablegen( 1, "x".repeat( SEITEN_GROESSE + 1 ) ) ).isEqualTo( TextSpeicher.KEIN_HANDLE );
+        assertThat( _textSpeicher.lesen( handle                  ) ).isEmpty();
+        assertThat( _textSpeicher.lesen( TextSpeicher.KEIN_HANDLE ) ).isEmpty();
+        assertThat( _textSpeicher.getBytesBelegt() ).isZero();
+    }
+
+
+    @Test
+    void amLaengstenNichtGelesenerTextWirdVerdraengt() {
+
+        final long[] handles = new long[ ANZAHL_PLAETZE + 1 ];
+        for ( int i = 1; i <= ANZAHL_PLAETZE; i++ ) {
+
+            handles[ i ] = _textSpeicher.ablegen( i, "Text " + i );
+        }
+        assertThat( _verdraengtListe ).isEmpty();
+
+        // Text 1 lesen, damit ist Text 2 am längsten nicht gelesen
+        assertThat( _textSpeicher.lesen( handles[ 1 ] ) ).contains( "Text 1" );
+
+        final long handle17 = _textSpeicher.ablegen( 17, "Text 17" );
+        assertThat( _verdraengtListe ).containsExactly( 2L );
+        assertThat( _textSpeicher.lesen( handles[ 2 ] ) ).isEmpty();
+        assertThat( _textSpeicher.lesen( handles[ 1 ] ) ).contains( "Text 1" );
+        assertThat( _textSpeicher.lesen( handle17     ) ).contains( "Text 17" );
+
+        // istGueltig ändert die LRU-Reihenfolge nicht
+        assertThat( _textSpeicher.istGueltig( handles[ 3 ] ) ).isTrue();
+        _textSpeicher.ablegen( 18, "Text 18" );
+        assertThat( _verdraengtListe ).containsExactly( 2L, 3L );
+        assertThat( _textSpeicher.istGueltig( handles[ 3 ] ) ).isFalse();
+
+        assertThat( _textSpeicher.getAnzahlTexte()      ).isEqualTo( ANZAHL_PLAETZE );
+        assertThat( _textSpeicher.getAnzahlVerdraengt() ).isEqualTo( 2 );
+    }
+
+
+    @Test
+    void handleNachErsetzenUndEntfernenUngueltig() {
+
+        final long alt = _textSpeicher.ablegen( 1, "alte Erklärung" );
+        final long neu = _textSpeicher.ablegen( 1, "neue Erklärung" );
+
+        assertThat( _textSpeicher.lesen( alt ) ).isEmpty();
+        assertThat( _textSpeicher.lesen( neu ) ).contains( "neue Erklärung" );
+
+        _textSpeicher.entfernen( 1 );
+        assertThat( _textSpeicher.lesen( neu ) ).isEmpty();
+
+        // derselbe Platz wird wiederverwendet, hat aber eine neue Generation
+        final long wieder = _textSpeicher.ablegen( 1, "neue Erklärung" );
+        assertThat( wieder >>> 32 ).isEqualTo( neu >>> 32 );
+        assertThat( _textSpeicher.lesen( neu    ) ).isEmpty();
+        assertThat( _textSpeicher.lesen( wieder ) ).contains( "neue Erklärung" );
+
+        assertThat( _textSpeicher.getAnzahlTexte()      ).isEqualTo( 1 );
+        assertThat( _textSpeicher.getAnzahlVerdraengt() ).isZero();
+        assertThat( _verdraengtListe ).isEmpty();
+    }
+
+
+    @Test
+    void seiteWirdAnAndereGroessenklasseAbgegeben() {
+
+        final List<Long> kleinHandleListe = new ArrayList<>();
+        for ( int i = 1; i <= ANZAHL_PLAETZE; i++ ) {
+
+            kleinHandleListe.add( _textSpeicher.ablegen( i, "Text " + i ) );
+        }
+
+        // Klasse mit 512 Bytes hat keine Seite: alle kleinen Texte werden verdrängt
+        final String gross       = "g".repeat( 500 );
+        final long   grossHandle = _textSpeicher.ablegen( 100, gross );
+
+        assertThat( _verdraengtListe ).hasSize( ANZAHL_PLAETZE );
+        assertThat( kleinHandleListe ).allSatisfy( handle -> assertThat( _textSpeicher.lesen( handle ) ).isEmpty() );
+        assertThat( _textSpeicher.lesen( grossHandle ) ).contains( gross );
+        assertThat( _textSpeicher.getAnzahlTexte()     ).isEqualTo( 1 );
+        assertThat( _textSpeicher.getBytesReserviert() ).isEqualTo( SEITEN_GROESSE );
+
+        // und wieder zurück; auch die Handles aus der ersten Aufteilung bleiben ungültig
+        final long klein = _textSpeicher.ablegen( 1, "Text 1" );
+
+        assertThat( _verdraengtListe.getLast() ).isEqualTo( 100L );
+        assertThat( _textSpeicher.lesen( grossHandle ) ).isEmpty();
+        assertThat( _textSpeicher.lesen( klein       ) ).contains( "Text 1" );
+        assertThat( kleinHandleListe ).allSatisfy( handle -> assertThat( _textSpeicher.istGueltig( handle ) ).isFalse() );
+    }
+
+}
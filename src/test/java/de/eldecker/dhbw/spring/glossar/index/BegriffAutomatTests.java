@@ -0,0 +1,124 @@
+package de.eldecker.dhbw.spring.glossar.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+
+
+/**
+ * Tests für {@link BegriffAutomat}: überlappende Treffer und Wortgrenzen.
+ */
+class BegriffAutomatTests {
+
+    /** ID für Texte, die zu keinem der Begriffe gehören. */
+    private static final long KEINE_ID = 0;
+
+
+    @Test
+    void ueberlappendeTrefferLinksUndLaengsterGewinnt() {
+
+        final BegriffAutomat automat = automat( 1, "Java",
+                                                2, "Java Virtual Machine",
+                                                3, "Virtual Machine",
+                                                4, "Machine Learning" );
+
+        assertThat( treffer( automat, "Die Java Virtual Machine Learning", KEINE_ID ) )
+                .containsExactly( "Java Virtual Machine=2" );
+
+        assertThat( treffer( automat, "Virtual Machine Learning und Java", KEINE_ID ) )
+                .containsExactly( "Virtual Machine=3", "Java=1" );
+
+        assertThat( treffer( automat, "Java Virtual", KEINE_ID ) )
+                .containsExactly( "Java=1" );
+    }
+
+
+    @Test
+    void trefferUeberFehleruebergaenge() {
+
+        // "she" und "he" teilen sich ein Suffix, "hers" beginnt mit "he" (klassisches Aho-Corasick-Beispiel)
+        final BegriffAutomat automat = automat( 1, "he", 2, "she", 3, "his", 4, "hers" );
+
+        assertThat( treffer( automat, "she hers his he", KEINE_ID ) )
+                .containsExactly( "she=2", "hers=4", "his=3", "he=1" );
+
+        assertThat( treffer( automat, "ushers", KEINE_ID ) ).isEmpty();
+    }
+
+
+    @Test
+    void nurGanzeWoerter() {
+
+        final BegriffAutomat automat = automat( 1, "Maven", 2, "pom.xml", 3, "Phase" );
+
+        assertThat( treffer( automat, "Maven", KEINE_ID ) ).containsExactly( "Maven=1" );
+
+        assertThat( treffer( automat, "(MAVEN), die pom.xml-Datei; maven!", KEINE_ID ) )
+                .containsExactly( "MAVEN=1", "pom.xml=2", "maven=1" );
+
+        assertThat( treffer( automat, "Mavenize XMaven Phasen Lebensphase Phase2", KEINE_ID ) ).isEmpty();
+    }
+
+
+    @Test
+    void eigenerBegriffUndDoppelteBegriffe() {
+
+        final BegriffAutomat automat = automat( 5, "Spring", 1, "Spring Boot", 7, "spring" );
+
+        assertThat( treffer( automat, "Spring Boot nutzt Spring", KEINE_ID ) )
+                .containsExactly( "Spring Boot=1", "Spring=5" );
+
+        // eigener Begriff wird nicht verlinkt, stattdessen der kürzere Begriff
+        assertThat( treffer( automat, "Spring Boot nutzt Spring", 1 ) )
+                .containsExactly( "Spring=5", "Spring=5" );
+    }
+
+
+    @Test
+    void kurzeBegriffeUndLeererAutomat() {
+
+        assertThat( treffer( automat( 1, "C", 2, "Go" ), "C und Go", KEINE_ID ) ).containsExactly( "Go=2" );
+
+        assertThat( treffer( BegriffAutomat.LEER, "Maven", KEINE_ID ) ).isEmpty();
+        assertThat( treffer( BegriffAutomat.LEER, ""     , KEINE_ID ) ).isEmpty();
+    }
+
+
+    /**
+     * Automat aus Paaren von ID und Begriff erzeugen.
+     */
+    private static BegriffAutomat automat( Object... idUndBegriff ) {
+
+        final Begriffsliste.Sammler sammler = new Begriffsliste.Sammler();
+        for ( int i = 0; i < idUndBegriff.length; i += 2 ) {
+
+            sammler.hinzufuegen( ( (Number) idUndBegriff[ i ] ).longValue(), (String) idUndBegriff[ i + 1 ] );
+        }
+
+        return BegriffAutomat.erzeugen( sammler.erzeugen() );
+    }
+
+
+    /**
+     * Treffer im Format {@code <Text>=<ID>}, nach Position sortiert.
+     */
+    private static List<String> treffer( BegriffAutomat automat, String text, long eigeneId ) {
+
+        final VerlinkterText.Verweise verweise = automat.finden( text, eigeneId );
+
+        final List<String> ergebnisListe = new ArrayList<>( verweise.anzahl() );
+        for ( int i = 0; i < verweise.anzahl(); i++ ) {
+
+            ergebnisListe.add( text.substring( verweise.startArray()[ i ], verweise.endeArray()[ i ] ) +
+                               "=" + verweise.zielArray()[ i ] );
+        }
+
+        return ergebnisListe;
+    }
+
+}
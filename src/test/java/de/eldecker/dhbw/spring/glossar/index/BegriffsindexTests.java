@@ -0,0 +1,137 @@
+package de.eldecker.dhbw.spring.glossar.index;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import de.eldecker.dhbw.spring.glossar.db.Aenderungsfeed;
+import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.model.Begriffsliste;
+
+
+/**
+ * Tests für das Laden von {@link Begriffsindex} aus einem {@link BegriffSnapshot}: Der Snapshot
+ * enthält für einen Eintrag absichtlich einen anderen Begriff als die Datenbank, so ist zu
+ * erkennen, ob der Index aus dem Snapshot oder neu aus der Datenbank aufgebaut wurde.
+ */
+@SpringBootTest( properties = { "spring.datasource.url=jdbc:h2:mem:glossar-begriffsindex-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-begriffsindex-test.snapshot" } )
+class BegriffsindexTests {
+
+    /** Begriff, der nur im Snapshot steht. */
+    private static final String BEGRIFF_SNAPSHOT = "Nur im Snapshot";
+
+    /** Snapshot-Datei nur für die Tests dieser Klasse, nicht die des Begriffsindex-Beans. */
+    private final Path _datei = Paths.get( "./target/begriffe-begriffsindex-kaputt-test.snapshot" );
+
+    @Autowired
+    private Datenbank _datenbank;
+
+    @Autowired
+    private Aenderungsfeed _aenderungsfeed;
+
+    /** Begriffe aus der Datenbank in der Sortierung des Index. */
+    private List<String> _begriffeDatenbank;
+
+
+    @BeforeEach
+    void snapshotSchreiben() throws IOException {
+
+        final Begriffsliste liste = _datenbank.getGlossarBegriffe();
+
+        final Map<Long, String> begriffMap = new LinkedHashMap<>();
+        for ( int i = 0; i < liste.size(); i++ ) {
+
+            begriffMap.put( liste.getId( i ), i == 0 ? BEGRIFF_SNAPSHOT : liste.getBegriff( i ) );
+        }
+        BegriffSnapshot.schreiben( _datei, _aenderungsfeed.getHorizont(), begriffMap );
+
+        _begriffeDatenbank = begriffe( liste );
+    }
+
+
+    @Test
+    void gueltigerSnapshotWirdVerwendet() {
+
+        assertThat( begriffe( geladenerIndex().getGlossarBegriffe() ) ).contains( BEGRIFF_SNAPSHOT );
+    }
+
+
+    @Test
+    void falschePruefsummeErgibtNeuaufbau() throws IOException {
+
+        // letztes Byte des Datenteils (im letzten Begriff) ändern
+        final long groesse = Files.size( _datei );
+        try ( FileChannel kanal = FileChannel.open( _datei, WRITE ) ) {
+
+            kanal.write( ByteBuffer.wrap( new byte[] { '#' } ), groesse - 1 );
+        }
+
+        assertThatThrownBy( () -> BegriffSnapshot.lesen( _datei ) ).hasMessageContaining( "Prüfsumme" );
+
+        assertThat( begriffe( geladenerIndex().getGlossarBegriffe() ) ).isEqualTo( _begriffeDatenbank );
+    }
+
+
+    @Test
+    void abgeschnittenerSnapshotErgibtNeuaufbau() throws IOException {
+
+        try ( FileChannel kanal = FileChannel.open( _datei, WRITE ) ) {
+
+            kanal.truncate( kanal.size() - 3 );
+        }
+
+        assertThatThrownBy( () -> BegriffSnapshot.lesen( _datei ) ).hasMessageContaining( "Länge" );
+
+        assertThat( begriffe( geladenerIndex().getGlossarBegriffe() ) ).isEqualTo( _begriffeDatenbank );
+
+        // auch ein Snapshot, der nicht einmal den vollständigen Kopf enthält
+        try ( FileChannel kanal = FileChannel.open( _datei, WRITE ) ) {
+
+            kanal.truncate( 10 );
+        }
+
+        assertThat( begriffe( geladenerIndex().getGlossarBegriffe() ) ).isEqualTo( _begriffeDatenbank );
+    }
+
+
+    /**
+     * Neuen Index (nicht das Bean) mit der Snapshot-Datei dieser Klasse erzeugen und laden.
+     */
+    private Begriffsindex geladenerIndex() {
+
+        final Begriffsindex index = new Begriffsindex( _datenbank, _aenderungsfeed, _datei.toString() );
+        index.laden();
+
+        return index;
+    }
+
+
+    private static List<String> begriffe( Begriffsliste liste ) {
+
+        final List<String> begriffListe = new ArrayList<>( liste.size() );
+        for ( int i = 0; i < liste.size(); i++ ) {
+
+            begriffListe.add( liste.getBegriff( i ) );
+        }
+
+        return begriffListe;
+    }
+
+}
@@ -0,0 +1,77 @@
+package de.eldecker.dhbw.spring.glossar.index;
+
+import static java.time.LocalDateTime.now;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+import de.eldecker.dhbw.spring.glossar.model.Duplikat;
+
+
+/**
+ * Test für {@link Duplikatindex}: Ein gespeicherter Eintrag muss über die Bänder als fast
+ * gleich zu einer leicht geänderten Erklärung gefunden werden.
+ */
+@SpringBootTest( properties = { "spring.datasource.url=jdbc:h2:mem:glossar-duplikate-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-duplikate-test.snapshot" } )
+class DuplikatindexTests {
+
+    /** So lange wird max. gewartet, bis der Hintergrund-Thread den neuen Eintrag verarbeitet hat. */
+    private static final long WARTEZEIT_MS = 10_000;
+
+    private static final String ERKLAERUNG =
+            "Maven ist ein Build-Management-Tool der Apache Software Foundation. Es basiert auf einem " +
+            "Project Object Model, das in der Datei pom.xml beschrieben wird, und kann Abhängigkeiten " +
+            "aus zentralen Repositories herunterladen. Der Lebenszyklus eines Builds besteht aus Phasen " +
+            "wie compile, test, package und install, an die Plugins gebunden werden.";
+
+    @Autowired
+    private Duplikatindex _duplikatindex;
+
+    @Autowired
+    private Datenbank _datenbank;
+
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+
+    @Test
+    void fastGleicheErklaerungWirdGefunden() throws InterruptedException {
+
+        final AutorEntity autor = _datenbank.getAutorByName( "alice" ).orElseThrow();
+
+        final long id = new TransactionTemplate( _transactionManager ).execute( status ->
+                _datenbank.neuerGlossarEintrag( new GlossarEntity( "Apache Maven", ERKLAERUNG, now(), autor ) ) );
+
+        final String fastGleich = ERKLAERUNG.replace( "herunterladen", "laden" );
+
+        List<Duplikat> duplikatListe = _duplikatindex.aehnlicheSuchen( fastGleich, null );
+        final long ende = System.currentTimeMillis() + WARTEZEIT_MS;
+        while ( duplikatListe.isEmpty() && System.currentTimeMillis() < ende ) {
+
+            Thread.sleep( 50 );
+            duplikatListe = _duplikatindex.aehnlicheSuchen( fastGleich, null );
+        }
+
+        assertThat( duplikatListe ).hasSize( 1 );
+        assertThat( duplikatListe.getFirst().id()           ).isEqualTo( id );
+        assertThat( duplikatListe.getFirst().begriff()      ).isEqualTo( "Apache Maven" );
+        assertThat( duplikatListe.getFirst().aehnlichkeit() ).isGreaterThanOrEqualTo( 0.8 );
+
+        // Erklärung des Eintrags selbst, z.B. beim Ändern
+        assertThat( _duplikatindex.aehnlicheSuchen( fastGleich, id ) ).isEmpty();
+
+        assertThat( _duplikatindex.aehnlicheSuchen( "Eine Phase ist ein Schritt im Lebenszyklus eines " +
+                                                    "Builds, an den Plugin-Goals gebunden werden.", null ) ).isEmpty();
+    }
+
+}
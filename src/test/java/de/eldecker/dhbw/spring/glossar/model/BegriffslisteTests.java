@@ -0,0 +1,86 @@
+package de.eldecker.dhbw.spring.glossar.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests für {@link Begriffsliste}: Zugriff auf die hintereinander abgelegten UTF-8-Bytes über
+ * die Offset-Tabelle, auch nachdem der {@link Begriffsliste.Sammler} seine Arrays vergrößert hat.
+ */
+class BegriffslisteTests {
+
+    @Test
+    void begriffeMitMehrbyteZeichen() {
+
+        final Begriffsliste liste = new Begriffsliste.Sammler().hinzufuegen( 3, "Maven"   )
+                                                               .hinzufuegen( 1, "Größe"   )
+                                                               .hinzufuegen( 7, ""        )
+                                                               .hinzufuegen( 2, null      )
+                                                               .hinzufuegen( 5, "Emoji 😀" )
+                                                               .erzeugen();
+
+        assertThat( liste ).hasSize( 5 );
+        assertThat( liste ).extracting( Begriffsliste.Begriff::getId      ).containsExactly( 3L, 1L, 7L, 2L, 5L );
+        assertThat( liste ).extracting( Begriffsliste.Begriff::getBegriff ).containsExactly( "Maven", "Größe", "", "", "Emoji 😀" );
+
+        // "ö" und "ß" sind je zwei Bytes, das Emoji vier
+        assertThat( liste.getLaenge( 1 ) ).isEqualTo( 7 );
+        assertThat( liste.getLaenge( 4 ) ).isEqualTo( 10 );
+        assertThat( liste.getOffset( 1 ) ).isEqualTo( 5 );
+        assertThat( liste.getOffset( 2 ) ).isEqualTo( liste.getOffset( 3 ) );
+        assertThat( liste.getUtf8()      ).hasSize( 5 + 7 + 10 );
+
+        assertThat( new String( liste.getUtf8(), liste.getOffset( 4 ), liste.getLaenge( 4 ), UTF_8 ) ).isEqualTo( "Emoji 😀" );
+    }
+
+
+    @Test
+    void vieleBegriffeNachVergroessern() {
+
+        // mehr als 64 Begriffe und mehr als 1024 Bytes, damit alle Arrays im Sammler wachsen
+        final Begriffsliste.Sammler sammler      = new Begriffsliste.Sammler();
+        final List<String>          begriffListe = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ ) {
+
+            final String begriff = "Begriff Nr. " + i + ( i % 3 == 0 ? " äöü" : "" );
+            begriffListe.add( begriff );
+            sammler.hinzufuegen( 10_000 + i, begriff );
+        }
+
+        final Begriffsliste liste = sammler.erzeugen();
+
+        assertThat( liste ).hasSize( begriffListe.size() );
+        int summeBytes = 0;
+        for ( int i = 0; i < liste.size(); i++ ) {
+
+            assertThat( liste.getId( i )      ).isEqualTo( 10_000 + i );
+            assertThat( liste.getBegriff( i ) ).isEqualTo( begriffListe.get( i ) );
+            assertThat( liste.getOffset( i )  ).isEqualTo( summeBytes );
+
+            summeBytes += begriffListe.get( i ).getBytes( UTF_8 ).length;
+        }
+
+        // Arrays sind auf die tatsächliche Größe gekürzt
+        assertThat( liste.getUtf8() ).hasSize( summeBytes );
+        assertThat( liste.getGroesseBytes() ).isEqualTo( 1000L * Long.BYTES + summeBytes + 1001L * Integer.BYTES );
+
+        assertThat( liste.subList( 998, 1000 ) ).extracting( Begriffsliste.Begriff::getBegriff )
+                                                .containsExactly( "Begriff Nr. 998", "Begriff Nr. 999 äöü" );
+    }
+
+
+    @Test
+    void leereListe() {
+
+        assertThat( Begriffsliste.LEER ).isEmpty();
+        assertThat( Begriffsliste.LEER.getUtf8() ).isEmpty();
+        assertThat( new Begriffsliste.Sammler().erzeugen() ).isEmpty();
+    }
+
+}
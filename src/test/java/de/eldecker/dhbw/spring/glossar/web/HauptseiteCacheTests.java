@@ -0,0 +1,101 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.LocalDateTime.now;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import de.eldecker.dhbw.spring.glossar.db.Datenbank;
+import de.eldecker.dhbw.spring.glossar.db.entities.AutorEntity;
+import de.eldecker.dhbw.spring.glossar.db.entities.GlossarEntity;
+
+
+/**
+ * Tests für {@link HauptseiteCache}: Nach dem Speichern eines Eintrags muss die Seite neu
+ * gerendert werden, und der Nutzerblock darf nie aus der Seite eines anderen Nutzers stammen.
+ */
+@SpringBootTest( properties = { "spring.datasource.url=jdbc:h2:mem:glossar-hauptseite-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-hauptseite-test.snapshot" } )
+class HauptseiteCacheTests {
+
+    private static final String PFAD = "/app/hauptseite";
+
+    @Autowired
+    private WebApplicationContext _context;
+
+    @Autowired
+    private Datenbank _datenbank;
+
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    private MockMvc _mockMvc;
+
+
+    @BeforeEach
+    void vorbereiten() {
+
+        _mockMvc = MockMvcBuilders.webAppContextSetup( _context ).apply( springSecurity() ).build();
+    }
+
+
+    @Test
+    void seiteNachSpeichernNeuGerendert() throws Exception {
+
+        final String begriff = "Hauptseite-" + UUID.randomUUID();
+
+        assertThat( seite( get( PFAD ) ) ).contains( "Maven" ).doesNotContain( begriff );
+
+        final AutorEntity autor = _datenbank.getAutorByName( "alice" ).orElseThrow();
+        new TransactionTemplate( _transactionManager ).executeWithoutResult( status ->
+                _datenbank.neuerGlossarEintrag( new GlossarEntity( begriff, "Erklärung", now(), autor ) ) );
+
+        assertThat( seite( get( PFAD ) ) ).contains( begriff );
+    }
+
+
+    @Test
+    void nutzerblockPassendZumNutzer() throws Exception {
+
+        final String seiteAlice = seite( get( PFAD ).with( user( "alice" ) ) );
+        assertThat( seiteAlice ).contains( "<span>alice</span>" );
+
+        // Seite ist jetzt mit Nutzerblock-Platzhalter im Cache, Bob darf Alice nicht sehen
+        final String seiteBob = seite( get( PFAD ).with( user( "bob" ) ) );
+        assertThat( seiteBob ).contains( "<span>bob</span>" ).doesNotContain( "alice" );
+
+        final String seiteAnonym = seite( get( PFAD ) );
+        assertThat( seiteAnonym ).contains( "Sie sind nicht angemeldet" )
+                                 .doesNotContain( "Angemeldet als Nutzer" )
+                                 .doesNotContain( "/app/neu" );
+
+        // Platzhalter darf nie ausgeliefert werden
+        assertThat( seiteAlice  ).doesNotContain( "@@NUTZERBLOCK@@" );
+        assertThat( seiteAnonym ).doesNotContain( "@@NUTZERBLOCK@@" );
+    }
+
+
+    private String seite( MockHttpServletRequestBuilder request ) throws Exception {
+
+        return _mockMvc.perform( request )
+                       .andExpect( status().isOk() )
+                       .andReturn().getResponse().getContentAsString( UTF_8 );
+    }
+
+}
@@ -0,0 +1,161 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.aMapWithSize;
+import static org.hamcrest.Matchers.everyItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.jayway.jsonpath.JsonPath;
+
+
+/**
+ * Tests für {@link RestLeseController}: Auswahl der Felder, Blättern und Fehlerfälle.
+ * Die Datenbank enthält die Einträge von {@code BeispielDatenImportRunner}.
+ */
+@SpringBootTest( properties = { "spring.datasource.url=jdbc:h2:mem:glossar-restlesen-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-restlesen-test.snapshot" } )
+class RestLeseControllerTests {
+
+    private static final String PFAD = "/api/v1/eintraege";
+
+    @Autowired
+    private WebApplicationContext _context;
+
+    private MockMvc _mockMvc;
+
+
+    @BeforeEach
+    void vorbereiten() {
+
+        _mockMvc = MockMvcBuilders.webAppContextSetup( _context ).build();
+    }
+
+
+    @Test
+    void nurAusgewaehlteFelder() throws Exception {
+
+        _mockMvc.perform( get( PFAD ).param( "fields", "begriff,id,begriff" ) )
+                .andExpect( status().isOk() )
+                .andExpect( jsonPath( "$.eintraege[*]"         ).value( everyItem( aMapWithSize( 2 ) ) ) )
+                .andExpect( jsonPath( "$.eintraege[0].id"      ).isNumber() )
+                .andExpect( jsonPath( "$.eintraege[0].begriff" ).isString() );
+
+        final long id = idFuerBegriff( "Maven" );
+
+        _mockMvc.perform( get( PFAD + "/" + id ).param( "fields", "begriff" ) )
+                .andExpect( status().isOk() )
+                .andExpect( jsonPath( "$"         ).value( aMapWithSize( 1 ) ) )
+                .andExpect( jsonPath( "$.begriff" ).value( "Maven" ) );
+
+        _mockMvc.perform( get( PFAD + "/" + id ) )
+                .andExpect( status().isOk() )
+                .andExpect( jsonPath( "$" ).value( aMapWithSize( 7 ) ) )
+                .andExpect( jsonPath( "$.autorErzeugung" ).isString() );
+    }
+
+
+    @ParameterizedTest
+    @ValueSource( strings = { ",", " , ", "id,,begriff", "id,passwort", "ID" } )
+    void ungueltigeFeldliste( String feldListe ) throws Exception {
+
+        _mockMvc.perform( get( PFAD ).param( "fields", feldListe ) )
+                .andExpect( status().isBadRequest() );
+
+        _mockMvc.perform( get( PFAD + "/1" ).param( "fields", feldListe ) )
+                .andExpect( status().isBadRequest() );
+    }
+
+
+    @Test
+    void blaettern() throws Exception {
+
+        final List<Integer> alleIds = JsonPath.read( inhalt( get( PFAD ).param( "fields", "id" )
+                                                                        .param( "anzahl", "1000" ) ), "$.eintraege[*].id" );
+        assertThat( alleIds ).hasSizeGreaterThanOrEqualTo( 3 ).isSorted();
+
+        final List<Integer> idListe = new ArrayList<>();
+        Integer naechsteSeite = 0;
+        while ( naechsteSeite != null ) {
+
+            final String json = inhalt( get( PFAD ).param( "fields", "id" )
+                                                   .param( "anzahl", "2" )
+                                                   .param( "nach", naechsteSeite.toString() ) );
+
+            final List<Integer> seite = JsonPath.read( json, "$.eintraege[*].id" );
+            assertThat( seite ).hasSizeBetween( 1, 2 );
+            idListe.addAll( seite );
+
+            naechsteSeite = JsonPath.read( json, "$.naechsteSeite" );
+            if ( naechsteSeite != null ) {
+
+                assertThat( naechsteSeite ).isEqualTo( seite.getLast() );
+            }
+        }
+
+        assertThat( idListe ).isEqualTo( alleIds );
+
+        // hinter der letzten ID: leere Seite
+        _mockMvc.perform( get( PFAD ).param( "nach", alleIds.getLast().toString() ) )
+                .andExpect( status().isOk() )
+                .andExpect( jsonPath( "$.eintraege"      ).isEmpty() )
+                .andExpect( jsonPath( "$.naechsteSeite"  ).isEmpty() );
+    }
+
+
+    @ParameterizedTest
+    @ValueSource( strings = { "0", "-1", "1001" } )
+    void anzahlAusserhalbGrenzen( String anzahl ) throws Exception {
+
+        _mockMvc.perform( get( PFAD ).param( "anzahl", anzahl ) )
+                .andExpect( status().isBadRequest() );
+    }
+
+
+    @Test
+    void unbekannteId() throws Exception {
+
+        _mockMvc.perform( get( PFAD + "/987654321" ) )
+                .andExpect( status().isNotFound() );
+    }
+
+
+    @Test
+    void sucheNachBegriff() throws Exception {
+
+        _mockMvc.perform( get( PFAD ).param( "begriff", "MAVEN" ).param( "fields", "begriff" ) )
+                .andExpect( status().isOk() )
+                .andExpect( jsonPath( "$.eintraege[0].begriff" ).value( "Maven" ) )
+                .andExpect( jsonPath( "$.naechsteSeite"        ).isEmpty() );
+    }
+
+
+    private long idFuerBegriff( String begriff ) throws Exception {
+
+        final Integer id = JsonPath.read( inhalt( get( PFAD ).param( "begriff", begriff ).param( "fields", "id" ) ),
+                                          "$.eintraege[0].id" );
+        return id;
+    }
+
+
+    private String inhalt( RequestBuilder request ) throws Exception {
+
+        return _mockMvc.perform( request ).andExpect( status().isOk() ).andReturn().getResponse().getContentAsString();
+    }
+
+}
@@ -0,0 +1,84 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpHeaders.LAST_MODIFIED;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+
+/**
+ * Tests für die ETags von {@link ThymeleafWebController}: Ein bedingter Request wird nur
+ * für denselben Nutzer (bzw. wieder anonym) mit 304 beantwortet.
+ */
+@SpringBootTest( properties = { "spring.datasource.url=jdbc:h2:mem:glossar-etag-test;DB_CLOSE_DELAY=-1",
+                                "de.eldecker.glossar.index.snapshot.datei=./target/begriffe-etag-test.snapshot" } )
+class ThymeleafWebControllerTests {
+
+    private static final String PFAD = "/app/hauptseite";
+
+    @Autowired
+    private WebApplicationContext _context;
+
+    private MockMvc _mockMvc;
+
+
+    @BeforeEach
+    void vorbereiten() {
+
+        _mockMvc = MockMvcBuilders.webAppContextSetup( _context ).apply( springSecurity() ).build();
+    }
+
+
+    @Test
+    void anonym() throws Exception {
+
+        final String etag = _mockMvc.perform( get( PFAD ) )
+                                    .andExpect( status().isOk() )
+                                    .andExpect( header().doesNotExist( LAST_MODIFIED ) )
+                                    .andReturn().getResponse().getHeader( ETAG );
+
+        assertThat( etag ).endsWith( "-anonym\"" );
+
+        _mockMvc.perform( get( PFAD ).header( IF_NONE_MATCH, etag ) )
+                .andExpect( status().isNotModified() );
+
+        // nach Anmeldung darf die anonyme Seite nicht bestätigt werden
+        _mockMvc.perform( get( PFAD ).header( IF_NONE_MATCH, etag ).with( user( "alice" ) ) )
+                .andExpect( status().isOk() );
+    }
+
+
+    @Test
+    void angemeldet() throws Exception {
+
+        final String etagAlice = _mockMvc.perform( get( PFAD ).with( user( "alice" ) ) )
+                                         .andExpect( status().isOk() )
+                                         .andReturn().getResponse().getHeader( ETAG );
+
+        // Kennung ist SHA-256 des Nutzernamens, der Name selbst steht nicht im ETag
+        assertThat( etagAlice ).matches( "\"h\\d+-n[0-9a-f]{64}\"" ).doesNotContain( "alice" );
+
+        _mockMvc.perform( get( PFAD ).header( IF_NONE_MATCH, etagAlice ).with( user( "alice" ) ) )
+                .andExpect( status().isNotModified() );
+
+        _mockMvc.perform( get( PFAD ).header( IF_NONE_MATCH, etagAlice ).with( user( "bob" ) ) )
+                .andExpect( status().isOk() );
+
+        _mockMvc.perform( get( PFAD ).header( IF_NONE_MATCH, etagAlice ) )
+                .andExpect( status().isOk() );
+    }
+
+}
@@ -0,0 +1,155 @@
+package de.eldecker.dhbw.spring.glossar.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.FilterChain;
+
+import tools.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+
+/**
+ * Tests für {@link ZugangskontrolleFilter} mit je einem Platz und ohne Warteschlange, damit
+ * schon der zweite gleichzeitige Request abgelehnt wird.
+ */
+class ZugangskontrolleFilterTests {
+
+    private final ZugangskontrolleFilter _filter =
+            new ZugangskontrolleFilter( new ObjectMapper(), 1, 0, 0, 1, 0, 0, 1, 0, 0, 7 );
+
+
+    @Test
+    void schreibbudgetVollErgibt429MitRetryAfter() throws Exception {
+
+        final CountDownLatch angekommen = new CountDownLatch( 1 );
+        final CountDownLatch freigabe   = new CountDownLatch( 1 );
+
+        final CompletableFuture<MockHttpServletResponse> ersterRequest = CompletableFuture.supplyAsync( () ->
+                filtern( "POST", "/api/v1/speichern", ( request, response ) -> {
+
+                    angekommen.countDown();
+                    warten( freigabe );
+                } ) );
+
+        assertThat( angekommen.await( 10, TimeUnit.SECONDS ) ).isTrue();
+
+        final MockHttpServletResponse abgelehnt = filtern( "POST", "/api/v1/speichern", nichts() );
+        assertThat( abgelehnt.getStatus()                 ).isEqualTo( 429 );
+        assertThat( abgelehnt.getHeader( "Retry-After" )  ).isEqualTo( "7" );
+        assertThat( abgelehnt.getContentType()            ).startsWith( "application/json" );
+        assertThat( abgelehnt.getContentAsString()        ).contains( ZugangskontrolleFilter.FEHLERCODE_UEBERLASTET );
+
+        // lesende Requests, Verwaltung und Requests außerhalb von /app/ und /api/ haben ein eigenes bzw. gar kein Budget
+        assertThat( filtern( "GET" , "/api/v1/eintraege", nichts() ).getStatus() ).isEqualTo( 200 );
+        assertThat( filtern( "POST", "/api/v1/backup"   , nichts() ).getStatus() ).isEqualTo( 200 );
+        assertThat( filtern( "POST", "/login"           , nichts() ).getStatus() ).isEqualTo( 200 );
+
+        freigabe.countDown();
+        assertThat( ersterRequest.get( 10, TimeUnit.SECONDS ).getStatus() ).isEqualTo( 200 );
+
+        assertThat( filtern( "POST", "/api/v1/speichern", nichts() ).getStatus() ).isEqualTo( 200 );
+    }
+
+
+    @Test
+    void verwaltungHatEigenesBudget() throws Exception {
+
+        final CountDownLatch angekommen = new CountDownLatch( 1 );
+        final CountDownLatch freigabe   = new CountDownLatch( 1 );
+
+        // lang laufendes Backup belegt nur das Budget für Verwaltung
+        final CompletableFuture<MockHttpServletResponse> backup = CompletableFuture.supplyAsync( () ->
+                filtern( "POST", "/api/v1/backup", ( request, response ) -> {
+
+                    angekommen.countDown();
+                    warten( freigabe );
+                } ) );
+
+        assertThat( angekommen.await( 10, TimeUnit.SECONDS ) ).isTrue();
+
+        assertThat( filtern( "POST", "/api/v1/speichern"      , nichts() ).getStatus() ).isEqualTo( 200 );
+        assertThat( filtern( "POST", "/api/v1/speichern/batch", nichts() ).getStatus() ).isEqualTo( 200 );
+
+        assertThat( filtern( "POST", "/api/v1/backup"        , nichts() ).getStatus() ).isEqualTo( 429 );
+        assertThat( filtern( "POST", "/api/v1/backup/pruefen", nichts() ).getStatus() ).isEqualTo( 429 );
+        assertThat( filtern( "POST", "/api/v1/export"        , nichts() ).getStatus() ).isEqualTo( 429 );
+
+        freigabe.countDown();
+        assertThat( backup.get( 10, TimeUnit.SECONDS ).getStatus() ).isEqualTo( 200 );
+
+        assertThat( filtern( "POST", "/api/v1/export", nichts() ).getStatus() ).isEqualTo( 200 );
+    }
+
+
+    @Test
+    void platzWirdBeiExceptionFreigegeben() throws Exception {
+
+        final FilterChain mitFehler = ( request, response ) -> {
+
+            throw new IllegalStateException( "Fehler im Handler" );
+        };
+
+        for ( int i = 0; i < 3; i++ ) {
+
+            assertThatThrownBy( () -> _filter.doFilter( request( "POST", "/api/v1/speichern" ),
+                                                        new MockHttpServletResponse(), mitFehler ) )
+                    .isInstanceOf( IllegalStateException.class );
+        }
+
+        assertThat( filtern( "POST", "/api/v1/speichern", nichts() ).getStatus() ).isEqualTo( 200 );
+    }
+
+
+    private MockHttpServletResponse filtern( String methode, String pfad, FilterChain filterChain ) {
+
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+
+            _filter.doFilter( request( methode, pfad ), response, filterChain );
+        }
+        catch ( Exception ex ) {
+
+            throw new IllegalStateException( ex );
+        }
+
+        return response;
+    }
+
+
+    private static MockHttpServletRequest request( String methode, String pfad ) {
+
+        return new MockHttpServletRequest( methode, pfad );
+    }
+
+
+    private static FilterChain nichts() {
+
+        return ( request, response ) -> {};
+    }
+
+
+    private static void warten( CountDownLatch freigabe ) {
+
+        try {
+
+            if ( !freigabe.await( 10, TimeUnit.SECONDS ) ) {
+
+                throw new IllegalStateException( "Keine Freigabe im Test." );
+            }
+        }
+        catch ( InterruptedException ex ) {
+
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( ex );
+        }
+    }
+
+}